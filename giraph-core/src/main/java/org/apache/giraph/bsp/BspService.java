@@ -197,6 +197,17 @@ public abstract class BspService<I extends WritableComparable,
    * messages, etc.
    */
   public static final String CHECKPOINT_VERTICES_POSTFIX = ".vertices";
+  /**
+   * If at the end of a checkpoint file, indicates vertex values, with the
+   * edges of a static graph stored in {@link #CHECKPOINT_EDGES_DIR}
+   */
+  public static final String CHECKPOINT_VERTEX_VALUES_POSTFIX =
+      ".vertexValues";
+  /**
+   * If at the end of a checkpoint file, indicates the in-edge index of a
+   * partition
+   */
+  public static final String CHECKPOINT_IN_EDGES_POSTFIX = ".inEdges";
   /**
    * If at the end of a checkpoint file, indicates metadata and data is valid
    * for the same filenames without .valid
@@ -212,6 +223,11 @@ public abstract class BspService<I extends WritableComparable,
    * file prefixes.  A checkpoint is not valid if this file does not exist.
    */
   public static final String CHECKPOINT_FINALIZED_POSTFIX = ".finalized";
+  /**
+   * Directory of the checkpoint base path holding the edges of static
+   * graphs, stored per partition and shared by the following checkpoints.
+   */
+  public static final String CHECKPOINT_EDGES_DIR = "_edges";
   /** Class logger */
   private static final Logger LOG = Logger.getLogger(BspService.class);
   /** Path to the job's root */
@@ -21,6 +21,7 @@ package org.apache.giraph.bsp;
 import org.apache.giraph.master.MasterAggregatorHandler;
 import org.apache.giraph.master.MasterCompute;
 import org.apache.giraph.master.MasterInfo;
+import org.apache.giraph.master.WorkerSuperstepReports;
 import org.apache.giraph.worker.WorkerInfo;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
@@ -145,6 +146,13 @@ public interface CentralizedServiceMaster<I extends WritableComparable,
    */
   MasterAggregatorHandler getAggregatorHandler();
 
+  /**
+   * Get superstep reports received from workers
+   *
+   * @return Worker superstep reports
+   */
+  WorkerSuperstepReports getWorkerSuperstepReports();
+
   /**
    * Get MasterCompute object
    *
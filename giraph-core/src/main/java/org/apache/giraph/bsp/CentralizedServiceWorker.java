@@ -30,6 +30,7 @@ import org.apache.giraph.metrics.GiraphTimerContext;
 import org.apache.giraph.partition.PartitionOwner;
 import org.apache.giraph.partition.PartitionStats;
 import org.apache.giraph.partition.PartitionStore;
+import org.apache.giraph.utils.io.DiskIOScheduler;
 import org.apache.giraph.worker.WorkerAggregatorHandler;
 import org.apache.giraph.worker.WorkerContext;
 import org.apache.giraph.worker.WorkerInfo;
@@ -208,6 +209,13 @@ public interface CentralizedServiceWorker<I extends WritableComparable,
    */
   ServerData<I, V, E> getServerData();
 
+  /**
+   * Get the scheduler for local disk I/O of out-of-core data
+   *
+   * @return Disk I/O scheduler
+   */
+  DiskIOScheduler getDiskIOScheduler();
+
   /**
    * Get worker aggregator handler
    *
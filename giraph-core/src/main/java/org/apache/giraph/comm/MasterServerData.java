@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm;
+
+import org.apache.giraph.master.MasterAggregatorHandler;
+import org.apache.giraph.master.WorkerSuperstepReports;
+
+/**
+ * Anything that the master server stores
+ */
+public class MasterServerData {
+  /** Master aggregator handler */
+  private final MasterAggregatorHandler aggregatorHandler;
+  /** Superstep reports received from workers */
+  private final WorkerSuperstepReports workerSuperstepReports;
+
+  /**
+   * Constructor
+   *
+   * @param aggregatorHandler Master aggregator handler
+   * @param workerSuperstepReports Superstep reports received from workers
+   */
+  public MasterServerData(MasterAggregatorHandler aggregatorHandler,
+      WorkerSuperstepReports workerSuperstepReports) {
+    this.aggregatorHandler = aggregatorHandler;
+    this.workerSuperstepReports = workerSuperstepReports;
+  }
+
+  public MasterAggregatorHandler getAggregatorHandler() {
+    return aggregatorHandler;
+  }
+
+  public WorkerSuperstepReports getWorkerSuperstepReports() {
+    return workerSuperstepReports;
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm;
+
+import org.apache.giraph.combiner.MessageCombiner;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+import static org.apache.giraph.conf.GiraphConstants.MAX_COMBINED_MESSAGE_VERTICES;
+
+/**
+ * Combines messages to the same vertex on the sending side, so that only
+ * one message per destination vertex is sent (until the cache is flushed).
+ * Combined messages are sent through a {@link SendMessageCache}. Not
+ * thread-safe.
+ *
+ * @param <I> Vertex id
+ * @param <M> Message data
+ */
+public class SendCombinedMessageCache<I extends WritableComparable,
+    M extends Writable> {
+  /** Configuration */
+  private final ImmutableClassesGiraphConfiguration<I, ?, ?> conf;
+  /** Combiner for messages to the same vertex */
+  private final MessageCombiner<I, M> messageCombiner;
+  /** Cache to send combined messages with */
+  private final SendMessageCache<I, M> sendMessageCache;
+  /** Combined message of each destination vertex */
+  private final Map<I, M> combinedMessages = Maps.newHashMap();
+  /** Maximum number of vertices to keep combined messages for */
+  private final int maxVertices;
+
+  /**
+   * Constructor
+   *
+   * @param conf Configuration
+   * @param sendMessageCache Cache to send combined messages with
+   */
+  public SendCombinedMessageCache(
+      ImmutableClassesGiraphConfiguration<I, ?, ?> conf,
+      SendMessageCache<I, M> sendMessageCache) {
+    if (!conf.useMessageCombiner()) {
+      throw new IllegalStateException("SendCombinedMessageCache: " +
+          "Sending combined messages requires a message combiner");
+    }
+    this.conf = conf;
+    this.sendMessageCache = sendMessageCache;
+    messageCombiner = conf.<M>createMessageCombiner();
+    maxVertices = MAX_COMBINED_MESSAGE_VERTICES.get(conf);
+  }
+
+  /**
+   * Combine a message with the other messages to its destination vertex,
+   * sending all combined messages if there are too many of them.
+   *
+   * @param destVertexId Destination vertex id
+   * @param message Message, not kept by the cache
+   */
+  public void combineMessage(I destVertexId, M message) {
+    M combinedMessage = combinedMessages.get(destVertexId);
+    if (combinedMessage == null) {
+      combinedMessage = messageCombiner.createInitialMessage();
+      // Id and message can be reused by the caller
+      combinedMessages.put(WritableUtils.clone(destVertexId, conf),
+          combinedMessage);
+    }
+    messageCombiner.combine(destVertexId, combinedMessage, message);
+    if (combinedMessages.size() >= maxVertices) {
+      flush();
+    }
+  }
+
+  /**
+   * Send all combined messages.
+   */
+  public void flush() {
+    for (Map.Entry<I, M> entry : combinedMessages.entrySet()) {
+      sendMessageCache.sendMessageRequest(entry.getKey(), entry.getValue());
+    }
+    combinedMessages.clear();
+  }
+}
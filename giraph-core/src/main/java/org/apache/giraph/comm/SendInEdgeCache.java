@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm;
+
+import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.comm.netty.NettyWorkerClientRequestProcessor;
+import org.apache.giraph.comm.requests.SendWorkerInEdgesRequest;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.partition.PartitionOwner;
+import org.apache.giraph.utils.PrimitiveVertexIds;
+import org.apache.hadoop.io.WritableComparable;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import static org.apache.giraph.conf.GiraphConstants.MAX_EDGE_REQUEST_SIZE;
+
+/**
+ * Caches in-edges read during input by the partition of their target, and
+ * sends them to the owner of the partition for its
+ * {@link org.apache.giraph.edge.InEdgeIndex}. Not thread-safe.
+ *
+ * @param <I> Vertex id
+ */
+@SuppressWarnings("rawtypes")
+public class SendInEdgeCache<I extends WritableComparable> {
+  /** Service worker */
+  private final CentralizedServiceWorker<I, ?, ?> serviceWorker;
+  /** Processor to send requests with */
+  private final NettyWorkerClientRequestProcessor<I, ?, ?> clientProcessor;
+  /** Target and source id of the cached in-edges of each partition */
+  private final Int2ObjectOpenHashMap<LongArrayList> partitionInEdges =
+      new Int2ObjectOpenHashMap<LongArrayList>();
+  /** Owner of each partition with cached in-edges */
+  private final Int2ObjectOpenHashMap<PartitionOwner> partitionOwners =
+      new Int2ObjectOpenHashMap<PartitionOwner>();
+  /** Number of longs in a partition which triggers a request */
+  private final int maxLongsPerPartition;
+
+  /**
+   * Constructor
+   *
+   * @param conf Configuration
+   * @param serviceWorker Service worker
+   * @param clientProcessor Processor to send requests with
+   */
+  public SendInEdgeCache(ImmutableClassesGiraphConfiguration<I, ?, ?> conf,
+      CentralizedServiceWorker<I, ?, ?> serviceWorker,
+      NettyWorkerClientRequestProcessor<I, ?, ?> clientProcessor) {
+    this.serviceWorker = serviceWorker;
+    this.clientProcessor = clientProcessor;
+    // Each in-edge takes two longs
+    maxLongsPerPartition = Math.max(2, MAX_EDGE_REQUEST_SIZE.get(conf) / 8);
+  }
+
+  /**
+   * Add an in-edge, sending the in-edges of the target's partition if
+   * there are enough of them.
+   *
+   * @param sourceId Source vertex id
+   * @param targetId Target vertex id
+   */
+  public void addInEdge(I sourceId, I targetId) {
+    PartitionOwner owner = serviceWorker.getVertexPartitionOwner(targetId);
+    int partitionId = owner.getPartitionId();
+    LongArrayList inEdges = partitionInEdges.get(partitionId);
+    if (inEdges == null) {
+      inEdges = new LongArrayList();
+      partitionInEdges.put(partitionId, inEdges);
+      partitionOwners.put(partitionId, owner);
+    }
+    inEdges.add(PrimitiveVertexIds.getId(targetId));
+    inEdges.add(PrimitiveVertexIds.getId(sourceId));
+    if (inEdges.size() >= maxLongsPerPartition) {
+      sendInEdges(partitionId, inEdges);
+      partitionInEdges.remove(partitionId);
+      partitionOwners.remove(partitionId);
+    }
+  }
+
+  /**
+   * Send all cached in-edges.
+   */
+  public void flush() {
+    ObjectIterator<Int2ObjectMap.Entry<LongArrayList>> iterator =
+        partitionInEdges.int2ObjectEntrySet().fastIterator();
+    while (iterator.hasNext()) {
+      Int2ObjectMap.Entry<LongArrayList> entry = iterator.next();
+      sendInEdges(entry.getIntKey(), entry.getValue());
+    }
+    partitionInEdges.clear();
+    partitionOwners.clear();
+  }
+
+  /**
+   * Send the in-edges of a partition to its owner. The request keeps the
+   * array of the list, so the list must not be used afterwards.
+   *
+   * @param partitionId Partition id
+   * @param inEdges Target and source id of the in-edges
+   */
+  private void sendInEdges(int partitionId, LongArrayList inEdges) {
+    PartitionOwner owner = partitionOwners.get(partitionId);
+    clientProcessor.doRequest(owner.getWorkerInfo(),
+        new SendWorkerInEdgesRequest<I>(partitionId, inEdges.elements(),
+            inEdges.size()));
+  }
+}
@@ -18,26 +18,37 @@
 
 package org.apache.giraph.comm;
 
+import java.io.IOException;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.apache.giraph.bsp.CentralizedServiceWorker;
 import org.apache.giraph.comm.netty.NettyWorkerClientRequestProcessor;
+import org.apache.giraph.comm.requests.SendMirrorEdgesRequest;
+import org.apache.giraph.comm.requests.SendMirrorMessageRequest;
 import org.apache.giraph.comm.requests.SendWorkerMessagesRequest;
 import org.apache.giraph.comm.requests.WritableRequest;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.edge.Edge;
 import org.apache.giraph.graph.Vertex;
 import org.apache.giraph.partition.PartitionOwner;
+import org.apache.giraph.utils.ExtendedDataOutput;
 import org.apache.giraph.utils.VertexIdMessages;
 import org.apache.giraph.utils.ByteArrayVertexIdMessages;
 import org.apache.giraph.utils.PairList;
 import org.apache.giraph.worker.WorkerInfo;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.log4j.Logger;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
 import static org.apache.giraph.conf.GiraphConstants.ADDITIONAL_MSG_REQUEST_SIZE;
+import static org.apache.giraph.conf.GiraphConstants.LOCAL_MESSAGE_DELIVERY;
 import static org.apache.giraph.conf.GiraphConstants.MAX_MSG_REQUEST_SIZE;
+import static org.apache.giraph.conf.GiraphConstants.VERTEX_MIRRORING_MIN_DEGREE;
 
 /**
  * Aggregates the messages to be sent to workers so they can be sent
@@ -60,6 +71,13 @@ public class SendMessageCache<I extends WritableComparable, M extends Writable>
   protected final int maxMessagesSizePerWorker;
   /** NettyWorkerClientRequestProcessor for message sending */
   protected final NettyWorkerClientRequestProcessor<I, ?, ?> clientProcessor;
+  /** Whether to add messages for local vertices directly to the store */
+  protected final boolean localMessageDelivery;
+  /** Minimum degree of vertices to send messages to all edges through
+   * mirrors, 0 if mirroring is disabled */
+  protected final int mirroringMinDegree;
+  /** Reused output to serialize the edge targets of mirrored vertices */
+  private ExtendedDataOutput edgeTargets;
   /**
    * Constructor
    *
@@ -76,6 +94,8 @@ public class SendMessageCache<I extends WritableComparable, M extends Writable>
         ADDITIONAL_MSG_REQUEST_SIZE.get(conf));
     maxMessagesSizePerWorker = maxMsgSize;
     clientProcessor = processor;
+    localMessageDelivery = LOCAL_MESSAGE_DELIVERY.get(conf);
+    mirroringMinDegree = VERTEX_MIRRORING_MIN_DEGREE.get(conf);
   }
 
   @Override
@@ -138,6 +158,31 @@ public class SendMessageCache<I extends WritableComparable, M extends Writable>
     return removeAllData();
   }
 
+  /**
+   * If the target vertex is owned by this worker and local delivery is
+   * enabled, add the message straight to the incoming message store.
+   *
+   * @param owner Owner of the partition of the target vertex
+   * @param destVertexId Target vertex id
+   * @param message The message sent to the target
+   * @return True iff the message was delivered locally
+   */
+  protected boolean sendLocalMessage(PartitionOwner owner, I destVertexId,
+      M message) {
+    if (!localMessageDelivery ||
+        !clientProcessor.isLocalWorker(owner.getWorkerInfo())) {
+      return false;
+    }
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("sendLocalMessage: Add (" + message.toString() +
+        ") to local " + destVertexId);
+    }
+    ++totalMsgsSentInSuperstep;
+    clientProcessor.addLocalMessage(
+        owner.getPartitionId(), destVertexId, message);
+    return true;
+  }
+
   /**
    * Send a message to a target vertex id.
    *
@@ -147,6 +192,9 @@ public class SendMessageCache<I extends WritableComparable, M extends Writable>
   public void sendMessageRequest(I destVertexId, M message) {
     PartitionOwner owner =
       getServiceWorker().getVertexPartitionOwner(destVertexId);
+    if (sendLocalMessage(owner, destVertexId, message)) {
+      return;
+    }
     WorkerInfo workerInfo = owner.getWorkerInfo();
     final int partitionId = owner.getPartitionId();
     if (LOG.isTraceEnabled()) {
@@ -212,13 +260,126 @@ public class SendMessageCache<I extends WritableComparable, M extends Writable>
    * @param message The message sent to a worker
    */
   public void sendMessageToAllRequest(Vertex<I, ?, ?> vertex, M message) {
+    if (mirroringMinDegree > 0 && vertex.getNumEdges() >= mirroringMinDegree &&
+        sendMirroredMessage(vertex, message)) {
+      return;
+    }
     TargetVertexIdIterator targetVertexIterator =
       new TargetVertexIdIterator(vertex);
     sendMessageToAllRequest(targetVertexIterator, message);
   }
 
   /**
-   * Send message to the target ids in the iterator
+   * Send a message to all edges of a high-degree vertex through the mirrors
+   * of the vertex on the workers holding the targets of its edges. If
+   * there are no mirrors yet or the edges changed since they were built,
+   * (re)build them instead, they will be used from the next superstep on.
+   *
+   * @param vertex The source vertex
+   * @param message The message sent to all edges
+   * @return True iff the message was sent through the mirrors
+   */
+  private boolean sendMirroredMessage(Vertex<I, ?, ?> vertex, M message) {
+    VertexMirrors<I> vertexMirrors =
+        getServiceWorker().getServerData().getVertexMirrors();
+    writeEdgeTargets(vertex);
+    VertexMirrors.MirrorLocations locations =
+        vertexMirrors.getMirrorLocations(vertex.getId());
+    if (locations == null || !locations.hasEdgeTargets(
+        edgeTargets.getByteArray(), edgeTargets.getPos())) {
+      buildMirrors(vertex, edgeTargets.toByteArray(), locations);
+      return false;
+    }
+    if (locations.getSuperstep() == getServiceWorker().getSuperstep()) {
+      // Mirrors sent in this superstep may not have arrived yet
+      return false;
+    }
+    // Requests to remote workers are serialized asynchronously, and the
+    // caller can reuse the vertex id and the message
+    I vertexId = WritableUtils.clone(vertex.getId(), getConf());
+    M messageCopy = WritableUtils.clone(message, getConf());
+    for (WorkerInfo workerInfo : locations.getWorkers()) {
+      WritableRequest writableRequest =
+          new SendMirrorMessageRequest<I, M>(vertexId, messageCopy);
+      totalMsgBytesSentInSuperstep += writableRequest.getSerializedSize();
+      clientProcessor.doRequest(workerInfo, writableRequest);
+    }
+    totalMsgsSentInSuperstep += vertex.getNumEdges();
+    return true;
+  }
+
+  /**
+   * Build the mirrors of a vertex and send them to the workers holding the
+   * targets of its edges, dropping mirrors which are no longer needed.
+   *
+   * @param vertex The vertex to mirror
+   * @param targets Serialized targets of its edges
+   * @param oldLocations Workers holding the previous mirrors, if any
+   */
+  private void buildMirrors(Vertex<I, ?, ?> vertex, byte[] targets,
+      VertexMirrors.MirrorLocations oldLocations) {
+    Map<WorkerInfo, VertexMirror<I>> mirrors = Maps.newHashMap();
+    try {
+      for (Edge<I, ?> edge : vertex.getEdges()) {
+        PartitionOwner owner =
+            getServiceWorker().getVertexPartitionOwner(
+                edge.getTargetVertexId());
+        VertexMirror<I> mirror = mirrors.get(owner.getWorkerInfo());
+        if (mirror == null) {
+          mirror = new VertexMirror<I>(getConf());
+          mirrors.put(owner.getWorkerInfo(), mirror);
+        }
+        mirror.addTarget(owner.getPartitionId(), edge.getTargetVertexId());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          "buildMirrors: Failed to serialize the target vertex id", e);
+    }
+    I vertexId = WritableUtils.clone(vertex.getId(), getConf());
+    for (Map.Entry<WorkerInfo, VertexMirror<I>> entry : mirrors.entrySet()) {
+      clientProcessor.doRequest(entry.getKey(),
+          new SendMirrorEdgesRequest<I>(vertexId, entry.getValue()));
+    }
+    if (oldLocations != null) {
+      for (WorkerInfo workerInfo : oldLocations.getWorkers()) {
+        if (!mirrors.containsKey(workerInfo)) {
+          clientProcessor.doRequest(workerInfo,
+              new SendMirrorEdgesRequest<I>(vertexId, null));
+        }
+      }
+    }
+    getServiceWorker().getServerData().getVertexMirrors().setMirrorLocations(
+        vertexId, new VertexMirrors.MirrorLocations(targets,
+            getServiceWorker().getSuperstep(),
+            Lists.newArrayList(mirrors.keySet())));
+  }
+
+  /**
+   * Serialize the targets of the edges of a vertex into the reused
+   * edgeTargets output, so mirrors can be checked against the exact edges
+   * they were built from.
+   *
+   * @param vertex The vertex
+   */
+  private void writeEdgeTargets(Vertex<I, ?, ?> vertex) {
+    if (edgeTargets == null) {
+      edgeTargets = getConf().createExtendedDataOutput();
+    } else {
+      edgeTargets.reset();
+    }
+    try {
+      for (Edge<I, ?> edge : vertex.getEdges()) {
+        edge.getTargetVertexId().write(edgeTargets);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          "writeEdgeTargets: Failed to serialize the target vertex id", e);
+    }
+  }
+
+  /**
+   * Send message to the target ids in the iterator. This never goes
+   * through vertex mirrors, which only serve messages to all edges.
    *
    * @param vertexIdIterator The iterator of target vertex ids
    * @param message The message sent to a worker
@@ -31,8 +31,11 @@ import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.partition.PartitionOwner;
 import org.apache.giraph.utils.ByteArrayOneMessageToManyIds;
 import org.apache.giraph.utils.VertexIdMessages;
+import org.apache.giraph.utils.ExtendedDataInput;
 import org.apache.giraph.utils.ExtendedDataOutput;
 import org.apache.giraph.utils.PairList;
+import org.apache.giraph.utils.PrimitiveVertexIds;
+import org.apache.giraph.utils.VertexIdDeltaEncoding;
 import org.apache.giraph.worker.WorkerInfo;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
@@ -44,6 +47,11 @@ import javax.annotation.concurrent.NotThreadSafe;
  * Aggregates the messages to be sent to workers so they can be sent
  * in bulk.
  *
+ * Messages to all edges of vertices with mirrors are still sent through
+ * the mirrors. Messages to multiple edges, and to all edges of vertices
+ * which aren't mirrored, are encoded once per worker here and bypass
+ * mirroring.
+ *
  * @param <I> Vertex id
  * @param <M> Message data
  */
@@ -69,6 +77,14 @@ public class SendOneMessageToManyCache<I extends WritableComparable,
   private final int[] firstPartitionMap;
   /** The WorkerInfo list */
   private final WorkerInfo[] workerInfoList;
+  /** Whether target ids are sorted and delta encoded */
+  private final boolean deltaEncodedIds;
+  /** Reused array to sort target ids, when ids are delta encoded */
+  private long[] sortedIds;
+  /** Reused output for sorted target ids, when ids are delta encoded */
+  private final ExtendedDataOutput sortedIdSerializer;
+  /** Reused id to decode target ids, when ids are delta encoded */
+  private final I idReader;
 
   /**
    * Constructor
@@ -106,6 +122,15 @@ public class SendOneMessageToManyCache<I extends WritableComparable,
     for (WorkerInfo workerInfo : serviceWorker.getWorkerInfoList()) {
       workerInfoList[workerInfo.getTaskId()] = workerInfo;
     }
+    deltaEncodedIds = conf.useVertexIdDeltaEncoding();
+    if (deltaEncodedIds) {
+      sortedIds = new long[0];
+      sortedIdSerializer = conf.createExtendedDataOutput();
+      idReader = (I) conf.createVertexId();
+    } else {
+      sortedIdSerializer = null;
+      idReader = null;
+    }
   }
 
   /**
@@ -127,6 +152,40 @@ public class SendOneMessageToManyCache<I extends WritableComparable,
     Arrays.fill(idCounter, 0);
   }
 
+  /**
+   * Sort the serialized target ids of a worker and write them delta encoded
+   * into {@link #sortedIdSerializer}. Sorted ids are close to each other,
+   * so most of them take a byte or two.
+   *
+   * @param workerId Task id of the worker
+   */
+  private void sortAndEncodeIds(int workerId) {
+    int count = idCounter[workerId];
+    if (sortedIds.length < count) {
+      sortedIds = new long[Math.max(count, sortedIds.length << 1)];
+    }
+    ExtendedDataInput input = getConf().createExtendedDataInput(
+        idSerializer[workerId].getByteArray(), 0,
+        idSerializer[workerId].getPos());
+    try {
+      for (int j = 0; j < count; j++) {
+        idReader.readFields(input);
+        sortedIds[j] = PrimitiveVertexIds.getId(idReader);
+      }
+      Arrays.sort(sortedIds, 0, count);
+      sortedIdSerializer.reset();
+      long previousId = 0;
+      for (int j = 0; j < count; j++) {
+        VertexIdDeltaEncoding.writeDelta(
+            sortedIdSerializer, sortedIds[j], previousId);
+        previousId = sortedIds[j];
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          "sortAndEncodeIds: Failed to encode the target vertex ids.", e);
+    }
+  }
+
   /**
    * Add message with multiple target ids to message cache.
    *
@@ -213,6 +272,9 @@ public class SendOneMessageToManyCache<I extends WritableComparable,
     while (vertexIdIterator.hasNext()) {
       vertexId = vertexIdIterator.next();
       owner = getServiceWorker().getVertexPartitionOwner(vertexId);
+      if (sendLocalMessage(owner, vertexId, message)) {
+        continue;
+      }
       workerInfo = owner.getWorkerInfo();
       currentMachineId = workerInfo.getTaskId();
       // Serialize this target vertex id
@@ -259,8 +321,14 @@ public class SendOneMessageToManyCache<I extends WritableComparable,
           getServiceWorker().getGraphTaskManager().notifySentMessages();
         }
       } else if (idCounter[i] > 1) {
-        serializedId = idSerializer[i].getByteArray();
-        idSerializerPos = idSerializer[i].getPos();
+        if (deltaEncodedIds) {
+          sortAndEncodeIds(i);
+          serializedId = sortedIdSerializer.getByteArray();
+          idSerializerPos = sortedIdSerializer.getPos();
+        } else {
+          serializedId = idSerializer[i].getByteArray();
+          idSerializerPos = idSerializer[i].getPos();
+        }
         workerMessageSize = addOneToManyMessage(
             workerInfoList[i], serializedId, idSerializerPos, idCounter[i],
             message);
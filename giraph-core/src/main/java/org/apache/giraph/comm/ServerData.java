@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.giraph.bsp.CentralizedServiceWorker;
@@ -34,6 +35,8 @@ import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.edge.EdgeStore;
 import org.apache.giraph.edge.EdgeStoreFactory;
+import org.apache.giraph.edge.InEdgeIndex;
+import org.apache.giraph.graph.ComputeFrontiers;
 import org.apache.giraph.graph.VertexMutations;
 import org.apache.giraph.partition.DiskBackedPartitionStore;
 import org.apache.giraph.partition.PartitionStore;
@@ -87,6 +90,19 @@ public class ServerData<I extends WritableComparable,
   private final AllAggregatorServerData allAggregatorData;
   /** Service worker */
   private final CentralizedServiceWorker<I, V, E> serviceWorker;
+  /** Active vertices left in each partition by the last computation */
+  private final ComputeFrontiers<I> computeFrontiers =
+      new ComputeFrontiers<I>();
+  /** Mirrors of high-degree vertices */
+  private final VertexMirrors<I> vertexMirrors = new VertexMirrors<I>();
+  /** Index of the in-edges of the vertices of this worker */
+  private final InEdgeIndex<I> inEdgeIndex;
+  /**
+   * Partitions where vertices gained edges through mutations since their
+   * edges were last stored in a checkpoint of a static graph
+   */
+  private final Set<Integer> partitionsWithNewEdges =
+      Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
 
   /** Store for current messages from other workers to this worker */
   private volatile List<Writable> currentWorkerToWorkerMessages =
@@ -125,12 +141,29 @@ public class ServerData<I extends WritableComparable,
     edgeStore = edgeStoreFactory.newStore();
     ownerAggregatorData = new OwnerAggregatorServerData(context);
     allAggregatorData = new AllAggregatorServerData(context, conf);
+    inEdgeIndex = new InEdgeIndex<I>(conf);
   }
 
   public EdgeStore<I, V, E> getEdgeStore() {
     return edgeStore;
   }
 
+  public ComputeFrontiers<I> getComputeFrontiers() {
+    return computeFrontiers;
+  }
+
+  public VertexMirrors<I> getVertexMirrors() {
+    return vertexMirrors;
+  }
+
+  public InEdgeIndex<I> getInEdgeIndex() {
+    return inEdgeIndex;
+  }
+
+  public Set<Integer> getPartitionsWithNewEdges() {
+    return partitionsWithNewEdges;
+  }
+
   /**
    * Return the partition store for this worker.
    *
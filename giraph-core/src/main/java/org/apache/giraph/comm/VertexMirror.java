@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm;
+
+import org.apache.giraph.comm.messages.MessageStore;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.utils.ExtendedDataInput;
+import org.apache.giraph.utils.ExtendedDataOutput;
+import org.apache.giraph.utils.WritableUtils;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Targets of the edges of a high-degree vertex which belong to the
+ * partitions of one worker. The worker keeps this mirror of the vertex,
+ * so that a message to all edges of the vertex only has to be sent to it
+ * once and is fanned out to the targets locally.
+ *
+ * @param <I> Vertex id
+ */
+@SuppressWarnings("rawtypes")
+public class VertexMirror<I extends WritableComparable> implements Writable {
+  /** Configuration */
+  private final ImmutableClassesGiraphConfiguration<I, ?, ?> conf;
+  /** Partition id of each target */
+  private IntArrayList partitionIds = new IntArrayList();
+  /** Serialized target ids */
+  private ExtendedDataOutput targetIds;
+
+  /**
+   * Constructor
+   *
+   * @param conf Configuration
+   */
+  public VertexMirror(ImmutableClassesGiraphConfiguration<I, ?, ?> conf) {
+    this.conf = conf;
+    targetIds = conf.createExtendedDataOutput();
+  }
+
+  /**
+   * Add the target of an edge.
+   *
+   * @param partitionId Partition the target belongs to
+   * @param targetId Target vertex id
+   * @throws IOException
+   */
+  public void addTarget(int partitionId, I targetId) throws IOException {
+    partitionIds.add(partitionId);
+    targetId.write(targetIds);
+  }
+
+  /**
+   * Get the number of targets.
+   *
+   * @return Number of targets
+   */
+  public int getTargetCount() {
+    return partitionIds.size();
+  }
+
+  /**
+   * Add a message for every target to a message store.
+   *
+   * @param messageStore Message store
+   * @param message Message for the targets
+   * @param <M> Message type
+   * @throws IOException
+   */
+  public <M extends Writable> void addMessages(MessageStore<I, M> messageStore,
+      M message) throws IOException {
+    ExtendedDataInput input = conf.createExtendedDataInput(targetIds);
+    I targetId = conf.createVertexId();
+    for (int i = 0; i < partitionIds.size(); i++) {
+      targetId.readFields(input);
+      messageStore.addMessage(partitionIds.getInt(i), targetId, message);
+    }
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(partitionIds.size());
+    for (int i = 0; i < partitionIds.size(); i++) {
+      out.writeInt(partitionIds.getInt(i));
+    }
+    WritableUtils.writeExtendedDataOutput(targetIds, out);
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    int size = in.readInt();
+    partitionIds = new IntArrayList(size);
+    for (int i = 0; i < size; i++) {
+      partitionIds.add(in.readInt());
+    }
+    targetIds = WritableUtils.readExtendedDataOutput(in, conf);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm;
+
+import org.apache.giraph.worker.WorkerInfo;
+import org.apache.hadoop.io.WritableComparable;
+
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Mirrors of high-degree vertices on a worker: the mirrors of other
+ * vertices (and its own) the worker keeps, and the workers which keep
+ * mirrors of its own vertices.
+ *
+ * Mirrors are dropped on every worker whenever partitions move between
+ * workers, since they are grouped by the partitions of their targets.
+ *
+ * @param <I> Vertex id
+ */
+@SuppressWarnings("rawtypes")
+public class VertexMirrors<I extends WritableComparable> {
+  /** Mirrors kept on this worker, keyed by the id of the mirrored vertex */
+  private final ConcurrentMap<I, VertexMirror<I>> mirrors =
+      Maps.newConcurrentMap();
+  /** Where the vertices of this worker are mirrored, keyed by vertex id */
+  private final ConcurrentMap<I, MirrorLocations> mirrorLocations =
+      Maps.newConcurrentMap();
+
+  /**
+   * Get the mirror of a vertex kept on this worker.
+   *
+   * @param vertexId Id of the mirrored vertex
+   * @return Mirror, or null if there is none
+   */
+  public VertexMirror<I> getMirror(I vertexId) {
+    return mirrors.get(vertexId);
+  }
+
+  /**
+   * Set or remove the mirror of a vertex kept on this worker.
+   *
+   * @param vertexId Id of the mirrored vertex
+   * @param mirror Mirror, or null to remove it
+   */
+  public void setMirror(I vertexId, VertexMirror<I> mirror) {
+    if (mirror == null) {
+      mirrors.remove(vertexId);
+    } else {
+      mirrors.put(vertexId, mirror);
+    }
+  }
+
+  /**
+   * Get the workers a vertex of this worker is mirrored on.
+   *
+   * @param vertexId Vertex id
+   * @return Mirror locations, or null if the vertex isn't mirrored
+   */
+  public MirrorLocations getMirrorLocations(I vertexId) {
+    return mirrorLocations.get(vertexId);
+  }
+
+  /**
+   * Record the workers a vertex of this worker is mirrored on.
+   *
+   * @param vertexId Vertex id, not reused by the caller
+   * @param locations Mirror locations
+   */
+  public void setMirrorLocations(I vertexId, MirrorLocations locations) {
+    mirrorLocations.put(vertexId, locations);
+  }
+
+  /**
+   * Drop all mirrors.
+   */
+  public void clear() {
+    mirrors.clear();
+    mirrorLocations.clear();
+  }
+
+  /**
+   * Workers holding the mirrors of a vertex, and the edges the mirrors
+   * were built from.
+   */
+  public static class MirrorLocations {
+    /** Serialized targets of the edges the mirrors were built from */
+    private final byte[] edgeTargets;
+    /** Superstep in which the mirrors were sent */
+    private final long superstep;
+    /** Workers holding mirrors */
+    private final Collection<WorkerInfo> workers;
+
+    /**
+     * Constructor
+     *
+     * @param edgeTargets Serialized targets of the edges of the vertex
+     * @param superstep Superstep in which the mirrors were sent
+     * @param workers Workers holding mirrors
+     */
+    public MirrorLocations(byte[] edgeTargets, long superstep,
+        Collection<WorkerInfo> workers) {
+      this.edgeTargets = edgeTargets;
+      this.superstep = superstep;
+      this.workers = workers;
+    }
+
+    /**
+     * Check whether the mirrors were built from exactly these edge targets.
+     *
+     * @param targets Serialized targets of the edges of the vertex
+     * @param length Number of bytes used in targets
+     * @return True iff the targets are the same as the mirrored ones
+     */
+    public boolean hasEdgeTargets(byte[] targets, int length) {
+      if (edgeTargets.length != length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (edgeTargets[i] != targets[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    public long getSuperstep() {
+      return superstep;
+    }
+
+    public Collection<WorkerInfo> getWorkers() {
+      return workers;
+    }
+  }
+}
@@ -62,7 +62,17 @@ public interface WorkerClientRequestProcessor<I extends WritableComparable,
   void sendMessageToAllRequest(Iterator<I> vertexIdIterator, Writable message);
 
   /**
-   * Sends a vertex to the appropriate partition owner
+   * Sends a message through the partition owner after combining it with
+   * the other messages sent to the same vertex with this method, until
+   * {@link #flush()} or until too many vertices have a combined message.
+   *
+   * @param destVertexId Destination vertex id.
+   * @param message Message to send.
+   */
+  void sendCombinedMessageRequest(I destVertexId, Writable message);
+
+  /**
+   * Sends a vertex read from input to the appropriate partition owner
    *
    * @param partitionOwner Owner of the vertex
    * @param vertex Vertex to send
@@ -80,6 +90,19 @@ public interface WorkerClientRequestProcessor<I extends WritableComparable,
   void sendPartitionRequest(WorkerInfo workerInfo,
                             Partition<I, V, E> partition);
 
+  /**
+   * Send the vertices of a partition in bounded chunks, which the
+   * destination worker applies to the partition as they arrive. Unlike
+   * {@link #sendPartitionRequest(WorkerInfo, Partition)}, neither side
+   * needs to hold the whole serialized partition at once.
+   *
+   * @param workerInfo Worker to send the partition to
+   * @param partitionId Id of the partition
+   * @param vertices Vertices of the partition
+   */
+  void sendPartitionVerticesRequest(WorkerInfo workerInfo, int partitionId,
+                                    Iterable<Vertex<I, V, E>> vertices);
+
   /**
    * Sends a request to the appropriate vertex range owner to add an edge
    *
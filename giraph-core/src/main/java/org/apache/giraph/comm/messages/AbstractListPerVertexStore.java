@@ -25,6 +25,7 @@ import org.apache.giraph.partition.PartitionOwner;
 import org.apache.giraph.utils.VertexIdIterator;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableUtils;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -88,6 +89,29 @@ public abstract class AbstractListPerVertexStore<I extends WritableComparable,
     return list;
   }
 
+  /**
+   * Get the list of pointers for a vertex, creating it if the vertex has
+   * no messages yet
+   *
+   * @param partitionId Id of partition the vertex belongs to
+   * @param vertexId Vertex id, copied if the list is created
+   * @return pointer list
+   */
+  protected L getOrCreateList(int partitionId, I vertexId) {
+    ConcurrentMap<I, L> partitionMap = getOrCreatePartitionMap(partitionId);
+    L list = partitionMap.get(vertexId);
+    if (list == null) {
+      L newList = createList();
+      // Vertex id can be reused by the caller, so the map needs a copy
+      list = partitionMap.putIfAbsent(
+          WritableUtils.clone(vertexId, config), newList);
+      if (list == null) {
+        list = newList;
+      }
+    }
+    return list;
+  }
+
   @Override
   public Iterable<M> getVertexMessages(I vertexId) throws IOException {
     ConcurrentMap<I, L> partitionMap =
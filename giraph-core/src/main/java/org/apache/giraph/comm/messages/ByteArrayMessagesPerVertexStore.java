@@ -35,6 +35,7 @@ import org.apache.giraph.utils.VerboseByteStructMessageWrite;
 import org.apache.giraph.utils.io.DataInputOutput;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableUtils;
 
 import com.google.common.collect.Iterators;
 
@@ -131,6 +132,26 @@ public class ByteArrayMessagesPerVertexStore<I extends WritableComparable,
     }
   }
 
+  @Override
+  public void addMessage(int partitionId, I vertexId,
+      M message) throws IOException {
+    ConcurrentMap<I, DataInputOutput> partitionMap =
+        getOrCreatePartitionMap(partitionId);
+    DataInputOutput dataInputOutput = partitionMap.get(vertexId);
+    if (dataInputOutput == null) {
+      DataInputOutput newDataOutput = config.createMessagesInputOutput();
+      // Vertex id can be reused by the caller, so the map needs a copy
+      dataInputOutput = partitionMap.putIfAbsent(
+          WritableUtils.clone(vertexId, config), newDataOutput);
+      if (dataInputOutput == null) {
+        dataInputOutput = newDataOutput;
+      }
+    }
+    synchronized (dataInputOutput) {
+      message.write(dataInputOutput.getDataOutput());
+    }
+  }
+
   @Override
   protected Iterable<M> getMessagesAsIterable(
       DataInputOutput dataInputOutput) {
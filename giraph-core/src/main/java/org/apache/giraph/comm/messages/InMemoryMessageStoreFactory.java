@@ -24,11 +24,14 @@ import org.apache.giraph.comm.messages.primitives.IntByteArrayMessageStore;
 import org.apache.giraph.comm.messages.primitives.IntFloatMessageStore;
 import org.apache.giraph.comm.messages.primitives.long_id.LongByteArrayMessageStore;
 import org.apache.giraph.comm.messages.primitives.LongDoubleMessageStore;
+import org.apache.giraph.comm.messages.primitives.SpilledPartitions;
+import org.apache.giraph.comm.messages.out_of_core.MessageFiles;
 import org.apache.giraph.comm.messages.queue.AsyncMessageStoreWrapper;
 import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.comm.messages.primitives.long_id.LongPointerListMessageStore;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.factories.MessageValueFactory;
+import org.apache.giraph.utils.io.DiskIOScheduler;
 import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.FloatWritable;
 import org.apache.hadoop.io.IntWritable;
@@ -58,6 +61,8 @@ public class InMemoryMessageStoreFactory<I extends WritableComparable,
   protected CentralizedServiceWorker<I, ?, ?> service;
   /** Hadoop configuration */
   protected ImmutableClassesGiraphConfiguration<I, ?, ?> conf;
+  /** Names spill files, or null if stores don't spill */
+  protected MessageFiles spillFiles;
 
   /**
    * Default constructor allowing class invocation via Reflection.
@@ -87,7 +92,8 @@ public class InMemoryMessageStoreFactory<I extends WritableComparable,
       messageStore = new LongDoubleMessageStore(
           (CentralizedServiceWorker<LongWritable, Writable, Writable>) service,
           (MessageCombiner<LongWritable, DoubleWritable>)
-              conf.<DoubleWritable>createMessageCombiner());
+              conf.<DoubleWritable>createMessageCombiner(),
+          newSpilledPartitions());
     } else {
       messageStore = new OneMessagePerVertexStore(messageValueFactory,
           service, conf.<M>createMessageCombiner(), conf);
@@ -111,7 +117,12 @@ public class InMemoryMessageStoreFactory<I extends WritableComparable,
       messageStore = new IntByteArrayMessageStore(messageValueFactory,
           service, conf);
     } else if (vertexIdClass.equals(LongWritable.class)) { // LONG
-      if (encodeAndStore.equals(
+      if (spillFiles != null) {
+        // Pointer lists share buffers between partitions, so only byte
+        // arrays per vertex can be spilled by partition
+        messageStore = new LongByteArrayMessageStore(messageValueFactory,
+            service, conf, newSpilledPartitions());
+      } else if (encodeAndStore.equals(
           MessageEncodeAndStoreType.BYTEARRAY_PER_PARTITION) ||
           encodeAndStore.equals(
             MessageEncodeAndStoreType.EXTRACT_BYTEARRAY_PER_PARTITION)) {
@@ -169,11 +180,27 @@ public class InMemoryMessageStoreFactory<I extends WritableComparable,
     return messageStore;
   }
 
+  /**
+   * Create the bookkeeping of spilled partitions for a new store.
+   *
+   * @return Spilled partitions, or null if stores don't spill
+   */
+  protected SpilledPartitions newSpilledPartitions() {
+    if (spillFiles == null) {
+      return null;
+    }
+    return new SpilledPartitions(spillFiles,
+        GiraphConstants.MAX_MESSAGES_IN_MEMORY.get(conf));
+  }
+
   @Override
   public void initialize(CentralizedServiceWorker<I, ?, ?> service,
       ImmutableClassesGiraphConfiguration<I, ?, ?> conf) {
     this.service = service;
     this.conf = conf;
+    if (GiraphConstants.SPILL_PRIMITIVE_MESSAGES.get(conf)) {
+      spillFiles = new MessageFiles(conf, DiskIOScheduler.get(service));
+    }
   }
 
   @Override
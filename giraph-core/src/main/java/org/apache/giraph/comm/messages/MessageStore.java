@@ -75,6 +75,27 @@ public interface MessageStore<I extends WritableComparable,
    */
   boolean hasMessagesForVertex(I vertexId);
 
+  /**
+   * Check if we have messages for any vertex of a partition
+   *
+   * @param partitionId Id of partition which we want to check
+   * @return True iff we have messages for some vertex in the partition
+   */
+  boolean hasMessagesForPartition(int partitionId);
+
+  /**
+   * Adds a single message for a vertex without going through serialized
+   * {@link VertexIdMessages}, used for messages sent to vertices owned by
+   * this worker. The store keeps neither the vertex id nor the message, so
+   * the caller is free to reuse them.
+   *
+   * @param partitionId Id of partition the vertex belongs to
+   * @param vertexId    Id of vertex the message is for
+   * @param message     Message to add
+   * @throws IOException
+   */
+  void addMessage(int partitionId, I vertexId, M message) throws IOException;
+
   /**
    * Adds messages for partition
    *
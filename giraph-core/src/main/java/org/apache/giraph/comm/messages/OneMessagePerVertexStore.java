@@ -32,6 +32,7 @@ import org.apache.giraph.utils.VertexIdMessageIterator;
 import org.apache.giraph.utils.VertexIdMessages;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableUtils;
 
 /**
  * Implementation of {@link SimpleMessageStore} where we have a single
@@ -97,6 +98,26 @@ public class OneMessagePerVertexStore<I extends WritableComparable,
     }
   }
 
+  @Override
+  public void addMessage(int partitionId, I vertexId,
+      M message) throws IOException {
+    ConcurrentMap<I, M> partitionMap =
+        getOrCreatePartitionMap(partitionId);
+    M currentMessage = partitionMap.get(vertexId);
+    if (currentMessage == null) {
+      M newMessage = messageCombiner.createInitialMessage();
+      // Vertex id can be reused by the caller, so the map needs a copy
+      currentMessage = partitionMap.putIfAbsent(
+          WritableUtils.clone(vertexId, config), newMessage);
+      if (currentMessage == null) {
+        currentMessage = newMessage;
+      }
+    }
+    synchronized (currentMessage) {
+      messageCombiner.combine(vertexId, currentMessage, message);
+    }
+  }
+
   @Override
   protected Iterable<M> getMessagesAsIterable(M message) {
     return Collections.singleton(message);
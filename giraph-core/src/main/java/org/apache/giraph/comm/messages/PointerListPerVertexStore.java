@@ -23,7 +23,6 @@ import org.apache.giraph.bsp.CentralizedServiceWorker;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.factories.MessageValueFactory;
 import org.apache.giraph.utils.ExtendedByteArrayOutputBuffer;
-import org.apache.giraph.utils.ExtendedDataOutput;
 import org.apache.giraph.utils.VertexIdMessageIterator;
 import org.apache.giraph.utils.VertexIdMessages;
 import org.apache.hadoop.io.Writable;
@@ -34,7 +33,6 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.util.concurrent.ConcurrentMap;
 
-import static org.apache.giraph.utils.ExtendedByteArrayOutputBuffer.IndexAndDataOut;
 
 /**
  * Implementation of {@link SimpleMessageStore} where multiple messages are
@@ -87,12 +85,7 @@ public class PointerListPerVertexStore<I extends WritableComparable,
       M msg = vertexIdMessageIterator.getCurrentMessage();
       list = getOrCreateList(vertexIdMessageIterator);
       if (vertexIdMessageIterator.isNewMessage()) {
-        IndexAndDataOut indexAndDataOut = bytesBuffer.getIndexAndDataOut();
-        pointer = indexAndDataOut.getIndex();
-        pointer <<= 32;
-        ExtendedDataOutput dataOutput = indexAndDataOut.getDataOutput();
-        pointer += dataOutput.getPos();
-        msg.write(dataOutput);
+        pointer = bytesBuffer.write(msg);
       }
       synchronized (list) {
         list.add(pointer);
@@ -100,6 +93,16 @@ public class PointerListPerVertexStore<I extends WritableComparable,
     }
   }
 
+  @Override
+  public void addMessage(int partitionId, I vertexId,
+      M message) throws IOException {
+    LongArrayList list = getOrCreateList(partitionId, vertexId);
+    long pointer = bytesBuffer.write(message);
+    synchronized (list) {
+      list.add(pointer);
+    }
+  }
+
   /**
    * Get messages as an iterable from message storage
    *
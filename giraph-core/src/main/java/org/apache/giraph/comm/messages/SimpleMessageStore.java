@@ -156,6 +156,12 @@ public abstract class SimpleMessageStore<I extends WritableComparable,
     return partitionMap != null && partitionMap.containsKey(vertexId);
   }
 
+  @Override
+  public boolean hasMessagesForPartition(int partitionId) {
+    ConcurrentMap<I, ?> partitionMap = map.get(partitionId);
+    return partitionMap != null && !partitionMap.isEmpty();
+  }
+
   @Override
   public Iterable<M> getVertexMessages(I vertexId) throws IOException {
     ConcurrentMap<I, T> partitionMap = map.get(getPartitionId(vertexId));
@@ -110,6 +110,13 @@ public class DiskBackedMessageStore<I extends WritableComparable,
     checkMemory();
   }
 
+  @Override
+  public void addMessage(int partitionId, I vertexId,
+      M message) throws IOException {
+    getMessageStore(partitionId).addVertexMessage(vertexId, message);
+    checkMemory();
+  }
+
   @Override
   public void finalizeStore() {
   }
@@ -128,6 +135,13 @@ public class DiskBackedMessageStore<I extends WritableComparable,
     return getMessageStore(vertexId).hasMessagesForVertex(vertexId);
   }
 
+  @Override
+  public boolean hasMessagesForPartition(int partitionId) {
+    PartitionDiskBackedMessageStore<I, M> messageStore =
+        partitionMessageStores.get(partitionId);
+    return messageStore != null && messageStore.hasMessages();
+  }
+
   @Override
   public Iterable<I> getPartitionDestinationVertices(int partitionId) {
     PartitionDiskBackedMessageStore<I, M> messageStore =
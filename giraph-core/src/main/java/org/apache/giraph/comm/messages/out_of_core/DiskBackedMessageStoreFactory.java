@@ -25,6 +25,7 @@ import org.apache.giraph.comm.messages.MessageStore;
 import org.apache.giraph.comm.messages.MessageStoreFactory;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.factories.MessageValueFactory;
+import org.apache.giraph.utils.io.DiskIOScheduler;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
 
@@ -82,7 +83,8 @@ public class DiskBackedMessageStoreFactory<I extends WritableComparable,
 
     MessageStoreFactory<I, Writable, SequentialFileMessageStore<I, Writable>>
       fileMessageStoreFactory =
-        SequentialFileMessageStore.newFactory(conf);
+        SequentialFileMessageStore.newFactory(conf,
+            DiskIOScheduler.get(service));
     this.fileStoreFactory =
         PartitionDiskBackedMessageStore.newFactory(conf,
             fileMessageStoreFactory);
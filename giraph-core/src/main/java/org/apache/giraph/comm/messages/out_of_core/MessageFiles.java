@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm.messages.out_of_core;
+
+import static org.apache.giraph.conf.GiraphConstants.MESSAGES_DIRECTORY;
+
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.utils.io.DiskIOScheduler;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Names local files for messages kept out of core, spread over the
+ * directories of {@link
+ * org.apache.giraph.conf.GiraphConstants#MESSAGES_DIRECTORY}.
+ */
+public class MessageFiles {
+  /** Class logger */
+  private static final Logger LOG = Logger.getLogger(MessageFiles.class);
+  /** Directories in which the files are kept */
+  private final String[] directories;
+  /** Counter for file names */
+  private final AtomicInteger fileCounter = new AtomicInteger();
+  /** Scheduler for reading and writing the files */
+  private final DiskIOScheduler diskIOScheduler;
+
+  /**
+   * Constructor, creates the directories. Files are read and written on the
+   * calling thread.
+   *
+   * @param conf Configuration
+   */
+  public MessageFiles(ImmutableClassesGiraphConfiguration<?, ?, ?> conf) {
+    this(conf, DiskIOScheduler.get(null));
+  }
+
+  /**
+   * Constructor, creates the directories.
+   *
+   * @param conf Configuration
+   * @param diskIOScheduler Scheduler for reading and writing the files
+   */
+  public MessageFiles(ImmutableClassesGiraphConfiguration<?, ?, ?> conf,
+      DiskIOScheduler diskIOScheduler) {
+    this.diskIOScheduler = diskIOScheduler;
+    String jobId = conf.get("mapred.job.id", "Unknown Job");
+    int taskId = conf.getTaskPartition();
+    List<String> userPaths = MESSAGES_DIRECTORY.getList(conf);
+    Collections.shuffle(userPaths);
+    directories = new String[userPaths.size()];
+    int i = 0;
+    for (String path : userPaths) {
+      String directory = path + File.separator + jobId + File.separator +
+          taskId + File.separator;
+      directories[i++] = directory;
+      if (!new File(directory).mkdirs()) {
+        LOG.error("MessageFiles: Failed to create " + directory);
+      }
+    }
+  }
+
+  /**
+   * Get a new file.
+   *
+   * @param prefix Prefix of the file name
+   * @return File which no other caller gets
+   */
+  public File newFile(String prefix) {
+    int index = Math.abs(fileCounter.getAndIncrement());
+    return new File(directories[index % directories.length] + prefix +
+        index);
+  }
+
+  public DiskIOScheduler getDiskIOScheduler() {
+    return diskIOScheduler;
+  }
+}
@@ -39,6 +39,7 @@ import org.apache.giraph.factories.MessageValueFactory;
 import org.apache.giraph.utils.io.DataInputOutput;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableUtils;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -138,6 +139,19 @@ public class PartitionDiskBackedMessageStore<I extends WritableComparable,
     return ownsVertexId;
   }
 
+  /**
+   * Add a single vertex message. Neither the vertex id nor the message are
+   * kept, so they can be reused by the caller.
+   *
+   * @param vertexId Vertex id to use
+   * @param message Message to add
+   * @throws IOException
+   */
+  void addVertexMessage(I vertexId, M message) throws IOException {
+    addVertexMessages(WritableUtils.clone(vertexId, config),
+        Collections.singleton(message));
+  }
+
   /**
    * Get the messages for a vertex.
    *
@@ -178,6 +192,15 @@ public class PartitionDiskBackedMessageStore<I extends WritableComparable,
     return destinationVertices.contains(vertexId);
   }
 
+  /**
+   * Check if we have messages for any vertex
+   *
+   * @return True iff we have messages for some vertex
+   */
+  public boolean hasMessages() {
+    return !destinationVertices.isEmpty();
+  }
+
   /**
    * Gets vertex ids which we have messages for
    *
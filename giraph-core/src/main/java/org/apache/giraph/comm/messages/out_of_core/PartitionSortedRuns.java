@@ -0,0 +1,857 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm.messages.out_of_core;
+
+import org.apache.giraph.combiner.MessageCombiner;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.factories.MessageValueFactory;
+import org.apache.giraph.utils.ExtendedDataOutput;
+import org.apache.giraph.utils.VertexIdMessageIterator;
+import org.apache.giraph.utils.VertexIdMessages;
+import org.apache.giraph.utils.WritableUtils;
+import org.apache.giraph.utils.io.DiskIOPriority;
+import org.apache.giraph.utils.io.DiskIOScheduler;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Messages of a single partition for {@link SortedRunMessageStore}.
+ *
+ * Incoming messages are appended to a buffer of serialized messages, with
+ * their vertex ids kept aside (as primitives for long ids). When the buffer
+ * is flushed, it is sorted by vertex id, messages to the same vertex are
+ * combined if there is a message combiner, and the result is written to a
+ * file as a sorted run. Messages are read with a k-way merge of all runs
+ * and of the sorted buffer, and when there are more runs than allowed they
+ * are merged into one.
+ *
+ * A run is a sequence of records, each preceded by true and followed by
+ * false at the end: vertex id, number of messages, number of bytes of the
+ * messages and the messages.
+ *
+ * @param <I> Vertex id
+ * @param <M> Message data
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class PartitionSortedRuns<I extends WritableComparable,
+    M extends Writable> {
+  /** Class logger */
+  private static final Logger LOG =
+      Logger.getLogger(PartitionSortedRuns.class);
+  /** Message value factory */
+  private final MessageValueFactory<M> messageValueFactory;
+  /** Configuration */
+  private final ImmutableClassesGiraphConfiguration<I, ?, ?> config;
+  /** Message combiner, or null if messages are not combined */
+  private final MessageCombiner<I, M> combiner;
+  /** Factory the run files come from */
+  private final SortedRunMessageStoreFactory<I, M> runFileFactory;
+  /** Largest number of runs on disk */
+  private final int maxRuns;
+  /** Buffer size for reading and writing runs */
+  private final int bufferSize;
+  /** Scheduler for writing runs */
+  private final DiskIOScheduler diskIOScheduler;
+  /** Whether vertex ids are longs */
+  private final boolean longIds;
+  /** Messages not written to a run yet */
+  private MessageBuffer buffer;
+  /** Ids of the vertices with messages, if they are longs */
+  private final LongOpenHashSet longDestinations;
+  /** Ids of the vertices with messages, if they are not longs */
+  private final Set<I> destinations;
+  /** Sorted runs on disk */
+  private final List<File> runs = Lists.newArrayList();
+  /** Sorted run kept in memory once messages are read */
+  private ExtendedDataOutput inMemoryRun;
+  /** Lock held while writing and merging runs */
+  private final Object runLock = new Object();
+  /** Runs being merged for reading, ordered by their current vertex */
+  private PriorityQueue<RunReader> readQueue;
+  /** Largest vertex id whose messages were read or skipped */
+  private I lastReadId;
+
+  /**
+   * Constructor
+   *
+   * @param messageValueFactory Message value factory
+   * @param config Configuration
+   * @param combiner Message combiner, or null if there is none
+   * @param runFileFactory Factory for run files
+   * @param maxRuns Largest number of runs on disk
+   * @param bufferSize Buffer size for reading and writing runs
+   */
+  public PartitionSortedRuns(MessageValueFactory<M> messageValueFactory,
+      ImmutableClassesGiraphConfiguration<I, ?, ?> config,
+      MessageCombiner<I, M> combiner,
+      SortedRunMessageStoreFactory<I, M> runFileFactory,
+      int maxRuns, int bufferSize) {
+    this.messageValueFactory = messageValueFactory;
+    this.config = config;
+    this.combiner = combiner;
+    this.runFileFactory = runFileFactory;
+    this.maxRuns = Math.max(1, maxRuns);
+    this.bufferSize = bufferSize;
+    diskIOScheduler = runFileFactory.getDiskIOScheduler();
+    longIds = config.getVertexIdClass().equals(LongWritable.class);
+    longDestinations = longIds ? new LongOpenHashSet() : null;
+    destinations = longIds ? null : Sets.<I>newHashSet();
+    buffer = new MessageBuffer();
+  }
+
+  /**
+   * Add messages to the buffer.
+   *
+   * @param messages Messages to add
+   * @return Number of messages added
+   */
+  public synchronized int addMessages(VertexIdMessages<I, M> messages) {
+    VertexIdMessageIterator<I, M> iterator =
+        messages.getVertexIdMessageIterator();
+    int count = 0;
+    while (iterator.hasNext()) {
+      iterator.next();
+      if (longIds) {
+        buffer.add(((LongWritable) iterator.getCurrentVertexId()).get(),
+            iterator.getCurrentMessage());
+      } else {
+        buffer.add(iterator.releaseCurrentVertexId(),
+            iterator.getCurrentMessage());
+      }
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Add a message to the buffer. Neither the vertex id nor the message are
+   * kept, so they can be reused by the caller.
+   *
+   * @param vertexId Vertex id
+   * @param message Message
+   */
+  public synchronized void addMessage(I vertexId, M message) {
+    if (longIds) {
+      buffer.add(((LongWritable) vertexId).get(), message);
+    } else {
+      buffer.add(WritableUtils.clone(vertexId, config), message);
+    }
+  }
+
+  /**
+   * Get the number of messages in the buffer.
+   *
+   * @return Number of buffered messages
+   */
+  public synchronized int getNumberOfMessages() {
+    return buffer.size();
+  }
+
+  /**
+   * Check whether a vertex has messages.
+   *
+   * @param vertexId Vertex id
+   * @return True iff there are messages for the vertex
+   */
+  public synchronized boolean hasMessagesForVertex(I vertexId) {
+    return longIds ?
+        longDestinations.contains(((LongWritable) vertexId).get()) :
+        destinations.contains(vertexId);
+  }
+
+  /**
+   * Check whether any vertex has messages.
+   *
+   * @return True iff there are messages
+   */
+  public synchronized boolean hasMessages() {
+    return longIds ? !longDestinations.isEmpty() : !destinations.isEmpty();
+  }
+
+  /**
+   * Get the ids of the vertices with messages, in increasing order, which
+   * is the order in which their messages are read fastest.
+   *
+   * @return Sorted vertex ids
+   */
+  public synchronized List<I> getDestinationVertices() {
+    if (longIds) {
+      long[] ids = longDestinations.toLongArray();
+      LongArrays.quickSort(ids);
+      List<I> vertexIds = Lists.newArrayListWithCapacity(ids.length);
+      for (long id : ids) {
+        vertexIds.add((I) new LongWritable(id));
+      }
+      return vertexIds;
+    } else {
+      List vertexIds = Lists.newArrayList(destinations);
+      Collections.sort(vertexIds);
+      return vertexIds;
+    }
+  }
+
+  /**
+   * Write the buffered messages to disk as a sorted run.
+   *
+   * @return Number of messages removed from memory
+   * @throws IOException
+   */
+  public int flush() throws IOException {
+    MessageBuffer toFlush;
+    synchronized (this) {
+      if (buffer.size() == 0) {
+        return 0;
+      }
+      toFlush = buffer;
+      buffer = new MessageBuffer();
+    }
+    synchronized (runLock) {
+      File file = runFileFactory.newRunFile();
+      DataOutputStream run = diskIOScheduler.openScheduledOutput(file,
+          DiskIOPriority.EVICTION, false);
+      try {
+        toFlush.writeSortedRun(run);
+      } finally {
+        run.close();
+      }
+      runs.add(file);
+      if (runs.size() > maxRuns) {
+        mergeRunsOnDisk();
+      }
+    }
+    return toFlush.size();
+  }
+
+  /**
+   * Get the messages of a vertex. Messages are found fastest when vertices
+   * are asked for in increasing order, asking for a smaller id than
+   * before starts reading the runs again. ComputeCallable visits vertices
+   * with messages in increasing order for any partition class.
+   *
+   * @param vertexId Vertex id
+   * @return Messages of the vertex, combined into one if there is a
+   *         message combiner
+   * @throws IOException
+   */
+  public synchronized List<M> getVertexMessages(I vertexId)
+    throws IOException {
+    if (readQueue == null ||
+        (lastReadId != null && vertexId.compareTo(lastReadId) <= 0)) {
+      startReading();
+    }
+    List<M> messages = Lists.newArrayList();
+    while (!readQueue.isEmpty()) {
+      RunReader reader = readQueue.peek();
+      int comparison = reader.getCurrentId().compareTo(vertexId);
+      if (comparison > 0) {
+        break;
+      }
+      readQueue.poll();
+      if (comparison == 0) {
+        reader.readMessages(messages);
+      } else {
+        reader.skipMessages();
+      }
+      lastReadId = reader.getCurrentId();
+      if (reader.next()) {
+        readQueue.add(reader);
+      }
+    }
+    if (combiner != null && messages.size() > 1) {
+      return Collections.singletonList(combine(vertexId, messages));
+    }
+    return messages;
+  }
+
+  /**
+   * Remove all messages and run files.
+   *
+   * @throws IOException
+   */
+  public synchronized void clearAll() throws IOException {
+    stopReading();
+    buffer = new MessageBuffer();
+    inMemoryRun = null;
+    if (longIds) {
+      longDestinations.clear();
+    } else {
+      destinations.clear();
+    }
+    synchronized (runLock) {
+      for (File file : runs) {
+        if (!file.delete()) {
+          LOG.error("clearAll: Failed to delete file " + file);
+        }
+      }
+      runs.clear();
+    }
+  }
+
+  /**
+   * Write all messages of the partition as one sorted run.
+   *
+   * @param out Output to write to
+   * @throws IOException
+   */
+  public synchronized void write(DataOutput out) throws IOException {
+    synchronized (runLock) {
+      mergeRuns(openReaders(true, true), out);
+    }
+  }
+
+  /**
+   * Read the messages written by {@link #write(DataOutput)}, and keep them
+   * in a run on disk.
+   *
+   * @param in Input to read from
+   * @throws IOException
+   */
+  public synchronized void readFields(DataInput in) throws IOException {
+    RunReader reader = new RunReader(in, null);
+    synchronized (runLock) {
+      File file = runFileFactory.newRunFile();
+      DataOutputStream out = openRun(file);
+      try {
+        while (reader.next()) {
+          I vertexId = reader.getCurrentId();
+          if (longIds) {
+            longDestinations.add(((LongWritable) vertexId).get());
+          } else {
+            destinations.add(vertexId);
+          }
+          out.writeBoolean(true);
+          vertexId.write(out);
+          reader.copyMessages(out);
+        }
+        out.writeBoolean(false);
+      } finally {
+        out.close();
+      }
+      runs.add(file);
+    }
+  }
+
+  /**
+   * Start reading messages from the beginning of all runs.
+   *
+   * @throws IOException
+   */
+  private void startReading() throws IOException {
+    stopReading();
+    if (buffer.size() > 0) {
+      if (inMemoryRun == null) {
+        inMemoryRun = config.createExtendedDataOutput();
+        buffer.writeSortedRun(inMemoryRun);
+        buffer = new MessageBuffer();
+      } else {
+        flush();
+      }
+    }
+    synchronized (runLock) {
+      readQueue = openReaders(true, false);
+    }
+    lastReadId = null;
+  }
+
+  /**
+   * Close the runs being read.
+   *
+   * @throws IOException
+   */
+  private void stopReading() throws IOException {
+    if (readQueue != null) {
+      for (RunReader reader : readQueue) {
+        reader.close();
+      }
+      readQueue = null;
+    }
+  }
+
+  /**
+   * Open readers for the runs on disk, positioned at their first vertex.
+   *
+   * @param includeInMemoryRun Whether to also read the run in memory
+   * @param includeBuffer Whether to also read the buffered messages
+   * @return Readers of non-empty runs, ordered by their first vertex
+   * @throws IOException
+   */
+  private PriorityQueue<RunReader> openReaders(boolean includeInMemoryRun,
+      boolean includeBuffer) throws IOException {
+    PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(
+        runs.size() + 2, new Comparator<RunReader>() {
+          @Override
+          public int compare(RunReader reader1, RunReader reader2) {
+            return reader1.getCurrentId().compareTo(reader2.getCurrentId());
+          }
+        });
+    for (File file : runs) {
+      DataInputStream in = diskIOScheduler.openInput(file, bufferSize);
+      addReader(queue, new RunReader(in, in));
+    }
+    if (includeInMemoryRun && inMemoryRun != null) {
+      addReader(queue, new RunReader(
+          config.createExtendedDataInput(inMemoryRun), null));
+    }
+    if (includeBuffer && buffer.size() > 0) {
+      ExtendedDataOutput sortedBuffer = config.createExtendedDataOutput();
+      buffer.writeSortedRun(sortedBuffer);
+      addReader(queue, new RunReader(
+          config.createExtendedDataInput(sortedBuffer), null));
+    }
+    return queue;
+  }
+
+  /**
+   * Add a reader to a queue if its run is not empty.
+   *
+   * @param queue Queue of readers
+   * @param reader Reader
+   * @throws IOException
+   */
+  private static void addReader(PriorityQueue<RunReader> queue,
+      RunReader reader) throws IOException {
+    if (reader.next()) {
+      queue.add(reader);
+    }
+  }
+
+  /**
+   * Merge all runs on disk into one.
+   *
+   * @throws IOException
+   */
+  private void mergeRunsOnDisk() throws IOException {
+    File file = runFileFactory.newRunFile();
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("mergeRunsOnDisk: Merging " + runs.size() + " runs into " +
+          file);
+    }
+    DataOutputStream out = openRun(file);
+    try {
+      mergeRuns(openReaders(false, false), out);
+    } finally {
+      out.close();
+    }
+    for (File run : runs) {
+      if (!run.delete()) {
+        LOG.error("mergeRunsOnDisk: Failed to delete file " + run);
+      }
+    }
+    runs.clear();
+    runs.add(file);
+  }
+
+  /**
+   * Merge runs into one, combining the messages of a vertex from different
+   * runs if there is a message combiner.
+   *
+   * @param queue Readers of the runs to merge, closed when done
+   * @param out Output to write the merged run to
+   * @throws IOException
+   */
+  private void mergeRuns(PriorityQueue<RunReader> queue, DataOutput out)
+    throws IOException {
+    List<RunReader> sameVertex = Lists.newArrayList();
+    List<M> messages = Lists.newArrayList();
+    while (!queue.isEmpty()) {
+      RunReader first = queue.poll();
+      sameVertex.add(first);
+      while (!queue.isEmpty() &&
+          queue.peek().getCurrentId().compareTo(first.getCurrentId()) == 0) {
+        sameVertex.add(queue.poll());
+      }
+      out.writeBoolean(true);
+      first.getCurrentId().write(out);
+      if (sameVertex.size() == 1) {
+        first.copyMessages(out);
+      } else if (combiner != null) {
+        for (RunReader reader : sameVertex) {
+          reader.readMessages(messages);
+        }
+        writeMessages(Collections.singletonList(
+            combine(first.getCurrentId(), messages)), out);
+        messages.clear();
+      } else {
+        int count = 0;
+        int bytes = 0;
+        for (RunReader reader : sameVertex) {
+          count += reader.getCurrentCount();
+          bytes += reader.getCurrentBytes();
+        }
+        out.writeInt(count);
+        out.writeInt(bytes);
+        for (RunReader reader : sameVertex) {
+          reader.copyMessageBytes(out);
+        }
+      }
+      for (RunReader reader : sameVertex) {
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      }
+      sameVertex.clear();
+    }
+    out.writeBoolean(false);
+  }
+
+  /**
+   * Combine several messages of a vertex into one.
+   *
+   * @param vertexId Vertex id
+   * @param messages Messages to combine
+   * @return Combined message
+   */
+  private M combine(I vertexId, List<M> messages) {
+    M combined = combiner.createInitialMessage();
+    for (M message : messages) {
+      combiner.combine(vertexId, combined, message);
+    }
+    return combined;
+  }
+
+  /**
+   * Write the messages of a vertex in run format.
+   *
+   * @param messages Messages of the vertex
+   * @param out Output to write to
+   * @throws IOException
+   */
+  private void writeMessages(List<M> messages, DataOutput out)
+    throws IOException {
+    ExtendedDataOutput messageBytes = config.createExtendedDataOutput();
+    for (M message : messages) {
+      message.write(messageBytes);
+    }
+    out.writeInt(messages.size());
+    out.writeInt(messageBytes.getPos());
+    out.write(messageBytes.getByteArray(), 0, messageBytes.getPos());
+  }
+
+  /**
+   * Open a run file for writing.
+   *
+   * @param file File
+   * @return Output stream
+   * @throws IOException
+   */
+  private DataOutputStream openRun(File file) throws IOException {
+    return diskIOScheduler.openOutput(file, false, bufferSize);
+  }
+
+  /**
+   * Messages appended in arrival order, sorted by vertex id when they are
+   * written out.
+   */
+  private class MessageBuffer {
+    /** Serialized messages */
+    private final ExtendedDataOutput messageBytes =
+        config.createExtendedDataOutput();
+    /** Position of each message in messageBytes */
+    private final IntArrayList messageOffsets = new IntArrayList();
+    /** Vertex id of each message, if ids are longs */
+    private final LongArrayList longMessageIds =
+        longIds ? new LongArrayList() : null;
+    /** Vertex id of each message, if ids are not longs */
+    private final List<I> messageIds =
+        longIds ? null : Lists.<I>newArrayList();
+
+    /**
+     * Add a message to a vertex with a long id.
+     *
+     * @param vertexId Vertex id
+     * @param message Message
+     */
+    void add(long vertexId, M message) {
+      longMessageIds.add(vertexId);
+      longDestinations.add(vertexId);
+      addMessage(message);
+    }
+
+    /**
+     * Add a message.
+     *
+     * @param vertexId Vertex id, kept by the buffer
+     * @param message Message
+     */
+    void add(I vertexId, M message) {
+      messageIds.add(vertexId);
+      destinations.add(vertexId);
+      addMessage(message);
+    }
+
+    /**
+     * Serialize a message.
+     *
+     * @param message Message
+     */
+    private void addMessage(M message) {
+      messageOffsets.add(messageBytes.getPos());
+      try {
+        message.write(messageBytes);
+      } catch (IOException e) {
+        throw new IllegalStateException(
+            "addMessage: Failed to serialize " + message, e);
+      }
+    }
+
+    /**
+     * Get the number of messages.
+     *
+     * @return Number of messages
+     */
+    int size() {
+      return messageOffsets.size();
+    }
+
+    /**
+     * Compare the vertex ids of two messages.
+     *
+     * @param index1 Index of the first message
+     * @param index2 Index of the second message
+     * @return Comparison of their vertex ids
+     */
+    private int compareIds(int index1, int index2) {
+      if (longIds) {
+        long id1 = longMessageIds.getLong(index1);
+        long id2 = longMessageIds.getLong(index2);
+        return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+      } else {
+        return messageIds.get(index1).compareTo(messageIds.get(index2));
+      }
+    }
+
+    /**
+     * Get the vertex id of a message.
+     *
+     * @param index Index of the message
+     * @return Vertex id
+     */
+    private I getId(int index) {
+      return longIds ?
+          (I) new LongWritable(longMessageIds.getLong(index)) :
+          messageIds.get(index);
+    }
+
+    /**
+     * Get the end of the bytes of a message.
+     *
+     * @param index Index of the message
+     * @return Position after the message
+     */
+    private int getEnd(int index) {
+      return index + 1 < size() ?
+          messageOffsets.getInt(index + 1) : messageBytes.getPos();
+    }
+
+    /**
+     * Sort the messages by vertex id and write them as a run, combining
+     * the messages of each vertex if there is a message combiner.
+     *
+     * @param out Output to write to
+     * @throws IOException
+     */
+    void writeSortedRun(DataOutput out) throws IOException {
+      int size = size();
+      int[] order = new int[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      IntArrays.quickSort(order, 0, size, new AbstractIntComparator() {
+        @Override
+        public int compare(int index1, int index2) {
+          return compareIds(index1, index2);
+        }
+      });
+      byte[] bytes = messageBytes.getByteArray();
+      List<M> messages = Lists.newArrayList();
+      int start = 0;
+      while (start < size) {
+        int end = start + 1;
+        while (end < size && compareIds(order[start], order[end]) == 0) {
+          end++;
+        }
+        I vertexId = getId(order[start]);
+        out.writeBoolean(true);
+        vertexId.write(out);
+        if (combiner != null && end - start > 1) {
+          for (int i = start; i < end; i++) {
+            int offset = messageOffsets.getInt(order[i]);
+            M message = messageValueFactory.newInstance();
+            message.readFields(config.createExtendedDataInput(bytes, offset,
+                getEnd(order[i]) - offset));
+            messages.add(message);
+          }
+          writeMessages(
+              Collections.singletonList(combine(vertexId, messages)), out);
+          messages.clear();
+        } else {
+          int length = 0;
+          for (int i = start; i < end; i++) {
+            length += getEnd(order[i]) - messageOffsets.getInt(order[i]);
+          }
+          out.writeInt(end - start);
+          out.writeInt(length);
+          for (int i = start; i < end; i++) {
+            int offset = messageOffsets.getInt(order[i]);
+            out.write(bytes, offset, getEnd(order[i]) - offset);
+          }
+        }
+        start = end;
+      }
+      out.writeBoolean(false);
+    }
+  }
+
+  /**
+   * Reads a run one vertex at a time.
+   */
+  private class RunReader implements Closeable {
+    /** Input of the run */
+    private final DataInput in;
+    /** Stream to close when done, or null */
+    private final Closeable stream;
+    /** Current vertex id, a new object for every vertex */
+    private I currentId;
+    /** Number of messages of the current vertex */
+    private int currentCount;
+    /** Number of bytes of the messages of the current vertex */
+    private int currentBytes;
+
+    /**
+     * Constructor
+     *
+     * @param in Input of the run
+     * @param stream Stream to close when done, or null
+     */
+    RunReader(DataInput in, Closeable stream) {
+      this.in = in;
+      this.stream = stream;
+    }
+
+    /**
+     * Move to the next vertex. Messages of the current vertex must have
+     * been read, skipped or copied.
+     *
+     * @return False iff the run is finished, it is closed then
+     * @throws IOException
+     */
+    boolean next() throws IOException {
+      if (!in.readBoolean()) {
+        close();
+        return false;
+      }
+      currentId = config.createVertexId();
+      currentId.readFields(in);
+      currentCount = in.readInt();
+      currentBytes = in.readInt();
+      return true;
+    }
+
+    I getCurrentId() {
+      return currentId;
+    }
+
+    int getCurrentCount() {
+      return currentCount;
+    }
+
+    int getCurrentBytes() {
+      return currentBytes;
+    }
+
+    /**
+     * Read the messages of the current vertex.
+     *
+     * @param messages List to add them to
+     * @throws IOException
+     */
+    void readMessages(List<M> messages) throws IOException {
+      for (int i = 0; i < currentCount; i++) {
+        M message = messageValueFactory.newInstance();
+        message.readFields(in);
+        messages.add(message);
+      }
+    }
+
+    /**
+     * Skip the messages of the current vertex.
+     *
+     * @throws IOException
+     */
+    void skipMessages() throws IOException {
+      in.skipBytes(currentBytes);
+    }
+
+    /**
+     * Copy the count, size and messages of the current vertex.
+     *
+     * @param out Output to copy to
+     * @throws IOException
+     */
+    void copyMessages(DataOutput out) throws IOException {
+      out.writeInt(currentCount);
+      out.writeInt(currentBytes);
+      copyMessageBytes(out);
+    }
+
+    /**
+     * Copy only the messages of the current vertex.
+     *
+     * @param out Output to copy to
+     * @throws IOException
+     */
+    void copyMessageBytes(DataOutput out) throws IOException {
+      byte[] bytes = new byte[currentBytes];
+      in.readFully(bytes);
+      out.write(bytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (stream != null) {
+        stream.close();
+      }
+    }
+  }
+}
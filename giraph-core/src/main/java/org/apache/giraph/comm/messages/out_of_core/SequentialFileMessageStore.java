@@ -20,8 +20,6 @@ package org.apache.giraph.comm.messages.out_of_core;
 
 import static org.apache.giraph.conf.GiraphConstants.MESSAGES_DIRECTORY;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
@@ -45,6 +43,8 @@ import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.factories.MessageValueFactory;
 import org.apache.giraph.utils.EmptyIterable;
 import org.apache.giraph.utils.io.DataInputOutput;
+import org.apache.giraph.utils.io.DiskIOPriority;
+import org.apache.giraph.utils.io.DiskIOScheduler;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.log4j.Logger;
@@ -76,6 +76,8 @@ public class SequentialFileMessageStore<I extends WritableComparable,
   private final ImmutableClassesGiraphConfiguration<I, ?, ?> config;
   /** Buffer size to use when reading and writing files */
   private final int bufferSize;
+  /** Scheduler for reading and writing the file */
+  private final DiskIOScheduler diskIOScheduler;
   /** File input stream */
   private DataInputStream in;
   /** How many vertices do we have left to read in the file */
@@ -98,14 +100,37 @@ public class SequentialFileMessageStore<I extends WritableComparable,
       ImmutableClassesGiraphConfiguration<I, ?, ?> config,
       int bufferSize,
       String fileName) {
+    this(messageValueFactory, config, bufferSize, fileName,
+        DiskIOScheduler.get(null));
+  }
+
+  /**
+   * Stores message on the disk, scheduling writes with a disk I/O
+   * scheduler.
+   *
+   * @param messageValueFactory Used to create message values
+   * @param config       Configuration used later for reading
+   * @param bufferSize   Buffer size to use when reading and writing
+   * @param fileName     File in which we want to store messages
+   * @param diskIOScheduler Scheduler for reading and writing the file
+   */
+  public SequentialFileMessageStore(
+      MessageValueFactory<M> messageValueFactory,
+      ImmutableClassesGiraphConfiguration<I, ?, ?> config,
+      int bufferSize,
+      String fileName,
+      DiskIOScheduler diskIOScheduler) {
     this.messageValueFactory = messageValueFactory;
     this.config = config;
     this.bufferSize = bufferSize;
+    this.diskIOScheduler = diskIOScheduler;
     file = new File(fileName);
   }
 
   /**
-   * Adds messages from one message store to another
+   * Adds messages from one message store to another. The messages are
+   * serialized on the calling thread and written in chunks on the disk I/O
+   * thread.
    *
    * @param messageMap Add the messages from this map to this store
    * @throws java.io.IOException
@@ -128,37 +153,45 @@ public class SequentialFileMessageStore<I extends WritableComparable,
       LOG.debug("addMessages: Creating " + file);
     }
 
-    DataOutputStream out = null;
-
+    DataOutputStream out = diskIOScheduler.openScheduledOutput(file,
+        DiskIOPriority.EVICTION, false);
     try {
-      out = new DataOutputStream(
-          new BufferedOutputStream(new FileOutputStream(file), bufferSize));
-      int destinationVertexIdCount = messageMap.size();
-      out.writeInt(destinationVertexIdCount);
-
-      // Dump the vertices and their messages in a sorted order
-      for (Map.Entry<I, DataInputOutput> entry : messageMap.entrySet()) {
-        I destinationVertexId = entry.getKey();
-        destinationVertexId.write(out);
-        DataInputOutput dataInputOutput = entry.getValue();
-        Iterable<M> messages = new MessagesIterable<M>(
-            dataInputOutput, messageValueFactory);
-        int messageCount = Iterables.size(messages);
-        out.writeInt(messageCount);
+      writeMessages(out, messageMap);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Write the messages of each vertex, in the order of the map.
+   *
+   * @param out Output to write to
+   * @param messageMap Messages of each vertex
+   * @throws IOException
+   */
+  private void writeMessages(DataOutput out,
+      NavigableMap<I, DataInputOutput> messageMap) throws IOException {
+    int destinationVertexIdCount = messageMap.size();
+    out.writeInt(destinationVertexIdCount);
+
+    // Dump the vertices and their messages in a sorted order
+    for (Map.Entry<I, DataInputOutput> entry : messageMap.entrySet()) {
+      I destinationVertexId = entry.getKey();
+      destinationVertexId.write(out);
+      DataInputOutput dataInputOutput = entry.getValue();
+      Iterable<M> messages = new MessagesIterable<M>(
+          dataInputOutput, messageValueFactory);
+      int messageCount = Iterables.size(messages);
+      out.writeInt(messageCount);
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("addMessages: For vertex id " + destinationVertexId +
+            ", messages = " + messageCount + " to file " + file);
+      }
+      for (M message : messages) {
         if (LOG.isDebugEnabled()) {
-          LOG.debug("addMessages: For vertex id " + destinationVertexId +
-              ", messages = " + messageCount + " to file " + file);
+          LOG.debug("addMessages: Wrote " + message + " to " + file);
         }
-        for (M message : messages) {
-          if (LOG.isDebugEnabled()) {
-            LOG.debug("addMessages: Wrote " + message + " to " + file);
-          }
-          message.write(out);
-        }
-      }
-    } finally {
-      if (out != null) {
-        out.close();
+        message.write(out);
       }
     }
   }
@@ -246,8 +279,7 @@ public class SequentialFileMessageStore<I extends WritableComparable,
    */
   private void startReading() throws IOException {
     currentVertexId = null;
-    in = new DataInputStream(
-        new BufferedInputStream(new FileInputStream(file), bufferSize));
+    in = diskIOScheduler.openInput(file, bufferSize);
     verticesLeft = in.readInt();
     if (LOG.isDebugEnabled()) {
       LOG.debug("startReading: File " + file + " with " +
@@ -358,7 +390,24 @@ public class SequentialFileMessageStore<I extends WritableComparable,
   public static <I extends WritableComparable, M extends Writable>
   MessageStoreFactory<I, M, SequentialFileMessageStore<I, M>> newFactory(
       ImmutableClassesGiraphConfiguration<I, ?, ?> config) {
-    return new Factory<I, M>(config);
+    return newFactory(config, DiskIOScheduler.get(null));
+  }
+
+  /**
+   * Create new factory for this message store, scheduling disk I/O of the
+   * stores with a disk I/O scheduler
+   *
+   * @param config Hadoop configuration
+   * @param diskIOScheduler Scheduler for reading and writing files
+   * @param <I>    Vertex id
+   * @param <M>    Message data
+   * @return Factory
+   */
+  public static <I extends WritableComparable, M extends Writable>
+  MessageStoreFactory<I, M, SequentialFileMessageStore<I, M>> newFactory(
+      ImmutableClassesGiraphConfiguration<I, ?, ?> config,
+      DiskIOScheduler diskIOScheduler) {
+    return new Factory<I, M>(config, diskIOScheduler);
   }
 
   /**
@@ -378,14 +427,19 @@ public class SequentialFileMessageStore<I extends WritableComparable,
     private final int bufferSize;
     /** Counter for created message stores */
     private final AtomicInteger storeCounter;
+    /** Scheduler for reading and writing files */
+    private final DiskIOScheduler diskIOScheduler;
 
     /**
      * Constructor.
      *
      * @param config Hadoop configuration
+     * @param diskIOScheduler Scheduler for reading and writing files
      */
-    public Factory(ImmutableClassesGiraphConfiguration<I, ?, ?> config) {
+    public Factory(ImmutableClassesGiraphConfiguration<I, ?, ?> config,
+        DiskIOScheduler diskIOScheduler) {
       this.config = config;
+      this.diskIOScheduler = diskIOScheduler;
       String jobId = config.get("mapred.job.id", "Unknown Job");
       int taskId   = config.getTaskPartition();
       List<String> userPaths = MESSAGES_DIRECTORY.getList(config);
@@ -412,7 +466,7 @@ public class SequentialFileMessageStore<I extends WritableComparable,
       String fileName =
           directories[idx % directories.length] + "messages-" + idx;
       return new SequentialFileMessageStore<I, M>(messageValueFactory, config,
-          bufferSize, fileName);
+          bufferSize, fileName, diskIOScheduler);
     }
 
     @Override
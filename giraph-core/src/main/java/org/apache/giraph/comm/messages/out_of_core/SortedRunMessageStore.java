@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm.messages.out_of_core;
+
+import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.combiner.MessageCombiner;
+import org.apache.giraph.comm.messages.MessageStore;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.factories.MessageValueFactory;
+import org.apache.giraph.utils.EmptyIterable;
+import org.apache.giraph.utils.VertexIdMessages;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+
+import com.google.common.collect.Maps;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Out-of-core message store which keeps the messages of each partition as
+ * sorted runs (see {@link PartitionSortedRuns}). Messages are buffered
+ * without per-message structure and only sorted, combined and written to
+ * disk when too many messages are in memory, and reading merges the runs
+ * of a partition in one pass when vertices are computed in order.
+ *
+ * @param <I> Vertex id
+ * @param <M> Message data
+ */
+public class SortedRunMessageStore<I extends WritableComparable,
+    M extends Writable> implements MessageStore<I, M> {
+  /** Message value factory */
+  private final MessageValueFactory<M> messageValueFactory;
+  /** Service worker */
+  private final CentralizedServiceWorker<I, ?, ?> service;
+  /** Configuration */
+  private final ImmutableClassesGiraphConfiguration<I, ?, ?> config;
+  /** Factory for run files */
+  private final SortedRunMessageStoreFactory<I, M> runFileFactory;
+  /** Message combiner, or null if there is none */
+  private final MessageCombiner<I, M> combiner;
+  /** Number of messages to keep in memory */
+  private final int maxMessagesInMemory;
+  /** Largest number of runs on disk per partition */
+  private final int maxRuns;
+  /** Buffer size for reading and writing runs */
+  private final int bufferSize;
+  /** Number of buffered messages of all partitions */
+  private final AtomicLong numberOfMessagesInMemory = new AtomicLong();
+  /** Map from partition id to its messages */
+  private final ConcurrentMap<Integer, PartitionSortedRuns<I, M>>
+  partitionMessages = Maps.newConcurrentMap();
+
+  /**
+   * Constructor
+   *
+   * @param messageValueFactory Message value factory
+   * @param service Service worker
+   * @param config Configuration
+   * @param runFileFactory Factory for run files
+   */
+  public SortedRunMessageStore(MessageValueFactory<M> messageValueFactory,
+      CentralizedServiceWorker<I, ?, ?> service,
+      ImmutableClassesGiraphConfiguration<I, ?, ?> config,
+      SortedRunMessageStoreFactory<I, M> runFileFactory) {
+    this.messageValueFactory = messageValueFactory;
+    this.service = service;
+    this.config = config;
+    this.runFileFactory = runFileFactory;
+    combiner = config.useMessageCombiner() ?
+        config.<M>createMessageCombiner() : null;
+    maxMessagesInMemory = GiraphConstants.MAX_MESSAGES_IN_MEMORY.get(config);
+    maxRuns = GiraphConstants.MAX_MESSAGE_RUNS_PER_PARTITION.get(config);
+    bufferSize = GiraphConstants.MESSAGES_BUFFER_SIZE.get(config);
+  }
+
+  @Override
+  public boolean isPointerListEncoding() {
+    return false;
+  }
+
+  @Override
+  public void addPartitionMessages(int partitionId,
+      VertexIdMessages<I, M> messages) throws IOException {
+    int added = getOrCreatePartitionMessages(partitionId).addMessages(
+        messages);
+    numberOfMessagesInMemory.addAndGet(added);
+    checkMemory();
+  }
+
+  @Override
+  public void addMessage(int partitionId, I vertexId, M message)
+    throws IOException {
+    getOrCreatePartitionMessages(partitionId).addMessage(vertexId, message);
+    numberOfMessagesInMemory.incrementAndGet();
+    checkMemory();
+  }
+
+  @Override
+  public void finalizeStore() {
+  }
+
+  @Override
+  public Iterable<M> getVertexMessages(I vertexId) throws IOException {
+    PartitionSortedRuns<I, M> messages = getPartitionMessages(vertexId);
+    if (messages == null || !messages.hasMessagesForVertex(vertexId)) {
+      return EmptyIterable.get();
+    }
+    return messages.getVertexMessages(vertexId);
+  }
+
+  @Override
+  public boolean hasMessagesForVertex(I vertexId) {
+    PartitionSortedRuns<I, M> messages = getPartitionMessages(vertexId);
+    return messages != null && messages.hasMessagesForVertex(vertexId);
+  }
+
+  @Override
+  public boolean hasMessagesForPartition(int partitionId) {
+    PartitionSortedRuns<I, M> messages = partitionMessages.get(partitionId);
+    return messages != null && messages.hasMessages();
+  }
+
+  @Override
+  public Iterable<I> getPartitionDestinationVertices(int partitionId) {
+    PartitionSortedRuns<I, M> messages = partitionMessages.get(partitionId);
+    if (messages == null) {
+      return Collections.emptyList();
+    }
+    return messages.getDestinationVertices();
+  }
+
+  @Override
+  public void clearVertexMessages(I vertexId) throws IOException {
+    // Messages of a vertex are dropped from memory once they are read past
+  }
+
+  @Override
+  public void clearPartition(int partitionId) throws IOException {
+    PartitionSortedRuns<I, M> messages = partitionMessages.get(partitionId);
+    if (messages != null) {
+      numberOfMessagesInMemory.addAndGet(-messages.getNumberOfMessages());
+      messages.clearAll();
+    }
+  }
+
+  @Override
+  public void clearAll() throws IOException {
+    for (PartitionSortedRuns<I, M> messages : partitionMessages.values()) {
+      messages.clearAll();
+    }
+    partitionMessages.clear();
+    numberOfMessagesInMemory.set(0);
+  }
+
+  @Override
+  public void writePartition(DataOutput out, int partitionId)
+    throws IOException {
+    PartitionSortedRuns<I, M> messages = partitionMessages.get(partitionId);
+    out.writeBoolean(messages != null);
+    if (messages != null) {
+      messages.write(out);
+    }
+  }
+
+  @Override
+  public void readFieldsForPartition(DataInput in, int partitionId)
+    throws IOException {
+    if (in.readBoolean()) {
+      getOrCreatePartitionMessages(partitionId).readFields(in);
+    }
+  }
+
+  /**
+   * Flush the partitions with most buffered messages until few enough
+   * messages are in memory.
+   *
+   * @throws IOException
+   */
+  private void checkMemory() throws IOException {
+    while (numberOfMessagesInMemory.get() > maxMessagesInMemory) {
+      PartitionSortedRuns<I, M> biggest = null;
+      int maxMessages = 0;
+      for (PartitionSortedRuns<I, M> messages : partitionMessages.values()) {
+        int numMessages = messages.getNumberOfMessages();
+        if (numMessages > maxMessages) {
+          maxMessages = numMessages;
+          biggest = messages;
+        }
+      }
+      if (biggest == null) {
+        break;
+      }
+      numberOfMessagesInMemory.addAndGet(-biggest.flush());
+    }
+  }
+
+  /**
+   * Get the messages of the partition a vertex belongs to.
+   *
+   * @param vertexId Vertex id
+   * @return Messages of the partition, or null if it has none
+   */
+  private PartitionSortedRuns<I, M> getPartitionMessages(I vertexId) {
+    return partitionMessages.get(
+        service.getVertexPartitionOwner(vertexId).getPartitionId());
+  }
+
+  /**
+   * Get the messages of a partition, creating them if needed.
+   *
+   * @param partitionId Partition id
+   * @return Messages of the partition
+   */
+  private PartitionSortedRuns<I, M> getOrCreatePartitionMessages(
+      int partitionId) {
+    PartitionSortedRuns<I, M> messages = partitionMessages.get(partitionId);
+    if (messages == null) {
+      messages = new PartitionSortedRuns<I, M>(messageValueFactory, config,
+          combiner, runFileFactory, maxRuns, bufferSize);
+      PartitionSortedRuns<I, M> existing =
+          partitionMessages.putIfAbsent(partitionId, messages);
+      if (existing != null) {
+        messages = existing;
+      }
+    }
+    return messages;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm.messages.out_of_core;
+
+import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.comm.messages.MessageStore;
+import org.apache.giraph.comm.messages.MessageStoreFactory;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.factories.MessageValueFactory;
+import org.apache.giraph.utils.io.DiskIOScheduler;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+
+import java.io.File;
+
+/**
+ * Factory for {@link SortedRunMessageStore}, which keeps messages out of
+ * core as sorted runs. It also names the run files of all stores it
+ * creates.
+ *
+ * @param <I> Vertex id
+ * @param <M> Message data
+ */
+public class SortedRunMessageStoreFactory<I extends WritableComparable,
+    M extends Writable>
+    implements MessageStoreFactory<I, M, MessageStore<I, M>> {
+  /** Service worker */
+  private CentralizedServiceWorker<I, ?, ?> service;
+  /** Configuration */
+  private ImmutableClassesGiraphConfiguration<I, ?, ?> config;
+  /** Names the run files */
+  private MessageFiles runFiles;
+
+  /**
+   * Default constructor allowing class invocation via Reflection.
+   */
+  public SortedRunMessageStoreFactory() {
+  }
+
+  @Override
+  public MessageStore<I, M> newStore(
+      MessageValueFactory<M> messageValueFactory) {
+    return new SortedRunMessageStore<I, M>(messageValueFactory, service,
+        config, this);
+  }
+
+  @Override
+  public void initialize(CentralizedServiceWorker<I, ?, ?> service,
+      ImmutableClassesGiraphConfiguration<I, ?, ?> conf) {
+    this.service = service;
+    this.config = conf;
+    runFiles = new MessageFiles(conf, DiskIOScheduler.get(service));
+  }
+
+  @Override
+  public boolean shouldTraverseMessagesInOrder() {
+    return true;
+  }
+
+  /**
+   * Get a new file for a sorted run.
+   *
+   * @return Run file
+   */
+  File newRunFile() {
+    return runFiles.newFile("message-run-");
+  }
+
+  /**
+   * Get the scheduler for reading and writing run files.
+   *
+   * @return Disk I/O scheduler
+   */
+  DiskIOScheduler getDiskIOScheduler() {
+    return runFiles.getDiskIOScheduler();
+  }
+}
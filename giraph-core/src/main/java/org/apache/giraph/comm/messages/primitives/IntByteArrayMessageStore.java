@@ -23,7 +23,6 @@ import org.apache.giraph.comm.messages.MessageStore;
 import org.apache.giraph.comm.messages.MessagesIterable;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.factories.MessageValueFactory;
-import org.apache.giraph.partition.Partition;
 import org.apache.giraph.utils.VertexIdMessageBytesIterator;
 import org.apache.giraph.utils.VertexIdMessageIterator;
 import org.apache.giraph.utils.VertexIdMessages;
@@ -84,13 +83,12 @@ public class IntByteArrayMessageStore<M extends Writable>
     map =
         new Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<DataInputOutput>>();
     for (int partitionId : service.getPartitionStore().getPartitionIds()) {
-      Partition<IntWritable, Writable, Writable> partition =
-          service.getPartitionStore().getOrCreatePartition(partitionId);
+      // Sized from the metadata, so that out-of-core partitions stay on disk
       Int2ObjectOpenHashMap<DataInputOutput> partitionMap =
           new Int2ObjectOpenHashMap<DataInputOutput>(
-              (int) partition.getVertexCount());
+              (int) service.getPartitionStore()
+                  .getPartitionMetadata(partitionId).getVertexCount());
       map.put(partitionId, partitionMap);
-      service.getPartitionStore().putPartition(partition);
     }
   }
 
@@ -165,6 +163,17 @@ public class IntByteArrayMessageStore<M extends Writable>
     }
   }
 
+  @Override
+  public void addMessage(int partitionId, IntWritable vertexId,
+      M message) throws IOException {
+    Int2ObjectOpenHashMap<DataInputOutput> partitionMap =
+        map.get(partitionId);
+    synchronized (partitionMap) {
+      message.write(getDataInputOutput(partitionMap, vertexId.get())
+          .getDataOutput());
+    }
+  }
+
   @Override
   public void finalizeStore() {
   }
@@ -179,6 +188,12 @@ public class IntByteArrayMessageStore<M extends Writable>
     return getPartitionMap(vertexId).containsKey(vertexId.get());
   }
 
+  @Override
+  public boolean hasMessagesForPartition(int partitionId) {
+    Int2ObjectOpenHashMap<DataInputOutput> partitionMap = map.get(partitionId);
+    return partitionMap != null && !partitionMap.isEmpty();
+  }
+
   @Override
   public Iterable<M> getVertexMessages(
       IntWritable vertexId) throws IOException {
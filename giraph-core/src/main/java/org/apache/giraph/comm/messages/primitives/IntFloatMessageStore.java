@@ -21,8 +21,6 @@ package org.apache.giraph.comm.messages.primitives;
 import org.apache.giraph.bsp.CentralizedServiceWorker;
 import org.apache.giraph.combiner.MessageCombiner;
 import org.apache.giraph.comm.messages.MessageStore;
-import org.apache.giraph.partition.Partition;
-import org.apache.giraph.partition.PartitionStore;
 
 import org.apache.giraph.utils.VertexIdMessageIterator;
 import org.apache.giraph.utils.VertexIdMessages;
@@ -75,14 +73,11 @@ public class IntFloatMessageStore
 
     map = new Int2ObjectOpenHashMap<Int2FloatOpenHashMap>();
     for (int partitionId : service.getPartitionStore().getPartitionIds()) {
-      PartitionStore<IntWritable, Writable, Writable> partitionStore =
-        service.getPartitionStore();
-      Partition<IntWritable, Writable, Writable> partition =
-        partitionStore.getOrCreatePartition(partitionId);
+      // Sized from the metadata, so that out-of-core partitions stay on disk
       Int2FloatOpenHashMap partitionMap =
-          new Int2FloatOpenHashMap((int) partition.getVertexCount());
+          new Int2FloatOpenHashMap((int) service.getPartitionStore()
+              .getPartitionMetadata(partitionId).getVertexCount());
       map.put(partitionId, partitionMap);
-      partitionStore.putPartition(partition);
     }
   }
 
@@ -130,6 +125,22 @@ public class IntFloatMessageStore
     }
   }
 
+  @Override
+  public void addMessage(int partitionId, IntWritable vertexId,
+      FloatWritable message) throws IOException {
+    Int2FloatOpenHashMap partitionMap = map.get(partitionId);
+    synchronized (partitionMap) {
+      if (partitionMap.containsKey(vertexId.get())) {
+        FloatWritable currentMessage =
+            new FloatWritable(partitionMap.get(vertexId.get()));
+        messageCombiner.combine(vertexId, currentMessage, message);
+        partitionMap.put(vertexId.get(), currentMessage.get());
+      } else {
+        partitionMap.put(vertexId.get(), message.get());
+      }
+    }
+  }
+
   @Override
   public void finalizeStore() {
   }
@@ -144,6 +155,12 @@ public class IntFloatMessageStore
     return getPartitionMap(vertexId).containsKey(vertexId.get());
   }
 
+  @Override
+  public boolean hasMessagesForPartition(int partitionId) {
+    Int2FloatOpenHashMap partitionMap = map.get(partitionId);
+    return partitionMap != null && !partitionMap.isEmpty();
+  }
+
   @Override
   public Iterable<FloatWritable> getVertexMessages(
       IntWritable vertexId) throws IOException {
@@ -21,7 +21,6 @@ package org.apache.giraph.comm.messages.primitives;
 import org.apache.giraph.bsp.CentralizedServiceWorker;
 import org.apache.giraph.combiner.MessageCombiner;
 import org.apache.giraph.comm.messages.MessageStore;
-import org.apache.giraph.partition.Partition;
 import org.apache.giraph.utils.VertexIdMessageIterator;
 import org.apache.giraph.utils.VertexIdMessages;
 import org.apache.giraph.utils.EmptyIterable;
@@ -39,7 +38,10 @@ import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
@@ -49,6 +51,10 @@ import java.util.List;
  * are DoubleWritable and messageCombiner is used.
  * Uses fastutil primitive maps in order to decrease number of objects and
  * get better performance.
+ *
+ * Optionally, the messages of whole partitions are spilled to disk when
+ * too many are in memory (see {@link SpilledPartitions}), and read back
+ * when the partition is computed.
  */
 public class LongDoubleMessageStore
     implements MessageStore<LongWritable, DoubleWritable> {
@@ -58,6 +64,16 @@ public class LongDoubleMessageStore
   private final MessageCombiner<LongWritable, DoubleWritable> messageCombiner;
   /** Service worker */
   private final CentralizedServiceWorker<LongWritable, ?, ?> service;
+  /** Spilled partitions, or null if partitions are never spilled */
+  private final SpilledPartitions spilledPartitions;
+  /** Reusable message to combine single messages into, per thread */
+  private final ThreadLocal<DoubleWritable> reusableCurrentMessage =
+      new ThreadLocal<DoubleWritable>() {
+        @Override
+        protected DoubleWritable initialValue() {
+          return new DoubleWritable();
+        }
+      };
 
   /**
    * Constructor
@@ -68,18 +84,33 @@ public class LongDoubleMessageStore
   public LongDoubleMessageStore(
       CentralizedServiceWorker<LongWritable, Writable, Writable> service,
       MessageCombiner<LongWritable, DoubleWritable> messageCombiner) {
+    this(service, messageCombiner, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param service Service worker
+   * @param messageCombiner Message messageCombiner
+   * @param spilledPartitions Spilled partitions, or null to keep all
+   *                          messages in memory
+   */
+  public LongDoubleMessageStore(
+      CentralizedServiceWorker<LongWritable, Writable, Writable> service,
+      MessageCombiner<LongWritable, DoubleWritable> messageCombiner,
+      SpilledPartitions spilledPartitions) {
     this.service = service;
+    this.spilledPartitions = spilledPartitions;
     this.messageCombiner =
         messageCombiner;
 
     map = new Int2ObjectOpenHashMap<Long2DoubleOpenHashMap>();
     for (int partitionId : service.getPartitionStore().getPartitionIds()) {
-      Partition<LongWritable, Writable, Writable> partition =
-          service.getPartitionStore().getOrCreatePartition(partitionId);
+      // Sized from the metadata, so that out-of-core partitions stay on disk
       Long2DoubleOpenHashMap partitionMap =
-          new Long2DoubleOpenHashMap((int) partition.getVertexCount());
+          new Long2DoubleOpenHashMap((int) service.getPartitionStore()
+              .getPartitionMetadata(partitionId).getVertexCount());
       map.put(partitionId, partitionMap);
-      service.getPartitionStore().putPartition(partition);
     }
   }
 
@@ -95,7 +126,127 @@ public class LongDoubleMessageStore
    * @return Map which holds messages for partition which vertex belongs to.
    */
   private Long2DoubleOpenHashMap getPartitionMap(LongWritable vertexId) {
-    return map.get(service.getPartitionId(vertexId));
+    return getLoadedPartitionMap(service.getPartitionId(vertexId));
+  }
+
+  /**
+   * Get map which holds messages for a partition, reading back its
+   * messages if it was spilled.
+   *
+   * @param partitionId Partition id
+   * @return Map which holds messages for the partition
+   */
+  private Long2DoubleOpenHashMap getLoadedPartitionMap(int partitionId) {
+    Long2DoubleOpenHashMap partitionMap = map.get(partitionId);
+    if (spilledPartitions != null &&
+        spilledPartitions.isSpilled(partitionId)) {
+      try {
+        loadSpilledPartition(partitionId, partitionMap);
+      } catch (IOException e) {
+        throw new IllegalStateException("getLoadedPartitionMap: Failed to " +
+            "read spilled messages of partition " + partitionId, e);
+      }
+    }
+    return partitionMap;
+  }
+
+  /**
+   * Combine a message into the message of a vertex.
+   *
+   * @param partitionMap Partition map the vertex belongs to
+   * @param vertexId Vertex id
+   * @param message Message
+   * @param reusableVertexId Reusable vertex id
+   * @param reusableMessage Reusable message
+   * @param reusableCurrentMessage Reusable message
+   */
+  private void combine(Long2DoubleOpenHashMap partitionMap, long vertexId,
+      double message, LongWritable reusableVertexId,
+      DoubleWritable reusableMessage, DoubleWritable reusableCurrentMessage) {
+    if (partitionMap.containsKey(vertexId)) {
+      reusableVertexId.set(vertexId);
+      reusableMessage.set(message);
+      reusableCurrentMessage.set(partitionMap.get(vertexId));
+      messageCombiner.combine(reusableVertexId, reusableCurrentMessage,
+          reusableMessage);
+      message = reusableCurrentMessage.get();
+    }
+    partitionMap.put(vertexId, message);
+  }
+
+  /**
+   * Count messages added to a partition, and spill a partition if too
+   * many messages are in memory. Call while holding the lock of the
+   * partition map.
+   *
+   * @param partitionId Partition id
+   * @param count Number of vertices with new messages
+   * @return Id of the partition to spill, or -1
+   */
+  private int countAddedMessages(int partitionId, int count) {
+    if (spilledPartitions == null || count == 0) {
+      return -1;
+    }
+    return spilledPartitions.addMessages(partitionId, count);
+  }
+
+  /**
+   * Write the messages of a partition to a spill file and remove them from
+   * memory.
+   *
+   * @param partitionId Partition id
+   * @throws IOException
+   */
+  private void spillPartition(int partitionId) throws IOException {
+    Long2DoubleOpenHashMap partitionMap = map.get(partitionId);
+    synchronized (partitionMap) {
+      if (partitionMap.isEmpty()) {
+        return;
+      }
+      File file = spilledPartitions.newSpillFile();
+      DataOutputStream output = spilledPartitions.openSpillOutput(file);
+      try {
+        writePartitionMap(output, partitionMap);
+      } finally {
+        output.close();
+      }
+      partitionMap.clear();
+      partitionMap.trim();
+      spilledPartitions.spilled(partitionId, file);
+    }
+  }
+
+  /**
+   * Read back the spilled messages of a partition, combining them with the
+   * messages in memory.
+   *
+   * @param partitionId Partition id
+   * @param partitionMap Map of the partition
+   * @throws IOException
+   */
+  private void loadSpilledPartition(int partitionId,
+      Long2DoubleOpenHashMap partitionMap) throws IOException {
+    LongWritable reusableVertexId = new LongWritable();
+    DoubleWritable reusableMessage = new DoubleWritable();
+    DoubleWritable reusableCurrentMessage = new DoubleWritable();
+    synchronized (partitionMap) {
+      List<File> files = spilledPartitions.takeSpillFiles(partitionId);
+      for (File file : files) {
+        DataInputStream in = spilledPartitions.openSpillInput(file);
+        try {
+          int size = in.readInt();
+          while (size-- > 0) {
+            long vertexId = in.readLong();
+            double message = in.readDouble();
+            combine(partitionMap, vertexId, message, reusableVertexId,
+                reusableMessage, reusableCurrentMessage);
+          }
+        } finally {
+          in.close();
+        }
+      }
+      SpilledPartitions.deleteFiles(files);
+    }
   }
 
   @Override
@@ -107,24 +258,45 @@ public class LongDoubleMessageStore
     DoubleWritable reusableCurrentMessage = new DoubleWritable();
 
     Long2DoubleOpenHashMap partitionMap = map.get(partitionId);
+    int partitionToSpill;
     synchronized (partitionMap) {
+      int sizeBefore = partitionMap.size();
       VertexIdMessageIterator<LongWritable, DoubleWritable> iterator =
         messages.getVertexIdMessageIterator();
       while (iterator.hasNext()) {
         iterator.next();
-        long vertexId = iterator.getCurrentVertexId().get();
-        double message = iterator.getCurrentMessage().get();
-        if (partitionMap.containsKey(vertexId)) {
-          reusableVertexId.set(vertexId);
-          reusableMessage.set(message);
-          reusableCurrentMessage.set(partitionMap.get(vertexId));
-          messageCombiner.combine(reusableVertexId, reusableCurrentMessage,
-              reusableMessage);
-          message = reusableCurrentMessage.get();
-        }
-        partitionMap.put(vertexId, message);
+        combine(partitionMap, iterator.getCurrentVertexId().get(),
+            iterator.getCurrentMessage().get(), reusableVertexId,
+            reusableMessage, reusableCurrentMessage);
+      }
+      partitionToSpill = countAddedMessages(partitionId,
+          partitionMap.size() - sizeBefore);
+    }
+    if (partitionToSpill != -1) {
+      spillPartition(partitionToSpill);
+    }
+  }
+
+  @Override
+  public void addMessage(int partitionId, LongWritable vertexId,
+      DoubleWritable message) throws IOException {
+    Long2DoubleOpenHashMap partitionMap = map.get(partitionId);
+    int partitionToSpill;
+    synchronized (partitionMap) {
+      if (partitionMap.containsKey(vertexId.get())) {
+        DoubleWritable currentMessage = reusableCurrentMessage.get();
+        currentMessage.set(partitionMap.get(vertexId.get()));
+        messageCombiner.combine(vertexId, currentMessage, message);
+        partitionMap.put(vertexId.get(), currentMessage.get());
+        partitionToSpill = -1;
+      } else {
+        partitionMap.put(vertexId.get(), message.get());
+        partitionToSpill = countAddedMessages(partitionId, 1);
       }
     }
+    if (partitionToSpill != -1) {
+      spillPartition(partitionToSpill);
+    }
   }
 
   @Override
@@ -134,6 +306,9 @@ public class LongDoubleMessageStore
   @Override
   public void clearPartition(int partitionId) throws IOException {
     map.get(partitionId).clear();
+    if (spilledPartitions != null) {
+      spilledPartitions.clearPartition(partitionId);
+    }
   }
 
   @Override
@@ -141,6 +316,14 @@ public class LongDoubleMessageStore
     return getPartitionMap(vertexId).containsKey(vertexId.get());
   }
 
+  @Override
+  public boolean hasMessagesForPartition(int partitionId) {
+    Long2DoubleOpenHashMap partitionMap = map.get(partitionId);
+    return partitionMap != null && (!partitionMap.isEmpty() ||
+        (spilledPartitions != null &&
+            spilledPartitions.isSpilled(partitionId)));
+  }
+
   @Override
   public Iterable<DoubleWritable> getVertexMessages(
       LongWritable vertexId) throws IOException {
@@ -153,6 +336,27 @@ public class LongDoubleMessageStore
     }
   }
 
+  /**
+   * Get the messages of many vertices of a partition at once, without
+   * creating objects for them.
+   *
+   * @param partitionId Partition id
+   * @param vertexIds Ids of the vertices
+   * @param count Number of vertices in vertexIds
+   * @param messages Filled with the message of each vertex which has one
+   * @param hasMessages Filled with whether each vertex has a message
+   */
+  public void getPartitionMessages(int partitionId, long[] vertexIds,
+      int count, double[] messages, boolean[] hasMessages) {
+    Long2DoubleOpenHashMap partitionMap = getLoadedPartitionMap(partitionId);
+    for (int i = 0; i < count; i++) {
+      hasMessages[i] = partitionMap.containsKey(vertexIds[i]);
+      if (hasMessages[i]) {
+        messages[i] = partitionMap.get(vertexIds[i]);
+      }
+    }
+  }
+
   @Override
   public void clearVertexMessages(LongWritable vertexId) throws IOException {
     getPartitionMap(vertexId).remove(vertexId.get());
@@ -161,12 +365,15 @@ public class LongDoubleMessageStore
   @Override
   public void clearAll() throws IOException {
     map.clear();
+    if (spilledPartitions != null) {
+      spilledPartitions.clearAll();
+    }
   }
 
   @Override
   public Iterable<LongWritable> getPartitionDestinationVertices(
       int partitionId) {
-    Long2DoubleOpenHashMap partitionMap = map.get(partitionId);
+    Long2DoubleOpenHashMap partitionMap = getLoadedPartitionMap(partitionId);
     List<LongWritable> vertices =
         Lists.newArrayListWithCapacity(partitionMap.size());
     LongIterator iterator = partitionMap.keySet().iterator();
@@ -179,7 +386,18 @@ public class LongDoubleMessageStore
   @Override
   public void writePartition(DataOutput out,
       int partitionId) throws IOException {
-    Long2DoubleOpenHashMap partitionMap = map.get(partitionId);
+    writePartitionMap(out, getLoadedPartitionMap(partitionId));
+  }
+
+  /**
+   * Write the messages of a partition.
+   *
+   * @param out Output to write to
+   * @param partitionMap Map of the partition
+   * @throws IOException
+   */
+  private static void writePartitionMap(DataOutput out,
+      Long2DoubleOpenHashMap partitionMap) throws IOException {
     out.writeInt(partitionMap.size());
     ObjectIterator<Long2DoubleMap.Entry> iterator =
         partitionMap.long2DoubleEntrySet().fastIterator();
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm.messages.primitives;
+
+import org.apache.giraph.comm.messages.out_of_core.MessageFiles;
+import org.apache.giraph.utils.io.DiskIOPriority;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bookkeeping for primitive message stores which spill the messages of
+ * whole partitions to local disk when too many are in memory. It counts
+ * the messages each partition holds in memory, picks the partition to
+ * spill, and keeps the files every partition was spilled to until the
+ * store reads them back, which it does when the partition is computed.
+ */
+public class SpilledPartitions {
+  /** Class logger */
+  private static final Logger LOG = Logger.getLogger(SpilledPartitions.class);
+  /** Names the spill files */
+  private final MessageFiles messageFiles;
+  /** Number of messages to keep in memory */
+  private final long maxMessagesInMemory;
+  /** Number of messages in memory of each partition */
+  private final Int2LongOpenHashMap messagesInMemory =
+      new Int2LongOpenHashMap();
+  /** Number of messages in memory of all partitions */
+  private long totalMessagesInMemory;
+  /** Number of messages on disk of each partition */
+  private final Int2LongOpenHashMap messagesOnDisk =
+      new Int2LongOpenHashMap();
+  /** Files each partition was spilled to */
+  private final ConcurrentMap<Integer, List<File>> spillFiles =
+      Maps.newConcurrentMap();
+
+  /**
+   * Constructor
+   *
+   * @param messageFiles Names the spill files
+   * @param maxMessagesInMemory Number of messages to keep in memory
+   */
+  public SpilledPartitions(MessageFiles messageFiles,
+      long maxMessagesInMemory) {
+    this.messageFiles = messageFiles;
+    this.maxMessagesInMemory = maxMessagesInMemory;
+  }
+
+  /**
+   * Count messages added to a partition.
+   *
+   * @param partitionId Partition id
+   * @param count Number of messages added
+   * @return Id of the partition to spill, or -1 if nothing has to be
+   *         spilled
+   */
+  public synchronized int addMessages(int partitionId, long count) {
+    messagesInMemory.put(partitionId,
+        messagesInMemory.get(partitionId) + count);
+    totalMessagesInMemory += count;
+    if (totalMessagesInMemory <= maxMessagesInMemory) {
+      return -1;
+    }
+    int biggestPartition = -1;
+    long maxMessages = 0;
+    for (Int2LongMap.Entry entry : messagesInMemory.int2LongEntrySet()) {
+      if (entry.getLongValue() > maxMessages) {
+        maxMessages = entry.getLongValue();
+        biggestPartition = entry.getIntKey();
+      }
+    }
+    return biggestPartition;
+  }
+
+  /**
+   * Get a new file to spill a partition to.
+   *
+   * @return Spill file
+   */
+  public File newSpillFile() {
+    return messageFiles.newFile("messages-spill-");
+  }
+
+  /**
+   * Open a spill file for writing, in chunks on the I/O thread of its
+   * disk.
+   *
+   * @param file Spill file
+   * @return Output to serialize the messages to on the calling thread,
+   *         which must be closed
+   */
+  public DataOutputStream openSpillOutput(File file) {
+    return messageFiles.getDiskIOScheduler().openScheduledOutput(file,
+        DiskIOPriority.EVICTION, false);
+  }
+
+  /**
+   * Open a spill file for reading, in chunks on the I/O thread of its
+   * disk.
+   *
+   * @param file Spill file
+   * @return Input to deserialize the messages from on the calling thread,
+   *         which must be closed
+   * @throws IOException
+   */
+  public DataInputStream openSpillInput(File file) throws IOException {
+    return messageFiles.getDiskIOScheduler().openScheduledInput(file,
+        DiskIOPriority.DEMAND_LOAD);
+  }
+
+  /**
+   * Record that all messages of a partition in memory were spilled to a
+   * file. Must be called while no messages are added to the partition.
+   *
+   * @param partitionId Partition id
+   * @param file File the messages were written to
+   */
+  public synchronized void spilled(int partitionId, File file) {
+    long count = messagesInMemory.remove(partitionId);
+    totalMessagesInMemory -= count;
+    messagesOnDisk.put(partitionId, messagesOnDisk.get(partitionId) + count);
+    List<File> files = spillFiles.get(partitionId);
+    if (files == null) {
+      files = Lists.newArrayList();
+      spillFiles.put(partitionId, files);
+    }
+    files.add(file);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("spilled: Partition " + partitionId + " spilled to " + file +
+          ", " + totalMessagesInMemory + " messages left in memory");
+    }
+  }
+
+  /**
+   * Check whether a partition has messages on disk.
+   *
+   * @param partitionId Partition id
+   * @return True iff the partition was spilled and not read back
+   */
+  public boolean isSpilled(int partitionId) {
+    return !spillFiles.isEmpty() && spillFiles.containsKey(partitionId);
+  }
+
+  /**
+   * Take the spill files of a partition, which the caller reads back and
+   * deletes. The messages in the files count as in memory again.
+   *
+   * @param partitionId Partition id
+   * @return Files the partition was spilled to, in spilling order
+   */
+  public synchronized List<File> takeSpillFiles(int partitionId) {
+    long count = messagesOnDisk.remove(partitionId);
+    messagesInMemory.put(partitionId,
+        messagesInMemory.get(partitionId) + count);
+    totalMessagesInMemory += count;
+    List<File> files = spillFiles.remove(partitionId);
+    return files == null ? Collections.<File>emptyList() : files;
+  }
+
+  /**
+   * Forget the messages of a partition and delete its spill files.
+   *
+   * @param partitionId Partition id
+   */
+  public synchronized void clearPartition(int partitionId) {
+    deleteFiles(takeSpillFiles(partitionId));
+    totalMessagesInMemory -= messagesInMemory.remove(partitionId);
+  }
+
+  /**
+   * Get the number of messages in memory of all partitions.
+   *
+   * @return Number of messages in memory
+   */
+  public synchronized long getTotalMessagesInMemory() {
+    return totalMessagesInMemory;
+  }
+
+  /**
+   * Forget all messages and delete all spill files.
+   */
+  public synchronized void clearAll() {
+    messagesInMemory.clear();
+    totalMessagesInMemory = 0;
+    messagesOnDisk.clear();
+    for (List<File> files : spillFiles.values()) {
+      deleteFiles(files);
+    }
+    spillFiles.clear();
+  }
+
+  /**
+   * Delete spill files.
+   *
+   * @param files Files to delete
+   */
+  public static void deleteFiles(List<File> files) {
+    for (File file : files) {
+      if (!file.delete()) {
+        LOG.error("deleteFiles: Failed to delete " + file);
+      }
+    }
+  }
+}
@@ -104,8 +104,18 @@ public abstract class LongAbstractListMessageStore<M extends Writable,
     VertexIdIterator<LongWritable> iterator) {
     PartitionOwner owner =
         service.getVertexPartitionOwner(iterator.getCurrentVertexId());
-    long vertexId = iterator.getCurrentVertexId().get();
-    int partitionId = owner.getPartitionId();
+    return getList(owner.getPartitionId(),
+        iterator.getCurrentVertexId().get());
+  }
+
+  /**
+   * Get list for a vertex
+   *
+   * @param partitionId Id of partition the vertex belongs to
+   * @param vertexId Vertex id
+   * @return list for the vertex
+   */
+  protected L getList(int partitionId, long vertexId) {
     Long2ObjectOpenHashMap<L> partitionMap = map.get(partitionId);
     if (!partitionMap.containsKey(vertexId)) {
       synchronized (nascentMap) {
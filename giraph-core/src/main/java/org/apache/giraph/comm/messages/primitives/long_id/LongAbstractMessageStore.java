@@ -26,7 +26,6 @@ import org.apache.giraph.bsp.CentralizedServiceWorker;
 import org.apache.giraph.comm.messages.MessageStore;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.factories.MessageValueFactory;
-import org.apache.giraph.partition.Partition;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Writable;
 
@@ -73,13 +72,11 @@ public abstract class LongAbstractMessageStore<M extends Writable, T>
 
     map = new Int2ObjectOpenHashMap<>();
     for (int partitionId : service.getPartitionStore().getPartitionIds()) {
-      Partition<LongWritable, Writable, Writable> partition =
-          service.getPartitionStore().getOrCreatePartition(partitionId);
+      // Sized from the metadata, so that out-of-core partitions stay on disk
       Long2ObjectOpenHashMap<T> partitionMap =
-          new Long2ObjectOpenHashMap<T>(
-              (int) partition.getVertexCount());
+          new Long2ObjectOpenHashMap<T>((int) service.getPartitionStore()
+              .getPartitionMetadata(partitionId).getVertexCount());
       map.put(partitionId, partitionMap);
-      service.getPartitionStore().putPartition(partition);
     }
   }
 
@@ -104,6 +101,12 @@ public abstract class LongAbstractMessageStore<M extends Writable, T>
     return getPartitionMap(vertexId).containsKey(vertexId.get());
   }
 
+  @Override
+  public boolean hasMessagesForPartition(int partitionId) {
+    Long2ObjectOpenHashMap<T> partitionMap = map.get(partitionId);
+    return partitionMap != null && !partitionMap.isEmpty();
+  }
+
   @Override
   public void clearVertexMessages(LongWritable vertexId) throws IOException {
     getPartitionMap(vertexId).remove(vertexId.get());
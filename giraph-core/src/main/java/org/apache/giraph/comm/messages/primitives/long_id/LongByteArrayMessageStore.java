@@ -20,6 +20,7 @@ package org.apache.giraph.comm.messages.primitives.long_id;
 
 import org.apache.giraph.bsp.CentralizedServiceWorker;
 import org.apache.giraph.comm.messages.MessagesIterable;
+import org.apache.giraph.comm.messages.primitives.SpilledPartitions;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.factories.MessageValueFactory;
 import org.apache.giraph.utils.VertexIdMessageBytesIterator;
@@ -36,8 +37,12 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Special message store to be used when ids are LongWritable and no combiner
@@ -45,10 +50,16 @@ import java.io.IOException;
  * Uses fastutil primitive maps in order to decrease number of objects and
  * get better performance.
  *
+ * Optionally, the messages of whole partitions are spilled to disk when
+ * too many are in memory (see {@link SpilledPartitions}), and read back
+ * when the partition is computed.
+ *
  * @param <M> Message type
  */
 public class LongByteArrayMessageStore<M extends Writable>
   extends LongAbstractMessageStore<M, DataInputOutput> {
+  /** Spilled partitions, or null if partitions are never spilled */
+  private final SpilledPartitions spilledPartitions;
 
   /**
    * Constructor
@@ -62,7 +73,26 @@ public class LongByteArrayMessageStore<M extends Writable>
       CentralizedServiceWorker<LongWritable, Writable, Writable> service,
       ImmutableClassesGiraphConfiguration<LongWritable,
           Writable, Writable> config) {
+    this(messageValueFactory, service, config, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param messageValueFactory Factory for creating message values
+   * @param service             Service worker
+   * @param config              Hadoop configuration
+   * @param spilledPartitions   Spilled partitions, or null to keep all
+   *                            messages in memory
+   */
+  public LongByteArrayMessageStore(
+      MessageValueFactory<M> messageValueFactory,
+      CentralizedServiceWorker<LongWritable, Writable, Writable> service,
+      ImmutableClassesGiraphConfiguration<LongWritable,
+          Writable, Writable> config,
+      SpilledPartitions spilledPartitions) {
     super(messageValueFactory, service, config);
+    this.spilledPartitions = spilledPartitions;
   }
 
   @Override
@@ -91,7 +121,9 @@ public class LongByteArrayMessageStore<M extends Writable>
   public void addPartitionMessages(int partitionId,
     VertexIdMessages<LongWritable, M> messages) throws IOException {
     Long2ObjectOpenHashMap<DataInputOutput> partitionMap = map.get(partitionId);
+    int partitionToSpill;
     synchronized (partitionMap) {
+      int count = 0;
       VertexIdMessageBytesIterator<LongWritable, M>
           vertexIdMessageBytesIterator =
           messages.getVertexIdMessageBytesIterator();
@@ -107,6 +139,7 @@ public class LongByteArrayMessageStore<M extends Writable>
               vertexIdMessageBytesIterator.getCurrentVertexId().get());
           vertexIdMessageBytesIterator.writeCurrentMessageBytes(
               dataInputOutput.getDataOutput());
+          count++;
         }
       } else {
         VertexIdMessageIterator<LongWritable, M>
@@ -117,8 +150,195 @@ public class LongByteArrayMessageStore<M extends Writable>
               iterator.getCurrentVertexId().get());
           VerboseByteStructMessageWrite.verboseWriteCurrentMessage(iterator,
               dataInputOutput.getDataOutput());
+          count++;
         }
       }
+      partitionToSpill = countAddedMessages(partitionId, count);
+    }
+    if (partitionToSpill != -1) {
+      spillPartition(partitionToSpill);
+    }
+  }
+
+  @Override
+  public void addMessage(int partitionId, LongWritable vertexId,
+      M message) throws IOException {
+    Long2ObjectOpenHashMap<DataInputOutput> partitionMap = map.get(partitionId);
+    int partitionToSpill;
+    synchronized (partitionMap) {
+      message.write(getDataInputOutput(partitionMap, vertexId.get())
+          .getDataOutput());
+      partitionToSpill = countAddedMessages(partitionId, 1);
+    }
+    if (partitionToSpill != -1) {
+      spillPartition(partitionToSpill);
+    }
+  }
+
+  /**
+   * Count messages added to a partition, and find the partition to spill
+   * if too many messages are in memory. Call while holding the lock of the
+   * partition map.
+   *
+   * @param partitionId Partition id
+   * @param count Number of messages added
+   * @return Id of the partition to spill, or -1
+   */
+  private int countAddedMessages(int partitionId, int count) {
+    if (spilledPartitions == null || count == 0) {
+      return -1;
+    }
+    return spilledPartitions.addMessages(partitionId, count);
+  }
+
+  /**
+   * Write the messages of a partition to a spill file and remove them from
+   * memory.
+   *
+   * @param partitionId Partition id
+   * @throws IOException
+   */
+  private void spillPartition(int partitionId) throws IOException {
+    Long2ObjectOpenHashMap<DataInputOutput> partitionMap =
+        map.get(partitionId);
+    synchronized (partitionMap) {
+      if (partitionMap.isEmpty()) {
+        return;
+      }
+      File file = spilledPartitions.newSpillFile();
+      DataOutputStream output = spilledPartitions.openSpillOutput(file);
+      try {
+        writePartitionMap(output, partitionMap);
+      } finally {
+        output.close();
+      }
+      partitionMap.clear();
+      partitionMap.trim();
+      spilledPartitions.spilled(partitionId, file);
+    }
+  }
+
+  /**
+   * Read back the spilled messages of a partition. Messages of a vertex
+   * stay in the order they were added in.
+   *
+   * @param partitionId Partition id
+   * @param partitionMap Map of the partition
+   * @throws IOException
+   */
+  private void loadSpilledPartition(int partitionId,
+      Long2ObjectOpenHashMap<DataInputOutput> partitionMap)
+    throws IOException {
+    synchronized (partitionMap) {
+      List<File> files = spilledPartitions.takeSpillFiles(partitionId);
+      if (files.isEmpty()) {
+        return;
+      }
+      Long2ObjectOpenHashMap<DataInputOutput> added =
+          new Long2ObjectOpenHashMap<DataInputOutput>(partitionMap);
+      partitionMap.clear();
+      for (File file : files) {
+        DataInputStream in = spilledPartitions.openSpillInput(file);
+        try {
+          int size = in.readInt();
+          while (size-- > 0) {
+            long vertexId = in.readLong();
+            DataInputOutput spilled = config.createMessagesInputOutput();
+            spilled.readFields(in);
+            appendMessages(partitionMap, vertexId, spilled);
+          }
+        } finally {
+          in.close();
+        }
+      }
+      ObjectIterator<Long2ObjectMap.Entry<DataInputOutput>> iterator =
+          added.long2ObjectEntrySet().fastIterator();
+      while (iterator.hasNext()) {
+        Long2ObjectMap.Entry<DataInputOutput> entry = iterator.next();
+        appendMessages(partitionMap, entry.getLongKey(), entry.getValue());
+      }
+      SpilledPartitions.deleteFiles(files);
+    }
+  }
+
+  /**
+   * Append messages to the messages of a vertex.
+   *
+   * @param partitionMap Partition map the vertex belongs to
+   * @param vertexId Vertex id
+   * @param messages Messages to append, kept if the vertex has none yet
+   * @throws IOException
+   */
+  private void appendMessages(
+      Long2ObjectOpenHashMap<DataInputOutput> partitionMap, long vertexId,
+      DataInputOutput messages) throws IOException {
+    DataInputOutput dataInputOutput = partitionMap.get(vertexId);
+    if (dataInputOutput == null) {
+      partitionMap.put(vertexId, messages);
+    } else {
+      for (M message : new MessagesIterable<M>(messages,
+          messageValueFactory)) {
+        message.write(dataInputOutput.getDataOutput());
+      }
+    }
+  }
+
+  @Override
+  protected Long2ObjectOpenHashMap<DataInputOutput> getPartitionMap(
+      LongWritable vertexId) {
+    return getLoadedPartitionMap(service.getPartitionId(vertexId));
+  }
+
+  /**
+   * Get map which holds messages for a partition, reading back its
+   * messages if it was spilled.
+   *
+   * @param partitionId Partition id
+   * @return Map which holds messages for the partition
+   */
+  private Long2ObjectOpenHashMap<DataInputOutput> getLoadedPartitionMap(
+      int partitionId) {
+    Long2ObjectOpenHashMap<DataInputOutput> partitionMap =
+        map.get(partitionId);
+    if (spilledPartitions != null &&
+        spilledPartitions.isSpilled(partitionId)) {
+      try {
+        loadSpilledPartition(partitionId, partitionMap);
+      } catch (IOException e) {
+        throw new IllegalStateException("getLoadedPartitionMap: Failed to " +
+            "read spilled messages of partition " + partitionId, e);
+      }
+    }
+    return partitionMap;
+  }
+
+  @Override
+  public boolean hasMessagesForPartition(int partitionId) {
+    return super.hasMessagesForPartition(partitionId) ||
+        (spilledPartitions != null &&
+            spilledPartitions.isSpilled(partitionId));
+  }
+
+  @Override
+  public Iterable<LongWritable> getPartitionDestinationVertices(
+      int partitionId) {
+    getLoadedPartitionMap(partitionId);
+    return super.getPartitionDestinationVertices(partitionId);
+  }
+
+  @Override
+  public void clearPartition(int partitionId) throws IOException {
+    super.clearPartition(partitionId);
+    if (spilledPartitions != null) {
+      spilledPartitions.clearPartition(partitionId);
+    }
+  }
+
+  @Override
+  public void clearAll() throws IOException {
+    super.clearAll();
+    if (spilledPartitions != null) {
+      spilledPartitions.clearAll();
     }
   }
 
@@ -141,8 +361,19 @@ public class LongByteArrayMessageStore<M extends Writable>
   @Override
   public void writePartition(DataOutput out, int partitionId)
     throws IOException {
-    Long2ObjectOpenHashMap<DataInputOutput> partitionMap =
-        map.get(partitionId);
+    writePartitionMap(out, getLoadedPartitionMap(partitionId));
+  }
+
+  /**
+   * Write the messages of a partition.
+   *
+   * @param out Output to write to
+   * @param partitionMap Map of the partition
+   * @throws IOException
+   */
+  private static void writePartitionMap(DataOutput out,
+      Long2ObjectOpenHashMap<DataInputOutput> partitionMap)
+    throws IOException {
     out.writeInt(partitionMap.size());
     ObjectIterator<Long2ObjectMap.Entry<DataInputOutput>> iterator =
         partitionMap.long2ObjectEntrySet().fastIterator();
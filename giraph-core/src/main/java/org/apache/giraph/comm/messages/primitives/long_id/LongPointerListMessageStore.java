@@ -26,7 +26,6 @@ import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.factories.MessageValueFactory;
 import org.apache.giraph.utils.EmptyIterable;
 import org.apache.giraph.utils.ExtendedByteArrayOutputBuffer;
-import org.apache.giraph.utils.ExtendedDataOutput;
 import org.apache.giraph.utils.VertexIdMessageIterator;
 import org.apache.giraph.utils.VertexIdMessages;
 import org.apache.hadoop.io.LongWritable;
@@ -36,7 +35,6 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
-import static org.apache.giraph.utils.ExtendedByteArrayOutputBuffer.IndexAndDataOut;
 
 /**
  * This stores messages in
@@ -90,12 +88,7 @@ public class LongPointerListMessageStore<M extends Writable>
       M msg = iterator.getCurrentMessage();
       list = getList(iterator);
       if (iterator.isNewMessage()) {
-        IndexAndDataOut indexAndDataOut = bytesBuffer.getIndexAndDataOut();
-        pointer = indexAndDataOut.getIndex();
-        pointer <<= 32;
-        ExtendedDataOutput dataOutput = indexAndDataOut.getDataOutput();
-        pointer += dataOutput.getPos();
-        msg.write(dataOutput);
+        pointer = bytesBuffer.write(msg);
       }
       synchronized (list) { // TODO - any better way?
         list.add(pointer);
@@ -103,6 +96,16 @@ public class LongPointerListMessageStore<M extends Writable>
     }
   }
 
+  @Override
+  public void addMessage(int partitionId, LongWritable vertexId,
+      M message) throws IOException {
+    LongArrayList list = getList(partitionId, vertexId.get());
+    long pointer = bytesBuffer.write(message);
+    synchronized (list) {
+      list.add(pointer);
+    }
+  }
+
   @Override
   public Iterable<M> getVertexMessages(
     LongWritable vertexId) throws IOException {
@@ -141,6 +141,19 @@ public final class AsyncMessageStoreWrapper<I extends WritableComparable,
     return store.hasMessagesForVertex(vertexId);
   }
 
+  @Override
+  public void addMessage(int partitionId, I vertexId,
+      M message) throws IOException {
+    // Local messages come from compute threads, so they don't need to be
+    // decoupled from Netty threads
+    store.addMessage(partitionId, vertexId, message);
+  }
+
+  @Override
+  public boolean hasMessagesForPartition(int partitionId) {
+    return store.hasMessagesForPartition(partitionId);
+  }
+
   @Override
   public void addPartitionMessages(
       int partitionId, VertexIdMessages<I, M> messages) throws IOException {
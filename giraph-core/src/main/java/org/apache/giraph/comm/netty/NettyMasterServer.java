@@ -22,6 +22,7 @@ import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.bsp.CentralizedServiceMaster;
 import org.apache.giraph.comm.netty.handler.MasterRequestServerHandler;
 import org.apache.giraph.comm.MasterServer;
+import org.apache.giraph.comm.MasterServerData;
 import org.apache.hadoop.util.Progressable;
 
 import java.net.InetSocketAddress;
@@ -46,7 +47,9 @@ public class NettyMasterServer implements MasterServer {
       Progressable progressable,
       Thread.UncaughtExceptionHandler exceptionHandler) {
     nettyServer = new NettyServer(conf,
-        new MasterRequestServerHandler.Factory(service.getAggregatorHandler()),
+        new MasterRequestServerHandler.Factory(new MasterServerData(
+            service.getAggregatorHandler(),
+            service.getWorkerSuperstepReports())),
         service.getMasterInfo(), progressable, exceptionHandler);
     nettyServer.start();
   }
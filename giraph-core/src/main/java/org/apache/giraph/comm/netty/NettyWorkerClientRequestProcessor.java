@@ -23,7 +23,9 @@ import com.yammer.metrics.util.PercentGauge;
 import org.apache.giraph.bsp.BspService;
 import org.apache.giraph.bsp.CentralizedServiceWorker;
 import org.apache.giraph.comm.SendOneMessageToManyCache;
+import org.apache.giraph.comm.SendCombinedMessageCache;
 import org.apache.giraph.comm.SendEdgeCache;
+import org.apache.giraph.comm.SendInEdgeCache;
 import org.apache.giraph.comm.SendMessageCache;
 import org.apache.giraph.comm.SendMutationsCache;
 import org.apache.giraph.comm.SendPartitionCache;
@@ -35,6 +37,7 @@ import org.apache.giraph.comm.requests.SendPartitionCurrentMessagesRequest;
 import org.apache.giraph.comm.requests.SendPartitionMutationsRequest;
 import org.apache.giraph.comm.requests.SendVertexRequest;
 import org.apache.giraph.comm.requests.SendWorkerEdgesRequest;
+import org.apache.giraph.comm.requests.SendWorkerInEdgesRequest;
 import org.apache.giraph.comm.requests.SendWorkerVerticesRequest;
 import org.apache.giraph.comm.requests.WorkerRequest;
 import org.apache.giraph.comm.requests.WritableRequest;
@@ -46,6 +49,7 @@ import org.apache.giraph.graph.VertexMutations;
 import org.apache.giraph.metrics.GiraphMetrics;
 import org.apache.giraph.metrics.MetricNames;
 import org.apache.giraph.metrics.SuperstepMetricsRegistry;
+import org.apache.giraph.partition.BasicPartitionOwner;
 import org.apache.giraph.partition.Partition;
 import org.apache.giraph.partition.PartitionOwner;
 import org.apache.giraph.utils.ByteArrayVertexIdMessages;
@@ -59,6 +63,7 @@ import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -82,8 +87,12 @@ public class NettyWorkerClientRequestProcessor<I extends WritableComparable,
   private final SendPartitionCache<I, V, E> sendPartitionCache;
   /** Cached map of partitions to vertex indices to messages */
   private final SendMessageCache<I, Writable> sendMessageCache;
+  /** Combined messages to be sent, created on first use */
+  private SendCombinedMessageCache<I, Writable> sendCombinedMessageCache;
   /** Cache of edges to be sent. */
   private final SendEdgeCache<I, E> sendEdgeCache;
+  /** Cached in-edges for the in-edge index, null if it is not used */
+  private final SendInEdgeCache<I> sendInEdgeCache;
   /** Cached map of partitions to vertex indices to mutations */
   private final SendMutationsCache<I, V, E> sendMutationsCache =
       new SendMutationsCache<I, V, E>();
@@ -108,9 +117,9 @@ public class NettyWorkerClientRequestProcessor<I extends WritableComparable,
 
   // Per-Superstep Metrics
   /** Number of requests that went on the wire */
-  private final Counter localRequests;
+  private Counter localRequests;
   /** Number of requests that were handled locally */
-  private final Counter remoteRequests;
+  private Counter remoteRequests;
 
   /**
    * Constructor.
@@ -149,9 +158,21 @@ public class NettyWorkerClientRequestProcessor<I extends WritableComparable,
         GiraphConfiguration.MAX_MUTATIONS_PER_REQUEST.get(conf);
     this.serviceWorker = serviceWorker;
     this.serverData = serviceWorker.getServerData();
+    sendInEdgeCache = conf.useInEdgeIndex() ?
+        new SendInEdgeCache<I>(conf, serviceWorker, this) : null;
 
     // Per-Superstep Metrics.
-    // Since this object is not long lived we just initialize the metrics here.
+    // This object usually lives for one superstep, so we initialize the
+    // metrics here, processors kept longer call startSuperstep().
+    startSuperstep();
+  }
+
+  /**
+   * Register the metrics of this processor with the registry of the current
+   * superstep. Called on construction, and at the start of every superstep
+   * by processors which are kept across supersteps.
+   */
+  public void startSuperstep() {
     SuperstepMetricsRegistry smr = GiraphMetrics.get().perSuperstep();
     localRequests = smr.getCounter(MetricNames.LOCAL_REQUESTS);
     remoteRequests = smr.getCounter(MetricNames.REMOTE_REQUESTS);
@@ -163,6 +184,15 @@ public class NettyWorkerClientRequestProcessor<I extends WritableComparable,
     this.sendMessageCache.sendMessageRequest(destVertexId, message);
   }
 
+  @Override
+  public void sendCombinedMessageRequest(I destVertexId, Writable message) {
+    if (sendCombinedMessageCache == null) {
+      sendCombinedMessageCache = new SendCombinedMessageCache<I, Writable>(
+          configuration, sendMessageCache);
+    }
+    sendCombinedMessageCache.combineMessage(destVertexId, message);
+  }
+
   @Override
   public void sendMessageToAllRequest(
     Vertex<I, V, E> vertex, Writable message) {
@@ -185,10 +215,66 @@ public class NettyWorkerClientRequestProcessor<I extends WritableComparable,
 
     WritableRequest vertexRequest = new SendVertexRequest<I, V, E>(partition);
     doRequest(workerInfo, vertexRequest);
+    sendPartitionInEdges(workerInfo, partition.getId());
 
     // Messages are stored separately
     if (serviceWorker.getSuperstep() != BspService.INPUT_SUPERSTEP) {
-      sendPartitionMessages(workerInfo, partition);
+      sendPartitionMessages(workerInfo, partition.getId());
+    }
+  }
+
+  @Override
+  public void sendPartitionVerticesRequest(WorkerInfo workerInfo,
+      int partitionId, Iterable<Vertex<I, V, E>> vertices) {
+    // Vertices go through the partition cache, so they are sent in
+    // requests of at most the vertex request size
+    PartitionOwner partitionOwner =
+        new BasicPartitionOwner(partitionId, workerInfo);
+    boolean empty = true;
+    for (Vertex<I, V, E> vertex : vertices) {
+      // Not added to the in-edge cache, the in-edges of the partition are
+      // moved from the index below
+      addVertexToCache(partitionOwner, vertex);
+      empty = false;
+    }
+    if (empty) {
+      // Still let the destination know about the partition
+      PairList<Integer, ExtendedDataOutput> emptyPartition =
+          new PairList<Integer, ExtendedDataOutput>();
+      emptyPartition.initialize(1);
+      emptyPartition.add(partitionId,
+          configuration.createExtendedDataOutput());
+      doRequest(workerInfo, new SendWorkerVerticesRequest<I, V, E>(
+          configuration, emptyPartition));
+    }
+    sendPartitionInEdges(workerInfo, partitionId);
+
+    // Messages are stored separately
+    if (serviceWorker.getSuperstep() != BspService.INPUT_SUPERSTEP) {
+      sendPartitionMessages(workerInfo, partitionId);
+    }
+  }
+
+  /**
+   * Move the in-edges of a partition from the in-edge index of this worker
+   * to the worker the partition is sent to.
+   *
+   * @param workerInfo Worker to send the in-edges to
+   * @param partitionId Id of the partition whose in-edges to send
+   */
+  private void sendPartitionInEdges(WorkerInfo workerInfo, int partitionId) {
+    if (!configuration.useInEdgeIndex()) {
+      return;
+    }
+    long[] inEdges =
+        serverData.getInEdgeIndex().removePartition(partitionId);
+    // Each in-edge takes two longs
+    int maxLongsPerRequest = Math.max(2, maxEdgesSizePerWorker / 16 * 2);
+    for (int start = 0; start < inEdges.length;
+         start += maxLongsPerRequest) {
+      int length = Math.min(maxLongsPerRequest, inEdges.length - start);
+      doRequest(workerInfo, new SendWorkerInEdgesRequest<I>(partitionId,
+          Arrays.copyOfRange(inEdges, start, start + length), length));
     }
   }
 
@@ -196,11 +282,10 @@ public class NettyWorkerClientRequestProcessor<I extends WritableComparable,
    * Send all messages for a partition to another worker.
    *
    * @param workerInfo Worker to send the partition messages to
-   * @param partition Partition whose messages to send
+   * @param partitionId Id of the partition whose messages to send
    */
   private void sendPartitionMessages(WorkerInfo workerInfo,
-                                     Partition<I, V, E> partition) {
-    final int partitionId = partition.getId();
+                                     final int partitionId) {
     MessageStore<I, Writable> messageStore =
         serverData.getCurrentMessageStore();
     ByteArrayVertexIdMessages<I, Writable> vertexIdMessages =
@@ -244,6 +329,25 @@ public class NettyWorkerClientRequestProcessor<I extends WritableComparable,
   @Override
   public boolean sendVertexRequest(PartitionOwner partitionOwner,
       Vertex<I, V, E> vertex) {
+    // Only called during input, so every edge is a new in-edge
+    if (sendInEdgeCache != null) {
+      for (Edge<I, E> edge : vertex.getEdges()) {
+        sendInEdgeCache.addInEdge(vertex.getId(), edge.getTargetVertexId());
+      }
+    }
+    return addVertexToCache(partitionOwner, vertex);
+  }
+
+  /**
+   * Add a vertex to the partition cache, and send the cached vertices of
+   * its worker if there are enough of them.
+   *
+   * @param partitionOwner Owner of the vertex
+   * @param vertex Vertex to send
+   * @return Returns true iff any network I/O occurred.
+   */
+  private boolean addVertexToCache(PartitionOwner partitionOwner,
+      Vertex<I, V, E> vertex) {
     // Add the vertex to the cache
     int workerMessageSize = sendPartitionCache.addVertex(
         partitionOwner, vertex);
@@ -298,6 +402,9 @@ public class NettyWorkerClientRequestProcessor<I extends WritableComparable,
     // Add the message to the cache
     int workerEdgesSize = sendEdgeCache.addEdge(
         workerInfo, partitionId, sourceVertexId, edge);
+    if (sendInEdgeCache != null) {
+      sendInEdgeCache.addInEdge(sourceVertexId, edge.getTargetVertexId());
+    }
 
     // Send a request if the cache of outgoing edges to the remote worker is
     // full
@@ -394,6 +501,11 @@ public class NettyWorkerClientRequestProcessor<I extends WritableComparable,
 
   @Override
   public void flush() throws IOException {
+    // Combined messages go through the message cache
+    if (sendCombinedMessageCache != null) {
+      sendCombinedMessageCache.flush();
+    }
+
     // Execute the remaining sends messages (if any)
     // including individual and compact messages.
     sendMessageCache.flush();
@@ -427,6 +539,11 @@ public class NettyWorkerClientRequestProcessor<I extends WritableComparable,
       doRequest(edgeIterator.getCurrentFirst(), writableRequest);
     }
 
+    // Execute the remaining sends in-edges (if any)
+    if (sendInEdgeCache != null) {
+      sendInEdgeCache.flush();
+    }
+
     // Execute the remaining sends mutations (if any)
     Map<Integer, Map<I, VertexMutations<I, V, E>>> remainingMutationsCache =
         sendMutationsCache.removeAllPartitionMutations();
@@ -452,6 +569,36 @@ public class NettyWorkerClientRequestProcessor<I extends WritableComparable,
     return this.sendMessageCache.resetMessageBytesCount();
   }
 
+  /**
+   * Check whether a worker is the one this processor is running on.
+   *
+   * @param workerInfo Worker info
+   * @return True iff the worker is local
+   */
+  public boolean isLocalWorker(WorkerInfo workerInfo) {
+    return serviceWorker.getWorkerInfo().getTaskId() ==
+        workerInfo.getTaskId();
+  }
+
+  /**
+   * Add a message for a vertex owned by this worker straight into the
+   * incoming message store, without serializing it into a request.
+   *
+   * @param partitionId Partition id of the destination vertex
+   * @param destVertexId Destination vertex id
+   * @param message Message to add
+   */
+  public void addLocalMessage(int partitionId, I destVertexId,
+      Writable message) {
+    try {
+      serverData.<Writable>getIncomingMessageStore().addMessage(
+          partitionId, destVertexId, message);
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          "addLocalMessage: Failed to add message for " + destVertexId, e);
+    }
+  }
+
   /**
    * When doing the request, short circuit if it is local
    *
@@ -166,6 +166,10 @@ public class NettyWorkerServer<I extends WritableComparable,
     VertexResolver<I, V, E> vertexResolver = conf.createVertexResolver();
     for (Entry<Integer, Collection<I>> e :
         resolveVertexIndices.asMap().entrySet()) {
+      // Vertices are created, removed or mutated outside of computation
+      serverData.getComputeFrontiers().invalidate(e.getKey());
+      service.getPartitionStore().getPartitionMetadata(e.getKey())
+          .resetHaltedSuperstep();
       Partition<I, V, E> partition =
           service.getPartitionStore().getOrCreatePartition(e.getKey());
       for (I vertexIndex : e.getValue()) {
@@ -197,6 +201,10 @@ public class NettyWorkerServer<I extends WritableComparable,
         }
         if (vertex != null) {
           partition.putVertex(vertex);
+          if (vertex.getNumEdges() > 0 &&
+              (originalVertex == null || mutations != null)) {
+            serverData.getPartitionsWithNewEdges().add(e.getKey());
+          }
         } else if (originalVertex != null) {
           partition.removeVertex(originalVertex.getId());
         }
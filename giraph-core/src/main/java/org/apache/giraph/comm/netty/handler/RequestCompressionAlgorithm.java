@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.compression.Snappy;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Algorithms {@link RequestEncoder} can compress single requests with.
+ * Unlike giraph.nettyCompressionAlgorithm, which compresses the whole
+ * channel, these are applied per request and only when worth it.
+ */
+public enum RequestCompressionAlgorithm {
+  /** Requests are never compressed */
+  NONE {
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+      throw new UnsupportedOperationException("compress: Not supported");
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+      throw new UnsupportedOperationException("decompress: Not supported");
+    }
+  },
+  /**
+   * Snappy, a fast LZ77 style codec from the same family as LZ4. Input is
+   * compressed in chunks, each prefixed with its compressed length.
+   */
+  SNAPPY {
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+      Snappy snappy = new Snappy();
+      while (in.isReadable()) {
+        int chunkLength = Math.min(in.readableBytes(), SNAPPY_CHUNK_SIZE);
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        snappy.encode(in.readSlice(chunkLength), out, chunkLength);
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+        snappy.reset();
+      }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+      Snappy snappy = new Snappy();
+      while (in.isReadable()) {
+        int compressedLength = in.readInt();
+        snappy.decode(in.readSlice(compressedLength), out);
+        snappy.reset();
+      }
+    }
+  },
+  /** Deflate at its fastest level, slower than Snappy but compresses more */
+  DEFLATE {
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+      byte[] input = new byte[in.readableBytes()];
+      in.readBytes(input);
+      Deflater deflater = DEFLATERS.get();
+      deflater.reset();
+      deflater.setInput(input);
+      deflater.finish();
+      byte[] chunk = CHUNKS.get();
+      while (!deflater.finished()) {
+        int length = deflater.deflate(chunk);
+        out.writeBytes(chunk, 0, length);
+      }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) throws IOException {
+      byte[] input = new byte[in.readableBytes()];
+      in.readBytes(input);
+      Inflater inflater = INFLATERS.get();
+      inflater.reset();
+      inflater.setInput(input);
+      byte[] chunk = CHUNKS.get();
+      try {
+        while (!inflater.finished()) {
+          int length = inflater.inflate(chunk);
+          if (length == 0 && inflater.needsInput()) {
+            throw new IOException("decompress: Truncated deflate stream");
+          }
+          out.writeBytes(chunk, 0, length);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("decompress: Corrupted deflate stream", e);
+      }
+    }
+  };
+
+  /** Uncompressed size of a single Snappy chunk */
+  private static final int SNAPPY_CHUNK_SIZE = 32 * 1024;
+  /** Deflater of each thread, reused across requests */
+  private static final ThreadLocal<Deflater> DEFLATERS =
+      new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+          return new Deflater(Deflater.BEST_SPEED);
+        }
+      };
+  /** Inflater of each thread, reused across requests */
+  private static final ThreadLocal<Inflater> INFLATERS =
+      new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+          return new Inflater();
+        }
+      };
+  /** Scratch buffer of each thread for deflate output */
+  private static final ThreadLocal<byte[]> CHUNKS =
+      new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+          return new byte[64 * 1024];
+        }
+      };
+
+  /**
+   * Compress all readable bytes of the input.
+   *
+   * @param in Input, fully consumed
+   * @param out Output to append compressed bytes to
+   */
+  public abstract void compress(ByteBuf in, ByteBuf out);
+
+  /**
+   * Decompress all readable bytes of the input.
+   *
+   * @param in Input, fully consumed
+   * @param out Output to append decompressed bytes to
+   * @throws IOException If the input is corrupted
+   */
+  public abstract void decompress(ByteBuf in, ByteBuf out)
+    throws IOException;
+}
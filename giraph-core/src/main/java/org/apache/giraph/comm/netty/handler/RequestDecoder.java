@@ -18,6 +18,7 @@
 
 package org.apache.giraph.comm.netty.handler;
 
+import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.comm.netty.InboundByteCounter;
 import org.apache.giraph.comm.requests.RequestType;
@@ -34,6 +35,8 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.util.ReferenceCountUtil;
 
+import java.io.IOException;
+
 /**
  * Decodes encoded requests from the client.
  */
@@ -49,6 +52,8 @@ public class RequestDecoder extends ChannelInboundHandlerAdapter {
   private final InboundByteCounter byteCounter;
   /** Start nanoseconds for the decoding time */
   private long startDecodingNanoseconds = -1;
+  /** Whether requests carry a compression header */
+  private final boolean requestCompression;
   /**
    * Constructor.
    *
@@ -59,6 +64,9 @@ public class RequestDecoder extends ChannelInboundHandlerAdapter {
     InboundByteCounter byteCounter) {
     this.conf = conf;
     this.byteCounter = byteCounter;
+    requestCompression =
+        GiraphConstants.REQUEST_COMPRESSION_ALGORITHM.get(conf) !=
+        RequestCompressionAlgorithm.NONE;
   }
 
   @Override
@@ -83,6 +91,9 @@ public class RequestDecoder extends ChannelInboundHandlerAdapter {
     ByteBuf buf = (ByteBuf) msg;
     int enumValue = buf.readByte();
     RequestType type = RequestType.values()[enumValue];
+    if (requestCompression) {
+      buf = decompressRequest(ctx, buf);
+    }
     Class<? extends WritableRequest> requestClass = type.getRequestClass();
     WritableRequest request =
         ReflectionUtils.newInstance(requestClass, conf);
@@ -99,4 +110,35 @@ public class RequestDecoder extends ChannelInboundHandlerAdapter {
     // fire writableRequest object to upstream handlers
     ctx.fireChannelRead(request);
   }
+
+  /**
+   * Decompress the rest of a request, if it was compressed.
+   *
+   * @param ctx Channel handler context
+   * @param buf Request, positioned after the request type
+   * @return Buffer positioned at the start of the uncompressed request,
+   *         either buf or a new buffer (in which case buf is released)
+   * @throws IOException If the request can't be decompressed
+   */
+  private ByteBuf decompressRequest(ChannelHandlerContext ctx, ByteBuf buf)
+    throws IOException {
+    RequestCompressionAlgorithm algorithm =
+        RequestCompressionAlgorithm.values()[buf.readByte()];
+    if (algorithm == RequestCompressionAlgorithm.NONE) {
+      return buf;
+    }
+    int uncompressedSize = buf.readInt();
+    ByteBuf uncompressed = ctx.alloc().buffer(uncompressedSize);
+    try {
+      algorithm.decompress(buf, uncompressed);
+    } finally {
+      ReferenceCountUtil.release(buf);
+    }
+    if (uncompressed.readableBytes() != uncompressedSize) {
+      uncompressed.release();
+      throw new IOException("decompressRequest: Expected " +
+          uncompressedSize + " bytes, got " + uncompressed.readableBytes());
+    }
+    return uncompressed;
+  }
 }
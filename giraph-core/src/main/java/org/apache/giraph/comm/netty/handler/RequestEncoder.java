@@ -19,9 +19,13 @@
 package org.apache.giraph.comm.netty.handler;
 
 import io.netty.buffer.ByteBufOutputStream;
+import org.apache.giraph.comm.requests.RequestType;
 import org.apache.giraph.comm.requests.WritableRequest;
 import org.apache.giraph.conf.GiraphConfiguration;
 import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.metrics.GiraphMetrics;
+import org.apache.giraph.metrics.MetricNames;
+import org.apache.giraph.metrics.SuperstepMetricsRegistry;
 import org.apache.giraph.time.SystemTime;
 import org.apache.giraph.time.Time;
 import org.apache.giraph.time.Times;
@@ -37,6 +41,11 @@ import static org.apache.giraph.utils.ByteUtils.SIZE_OF_INT;
 
 /**
  * Requests have a request type and an encoded request.
+ *
+ * When a {@link RequestCompressionAlgorithm} is configured, the request type
+ * is followed by a byte holding the ordinal of the algorithm the request is
+ * compressed with (0 if it isn't compressed), and compressed requests
+ * additionally by their uncompressed size.
  */
 public class RequestEncoder extends ChannelOutboundHandlerAdapter {
   /** Class logger */
@@ -47,6 +56,20 @@ public class RequestEncoder extends ChannelOutboundHandlerAdapter {
   private final int bufferStartingSize;
   /** Start nanoseconds for the encoding time */
   private long startEncodingNanoseconds = -1;
+  /** Algorithm to compress requests with */
+  private final RequestCompressionAlgorithm compressionAlgorithm;
+  /** Requests smaller than this are not compressed */
+  private final int compressionMinSize;
+  /** Maximum compression ratio for a request to be sent compressed */
+  private final float compressionMaxRatio;
+  /** Requests to send uncompressed after an incompressible one */
+  private final int compressionSkipRequests;
+  /**
+   * Number of requests of each type still to be sent uncompressed, because
+   * the last request of that type didn't compress well
+   */
+  private final int[] compressionSkipsLeft =
+      new int[RequestType.values().length];
 
   /**
    * Constructor.
@@ -56,6 +79,14 @@ public class RequestEncoder extends ChannelOutboundHandlerAdapter {
   public RequestEncoder(GiraphConfiguration conf) {
     bufferStartingSize =
         GiraphConstants.NETTY_REQUEST_ENCODER_BUFFER_SIZE.get(conf);
+    compressionAlgorithm =
+        GiraphConstants.REQUEST_COMPRESSION_ALGORITHM.get(conf);
+    compressionMinSize =
+        GiraphConstants.REQUEST_COMPRESSION_MIN_SIZE.get(conf);
+    compressionMaxRatio =
+        GiraphConstants.REQUEST_COMPRESSION_MAX_RATIO.get(conf);
+    compressionSkipRequests =
+        GiraphConstants.REQUEST_COMPRESSION_SKIP_REQUESTS.get(conf);
   }
 
   @Override
@@ -78,6 +109,9 @@ public class RequestEncoder extends ChannelOutboundHandlerAdapter {
       buf = ctx.alloc().buffer(bufferStartingSize);
     } else {
       requestSize +=  SIZE_OF_INT + SIZE_OF_BYTE;
+      if (compressionAlgorithm != RequestCompressionAlgorithm.NONE) {
+        requestSize += SIZE_OF_BYTE;
+      }
       buf = ctx.alloc().buffer(requestSize);
     }
     ByteBufOutputStream output = new ByteBufOutputStream(buf);
@@ -85,6 +119,10 @@ public class RequestEncoder extends ChannelOutboundHandlerAdapter {
     // This will later be filled with the correct size of serialized request
     output.writeInt(0);
     output.writeByte(request.getType().ordinal());
+    if (compressionAlgorithm != RequestCompressionAlgorithm.NONE) {
+      // Not compressed, unless changed by compressRequest()
+      output.writeByte(RequestCompressionAlgorithm.NONE.ordinal());
+    }
     try {
       request.write(output);
     } catch (IndexOutOfBoundsException e) {
@@ -95,6 +133,9 @@ public class RequestEncoder extends ChannelOutboundHandlerAdapter {
     }
     output.flush();
     output.close();
+    if (compressionAlgorithm != RequestCompressionAlgorithm.NONE) {
+      buf = compressRequest(ctx, request.getType(), buf);
+    }
 
     // Set the correct size at the end
     buf.setInt(0, buf.writerIndex() - SIZE_OF_INT);
@@ -107,4 +148,57 @@ public class RequestEncoder extends ChannelOutboundHandlerAdapter {
     }
     ctx.write(buf, promise);
   }
+
+  /**
+   * Compress an encoded request, if it's large enough and its type has been
+   * compressing well.
+   *
+   * @param ctx Channel handler context
+   * @param type Request type
+   * @param buf Encoded, uncompressed request
+   * @return Buffer to send, either buf or a new buffer with the compressed
+   *         request (in which case buf is released)
+   */
+  private ByteBuf compressRequest(ChannelHandlerContext ctx,
+      RequestType type, ByteBuf buf) {
+    int headerSize = SIZE_OF_INT + SIZE_OF_BYTE + SIZE_OF_BYTE;
+    int uncompressedSize = buf.writerIndex() - headerSize;
+    SuperstepMetricsRegistry metrics = GiraphMetrics.get().perSuperstep();
+    if (uncompressedSize < compressionMinSize ||
+        compressionSkipsLeft[type.ordinal()] > 0) {
+      if (compressionSkipsLeft[type.ordinal()] > 0) {
+        compressionSkipsLeft[type.ordinal()]--;
+      }
+      metrics.getCounter(MetricNames.REQUEST_COMPRESSION_SKIPPED).inc();
+      return buf;
+    }
+
+    long startNanos = TIME.getNanoseconds();
+    ByteBuf compressed =
+        ctx.alloc().buffer(headerSize + SIZE_OF_INT + uncompressedSize / 2);
+    compressed.writeInt(0);
+    compressed.writeByte(type.ordinal());
+    compressed.writeByte(compressionAlgorithm.ordinal());
+    compressed.writeInt(uncompressedSize);
+    compressionAlgorithm.compress(
+        buf.slice(headerSize, uncompressedSize), compressed);
+    int compressedSize = compressed.writerIndex() - headerSize - SIZE_OF_INT;
+    metrics.getCounter(MetricNames.REQUEST_COMPRESSION_NANOS).inc(
+        Times.getNanosSince(TIME, startNanos));
+    metrics.getCounter(MetricNames.REQUEST_COMPRESSION_INPUT_BYTES).inc(
+        uncompressedSize);
+
+    if (compressedSize > uncompressedSize * compressionMaxRatio) {
+      // Not worth it, stop trying this type for a while
+      compressionSkipsLeft[type.ordinal()] = compressionSkipRequests;
+      compressed.release();
+      metrics.getCounter(MetricNames.REQUEST_COMPRESSION_OUTPUT_BYTES).inc(
+          uncompressedSize);
+      return buf;
+    }
+    metrics.getCounter(MetricNames.REQUEST_COMPRESSION_OUTPUT_BYTES).inc(
+        compressedSize);
+    buf.release();
+    return compressed;
+  }
 }
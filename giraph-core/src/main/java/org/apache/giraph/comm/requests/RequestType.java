@@ -55,12 +55,21 @@ public enum RequestType {
   SEND_WORKER_AGGREGATORS_REQUEST(SendWorkerAggregatorsRequest.class),
   /** Send aggregated values from worker owner to master */
   SEND_AGGREGATORS_TO_MASTER_REQUEST(SendAggregatorsToMasterRequest.class),
+  /** Send superstep report from worker to master */
+  SEND_WORKER_SUPERSTEP_REPORT_REQUEST(
+      SendWorkerSuperstepReportRequest.class),
   /** Send aggregators from master to worker owners */
   SEND_AGGREGATORS_TO_OWNER_REQUEST(SendAggregatorsToOwnerRequest.class),
   /** Send aggregators from worker owner to other workers */
   SEND_AGGREGATORS_TO_WORKER_REQUEST(SendAggregatorsToWorkerRequest.class),
   /** Send message from worker to worker */
-  SEND_WORKER_TO_WORKER_MESSAGE_REQUEST(SendWorkerToWorkerMessageRequest.class);
+  SEND_WORKER_TO_WORKER_MESSAGE_REQUEST(SendWorkerToWorkerMessageRequest.class),
+  /** Send the mirror of a high-degree vertex to a worker */
+  SEND_MIRROR_EDGES_REQUEST(SendMirrorEdgesRequest.class),
+  /** Send a message to all edges of a mirrored vertex on a worker */
+  SEND_MIRROR_MESSAGE_REQUEST(SendMirrorMessageRequest.class),
+  /** Send in-edges of a partition for the in-edge index */
+  SEND_WORKER_IN_EDGES_REQUEST(SendWorkerInEdgesRequest.class);
 
   /** Class of request which this type corresponds to */
   private final Class<? extends WritableRequest> requestClass;
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm.requests;
+
+import org.apache.giraph.comm.ServerData;
+import org.apache.giraph.comm.VertexMirror;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Send the mirror of a high-degree vertex to a worker, or tell the worker
+ * to drop it.
+ *
+ * @param <I> Vertex id
+ */
+@SuppressWarnings("rawtypes")
+public class SendMirrorEdgesRequest<I extends WritableComparable>
+    extends WritableRequest<I, Writable, Writable>
+    implements WorkerRequest<I, Writable, Writable> {
+  /** Id of the mirrored vertex */
+  private I vertexId;
+  /** Mirror, null if it should be dropped */
+  private VertexMirror<I> mirror;
+
+  /**
+   * Constructor used for reflection only
+   */
+  public SendMirrorEdgesRequest() {
+  }
+
+  /**
+   * Constructor
+   *
+   * @param vertexId Id of the mirrored vertex
+   * @param mirror Mirror, or null if the worker should drop it
+   */
+  public SendMirrorEdgesRequest(I vertexId, VertexMirror<I> mirror) {
+    this.vertexId = vertexId;
+    this.mirror = mirror;
+  }
+
+  @Override
+  public RequestType getType() {
+    return RequestType.SEND_MIRROR_EDGES_REQUEST;
+  }
+
+  @Override
+  void writeRequest(DataOutput output) throws IOException {
+    vertexId.write(output);
+    output.writeBoolean(mirror != null);
+    if (mirror != null) {
+      mirror.write(output);
+    }
+  }
+
+  @Override
+  void readFieldsRequest(DataInput input) throws IOException {
+    vertexId = getConf().createVertexId();
+    vertexId.readFields(input);
+    if (input.readBoolean()) {
+      mirror = new VertexMirror<I>(getConf());
+      mirror.readFields(input);
+    }
+  }
+
+  @Override
+  public void doRequest(ServerData<I, Writable, Writable> serverData) {
+    serverData.getVertexMirrors().setMirror(vertexId, mirror);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm.requests;
+
+import org.apache.giraph.comm.ServerData;
+import org.apache.giraph.comm.VertexMirror;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Send a message to all edges of a high-degree vertex which have their
+ * target on a worker, using the mirror of the vertex kept on the worker.
+ *
+ * @param <I> Vertex id
+ * @param <M> Message data
+ */
+@SuppressWarnings("rawtypes")
+public class SendMirrorMessageRequest<I extends WritableComparable,
+    M extends Writable> extends WritableRequest<I, Writable, Writable>
+    implements WorkerRequest<I, Writable, Writable> {
+  /** Id of the mirrored vertex */
+  private I vertexId;
+  /** Message to send to its targets */
+  private M message;
+
+  /**
+   * Constructor used for reflection only
+   */
+  public SendMirrorMessageRequest() {
+  }
+
+  /**
+   * Constructor
+   *
+   * @param vertexId Id of the mirrored vertex
+   * @param message Message to send to its targets
+   */
+  public SendMirrorMessageRequest(I vertexId, M message) {
+    this.vertexId = vertexId;
+    this.message = message;
+  }
+
+  @Override
+  public RequestType getType() {
+    return RequestType.SEND_MIRROR_MESSAGE_REQUEST;
+  }
+
+  @Override
+  void writeRequest(DataOutput output) throws IOException {
+    vertexId.write(output);
+    message.write(output);
+  }
+
+  @Override
+  void readFieldsRequest(DataInput input) throws IOException {
+    vertexId = getConf().createVertexId();
+    vertexId.readFields(input);
+    message = getConf().<M>getOutgoingMessageValueFactory().newInstance();
+    message.readFields(input);
+  }
+
+  @Override
+  public void doRequest(ServerData<I, Writable, Writable> serverData) {
+    VertexMirror<I> mirror = serverData.getVertexMirrors().getMirror(vertexId);
+    if (mirror == null) {
+      throw new IllegalStateException("doRequest: No mirror of vertex " +
+          vertexId);
+    }
+    try {
+      mirror.addMessages(serverData.<M>getIncomingMessageStore(), message);
+    } catch (IOException e) {
+      throw new IllegalStateException("doRequest: Got IOException ", e);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm.requests;
+
+import org.apache.giraph.comm.ServerData;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Send in-edges of the vertices of a partition, as pairs of target and
+ * source ids, to the worker owning the partition during input, or to the
+ * worker the partition moves to.
+ *
+ * @param <I> Vertex id
+ */
+@SuppressWarnings("rawtypes")
+public class SendWorkerInEdgesRequest<I extends WritableComparable>
+    extends WritableRequest<I, Writable, Writable>
+    implements WorkerRequest<I, Writable, Writable> {
+  /** Partition of the targets */
+  private int partitionId;
+  /** Target and source id of each in-edge */
+  private long[] targetSourcePairs;
+  /** Number of longs used in targetSourcePairs */
+  private int length;
+
+  /**
+   * Constructor used for reflection only
+   */
+  public SendWorkerInEdgesRequest() {
+  }
+
+  /**
+   * Constructor
+   *
+   * @param partitionId Partition of the targets
+   * @param targetSourcePairs Target and source id of each in-edge, not
+   *                          modified afterwards
+   * @param length Number of longs used in targetSourcePairs
+   */
+  public SendWorkerInEdgesRequest(int partitionId, long[] targetSourcePairs,
+      int length) {
+    this.partitionId = partitionId;
+    this.targetSourcePairs = targetSourcePairs;
+    this.length = length;
+  }
+
+  @Override
+  public RequestType getType() {
+    return RequestType.SEND_WORKER_IN_EDGES_REQUEST;
+  }
+
+  @Override
+  void writeRequest(DataOutput output) throws IOException {
+    output.writeInt(partitionId);
+    output.writeInt(length);
+    for (int i = 0; i < length; i++) {
+      output.writeLong(targetSourcePairs[i]);
+    }
+  }
+
+  @Override
+  void readFieldsRequest(DataInput input) throws IOException {
+    partitionId = input.readInt();
+    length = input.readInt();
+    targetSourcePairs = new long[length];
+    for (int i = 0; i < length; i++) {
+      targetSourcePairs[i] = input.readLong();
+    }
+  }
+
+  @Override
+  public int getSerializedSize() {
+    return super.getSerializedSize() + 8 + 8 * length;
+  }
+
+  @Override
+  public void doRequest(ServerData<I, Writable, Writable> serverData) {
+    serverData.getInEdgeIndex().addInEdges(
+        partitionId, targetSourcePairs, length);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm.requests;
+
+import org.apache.giraph.comm.MasterServerData;
+import org.apache.giraph.worker.WorkerSuperstepReport;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Request to send the superstep report of a worker (partition stats,
+ * message counts and metrics) to the master
+ */
+public class SendWorkerSuperstepReportRequest extends WritableRequest
+    implements MasterRequest {
+  /** Worker superstep report */
+  private WorkerSuperstepReport report;
+
+  /**
+   * Constructor used for reflection only
+   */
+  public SendWorkerSuperstepReportRequest() {
+  }
+
+  /**
+   * Constructor
+   *
+   * @param report Worker superstep report
+   */
+  public SendWorkerSuperstepReportRequest(WorkerSuperstepReport report) {
+    this.report = report;
+  }
+
+  @Override
+  void writeRequest(DataOutput output) throws IOException {
+    report.write(output);
+  }
+
+  @Override
+  void readFieldsRequest(DataInput input) throws IOException {
+    report = new WorkerSuperstepReport();
+    report.readFields(input);
+  }
+
+  @Override
+  public void doRequest(MasterServerData serverData) {
+    serverData.getWorkerSuperstepReports().addReport(report);
+  }
+
+  @Override
+  public RequestType getType() {
+    return RequestType.SEND_WORKER_SUPERSTEP_REPORT_REQUEST;
+  }
+}
@@ -21,6 +21,10 @@ import org.apache.giraph.aggregators.AggregatorWriter;
 import org.apache.giraph.aggregators.TextAggregatorWriter;
 import org.apache.giraph.combiner.MessageCombiner;
 import org.apache.giraph.edge.ByteArrayEdges;
+import org.apache.giraph.edge.IntNullArrayEdges;
+import org.apache.giraph.edge.IntNullCompressedEdges;
+import org.apache.giraph.edge.LongNullArrayEdges;
+import org.apache.giraph.edge.LongNullCompressedEdges;
 import org.apache.giraph.edge.OutEdges;
 import org.apache.giraph.factories.ComputationFactory;
 import org.apache.giraph.factories.DefaultComputationFactory;
@@ -48,6 +52,9 @@ import org.apache.giraph.partition.SimplePartition;
 import org.apache.giraph.worker.DefaultWorkerContext;
 import org.apache.giraph.worker.WorkerContext;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
 
@@ -168,10 +175,14 @@ public class GiraphClasses<I extends WritableComparable,
             ? extends Writable, ? extends Writable>>)
             COMPUTATION_CLASS.get(conf);
 
-    outEdgesClass = (Class<? extends OutEdges<I, E>>)
+    Class<? extends OutEdges> userOutEdgesClass =
         VERTEX_EDGES_CLASS.get(conf);
+    outEdgesClass = (Class<? extends OutEdges<I, E>>)
+        getStaticGraphOutEdgesClass(conf, userOutEdgesClass);
+    // Edge input keeps adding to the user's class, edges are compressed
+    // once when they are moved to the vertices
     inputOutEdgesClass = (Class<? extends OutEdges<I, E>>)
-        INPUT_VERTEX_EDGES_CLASS.getWithDefault(conf, outEdgesClass);
+        INPUT_VERTEX_EDGES_CLASS.getWithDefault(conf, userOutEdgesClass);
 
     graphPartitionerFactoryClass =
         (Class<? extends GraphPartitionerFactory<I, V, E>>)
@@ -208,6 +219,34 @@ public class GiraphClasses<I extends WritableComparable,
         VERTEX_INPUT_FILTER_CLASS.get(conf);
   }
 
+  /**
+   * Get the out-edges class to use instead of the user's one if static
+   * graph edges are compressed, and the graph has int or long ids and null
+   * edge values.
+   *
+   * @param conf Configuration
+   * @param userOutEdgesClass Out-edges class set by the user
+   * @return Compressed out-edges class, or the user's class
+   */
+  private Class<? extends OutEdges> getStaticGraphOutEdgesClass(
+      Configuration conf, Class<? extends OutEdges> userOutEdgesClass) {
+    if (!STATIC_GRAPH.get(conf) || !COMPRESS_STATIC_GRAPH_EDGES.get(conf) ||
+        giraphTypes.getEdgeValueClass() != NullWritable.class) {
+      return userOutEdgesClass;
+    }
+    Class<I> vertexIdClass = giraphTypes.getVertexIdClass();
+    if (vertexIdClass == LongWritable.class &&
+        (userOutEdgesClass == ByteArrayEdges.class ||
+        userOutEdgesClass == LongNullArrayEdges.class)) {
+      return LongNullCompressedEdges.class;
+    } else if (vertexIdClass == IntWritable.class &&
+        (userOutEdgesClass == ByteArrayEdges.class ||
+        userOutEdgesClass == IntNullArrayEdges.class)) {
+      return IntNullCompressedEdges.class;
+    }
+    return userOutEdgesClass;
+  }
+
   public Class<? extends ComputationFactory<I, V, E,
       ? extends Writable, ? extends Writable>> getComputationFactoryClass() {
     return computationFactoryClass;
@@ -23,6 +23,7 @@ import org.apache.giraph.combiner.MessageCombiner;
 import org.apache.giraph.comm.messages.InMemoryMessageStoreFactory;
 import org.apache.giraph.comm.messages.MessageEncodeAndStoreType;
 import org.apache.giraph.comm.messages.MessageStoreFactory;
+import org.apache.giraph.comm.netty.handler.RequestCompressionAlgorithm;
 import org.apache.giraph.edge.ByteArrayEdges;
 import org.apache.giraph.edge.EdgeStoreFactory;
 import org.apache.giraph.edge.InMemoryEdgeStoreFactory;
@@ -62,6 +63,7 @@ import org.apache.giraph.job.GiraphJobRetryChecker;
 import org.apache.giraph.job.HaltApplicationUtils;
 import org.apache.giraph.mapping.MappingStore;
 import org.apache.giraph.mapping.MappingStoreOps;
+import org.apache.giraph.mapping.StreamingPartitionerAlgorithm;
 import org.apache.giraph.mapping.translate.TranslateEdge;
 import org.apache.giraph.master.DefaultMasterCompute;
 import org.apache.giraph.master.MasterCompute;
@@ -105,6 +107,32 @@ public interface GiraphConstants {
   IntConfOption LB_MAPPINGSTORE_LOWER =
       new IntConfOption("giraph.lbMappingStoreLower", -1,
           "'lower' value used by lbMappingstore");
+  /** Heuristic used by the streaming mapping input format */
+  EnumConfOption<StreamingPartitionerAlgorithm>
+  STREAMING_PARTITIONER_ALGORITHM = EnumConfOption.create(
+      "giraph.streamingPartitioner.algorithm",
+      StreamingPartitionerAlgorithm.class,
+      StreamingPartitionerAlgorithm.FENNEL,
+      "Heuristic used by the streaming partitioner (LDG or FENNEL)");
+  /** Allowed imbalance of the streaming partitioner */
+  FloatConfOption STREAMING_PARTITIONER_SLACK =
+      new FloatConfOption("giraph.streamingPartitioner.slack", 1.1f,
+          "Maximum ratio between the number of vertices on a worker and " +
+          "the average number of vertices per worker");
+  /** Fennel exponent */
+  FloatConfOption STREAMING_PARTITIONER_FENNEL_GAMMA =
+      new FloatConfOption("giraph.streamingPartitioner.fennelGamma", 1.5f,
+          "Exponent of the size penalty used by Fennel");
+  /** Expected number of vertices for the streaming partitioner */
+  LongConfOption STREAMING_PARTITIONER_EXPECTED_VERTICES =
+      new LongConfOption("giraph.streamingPartitioner.expectedVertices", 0,
+          "Expected total number of vertices, improves streaming partitioner " +
+          "decisions. 0 means unknown, in which case it is estimated");
+  /** Expected number of edges for the streaming partitioner */
+  LongConfOption STREAMING_PARTITIONER_EXPECTED_EDGES =
+      new LongConfOption("giraph.streamingPartitioner.expectedEdges", 0,
+          "Expected total number of edges, used by Fennel. 0 means " +
+          "unknown, in which case it is estimated");
   /** Class used to conduct expensive edge translation during vertex input */
   ClassConfOption EDGE_TRANSLATION_CLASS =
       ClassConfOption.create("giraph.edgeTranslationClass", null,
@@ -134,6 +162,17 @@ public interface GiraphConstants {
           EdgeStoreFactory.class,
           "Edge Store Factory class to use for creating edgeStore");
 
+  /**
+   * Whether the in-memory edge store factory collects input edges of
+   * jobs with int or long ids and null, int, long, float or double edge
+   * values in primitive arrays, instead of an OutEdges per vertex
+   */
+  BooleanConfOption USE_PRIMITIVE_ARRAY_EDGE_STORE =
+      new BooleanConfOption("giraph.usePrimitiveArrayEdgeStore", false,
+          "Whether to collect input edges in primitive arrays for int or " +
+          "long ids and primitive edge values, instead of an OutEdges per " +
+          "vertex");
+
   /** Message Store Factory */
   ClassConfOption<MessageStoreFactory> MESSAGE_STORE_FACTORY_CLASS =
       ClassConfOption.create("giraph.messageStoreFactoryClass",
@@ -619,6 +658,41 @@ public interface GiraphConstants {
       new StrConfOption("giraph.nettyCompressionAlgorithm", "",
           "Which compression algorithm to use in netty");
 
+  /**
+   * Compress single requests with this algorithm, instead of the whole
+   * channel. Small requests and request types which don't compress well
+   * are sent uncompressed.
+   */
+  EnumConfOption<RequestCompressionAlgorithm> REQUEST_COMPRESSION_ALGORITHM =
+      EnumConfOption.create("giraph.requestCompressionAlgorithm",
+          RequestCompressionAlgorithm.class, RequestCompressionAlgorithm.NONE,
+          "Algorithm to compress single requests with (NONE, SNAPPY or " +
+          "DEFLATE)");
+
+  /** Requests smaller than this are never compressed */
+  IntConfOption REQUEST_COMPRESSION_MIN_SIZE =
+      new IntConfOption("giraph.requestCompressionMinSize", 4 * ONE_KB,
+          "Requests smaller than this many bytes are never compressed");
+
+  /**
+   * If a request compresses to more than this fraction of its size, its
+   * request type is considered incompressible for a while
+   */
+  FloatConfOption REQUEST_COMPRESSION_MAX_RATIO =
+      new FloatConfOption("giraph.requestCompressionMaxRatio", 0.9f,
+          "If a request compresses to more than this fraction of its " +
+          "size, it's sent uncompressed and its type isn't compressed for " +
+          "a while");
+
+  /**
+   * Number of requests of an incompressible request type which are sent
+   * uncompressed before compression is sampled again
+   */
+  IntConfOption REQUEST_COMPRESSION_SKIP_REQUESTS =
+      new IntConfOption("giraph.requestCompressionSkipRequests", 100,
+          "Number of requests of an incompressible type to send " +
+          "uncompressed before trying to compress that type again");
+
   /** Max resolve address attempts */
   IntConfOption MAX_RESOLVE_ADDRESS_ATTEMPTS =
       new IntConfOption("giraph.maxResolveAddressAttempts", 5,
@@ -744,6 +818,26 @@ public interface GiraphConstants {
       new IntConfOption("giraph.maxMutationsPerRequest", 100,
           "Maximum number of mutations per partition before flush");
 
+  /**
+   * Write vertex ids in message and edge buffers as zig-zag varint encoded
+   * differences to the previous id, and sort the target ids of messages
+   * sent to many vertices. Only applies to IntWritable and LongWritable ids.
+   */
+  BooleanConfOption VERTEX_ID_DELTA_ENCODING =
+      new BooleanConfOption("giraph.vertexIdDeltaEncoding", false,
+          "Write vertex ids in message and edge buffers as varint encoded " +
+          "differences (only for IntWritable and LongWritable ids)");
+
+  /**
+   * Build an index of the in-edges of every vertex from the input graph,
+   * which computations can query with Computation#getInNeighbors. Only
+   * applies to IntWritable and LongWritable ids.
+   */
+  BooleanConfOption IN_EDGE_INDEX =
+      new BooleanConfOption("giraph.inEdgeIndex", false,
+          "Build an index of the in-edges of every vertex from the input " +
+          "graph (only for IntWritable and LongWritable ids)");
+
   /**
    * Use message size encoding (typically better for complex objects,
    * not meant for primitive wrapped messages)
@@ -766,6 +860,60 @@ public interface GiraphConstants {
       new IntConfOption("giraph.numComputeThreads", 1,
           "Number of threads for vertex computation");
 
+  /**
+   * Keep the compute threads and the request processors (with their send
+   * caches) of each thread across supersteps, instead of creating them
+   * every superstep
+   */
+  BooleanConfOption PERSISTENT_COMPUTE_THREADS =
+      new BooleanConfOption("giraph.persistentComputeThreads", false,
+          "Keep compute threads and their request processors across " +
+          "supersteps");
+
+  /**
+   * Always compute a partition on the same compute thread (only with
+   * persistent compute threads). Partitions are assigned to threads
+   * statically instead of being taken from a shared queue, which keeps the
+   * data of a partition in the same thread's caches but doesn't balance
+   * the load between threads.
+   */
+  BooleanConfOption COMPUTE_PARTITION_AFFINITY =
+      new BooleanConfOption("giraph.computePartitionAffinity", false,
+          "Assign partitions to compute threads statically (only with " +
+          "giraph.persistentComputeThreads)");
+
+  /**
+   * Partitions in which at most this fraction of vertices can be active
+   * (not halted after the previous superstep or with messages) are
+   * computed by visiting only the active vertices, and partitions in which
+   * all vertices are halted are skipped if they have no messages. Zero
+   * (the default) disables sparse computation. Skipping halted partitions
+   * is controlled by {@link #SKIP_HALTED_PARTITIONS}.
+   */
+  FloatConfOption SPARSE_COMPUTE_MAX_ACTIVE_FRACTION =
+      new FloatConfOption("giraph.sparseComputeMaxActiveFraction", 0f,
+          "Largest fraction of active vertices in a partition for which " +
+          "only the active vertices are visited during computation");
+
+  /**
+   * Skip partitions in which all vertices were halted at the end of the
+   * previous superstep and which have no messages, without getting them
+   * from the partition store. Such partitions are not loaded from disk
+   * when the graph is out-of-core.
+   */
+  BooleanConfOption SKIP_HALTED_PARTITIONS =
+      new BooleanConfOption("giraph.skipHaltedPartitions", true,
+          "Skip partitions in which all vertices are halted and which " +
+          "have no messages");
+
+  /** Number of threads for sending partitions to other workers */
+  IntConfOption NUM_PARTITION_EXCHANGE_THREADS =
+      new IntConfOption("giraph.numPartitionExchangeThreads", 1,
+          "Number of threads sending partitions to other workers when " +
+          "partitions are moved between supersteps. Partitions are sent " +
+          "one at a time by default, jobs moving many partitions can " +
+          "send them in parallel");
+
   /** Number of threads for input split loading */
   IntConfOption NUM_INPUT_THREADS =
       new IntConfOption("giraph.numInputThreads", 1,
@@ -934,6 +1082,28 @@ public interface GiraphConstants {
       new IntConfOption("giraph.messagesBufferSize", 8 * ONE_KB,
           "Size of buffer when reading and writing messages out-of-core.");
 
+  /**
+   * Largest number of sorted runs a partition keeps on disk with
+   * {@link org.apache.giraph.comm.messages.out_of_core.SortedRunMessageStore};
+   * when there are more, they are merged into one.
+   */
+  IntConfOption MAX_MESSAGE_RUNS_PER_PARTITION =
+      new IntConfOption("giraph.maxMessageRunsPerPartition", 16,
+          "Largest number of sorted message runs a partition keeps on disk " +
+          "before merging them into one");
+
+  /**
+   * Let the primitive message stores for long ids spill the messages of
+   * whole partitions to disk when more than {@link #MAX_MESSAGES_IN_MEMORY}
+   * are in memory (vertices with a message, when messages are combined).
+   * Without a combiner, messages are stored per vertex in byte arrays even
+   * if pointer lists are configured.
+   */
+  BooleanConfOption SPILL_PRIMITIVE_MESSAGES =
+      new BooleanConfOption("giraph.spillPrimitiveMessages", false,
+          "Let the in-memory message stores for long ids spill the " +
+          "messages of whole partitions to disk");
+
   /**
    * Comma-separated list of directories in the local filesystem for
    * out-of-core partitions.
@@ -963,6 +1133,53 @@ public interface GiraphConstants {
       new IntConfOption("giraph.stickyPartitions", 0,
           "Set number of sticky partitions if sticky mode is enabled.");
 
+  /**
+   * Number of threads doing the local disk I/O of out-of-core partitions
+   * and messages, per local disk. With 0, I/O is done by whichever thread
+   * needs it, without priorities.
+   */
+  IntConfOption DISK_IO_THREADS_PER_DISK =
+      new IntConfOption("giraph.diskIOThreadsPerDisk", 1,
+          "Number of threads doing the local disk I/O of out-of-core " +
+          "partitions and messages, per local disk. With 0, I/O is done by " +
+          "whichever thread needs it, without priorities.");
+
+  /**
+   * Algorithm CompressedBlockPartition compresses its blocks of vertices
+   * with. With NONE, blocks are only serialized.
+   */
+  EnumConfOption<RequestCompressionAlgorithm>
+  PARTITION_COMPRESSION_ALGORITHM =
+      EnumConfOption.create("giraph.partitionCompressionAlgorithm",
+          RequestCompressionAlgorithm.class, RequestCompressionAlgorithm.SNAPPY,
+          "Algorithm CompressedBlockPartition compresses blocks of vertices " +
+          "with (NONE, SNAPPY or DEFLATE)");
+
+  /** Maximum number of vertices in a block of CompressedBlockPartition */
+  IntConfOption COMPRESSED_PARTITION_BLOCK_SIZE =
+      new IntConfOption("giraph.compressedPartitionBlockSize", 4096,
+          "Maximum number of vertices CompressedBlockPartition compresses " +
+          "together in a block");
+
+  /**
+   * Number of blocks each CompressedBlockPartition keeps decompressed.
+   * Changed blocks are only recompressed when they leave this cache.
+   */
+  IntConfOption COMPRESSED_PARTITION_CACHED_BLOCKS =
+      new IntConfOption("giraph.compressedPartitionCachedBlocks", 1,
+          "Number of most recently used blocks each " +
+          "CompressedBlockPartition keeps decompressed (at least 1)");
+
+  /**
+   * Whether workers report finishing a superstep (with their partition
+   * stats and metrics) to the master over Netty instead of creating
+   * ZooKeeper znodes. ZooKeeper is still used for worker health.
+   */
+  BooleanConfOption NETTY_SUPERSTEP_BARRIER =
+      new BooleanConfOption("giraph.nettySuperstepBarrier", false,
+          "Whether workers report finished supersteps and their stats to " +
+          "the master over Netty rather than through ZooKeeper");
+
   /** Keep the zookeeper output for debugging? Default is to remove it. */
   BooleanConfOption KEEP_ZOOKEEPER_DATA =
       new BooleanConfOption("giraph.keepZooKeeperData", false,
@@ -1008,6 +1225,41 @@ public interface GiraphConstants {
       new BooleanConfOption("giraph.useUnsafeSerialization", true,
           "Use unsafe serialization?");
 
+  /**
+   * Add messages for vertices on the same worker directly to the incoming
+   * message store, instead of serializing them into requests first. Off by
+   * default: local messages aren't counted in the sent message bytes, and
+   * bypass the queues of the asynchronous message store.
+   */
+  BooleanConfOption LOCAL_MESSAGE_DELIVERY =
+      new BooleanConfOption("giraph.localMessageDelivery", false,
+          "Add messages for vertices on the same worker directly to the " +
+          "message store, without serializing them into requests. Local " +
+          "messages aren't counted in the sent message bytes");
+
+  /**
+   * Maximum number of vertices a compute thread keeps combined messages
+   * for (see Computation#sendCombinedMessage) before sending them
+   */
+  IntConfOption MAX_COMBINED_MESSAGE_VERTICES =
+      new IntConfOption("giraph.maxCombinedMessageVertices", 100000,
+          "Maximum number of vertices a compute thread keeps combined " +
+          "messages for before sending them");
+
+  /**
+   * Minimum number of edges of a vertex for messages to all of its edges
+   * to be sent through mirrors of the vertex on the workers holding the
+   * targets (0 to disable). Only sendMessageToAllEdges uses mirrors,
+   * sendMessageToMultipleEdges bypasses them, also with one-to-all
+   * message encoding.
+   */
+  IntConfOption VERTEX_MIRRORING_MIN_DEGREE =
+      new IntConfOption("giraph.vertexMirroringMinDegree", 0,
+          "Minimum number of edges of a vertex for messages to all of its " +
+          "edges to be sent through mirrors of the vertex on the workers " +
+          "holding the targets (0 to disable). Messages to multiple " +
+          "edges bypass mirrors");
+
   /**
    * Use BigDataIO for messages? If there are super-vertices in the
    * graph which receive a lot of messages (total serialized size of messages
@@ -1061,6 +1313,19 @@ public interface GiraphConstants {
           "It is used to optimise out-of-core graph, by not writing back " +
           "edges every time.");
 
+  /**
+   * For static graphs with int or long ids and null edge values, replace
+   * the out-edges classes ByteArrayEdges, LongNullArrayEdges and
+   * IntNullArrayEdges with compressed ones. Off by default, since edges
+   * are then iterated sorted by target and mutating them is expensive.
+   */
+  BooleanConfOption COMPRESS_STATIC_GRAPH_EDGES =
+      new BooleanConfOption("giraph.compressStaticGraphEdges", false,
+          "If the graph is static, has int or long ids and null edge " +
+          "values, store out-edges compressed instead of in " +
+          "ByteArrayEdges, LongNullArrayEdges or IntNullArrayEdges. Edges " +
+          "are then iterated sorted by target");
+
   /**
    * This option will tell which message encode & store enum to use when
    * combining is not enabled
@@ -1148,6 +1413,18 @@ public interface GiraphConstants {
               "storing checkpoint. Available options include but " +
               "not restricted to: .deflate, .gz, .bz2, .lzo");
 
+  /**
+   * If the graph is static, store the edges of each partition only once,
+   * with the first checkpoint, and only vertex values and halted flags in
+   * every checkpoint. Edges are stored again for partitions where vertices
+   * gained edges through mutations.
+   */
+  BooleanConfOption CHECKPOINT_STATIC_GRAPH_EDGES_ONCE =
+      new BooleanConfOption("giraph.checkpoint.staticGraphEdgesOnce", false,
+          "If the graph is static, store the edges of each partition only " +
+          "once, with the first checkpoint, and only vertex values and " +
+          "halted flags in every checkpoint");
+
   /** Number of threads to use in async message store, 0 means
    * we should not use async message processing */
   IntConfOption ASYNC_MESSAGE_STORE_THREADS_COUNT =
@@ -76,6 +76,7 @@ import org.apache.giraph.utils.ExtendedDataOutput;
 import org.apache.giraph.utils.ReflectionUtils;
 import org.apache.giraph.utils.UnsafeByteArrayInputStream;
 import org.apache.giraph.utils.UnsafeByteArrayOutputStream;
+import org.apache.giraph.utils.VertexIdDeltaEncoding;
 import org.apache.giraph.utils.WritableUtils;
 import org.apache.giraph.utils.io.BigDataInputOutput;
 import org.apache.giraph.utils.io.DataInputOutput;
@@ -126,6 +127,13 @@ public class ImmutableClassesGiraphConfiguration<I extends WritableComparable,
    * extended data input/output classes for messages
    */
   private final boolean useBigDataIOForMessages;
+  /**
+   * Delta encode vertex ids in message and edge buffers? Cached for fast
+   * access when adding and iterating ids
+   */
+  private final boolean useVertexIdDeltaEncoding;
+  /** Build an index of in-edges during input? Cached for fast access */
+  private final boolean useInEdgeIndex;
 
   /**
    * Constructor.  Takes the configuration and then gets the classes out of
@@ -138,6 +146,10 @@ public class ImmutableClassesGiraphConfiguration<I extends WritableComparable,
     classes = new GiraphClasses<I, V, E>(conf);
     useUnsafeSerialization = USE_UNSAFE_SERIALIZATION.get(this);
     useBigDataIOForMessages = USE_BIG_DATA_IO_FOR_MESSAGES.get(this);
+    useVertexIdDeltaEncoding = VERTEX_ID_DELTA_ENCODING.get(this) &&
+        VertexIdDeltaEncoding.isSupported(classes.getVertexIdClass());
+    useInEdgeIndex = IN_EDGE_INDEX.get(this) &&
+        VertexIdDeltaEncoding.isSupported(classes.getVertexIdClass());
     valueLanguages = PerGraphTypeEnum.readFromConf(
         GiraphConstants.GRAPH_TYPE_LANGUAGES, conf);
     valueNeedsWrappers = PerGraphTypeBoolean.readFromConf(
@@ -1124,6 +1136,26 @@ public class ImmutableClassesGiraphConfiguration<I extends WritableComparable,
     return useUnsafeSerialization;
   }
 
+  /**
+   * Are vertex ids in message and edge buffers delta encoded?
+   * Only true when enabled and the vertex id class supports it.
+   *
+   * @return True if vertex ids are delta encoded
+   */
+  public boolean useVertexIdDeltaEncoding() {
+    return useVertexIdDeltaEncoding;
+  }
+
+  /**
+   * Whether to build an index of the in-edges of every vertex during
+   * input. Only true if the vertex id class supports it.
+   *
+   * @return True if the in-edge index is built
+   */
+  public boolean useInEdgeIndex() {
+    return useInEdgeIndex;
+  }
+
   /**
    * Create DataInputOutput to store messages
    *
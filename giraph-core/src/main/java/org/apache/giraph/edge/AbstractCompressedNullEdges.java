@@ -0,0 +1,467 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.giraph.utils.Trimmable;
+import org.apache.giraph.utils.PrimitiveVertexIds;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.WritableComparable;
+
+import com.google.common.collect.UnmodifiableIterator;
+
+/**
+ * Base class of compressed {@link OutEdges} with int or long ids and null
+ * edge values, meant for graphs whose edges don't change after input
+ * (giraph.isStaticGraph).
+ *
+ * Targets are sorted and stored in a single byte array, as in WebGraph:
+ * runs of at least {@link #MIN_INTERVAL_LENGTH} consecutive ids are
+ * encoded as intervals (start and length), the other ids as residuals.
+ * Within each of the two sections, the first id is a zig-zag varint and
+ * the following ones are varint gaps from the previous one. Iteration
+ * decodes both sections in place, merging them, and reuses a single edge.
+ *
+ * Parallel edges are allowed, but edges are iterated sorted by target,
+ * not in the order they were added. Added edges are kept aside, merged
+ * with the encoded ones while iterating, and encoded on the next
+ * serialization or {@link #trim()}. Removals re-encode all edges, so
+ * mutations are expensive.
+ *
+ * @param <I> Vertex id
+ */
+@SuppressWarnings("rawtypes")
+public abstract class AbstractCompressedNullEdges<I extends WritableComparable>
+    implements ReuseObjectsOutEdges<I, NullWritable>, Trimmable {
+  /** Minimum number of consecutive ids encoded as an interval */
+  public static final int MIN_INTERVAL_LENGTH = 4;
+  /** Encoding of no edges: zero intervals taking zero bytes */
+  private static final byte[] EMPTY = new byte[] {0, 0};
+  /** No added targets */
+  private static final long[] NO_TARGETS = new long[0];
+  /** Encoded targets */
+  private byte[] data;
+  /** Number of encoded targets */
+  private int encodedSize;
+  /** Targets added since the last encoding, null if there are none */
+  private LongArrayList added;
+
+  /**
+   * Create a vertex id object to iterate with.
+   *
+   * @return Vertex id
+   */
+  protected abstract I createVertexId();
+
+  @Override
+  public void initialize(Iterable<Edge<I, NullWritable>> edges) {
+    LongArrayList targets = new LongArrayList();
+    for (Edge<I, NullWritable> edge : edges) {
+      targets.add(PrimitiveVertexIds.getId(edge.getTargetVertexId()));
+    }
+    encode(targets.elements(), targets.size());
+    added = null;
+  }
+
+  @Override
+  public void initialize(int capacity) {
+    initialize();
+  }
+
+  @Override
+  public void initialize() {
+    data = EMPTY;
+    encodedSize = 0;
+    added = null;
+  }
+
+  @Override
+  public void add(Edge<I, NullWritable> edge) {
+    if (added == null) {
+      added = new LongArrayList();
+    }
+    added.add(PrimitiveVertexIds.getId(edge.getTargetVertexId()));
+  }
+
+  @Override
+  public void remove(I targetVertexId) {
+    long target = PrimitiveVertexIds.getId(targetVertexId);
+    long[] targets = decode();
+    int size = 0;
+    for (long id : targets) {
+      if (id != target) {
+        targets[size++] = id;
+      }
+    }
+    if (size < targets.length) {
+      encode(targets, size);
+    }
+  }
+
+  @Override
+  public int size() {
+    return encodedSize + (added == null ? 0 : added.size());
+  }
+
+  @Override
+  public void trim() {
+    if (added != null) {
+      long[] targets = decode();
+      encode(targets, targets.length);
+    }
+  }
+
+  /**
+   * Decode all targets, including added ones, and forget the added ones.
+   *
+   * @return Targets
+   */
+  private long[] decode() {
+    long[] targets = new long[size()];
+    Decoder decoder = new Decoder();
+    for (int i = 0; i < encodedSize; i++) {
+      targets[i] = decoder.next();
+    }
+    if (added != null) {
+      added.getElements(0, targets, encodedSize, added.size());
+      added = null;
+    }
+    return targets;
+  }
+
+  /**
+   * Encode targets, replacing the encoded ones.
+   *
+   * @param targets Targets, sorted in place
+   * @param size Number of targets
+   */
+  private void encode(long[] targets, int size) {
+    Arrays.sort(targets, 0, size);
+    // Intervals first, to know the size of their section. An interval
+    // is 2 varints for at least 4 ids, a residual a single varint, and a
+    // varint of a long takes at most 10 bytes
+    byte[] intervalBuffer = new byte[20 * (size / MIN_INTERVAL_LENGTH + 1)];
+    int intervalBytes = 0;
+    int intervals = 0;
+    long previous = 0;
+    int i = 0;
+    while (i < size) {
+      int length = runLength(targets, size, i);
+      if (length >= MIN_INTERVAL_LENGTH) {
+        intervalBytes = writeId(intervalBuffer, intervalBytes, targets[i],
+            previous, intervals == 0);
+        intervalBytes = writeVarLong(intervalBuffer, intervalBytes,
+            length - MIN_INTERVAL_LENGTH);
+        previous = targets[i + length - 1];
+        intervals++;
+      }
+      i += length;
+    }
+    byte[] buffer = new byte[20 + intervalBytes + 10 * size];
+    int position = writeVarLong(buffer, 0, intervals);
+    position = writeVarLong(buffer, position, intervalBytes);
+    System.arraycopy(intervalBuffer, 0, buffer, position, intervalBytes);
+    position += intervalBytes;
+    boolean first = true;
+    i = 0;
+    while (i < size) {
+      int length = runLength(targets, size, i);
+      if (length < MIN_INTERVAL_LENGTH) {
+        for (int j = i; j < i + length; j++) {
+          position = writeId(buffer, position, targets[j], previous, first);
+          previous = targets[j];
+          first = false;
+        }
+      }
+      i += length;
+    }
+    data = Arrays.copyOf(buffer, position);
+    encodedSize = size;
+  }
+
+  /**
+   * Get the length of the run of consecutive ids starting at a position.
+   *
+   * @param targets Sorted targets
+   * @param size Number of targets
+   * @param start Start of the run
+   * @return Number of consecutive ids, at least 1
+   */
+  private static int runLength(long[] targets, int size, int start) {
+    int end = start + 1;
+    while (end < size && targets[end] == targets[end - 1] + 1) {
+      end++;
+    }
+    return end - start;
+  }
+
+  /**
+   * Write the first id of a section as a zig-zag varint, or a following
+   * one as the gap from the previous id.
+   *
+   * @param buffer Buffer
+   * @param position Position to write at
+   * @param id Id to write
+   * @param previous Previous id of the section
+   * @param first Whether this is the first id of the section
+   * @return Position after the id
+   */
+  private static int writeId(byte[] buffer, int position, long id,
+      long previous, boolean first) {
+    return writeVarLong(buffer, position,
+        first ? (id << 1) ^ (id >> 63) : id - previous);
+  }
+
+  /**
+   * Write an unsigned varint, 7 bits per byte with the high bit marking
+   * that more bytes follow.
+   *
+   * @param buffer Buffer
+   * @param position Position to write at
+   * @param value Value to write
+   * @return Position after the value
+   */
+  private static int writeVarLong(byte[] buffer, int position, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+    return position;
+  }
+
+  @Override
+  public Iterator<Edge<I, NullWritable>> iterator() {
+    // Added targets are merged in sorted order without encoding them, so
+    // that iterating never changes the edges
+    final long[] addedTargets;
+    if (added == null) {
+      addedTargets = NO_TARGETS;
+    } else {
+      addedTargets = added.toLongArray();
+      Arrays.sort(addedTargets);
+    }
+    // Returns an iterator that reuses objects.
+    return new UnmodifiableIterator<Edge<I, NullWritable>>() {
+      /** Decoder of the encoded targets */
+      private final Decoder decoder = new Decoder();
+      /** Number of encoded targets not decoded yet */
+      private int remainingEncoded = encodedSize;
+      /** Next encoded target */
+      private long nextEncoded;
+      /** Whether nextEncoded holds a decoded target */
+      private boolean hasEncoded = decodeNext();
+      /** Index of the next added target */
+      private int addedIndex;
+      /** Representative edge object. */
+      private final ReusableEdge<I, NullWritable> representativeEdge =
+          EdgeFactory.createReusable(createVertexId());
+
+      /**
+       * Decode the next encoded target into nextEncoded.
+       *
+       * @return Whether there was one
+       */
+      private boolean decodeNext() {
+        if (remainingEncoded == 0) {
+          return false;
+        }
+        remainingEncoded--;
+        nextEncoded = decoder.next();
+        return true;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return hasEncoded || addedIndex < addedTargets.length;
+      }
+
+      @Override
+      public Edge<I, NullWritable> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        long target;
+        if (hasEncoded && (addedIndex == addedTargets.length ||
+            nextEncoded <= addedTargets[addedIndex])) {
+          target = nextEncoded;
+          hasEncoded = decodeNext();
+        } else {
+          target = addedTargets[addedIndex++];
+        }
+        PrimitiveVertexIds.setId(representativeEdge.getTargetVertexId(),
+            target);
+        return representativeEdge;
+      }
+    };
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    trim();
+    out.writeInt(encodedSize);
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    encodedSize = in.readInt();
+    data = new byte[in.readInt()];
+    in.readFully(data);
+    added = null;
+  }
+
+  /**
+   * Reader of a section of the encoded targets.
+   */
+  private class Section {
+    /** Position of the next byte */
+    private int position;
+    /** Previous id read */
+    private long previous;
+    /** Whether the next id read is the first of the section */
+    private boolean first = true;
+
+    /**
+     * Constructor.
+     *
+     * @param position Start of the section
+     */
+    Section(int position) {
+      this.position = position;
+    }
+
+    /**
+     * Read an id written by writeId.
+     *
+     * @return Id
+     */
+    long readId() {
+      long value = readVarLong();
+      if (first) {
+        first = false;
+        previous = (value >>> 1) ^ -(value & 1);
+      } else {
+        previous += value;
+      }
+      return previous;
+    }
+
+    /**
+     * Read an unsigned varint.
+     *
+     * @return Value
+     */
+    long readVarLong() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = data[position++];
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      return value;
+    }
+  }
+
+  /**
+   * Decoder of the encoded targets in sorted order, merging intervals and
+   * residuals.
+   */
+  private class Decoder {
+    /** Intervals section */
+    private final Section intervals;
+    /** Residuals section */
+    private final Section residuals;
+    /** Number of intervals not started yet */
+    private int remainingIntervals;
+    /** Next id of the current interval */
+    private long nextIntervalId;
+    /** Number of ids left in the current interval */
+    private int remainingIntervalIds;
+    /** Next residual, if there is one */
+    private long nextResidual;
+    /** Whether there is a next residual */
+    private boolean hasResidual;
+
+    /** Constructor. */
+    Decoder() {
+      Section header = new Section(0);
+      remainingIntervals = (int) header.readVarLong();
+      int intervalBytes = (int) header.readVarLong();
+      intervals = new Section(header.position);
+      residuals = new Section(header.position + intervalBytes);
+      nextInterval();
+      nextResidual();
+    }
+
+    /**
+     * Start the next interval, if there is one.
+     */
+    private void nextInterval() {
+      if (remainingIntervals > 0) {
+        remainingIntervals--;
+        nextIntervalId = intervals.readId();
+        remainingIntervalIds =
+            (int) intervals.readVarLong() + MIN_INTERVAL_LENGTH;
+        intervals.previous = nextIntervalId + remainingIntervalIds - 1;
+      }
+    }
+
+    /**
+     * Read the next residual, if there is one.
+     */
+    private void nextResidual() {
+      hasResidual = residuals.position < data.length;
+      if (hasResidual) {
+        nextResidual = residuals.readId();
+      }
+    }
+
+    /**
+     * Decode the next target. The caller keeps track of how many targets
+     * are left.
+     *
+     * @return Target
+     */
+    long next() {
+      if (remainingIntervalIds > 0 &&
+          (!hasResidual || nextIntervalId <= nextResidual)) {
+        long id = nextIntervalId++;
+        if (--remainingIntervalIds == 0) {
+          nextInterval();
+        }
+        return id;
+      }
+      long id = nextResidual;
+      nextResidual();
+      return id;
+    }
+  }
+}
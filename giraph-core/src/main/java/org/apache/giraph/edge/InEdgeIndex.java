@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.utils.PrimitiveVertexIds;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Maps;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the in-edges of the vertices of a worker, built from the input
+ * graph. For every partition, the source ids of the in-edges are kept in
+ * compressed sparse row form in primitive arrays: the sorted distinct
+ * target ids, the offset of the in-edges of each target, and the source
+ * ids of all in-edges, so an in-edge takes 8 bytes.
+ *
+ * Only {@link org.apache.hadoop.io.IntWritable} and
+ * {@link org.apache.hadoop.io.LongWritable} ids are supported. Edge
+ * mutations after the input superstep are not reflected. The in-edges of a
+ * partition are sent along with it when it moves to another worker, and
+ * are stored with it in checkpoints.
+ *
+ * @param <I> Vertex id
+ */
+@SuppressWarnings("rawtypes")
+public class InEdgeIndex<I extends WritableComparable> {
+  /** Class logger */
+  private static final Logger LOG = Logger.getLogger(InEdgeIndex.class);
+  /** Configuration */
+  private final ImmutableClassesGiraphConfiguration<I, ?, ?> conf;
+  /**
+   * In-edges received during input, with moved partitions or from a
+   * checkpoint for each partition, as pairs of target and source ids
+   */
+  private final ConcurrentMap<Integer, LongArrayList> inputInEdges =
+      Maps.newConcurrentMap();
+  /** Index of each partition */
+  private final ConcurrentMap<Integer, PartitionInEdges> partitionInEdges =
+      Maps.newConcurrentMap();
+  /** Whether the index is built and still valid */
+  private volatile boolean available;
+
+  /**
+   * Constructor
+   *
+   * @param conf Configuration
+   */
+  public InEdgeIndex(ImmutableClassesGiraphConfiguration<I, ?, ?> conf) {
+    this.conf = conf;
+  }
+
+  /**
+   * Add in-edges received during input, with a moved partition or from a
+   * checkpoint. They are indexed by {@link #indexReceivedInEdges()}.
+   *
+   * @param partitionId Partition of the targets
+   * @param targetSourcePairs Target and source id of each in-edge
+   * @param length Number of longs to add from targetSourcePairs
+   */
+  public void addInEdges(int partitionId, long[] targetSourcePairs,
+      int length) {
+    LongArrayList inEdges = inputInEdges.get(partitionId);
+    if (inEdges == null) {
+      LongArrayList newInEdges = new LongArrayList();
+      inEdges = inputInEdges.putIfAbsent(partitionId, newInEdges);
+      if (inEdges == null) {
+        inEdges = newInEdges;
+      }
+    }
+    synchronized (inEdges) {
+      inEdges.addElements(inEdges.size(), targetSourcePairs, 0, length);
+    }
+  }
+
+  /**
+   * Add the in-edges received since the index was last built to the index
+   * of their partitions, and make the index available.
+   */
+  public void indexReceivedInEdges() {
+    long inEdgeCount = 0;
+    for (Map.Entry<Integer, LongArrayList> entry : inputInEdges.entrySet()) {
+      LongArrayList targetSourcePairs = entry.getValue();
+      PartitionInEdges oldInEdges = partitionInEdges.get(entry.getKey());
+      if (oldInEdges != null) {
+        long[] oldPairs = oldInEdges.toTargetSourcePairs();
+        targetSourcePairs.addElements(
+            targetSourcePairs.size(), oldPairs, 0, oldPairs.length);
+      }
+      PartitionInEdges inEdges = new PartitionInEdges(targetSourcePairs);
+      inEdgeCount += targetSourcePairs.size() / 2;
+      partitionInEdges.put(entry.getKey(), inEdges);
+    }
+    inputInEdges.clear();
+    available = true;
+    if (LOG.isInfoEnabled()) {
+      LOG.info("indexReceivedInEdges: Indexed " + inEdgeCount +
+          " in-edges, " + partitionInEdges.size() + " partitions indexed");
+    }
+  }
+
+  /**
+   * Remove the in-edges of a partition which moves to another worker.
+   *
+   * @param partitionId Partition id
+   * @return Target and source id of each in-edge of the partition
+   */
+  public long[] removePartition(int partitionId) {
+    PartitionInEdges inEdges = partitionInEdges.remove(partitionId);
+    LongArrayList receivedInEdges = inputInEdges.remove(partitionId);
+    long[] targetSourcePairs = inEdges == null ? new long[0] :
+        inEdges.toTargetSourcePairs();
+    if (receivedInEdges != null) {
+      int length = targetSourcePairs.length;
+      targetSourcePairs = Arrays.copyOf(targetSourcePairs,
+          length + receivedInEdges.size());
+      receivedInEdges.getElements(0, targetSourcePairs, length,
+          receivedInEdges.size());
+    }
+    return targetSourcePairs;
+  }
+
+  /**
+   * Write the indexed in-edges of a partition, grouped by target.
+   *
+   * @param partitionId Partition id
+   * @param output Output to write to
+   * @throws IOException
+   */
+  public void writePartition(int partitionId, DataOutput output)
+    throws IOException {
+    PartitionInEdges inEdges = partitionInEdges.get(partitionId);
+    if (inEdges == null) {
+      output.writeInt(0);
+      return;
+    }
+    output.writeInt(inEdges.targets.length);
+    for (int i = 0; i < inEdges.targets.length; i++) {
+      output.writeLong(inEdges.targets[i]);
+      output.writeInt(inEdges.offsets[i + 1] - inEdges.offsets[i]);
+      for (int j = inEdges.offsets[i]; j < inEdges.offsets[i + 1]; j++) {
+        output.writeLong(inEdges.sources[j]);
+      }
+    }
+  }
+
+  /**
+   * Read the in-edges of a partition written by {@link #writePartition},
+   * which are indexed by {@link #indexReceivedInEdges()}.
+   *
+   * @param partitionId Partition id
+   * @param input Input to read from
+   * @throws IOException
+   */
+  public void readPartition(int partitionId, DataInput input)
+    throws IOException {
+    int targetCount = input.readInt();
+    LongArrayList targetSourcePairs = new LongArrayList();
+    for (int i = 0; i < targetCount; i++) {
+      long targetId = input.readLong();
+      int sourceCount = input.readInt();
+      for (int j = 0; j < sourceCount; j++) {
+        targetSourcePairs.add(targetId);
+        targetSourcePairs.add(input.readLong());
+      }
+    }
+    addInEdges(partitionId, targetSourcePairs.elements(),
+        targetSourcePairs.size());
+  }
+
+  /**
+   * Get the number of in-edges held, both indexed and received during
+   * input but not indexed yet.
+   *
+   * @return Number of in-edges
+   */
+  public long getInEdgeCount() {
+    long inEdgeCount = 0;
+    for (LongArrayList inEdges : inputInEdges.values()) {
+      synchronized (inEdges) {
+        inEdgeCount += inEdges.size() / 2;
+      }
+    }
+    for (PartitionInEdges inEdges : partitionInEdges.values()) {
+      inEdgeCount += inEdges.sources.length;
+    }
+    return inEdgeCount;
+  }
+
+  /**
+   * Drop the index.
+   */
+  public void clear() {
+    available = false;
+    inputInEdges.clear();
+    partitionInEdges.clear();
+  }
+
+  /**
+   * Get the number of in-edges of a vertex.
+   *
+   * @param partitionId Partition of the vertex
+   * @param vertexId Vertex id
+   * @return Number of in-edges
+   */
+  public int getNumInEdges(int partitionId, I vertexId) {
+    PartitionInEdges inEdges = getPartitionInEdges(partitionId);
+    if (inEdges == null) {
+      return 0;
+    }
+    int index = inEdges.indexOf(PrimitiveVertexIds.getId(vertexId));
+    return index < 0 ? 0 :
+        inEdges.offsets[index + 1] - inEdges.offsets[index];
+  }
+
+  /**
+   * Get the sources of the in-edges of a vertex. The iterators reuse the
+   * id object they return.
+   *
+   * @param partitionId Partition of the vertex
+   * @param vertexId Vertex id
+   * @return Source ids of the in-edges
+   */
+  public Iterable<I> getInNeighbors(int partitionId, I vertexId) {
+    final PartitionInEdges inEdges = getPartitionInEdges(partitionId);
+    final int index = inEdges == null ? -1 :
+        inEdges.indexOf(PrimitiveVertexIds.getId(vertexId));
+    return new Iterable<I>() {
+      @Override
+      public Iterator<I> iterator() {
+        return new Iterator<I>() {
+          /** Reusable source id */
+          private final I sourceId = conf.createVertexId();
+          /** Position of the next in-edge */
+          private int position = index < 0 ? 0 : inEdges.offsets[index];
+          /** End of the in-edges */
+          private final int end = index < 0 ? 0 : inEdges.offsets[index + 1];
+
+          @Override
+          public boolean hasNext() {
+            return position < end;
+          }
+
+          @Override
+          public I next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            PrimitiveVertexIds.setId(sourceId,
+                inEdges.sources[position++]);
+            return sourceId;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException("remove: Not supported");
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Get the index of a partition, checking that the index is available.
+   *
+   * @param partitionId Partition id
+   * @return Index of the partition, or null if it has no in-edges
+   */
+  private PartitionInEdges getPartitionInEdges(int partitionId) {
+    if (!available) {
+      throw new IllegalStateException("getPartitionInEdges: In-edge index " +
+          "is not available, it needs giraph.inEdgeIndex, IntWritable or " +
+          "LongWritable ids and is only built from the input graph or " +
+          "from checkpoints which stored it");
+    }
+    return partitionInEdges.get(partitionId);
+  }
+
+  /**
+   * In-edges of the vertices of a partition in compressed sparse row form.
+   */
+  private static class PartitionInEdges {
+    /** Sorted distinct target ids */
+    private final long[] targets;
+    /** Offset of the in-edges of each target, plus the number of edges */
+    private final int[] offsets;
+    /** Source ids of the in-edges, sorted for each target */
+    private final long[] sources;
+
+    /**
+     * Constructor
+     *
+     * @param targetSourcePairs Target and source id of each in-edge
+     */
+    PartitionInEdges(LongArrayList targetSourcePairs) {
+      long[] pairs = targetSourcePairs.elements();
+      int edgeCount = targetSourcePairs.size() / 2;
+      long[] allTargets = new long[edgeCount];
+      for (int i = 0; i < edgeCount; i++) {
+        allTargets[i] = pairs[2 * i];
+      }
+      LongArrays.quickSort(allTargets);
+      int targetCount = 0;
+      for (int i = 0; i < edgeCount; i++) {
+        if (i == 0 || allTargets[i] != allTargets[i - 1]) {
+          allTargets[targetCount++] = allTargets[i];
+        }
+      }
+      targets = Arrays.copyOf(allTargets, targetCount);
+
+      offsets = new int[targetCount + 1];
+      for (int i = 0; i < edgeCount; i++) {
+        offsets[indexOf(pairs[2 * i]) + 1]++;
+      }
+      for (int i = 0; i < targetCount; i++) {
+        offsets[i + 1] += offsets[i];
+      }
+      sources = new long[edgeCount];
+      int[] positions = Arrays.copyOf(offsets, targetCount);
+      for (int i = 0; i < edgeCount; i++) {
+        sources[positions[indexOf(pairs[2 * i])]++] = pairs[2 * i + 1];
+      }
+      for (int i = 0; i < targetCount; i++) {
+        LongArrays.quickSort(sources, offsets[i], offsets[i + 1]);
+      }
+    }
+
+    /**
+     * Get the in-edges as pairs of target and source ids.
+     *
+     * @return Target and source id of each in-edge
+     */
+    long[] toTargetSourcePairs() {
+      long[] targetSourcePairs = new long[2 * sources.length];
+      for (int i = 0; i < targets.length; i++) {
+        for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+          targetSourcePairs[2 * j] = targets[i];
+          targetSourcePairs[2 * j + 1] = sources[j];
+        }
+      }
+      return targetSourcePairs;
+    }
+
+    /**
+     * Find a target id.
+     *
+     * @param targetId Target id
+     * @return Index of the target, negative if it has no in-edges
+     */
+    int indexOf(long targetId) {
+      return Arrays.binarySearch(targets, targetId);
+    }
+  }
+}
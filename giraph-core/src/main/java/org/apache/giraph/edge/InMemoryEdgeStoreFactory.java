@@ -19,9 +19,11 @@
 package org.apache.giraph.edge;
 
 import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.edge.primitives.IntEdgeStore;
 import org.apache.giraph.edge.primitives.LongEdgeStore;
+import org.apache.giraph.edge.primitives.PrimitiveArrayEdgeStore;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Writable;
@@ -52,7 +54,10 @@ public class InMemoryEdgeStoreFactory<I extends WritableComparable,
   public EdgeStore<I, V, E> newStore() {
     Class<I> vertexIdClass = conf.getVertexIdClass();
     EdgeStore<I, V, E> edgeStore;
-    if (vertexIdClass.equals(IntWritable.class)) {
+    if (GiraphConstants.USE_PRIMITIVE_ARRAY_EDGE_STORE.get(conf) &&
+        PrimitiveArrayEdgeStore.isSupported(conf)) {
+      edgeStore = new PrimitiveArrayEdgeStore<>(service, conf, progressable);
+    } else if (vertexIdClass.equals(IntWritable.class)) {
       edgeStore = (EdgeStore<I, V, E>) new IntEdgeStore<>(
           (CentralizedServiceWorker<IntWritable, V, E>) service,
           (ImmutableClassesGiraphConfiguration<IntWritable, V, E>) conf,
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import it.unimi.dsi.fastutil.ints.Int2FloatMap;
+import it.unimi.dsi.fastutil.ints.Int2FloatOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.giraph.utils.EdgeIterables;
+import org.apache.giraph.utils.Trimmable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+
+import com.google.common.collect.UnmodifiableIterator;
+
+/**
+ * {@link OutEdges} implementation with int ids and float edge values,
+ * backed by a {@link Int2FloatOpenHashMap}.
+ * Parallel edges are not allowed.
+ * Note: this implementation is optimized for fast random access and mutations,
+ * and uses less space than a generic {@link HashMapEdges} (but more than
+ * {@link IntFloatArrayEdges}.
+ */
+public class IntFloatHashMapEdges
+    implements StrictRandomAccessOutEdges<IntWritable, FloatWritable>,
+    ReuseObjectsOutEdges<IntWritable, FloatWritable>,
+    MutableOutEdges<IntWritable, FloatWritable>, Trimmable {
+  /** Hash map from target vertex id to edge value. */
+  private Int2FloatOpenHashMap edgeMap;
+  /** Representative edge value object, used by getEdgeValue(). */
+  private FloatWritable representativeEdgeValue;
+
+  @Override
+  public void initialize(Iterable<Edge<IntWritable, FloatWritable>> edges) {
+    EdgeIterables.initialize(this, edges);
+  }
+
+  @Override
+  public void initialize(int capacity) {
+    edgeMap = new Int2FloatOpenHashMap(capacity);
+  }
+
+  @Override
+  public void initialize() {
+    edgeMap = new Int2FloatOpenHashMap();
+  }
+
+  @Override
+  public void add(Edge<IntWritable, FloatWritable> edge) {
+    edgeMap.put(edge.getTargetVertexId().get(), edge.getValue().get());
+  }
+
+  @Override
+  public void remove(IntWritable targetVertexId) {
+    edgeMap.remove(targetVertexId.get());
+  }
+
+  @Override
+  public FloatWritable getEdgeValue(IntWritable targetVertexId) {
+    if (!edgeMap.containsKey(targetVertexId.get())) {
+      return null;
+    }
+    if (representativeEdgeValue == null) {
+      representativeEdgeValue = new FloatWritable();
+    }
+    representativeEdgeValue.set(edgeMap.get(targetVertexId.get()));
+    return representativeEdgeValue;
+  }
+
+  @Override
+  public void setEdgeValue(IntWritable targetVertexId,
+                           FloatWritable edgeValue) {
+    if (edgeMap.containsKey(targetVertexId.get())) {
+      edgeMap.put(targetVertexId.get(), edgeValue.get());
+    }
+  }
+
+  @Override
+  public int size() {
+    return edgeMap.size();
+  }
+
+  @Override
+  public Iterator<Edge<IntWritable, FloatWritable>> iterator() {
+    // Returns an iterator that reuses objects.
+    return new UnmodifiableIterator<Edge<IntWritable, FloatWritable>>() {
+      /** Wrapped map iterator. */
+      private final ObjectIterator<Int2FloatMap.Entry> mapIterator =
+          edgeMap.int2FloatEntrySet().fastIterator();
+      /** Representative edge object. */
+      private final ReusableEdge<IntWritable, FloatWritable>
+      representativeEdge =
+          EdgeFactory.createReusable(new IntWritable(), new FloatWritable());
+
+      @Override
+      public boolean hasNext() {
+        return mapIterator.hasNext();
+      }
+
+      @Override
+      public Edge<IntWritable, FloatWritable> next() {
+        Int2FloatMap.Entry nextEntry = mapIterator.next();
+        representativeEdge.getTargetVertexId().set(nextEntry.getIntKey());
+        representativeEdge.getValue().set(nextEntry.getFloatValue());
+        return representativeEdge;
+      }
+    };
+  }
+
+  @Override
+  public void trim() {
+    edgeMap.trim();
+  }
+
+  /** Helper class for a mutable edge that modifies the backing map entry. */
+  private static class IntFloatHashMapMutableEdge
+      extends DefaultEdge<IntWritable, FloatWritable> {
+    /** Backing entry for the edge in the map. */
+    private Int2FloatMap.Entry entry;
+
+    /** Constructor. */
+    public IntFloatHashMapMutableEdge() {
+      super(new IntWritable(), new FloatWritable());
+    }
+
+    /**
+     * Make the edge point to the given entry in the backing map.
+     *
+     * @param entry Backing entry
+     */
+    public void setEntry(Int2FloatMap.Entry entry) {
+      // Update the id and value objects from the superclass.
+      getTargetVertexId().set(entry.getIntKey());
+      getValue().set(entry.getFloatValue());
+      // Update the entry.
+      this.entry = entry;
+    }
+
+    @Override
+    public void setValue(FloatWritable value) {
+      // Update the value object from the superclass.
+      getValue().set(value.get());
+      // Update the value stored in the backing map.
+      entry.setValue(value.get());
+    }
+  }
+
+  @Override
+  public Iterator<MutableEdge<IntWritable, FloatWritable>> mutableIterator() {
+    return new Iterator<MutableEdge<IntWritable, FloatWritable>>() {
+      /**
+       * Wrapped map iterator.
+       * Note: we cannot use the fast iterator in this case,
+       * because we need to call setValue() on an entry.
+       */
+      private final ObjectIterator<Int2FloatMap.Entry> mapIterator =
+          edgeMap.int2FloatEntrySet().iterator();
+      /** Representative edge object. */
+      private final IntFloatHashMapMutableEdge representativeEdge =
+          new IntFloatHashMapMutableEdge();
+
+      @Override
+      public boolean hasNext() {
+        return mapIterator.hasNext();
+      }
+
+      @Override
+      public MutableEdge<IntWritable, FloatWritable> next() {
+        representativeEdge.setEntry(mapIterator.next());
+        return representativeEdge;
+      }
+
+      @Override
+      public void remove() {
+        mapIterator.remove();
+      }
+    };
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(edgeMap.size());
+    for (Int2FloatMap.Entry entry : edgeMap.int2FloatEntrySet()) {
+      out.writeInt(entry.getIntKey());
+      out.writeFloat(entry.getFloatValue());
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    int numEdges = in.readInt();
+    initialize(numEdges);
+    for (int i = 0; i < numEdges; ++i) {
+      edgeMap.put(in.readInt(), in.readFloat());
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.giraph.utils.EdgeIterables;
+import org.apache.giraph.utils.Trimmable;
+import org.apache.hadoop.io.IntWritable;
+
+import com.google.common.collect.UnmodifiableIterator;
+
+/**
+ * Implementation of {@link OutEdges} with int ids and int edge
+ * values, backed by dynamic primitive arrays.
+ * Parallel edges are allowed.
+ * Note: this implementation is optimized for space usage,
+ * but edge removals are expensive.
+ */
+public class IntIntArrayEdges
+    implements ReuseObjectsOutEdges<IntWritable, IntWritable>,
+    MutableOutEdges<IntWritable, IntWritable>, Trimmable {
+  /** Array of target vertex ids. */
+  private IntArrayList neighbors;
+  /** Array of edge values. */
+  private IntArrayList edgeValues;
+
+  @Override
+  public void initialize(Iterable<Edge<IntWritable, IntWritable>> edges) {
+    EdgeIterables.initialize(this, edges);
+  }
+
+  @Override
+  public void initialize(int capacity) {
+    neighbors = new IntArrayList(capacity);
+    edgeValues = new IntArrayList(capacity);
+  }
+
+  @Override
+  public void initialize() {
+    neighbors = new IntArrayList();
+    edgeValues = new IntArrayList();
+  }
+
+  @Override
+  public void add(Edge<IntWritable, IntWritable> edge) {
+    neighbors.add(edge.getTargetVertexId().get());
+    edgeValues.add(edge.getValue().get());
+  }
+
+  /**
+   * If the backing arrays are more than four times as big as the number of
+   * elements, halve their size.
+   */
+  private void trimBack() {
+    if (neighbors.elements().length > 4 * neighbors.size()) {
+      neighbors.trim(neighbors.elements().length / 2);
+      edgeValues.trim(neighbors.elements().length / 2);
+    }
+  }
+
+  /**
+   * Remove edge at position i.
+   *
+   * @param i Position of edge to be removed
+   */
+  private void removeAt(int i) {
+    // The order of the edges is irrelevant, so we can simply replace
+    // the deleted edge with the rightmost element, thus achieving constant
+    // time.
+    if (i == neighbors.size() - 1) {
+      neighbors.popInt();
+      edgeValues.popInt();
+    } else {
+      neighbors.set(i, neighbors.popInt());
+      edgeValues.set(i, edgeValues.popInt());
+    }
+    // If needed after the removal, trim the arrays.
+    trimBack();
+  }
+
+  @Override
+  public void remove(IntWritable targetVertexId) {
+    // Thanks to the constant-time implementation of removeAt(int),
+    // we can remove all matching edges in linear time.
+    for (int i = neighbors.size() - 1; i >= 0; --i) {
+      if (neighbors.getInt(i) == targetVertexId.get()) {
+        removeAt(i);
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return neighbors.size();
+  }
+
+  @Override
+  public Iterator<Edge<IntWritable, IntWritable>> iterator() {
+    // Returns an iterator that reuses objects.
+    return new UnmodifiableIterator<Edge<IntWritable, IntWritable>>() {
+      /** Wrapped neighbors iterator. */
+      private final IntIterator neighborsIt = neighbors.iterator();
+      /** Wrapped edge values iterator. */
+      private final IntIterator edgeValuesIt = edgeValues.iterator();
+      /** Representative edge object. */
+      private final Edge<IntWritable, IntWritable> representativeEdge =
+          EdgeFactory.create(new IntWritable(), new IntWritable());
+
+      @Override
+      public boolean hasNext() {
+        return neighborsIt.hasNext();
+      }
+
+      @Override
+      public Edge<IntWritable, IntWritable> next() {
+        representativeEdge.getTargetVertexId().set(neighborsIt.nextInt());
+        representativeEdge.getValue().set(edgeValuesIt.nextInt());
+        return representativeEdge;
+      }
+    };
+  }
+
+  /** Helper class for a mutable edge that modifies the backing arrays. */
+  private class IntIntArrayMutableEdge
+      extends DefaultEdge<IntWritable, IntWritable> {
+    /** Index of the edge in the backing arrays. */
+    private int index;
+
+    /** Constructor. */
+    public IntIntArrayMutableEdge() {
+      super(new IntWritable(), new IntWritable());
+    }
+
+    /**
+     * Make the edge point to the given index in the backing arrays.
+     *
+     * @param index Index in the arrays
+     */
+    public void setIndex(int index) {
+      // Update the id and value objects from the superclass.
+      getTargetVertexId().set(neighbors.getInt(index));
+      getValue().set(edgeValues.getInt(index));
+      // Update the index.
+      this.index = index;
+    }
+
+    @Override
+    public void setValue(IntWritable value) {
+      // Update the value object from the superclass.
+      getValue().set(value.get());
+      // Update the value stored in the backing array.
+      edgeValues.set(index, value.get());
+    }
+  }
+
+  @Override
+  public Iterator<MutableEdge<IntWritable, IntWritable>>
+  mutableIterator() {
+    return new Iterator<MutableEdge<IntWritable, IntWritable>>() {
+      /** Current position in the array. */
+      private int offset = 0;
+      /** Representative edge object. */
+      private final IntIntArrayMutableEdge representativeEdge =
+          new IntIntArrayMutableEdge();
+
+      @Override
+      public boolean hasNext() {
+        return offset < neighbors.size();
+      }
+
+      @Override
+      public MutableEdge<IntWritable, IntWritable> next() {
+        representativeEdge.setIndex(offset++);
+        return representativeEdge;
+      }
+
+      @Override
+      public void remove() {
+        // Since removeAt() might replace the deleted edge with the last edge
+        // in the array, we need to decrease the offset so that the latter
+        // won't be skipped.
+        removeAt(--offset);
+      }
+    };
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(neighbors.size());
+    IntIterator neighborsIt = neighbors.iterator();
+    IntIterator edgeValuesIt = edgeValues.iterator();
+    while (neighborsIt.hasNext()) {
+      out.writeInt(neighborsIt.nextInt());
+      out.writeInt(edgeValuesIt.nextInt());
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    int numEdges = in.readInt();
+    initialize(numEdges);
+    for (int i = 0; i < numEdges; ++i) {
+      neighbors.add(in.readInt());
+      edgeValues.add(in.readInt());
+    }
+  }
+
+  @Override
+  public void trim() {
+    neighbors.trim();
+    edgeValues.trim();
+  }
+}
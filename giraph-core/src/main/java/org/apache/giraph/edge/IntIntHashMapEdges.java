@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.giraph.utils.EdgeIterables;
+import org.apache.giraph.utils.Trimmable;
+import org.apache.hadoop.io.IntWritable;
+
+import com.google.common.collect.UnmodifiableIterator;
+
+/**
+ * {@link OutEdges} implementation with int ids and int edge values,
+ * backed by a {@link Int2IntOpenHashMap}.
+ * Parallel edges are not allowed.
+ * Note: this implementation is optimized for fast random access and mutations,
+ * and uses less space than a generic {@link HashMapEdges} (but more than
+ * {@link IntIntArrayEdges}.
+ */
+public class IntIntHashMapEdges
+    implements StrictRandomAccessOutEdges<IntWritable, IntWritable>,
+    ReuseObjectsOutEdges<IntWritable, IntWritable>,
+    MutableOutEdges<IntWritable, IntWritable>, Trimmable {
+  /** Hash map from target vertex id to edge value. */
+  private Int2IntOpenHashMap edgeMap;
+  /** Representative edge value object, used by getEdgeValue(). */
+  private IntWritable representativeEdgeValue;
+
+  @Override
+  public void initialize(Iterable<Edge<IntWritable, IntWritable>> edges) {
+    EdgeIterables.initialize(this, edges);
+  }
+
+  @Override
+  public void initialize(int capacity) {
+    edgeMap = new Int2IntOpenHashMap(capacity);
+  }
+
+  @Override
+  public void initialize() {
+    edgeMap = new Int2IntOpenHashMap();
+  }
+
+  @Override
+  public void add(Edge<IntWritable, IntWritable> edge) {
+    edgeMap.put(edge.getTargetVertexId().get(), edge.getValue().get());
+  }
+
+  @Override
+  public void remove(IntWritable targetVertexId) {
+    edgeMap.remove(targetVertexId.get());
+  }
+
+  @Override
+  public IntWritable getEdgeValue(IntWritable targetVertexId) {
+    if (!edgeMap.containsKey(targetVertexId.get())) {
+      return null;
+    }
+    if (representativeEdgeValue == null) {
+      representativeEdgeValue = new IntWritable();
+    }
+    representativeEdgeValue.set(edgeMap.get(targetVertexId.get()));
+    return representativeEdgeValue;
+  }
+
+  @Override
+  public void setEdgeValue(IntWritable targetVertexId,
+                           IntWritable edgeValue) {
+    if (edgeMap.containsKey(targetVertexId.get())) {
+      edgeMap.put(targetVertexId.get(), edgeValue.get());
+    }
+  }
+
+  @Override
+  public int size() {
+    return edgeMap.size();
+  }
+
+  @Override
+  public Iterator<Edge<IntWritable, IntWritable>> iterator() {
+    // Returns an iterator that reuses objects.
+    return new UnmodifiableIterator<Edge<IntWritable, IntWritable>>() {
+      /** Wrapped map iterator. */
+      private final ObjectIterator<Int2IntMap.Entry> mapIterator =
+          edgeMap.int2IntEntrySet().fastIterator();
+      /** Representative edge object. */
+      private final ReusableEdge<IntWritable, IntWritable>
+      representativeEdge =
+          EdgeFactory.createReusable(new IntWritable(), new IntWritable());
+
+      @Override
+      public boolean hasNext() {
+        return mapIterator.hasNext();
+      }
+
+      @Override
+      public Edge<IntWritable, IntWritable> next() {
+        Int2IntMap.Entry nextEntry = mapIterator.next();
+        representativeEdge.getTargetVertexId().set(nextEntry.getIntKey());
+        representativeEdge.getValue().set(nextEntry.getIntValue());
+        return representativeEdge;
+      }
+    };
+  }
+
+  @Override
+  public void trim() {
+    edgeMap.trim();
+  }
+
+  /** Helper class for a mutable edge that modifies the backing map entry. */
+  private static class IntIntHashMapMutableEdge
+      extends DefaultEdge<IntWritable, IntWritable> {
+    /** Backing entry for the edge in the map. */
+    private Int2IntMap.Entry entry;
+
+    /** Constructor. */
+    public IntIntHashMapMutableEdge() {
+      super(new IntWritable(), new IntWritable());
+    }
+
+    /**
+     * Make the edge point to the given entry in the backing map.
+     *
+     * @param entry Backing entry
+     */
+    public void setEntry(Int2IntMap.Entry entry) {
+      // Update the id and value objects from the superclass.
+      getTargetVertexId().set(entry.getIntKey());
+      getValue().set(entry.getIntValue());
+      // Update the entry.
+      this.entry = entry;
+    }
+
+    @Override
+    public void setValue(IntWritable value) {
+      // Update the value object from the superclass.
+      getValue().set(value.get());
+      // Update the value stored in the backing map.
+      entry.setValue(value.get());
+    }
+  }
+
+  @Override
+  public Iterator<MutableEdge<IntWritable, IntWritable>> mutableIterator() {
+    return new Iterator<MutableEdge<IntWritable, IntWritable>>() {
+      /**
+       * Wrapped map iterator.
+       * Note: we cannot use the fast iterator in this case,
+       * because we need to call setValue() on an entry.
+       */
+      private final ObjectIterator<Int2IntMap.Entry> mapIterator =
+          edgeMap.int2IntEntrySet().iterator();
+      /** Representative edge object. */
+      private final IntIntHashMapMutableEdge representativeEdge =
+          new IntIntHashMapMutableEdge();
+
+      @Override
+      public boolean hasNext() {
+        return mapIterator.hasNext();
+      }
+
+      @Override
+      public MutableEdge<IntWritable, IntWritable> next() {
+        representativeEdge.setEntry(mapIterator.next());
+        return representativeEdge;
+      }
+
+      @Override
+      public void remove() {
+        mapIterator.remove();
+      }
+    };
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(edgeMap.size());
+    for (Int2IntMap.Entry entry : edgeMap.int2IntEntrySet()) {
+      out.writeInt(entry.getIntKey());
+      out.writeInt(entry.getIntValue());
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    int numEdges = in.readInt();
+    initialize(numEdges);
+    for (int i = 0; i < numEdges; ++i) {
+      edgeMap.put(in.readInt(), in.readInt());
+    }
+  }
+}
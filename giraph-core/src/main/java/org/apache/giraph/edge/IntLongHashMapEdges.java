@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.giraph.utils.EdgeIterables;
+import org.apache.giraph.utils.Trimmable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+
+import com.google.common.collect.UnmodifiableIterator;
+
+/**
+ * {@link OutEdges} implementation with int ids and long edge values,
+ * backed by a {@link Int2LongOpenHashMap}.
+ * Parallel edges are not allowed.
+ * Note: this implementation is optimized for fast random access and mutations,
+ * and uses less space than a generic {@link HashMapEdges} (but more than
+ * {@link IntLongArrayEdges}.
+ */
+public class IntLongHashMapEdges
+    implements StrictRandomAccessOutEdges<IntWritable, LongWritable>,
+    ReuseObjectsOutEdges<IntWritable, LongWritable>,
+    MutableOutEdges<IntWritable, LongWritable>, Trimmable {
+  /** Hash map from target vertex id to edge value. */
+  private Int2LongOpenHashMap edgeMap;
+  /** Representative edge value object, used by getEdgeValue(). */
+  private LongWritable representativeEdgeValue;
+
+  @Override
+  public void initialize(Iterable<Edge<IntWritable, LongWritable>> edges) {
+    EdgeIterables.initialize(this, edges);
+  }
+
+  @Override
+  public void initialize(int capacity) {
+    edgeMap = new Int2LongOpenHashMap(capacity);
+  }
+
+  @Override
+  public void initialize() {
+    edgeMap = new Int2LongOpenHashMap();
+  }
+
+  @Override
+  public void add(Edge<IntWritable, LongWritable> edge) {
+    edgeMap.put(edge.getTargetVertexId().get(), edge.getValue().get());
+  }
+
+  @Override
+  public void remove(IntWritable targetVertexId) {
+    edgeMap.remove(targetVertexId.get());
+  }
+
+  @Override
+  public LongWritable getEdgeValue(IntWritable targetVertexId) {
+    if (!edgeMap.containsKey(targetVertexId.get())) {
+      return null;
+    }
+    if (representativeEdgeValue == null) {
+      representativeEdgeValue = new LongWritable();
+    }
+    representativeEdgeValue.set(edgeMap.get(targetVertexId.get()));
+    return representativeEdgeValue;
+  }
+
+  @Override
+  public void setEdgeValue(IntWritable targetVertexId,
+                           LongWritable edgeValue) {
+    if (edgeMap.containsKey(targetVertexId.get())) {
+      edgeMap.put(targetVertexId.get(), edgeValue.get());
+    }
+  }
+
+  @Override
+  public int size() {
+    return edgeMap.size();
+  }
+
+  @Override
+  public Iterator<Edge<IntWritable, LongWritable>> iterator() {
+    // Returns an iterator that reuses objects.
+    return new UnmodifiableIterator<Edge<IntWritable, LongWritable>>() {
+      /** Wrapped map iterator. */
+      private final ObjectIterator<Int2LongMap.Entry> mapIterator =
+          edgeMap.int2LongEntrySet().fastIterator();
+      /** Representative edge object. */
+      private final ReusableEdge<IntWritable, LongWritable>
+      representativeEdge =
+          EdgeFactory.createReusable(new IntWritable(), new LongWritable());
+
+      @Override
+      public boolean hasNext() {
+        return mapIterator.hasNext();
+      }
+
+      @Override
+      public Edge<IntWritable, LongWritable> next() {
+        Int2LongMap.Entry nextEntry = mapIterator.next();
+        representativeEdge.getTargetVertexId().set(nextEntry.getIntKey());
+        representativeEdge.getValue().set(nextEntry.getLongValue());
+        return representativeEdge;
+      }
+    };
+  }
+
+  @Override
+  public void trim() {
+    edgeMap.trim();
+  }
+
+  /** Helper class for a mutable edge that modifies the backing map entry. */
+  private static class IntLongHashMapMutableEdge
+      extends DefaultEdge<IntWritable, LongWritable> {
+    /** Backing entry for the edge in the map. */
+    private Int2LongMap.Entry entry;
+
+    /** Constructor. */
+    public IntLongHashMapMutableEdge() {
+      super(new IntWritable(), new LongWritable());
+    }
+
+    /**
+     * Make the edge point to the given entry in the backing map.
+     *
+     * @param entry Backing entry
+     */
+    public void setEntry(Int2LongMap.Entry entry) {
+      // Update the id and value objects from the superclass.
+      getTargetVertexId().set(entry.getIntKey());
+      getValue().set(entry.getLongValue());
+      // Update the entry.
+      this.entry = entry;
+    }
+
+    @Override
+    public void setValue(LongWritable value) {
+      // Update the value object from the superclass.
+      getValue().set(value.get());
+      // Update the value stored in the backing map.
+      entry.setValue(value.get());
+    }
+  }
+
+  @Override
+  public Iterator<MutableEdge<IntWritable, LongWritable>> mutableIterator() {
+    return new Iterator<MutableEdge<IntWritable, LongWritable>>() {
+      /**
+       * Wrapped map iterator.
+       * Note: we cannot use the fast iterator in this case,
+       * because we need to call setValue() on an entry.
+       */
+      private final ObjectIterator<Int2LongMap.Entry> mapIterator =
+          edgeMap.int2LongEntrySet().iterator();
+      /** Representative edge object. */
+      private final IntLongHashMapMutableEdge representativeEdge =
+          new IntLongHashMapMutableEdge();
+
+      @Override
+      public boolean hasNext() {
+        return mapIterator.hasNext();
+      }
+
+      @Override
+      public MutableEdge<IntWritable, LongWritable> next() {
+        representativeEdge.setEntry(mapIterator.next());
+        return representativeEdge;
+      }
+
+      @Override
+      public void remove() {
+        mapIterator.remove();
+      }
+    };
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(edgeMap.size());
+    for (Int2LongMap.Entry entry : edgeMap.int2LongEntrySet()) {
+      out.writeInt(entry.getIntKey());
+      out.writeLong(entry.getLongValue());
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    int numEdges = in.readInt();
+    initialize(numEdges);
+    for (int i = 0; i < numEdges; ++i) {
+      edgeMap.put(in.readInt(), in.readLong());
+    }
+  }
+}
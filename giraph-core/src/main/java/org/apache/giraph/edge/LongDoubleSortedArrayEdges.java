@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import it.unimi.dsi.fastutil.Swapper;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.apache.giraph.utils.EdgeIterables;
+import org.apache.giraph.utils.Trimmable;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+
+import com.google.common.collect.UnmodifiableIterator;
+
+/**
+ * Implementation of {@link OutEdges} with long ids and double edge
+ * values, backed by dynamic primitive arrays sorted by target vertex id.
+ * Parallel edges are not allowed: adding an edge to an existing target
+ * replaces its value.
+ * Note: this implementation uses as little space as
+ * {@link LongDoubleArrayEdges}, while random access takes logarithmic time
+ * with a binary search. Additions and removals are buffered and applied
+ * in batches with a sorted merge the next time the edges are read, so
+ * mutations are cheap as long as they are not interleaved with reads.
+ */
+public class LongDoubleSortedArrayEdges
+    implements ReuseObjectsOutEdges<LongWritable, DoubleWritable>,
+    MutableOutEdges<LongWritable, DoubleWritable>,
+    StrictRandomAccessOutEdges<LongWritable, DoubleWritable>,
+    SortedOutEdges<LongWritable, DoubleWritable>, Trimmable {
+  /** Sorted array of target vertex ids. */
+  private LongArrayList neighbors;
+  /** Array of edge values. */
+  private DoubleArrayList edgeValues;
+  /** Targets of edges added since the last merge, null if none */
+  private LongArrayList addedNeighbors;
+  /** Values of edges added since the last merge */
+  private DoubleArrayList addedEdgeValues;
+  /** Targets removed since the last merge, null if none */
+  private LongArrayList removedNeighbors;
+  /** Representative edge value object, used by getEdgeValue(). */
+  private DoubleWritable representativeEdgeValue;
+
+  @Override
+  public void initialize(Iterable<Edge<LongWritable, DoubleWritable>> edges) {
+    EdgeIterables.initialize(this, edges);
+  }
+
+  @Override
+  public void initialize(int capacity) {
+    neighbors = new LongArrayList(capacity);
+    edgeValues = new DoubleArrayList(capacity);
+    addedNeighbors = null;
+    addedEdgeValues = null;
+    removedNeighbors = null;
+  }
+
+  @Override
+  public void initialize() {
+    neighbors = new LongArrayList();
+    edgeValues = new DoubleArrayList();
+    addedNeighbors = null;
+    addedEdgeValues = null;
+    removedNeighbors = null;
+  }
+
+  @Override
+  public void add(Edge<LongWritable, DoubleWritable> edge) {
+    // Removals buffered before this addition must be applied first
+    if (removedNeighbors != null) {
+      merge();
+    }
+    if (addedNeighbors == null) {
+      addedNeighbors = new LongArrayList();
+      addedEdgeValues = new DoubleArrayList();
+    }
+    addedNeighbors.add(edge.getTargetVertexId().get());
+    addedEdgeValues.add(edge.getValue().get());
+  }
+
+  @Override
+  public void remove(LongWritable targetVertexId) {
+    // Additions buffered before this removal must be applied first
+    if (addedNeighbors != null) {
+      merge();
+    }
+    if (removedNeighbors == null) {
+      removedNeighbors = new LongArrayList();
+    }
+    removedNeighbors.add(targetVertexId.get());
+  }
+
+  /**
+   * Apply the buffered additions or removals.
+   */
+  private void merge() {
+    if (addedNeighbors != null) {
+      mergeAdded();
+    }
+    if (removedNeighbors != null) {
+      mergeRemoved();
+    }
+  }
+
+  /**
+   * Merge the buffered additions into the sorted arrays. When a target is
+   * added several times, the last value wins.
+   */
+  private void mergeAdded() {
+    final long[] added = addedNeighbors.elements();
+    final double[] addedValues = addedEdgeValues.elements();
+    int numAdded = addedNeighbors.size();
+    // Stable sort, to keep the last added value of each target last
+    it.unimi.dsi.fastutil.Arrays.mergeSort(0, numAdded,
+        new AbstractIntComparator() {
+          @Override
+          public int compare(int i, int j) {
+            return Long.compare(added[i], added[j]);
+          }
+        },
+        new Swapper() {
+          @Override
+          public void swap(int i, int j) {
+            long target = added[i];
+            added[i] = added[j];
+            added[j] = target;
+            double value = addedValues[i];
+            addedValues[i] = addedValues[j];
+            addedValues[j] = value;
+          }
+        });
+    long[] targets = neighbors.elements();
+    double[] values = edgeValues.elements();
+    int size = neighbors.size();
+    LongArrayList mergedNeighbors = new LongArrayList(size + numAdded);
+    DoubleArrayList mergedEdgeValues = new DoubleArrayList(size + numAdded);
+    int i = 0;
+    int j = 0;
+    while (i < size || j < numAdded) {
+      if (j == numAdded || (i < size && targets[i] < added[j])) {
+        mergedNeighbors.add(targets[i]);
+        mergedEdgeValues.add(values[i]);
+        i++;
+      } else {
+        long target = added[j];
+        while (j + 1 < numAdded && added[j + 1] == target) {
+          j++;
+        }
+        mergedNeighbors.add(target);
+        mergedEdgeValues.add(addedValues[j]);
+        j++;
+        if (i < size && targets[i] == target) {
+          i++;
+        }
+      }
+    }
+    neighbors = mergedNeighbors;
+    edgeValues = mergedEdgeValues;
+    addedNeighbors = null;
+    addedEdgeValues = null;
+  }
+
+  /**
+   * Drop the buffered removals from the sorted arrays, in place.
+   */
+  private void mergeRemoved() {
+    long[] removed = removedNeighbors.elements();
+    int numRemoved = removedNeighbors.size();
+    Arrays.sort(removed, 0, numRemoved);
+    long[] targets = neighbors.elements();
+    double[] values = edgeValues.elements();
+    int size = neighbors.size();
+    int kept = 0;
+    int j = 0;
+    for (int i = 0; i < size; ++i) {
+      while (j < numRemoved && removed[j] < targets[i]) {
+        j++;
+      }
+      if (j == numRemoved || removed[j] != targets[i]) {
+        targets[kept] = targets[i];
+        values[kept] = values[i];
+        kept++;
+      }
+    }
+    neighbors.size(kept);
+    edgeValues.size(kept);
+    removedNeighbors = null;
+    trimBack();
+  }
+
+  /**
+   * If the backing arrays are more than four times as big as the number of
+   * elements, halve their size.
+   */
+  private void trimBack() {
+    if (neighbors.elements().length > 4 * neighbors.size()) {
+      neighbors.trim(neighbors.elements().length / 2);
+      edgeValues.trim(neighbors.elements().length / 2);
+    }
+  }
+
+  /**
+   * Remove edge at position i, keeping the arrays sorted.
+   *
+   * @param i Position of edge to be removed
+   */
+  private void removeAt(int i) {
+    neighbors.removeLong(i);
+    edgeValues.removeDouble(i);
+    trimBack();
+  }
+
+  @Override
+  public int size() {
+    merge();
+    return neighbors.size();
+  }
+
+  @Override
+  public long getTargetAt(int index) {
+    merge();
+    return neighbors.getLong(index);
+  }
+
+  @Override
+  public int indexOf(long targetVertexId) {
+    merge();
+    int index = Arrays.binarySearch(
+        neighbors.elements(), 0, neighbors.size(), targetVertexId);
+    return index >= 0 ? index : -1;
+  }
+
+  @Override
+  public DoubleWritable getEdgeValue(LongWritable targetVertexId) {
+    int index = indexOf(targetVertexId.get());
+    if (index < 0) {
+      return null;
+    }
+    if (representativeEdgeValue == null) {
+      representativeEdgeValue = new DoubleWritable();
+    }
+    representativeEdgeValue.set(edgeValues.getDouble(index));
+    return representativeEdgeValue;
+  }
+
+  @Override
+  public void setEdgeValue(LongWritable targetVertexId,
+                           DoubleWritable edgeValue) {
+    int index = indexOf(targetVertexId.get());
+    if (index >= 0) {
+      edgeValues.set(index, edgeValue.get());
+    }
+  }
+
+  @Override
+  public Iterator<Edge<LongWritable, DoubleWritable>> iterator() {
+    merge();
+    // Returns an iterator that reuses objects.
+    return new UnmodifiableIterator<Edge<LongWritable, DoubleWritable>>() {
+      /** Current position in the array. */
+      private int offset = 0;
+      /** Representative edge object. */
+      private final Edge<LongWritable, DoubleWritable> representativeEdge =
+          EdgeFactory.create(new LongWritable(), new DoubleWritable());
+
+      @Override
+      public boolean hasNext() {
+        return offset < neighbors.size();
+      }
+
+      @Override
+      public Edge<LongWritable, DoubleWritable> next() {
+        representativeEdge.getTargetVertexId().set(
+            neighbors.getLong(offset));
+        representativeEdge.getValue().set(edgeValues.getDouble(offset));
+        offset++;
+        return representativeEdge;
+      }
+    };
+  }
+
+  /** Helper class for a mutable edge that modifies the backing arrays. */
+  private class LongDoubleSortedArrayMutableEdge
+      extends DefaultEdge<LongWritable, DoubleWritable> {
+    /** Index of the edge in the backing arrays. */
+    private int index;
+
+    /** Constructor. */
+    public LongDoubleSortedArrayMutableEdge() {
+      super(new LongWritable(), new DoubleWritable());
+    }
+
+    /**
+     * Make the edge point to the given index in the backing arrays.
+     *
+     * @param index Index in the arrays
+     */
+    public void setIndex(int index) {
+      // Update the id and value objects from the superclass.
+      getTargetVertexId().set(neighbors.getLong(index));
+      getValue().set(edgeValues.getDouble(index));
+      // Update the index.
+      this.index = index;
+    }
+
+    @Override
+    public void setValue(DoubleWritable value) {
+      // Update the value object from the superclass.
+      getValue().set(value.get());
+      // Update the value stored in the backing array.
+      edgeValues.set(index, value.get());
+    }
+  }
+
+  @Override
+  public Iterator<MutableEdge<LongWritable, DoubleWritable>>
+  mutableIterator() {
+    merge();
+    return new Iterator<MutableEdge<LongWritable, DoubleWritable>>() {
+      /** Current position in the array. */
+      private int offset = 0;
+      /** Representative edge object. */
+      private final LongDoubleSortedArrayMutableEdge representativeEdge =
+          new LongDoubleSortedArrayMutableEdge();
+
+      @Override
+      public boolean hasNext() {
+        return offset < neighbors.size();
+      }
+
+      @Override
+      public MutableEdge<LongWritable, DoubleWritable> next() {
+        representativeEdge.setIndex(offset++);
+        return representativeEdge;
+      }
+
+      @Override
+      public void remove() {
+        // Removing shifts the following edges to the left, so the next
+        // edge is now at the current offset.
+        removeAt(--offset);
+      }
+    };
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    merge();
+    out.writeInt(neighbors.size());
+    for (int i = 0; i < neighbors.size(); ++i) {
+      out.writeLong(neighbors.getLong(i));
+      out.writeDouble(edgeValues.getDouble(i));
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    int numEdges = in.readInt();
+    initialize(numEdges);
+    // Edges are written sorted
+    for (int i = 0; i < numEdges; ++i) {
+      neighbors.add(in.readLong());
+      edgeValues.add(in.readDouble());
+    }
+  }
+
+  @Override
+  public void trim() {
+    merge();
+    neighbors.trim();
+    edgeValues.trim();
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.apache.giraph.utils.EdgeIterables;
+import org.apache.giraph.utils.Trimmable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+
+/**
+ * Implementation of {@link OutEdges} with long ids and null edge
+ * values, backed by a dynamic primitive array sorted by target vertex id.
+ * Parallel edges are not allowed.
+ * Note: this implementation uses as little space as
+ * {@link LongNullArrayEdges}, while random access takes logarithmic time
+ * with a binary search. Additions and removals are buffered and applied
+ * in batches with a sorted merge the next time the edges are read, so
+ * mutations are cheap as long as they are not interleaved with reads.
+ */
+public class LongNullSortedArrayEdges
+    implements ReuseObjectsOutEdges<LongWritable, NullWritable>,
+    MutableOutEdges<LongWritable, NullWritable>,
+    StrictRandomAccessOutEdges<LongWritable, NullWritable>,
+    SortedOutEdges<LongWritable, NullWritable>, Trimmable {
+  /** Sorted array of target vertex ids. */
+  private LongArrayList neighbors;
+  /** Targets of edges added since the last merge, null if none */
+  private LongArrayList addedNeighbors;
+  /** Targets removed since the last merge, null if none */
+  private LongArrayList removedNeighbors;
+
+  @Override
+  public void initialize(Iterable<Edge<LongWritable, NullWritable>> edges) {
+    EdgeIterables.initialize(this, edges);
+  }
+
+  @Override
+  public void initialize(int capacity) {
+    neighbors = new LongArrayList(capacity);
+    addedNeighbors = null;
+    removedNeighbors = null;
+  }
+
+  @Override
+  public void initialize() {
+    neighbors = new LongArrayList();
+    addedNeighbors = null;
+    removedNeighbors = null;
+  }
+
+  @Override
+  public void add(Edge<LongWritable, NullWritable> edge) {
+    // Removals buffered before this addition must be applied first
+    if (removedNeighbors != null) {
+      merge();
+    }
+    if (addedNeighbors == null) {
+      addedNeighbors = new LongArrayList();
+    }
+    addedNeighbors.add(edge.getTargetVertexId().get());
+  }
+
+  @Override
+  public void remove(LongWritable targetVertexId) {
+    // Additions buffered before this removal must be applied first
+    if (addedNeighbors != null) {
+      merge();
+    }
+    if (removedNeighbors == null) {
+      removedNeighbors = new LongArrayList();
+    }
+    removedNeighbors.add(targetVertexId.get());
+  }
+
+  /**
+   * Apply the buffered additions or removals.
+   */
+  private void merge() {
+    if (addedNeighbors != null) {
+      mergeAdded();
+    }
+    if (removedNeighbors != null) {
+      mergeRemoved();
+    }
+  }
+
+  /**
+   * Merge the buffered additions into the sorted array, dropping
+   * duplicates.
+   */
+  private void mergeAdded() {
+    long[] added = addedNeighbors.elements();
+    int numAdded = addedNeighbors.size();
+    Arrays.sort(added, 0, numAdded);
+    long[] targets = neighbors.elements();
+    int size = neighbors.size();
+    LongArrayList mergedNeighbors = new LongArrayList(size + numAdded);
+    int i = 0;
+    int j = 0;
+    while (i < size || j < numAdded) {
+      long target;
+      if (j == numAdded || (i < size && targets[i] < added[j])) {
+        target = targets[i++];
+      } else {
+        target = added[j++];
+        while (j < numAdded && added[j] == target) {
+          j++;
+        }
+        if (i < size && targets[i] == target) {
+          i++;
+        }
+      }
+      mergedNeighbors.add(target);
+    }
+    neighbors = mergedNeighbors;
+    addedNeighbors = null;
+  }
+
+  /**
+   * Drop the buffered removals from the sorted array, in place.
+   */
+  private void mergeRemoved() {
+    long[] removed = removedNeighbors.elements();
+    int numRemoved = removedNeighbors.size();
+    Arrays.sort(removed, 0, numRemoved);
+    long[] targets = neighbors.elements();
+    int size = neighbors.size();
+    int kept = 0;
+    int j = 0;
+    for (int i = 0; i < size; ++i) {
+      while (j < numRemoved && removed[j] < targets[i]) {
+        j++;
+      }
+      if (j == numRemoved || removed[j] != targets[i]) {
+        targets[kept++] = targets[i];
+      }
+    }
+    neighbors.size(kept);
+    removedNeighbors = null;
+    trimBack();
+  }
+
+  /**
+   * If the backing array is more than four times as big as the number of
+   * elements, halve its size.
+   */
+  private void trimBack() {
+    if (neighbors.elements().length > 4 * neighbors.size()) {
+      neighbors.trim(neighbors.elements().length / 2);
+    }
+  }
+
+  @Override
+  public int size() {
+    merge();
+    return neighbors.size();
+  }
+
+  @Override
+  public long getTargetAt(int index) {
+    merge();
+    return neighbors.getLong(index);
+  }
+
+  @Override
+  public int indexOf(long targetVertexId) {
+    merge();
+    int index = Arrays.binarySearch(
+        neighbors.elements(), 0, neighbors.size(), targetVertexId);
+    return index >= 0 ? index : -1;
+  }
+
+  @Override
+  public NullWritable getEdgeValue(LongWritable targetVertexId) {
+    if (indexOf(targetVertexId.get()) >= 0) {
+      return NullWritable.get();
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  public void setEdgeValue(LongWritable targetVertexId,
+    NullWritable edgeValue) {
+    // No operation.
+    // Only set value for an existing edge.
+    // If the edge exist, the Null value is already there.
+  }
+
+  @Override
+  public Iterator<Edge<LongWritable, NullWritable>> iterator() {
+    // Returns an iterator that reuses objects.
+    // The downcast is fine because all concrete Edge implementations are
+    // mutable, but we only expose the mutation functionality when appropriate.
+    return (Iterator) mutableIterator();
+  }
+
+  @Override
+  public Iterator<MutableEdge<LongWritable, NullWritable>> mutableIterator() {
+    merge();
+    return new Iterator<MutableEdge<LongWritable, NullWritable>>() {
+      /** Current position in the array. */
+      private int offset = 0;
+      /** Representative edge object. */
+      private final MutableEdge<LongWritable, NullWritable> representativeEdge =
+          EdgeFactory.createReusable(new LongWritable());
+
+      @Override
+      public boolean hasNext() {
+        return offset < neighbors.size();
+      }
+
+      @Override
+      public MutableEdge<LongWritable, NullWritable> next() {
+        representativeEdge.getTargetVertexId().set(neighbors.getLong(offset++));
+        return representativeEdge;
+      }
+
+      @Override
+      public void remove() {
+        // Removing shifts the following edges to the left, so the next
+        // edge is now at the current offset.
+        neighbors.removeLong(--offset);
+        trimBack();
+      }
+    };
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    merge();
+    out.writeInt(neighbors.size());
+    for (int i = 0; i < neighbors.size(); ++i) {
+      out.writeLong(neighbors.getLong(i));
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    int numEdges = in.readInt();
+    initialize(numEdges);
+    // Edges are written sorted
+    for (int i = 0; i < numEdges; ++i) {
+      neighbors.add(in.readLong());
+    }
+  }
+
+  @Override
+  public void trim() {
+    merge();
+    neighbors.trim();
+  }
+}
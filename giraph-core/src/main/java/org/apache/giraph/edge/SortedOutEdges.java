@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+
+/**
+ * Interface for {@link OutEdges} implementations with int or long ids that
+ * keep their edges sorted by target vertex id, without parallel edges.
+ * Sorted edges can be searched in logarithmic time and intersected in
+ * linear time (see
+ * {@link org.apache.giraph.utils.EdgeIterables#intersectionSize}).
+ *
+ * @param <I> Vertex id
+ * @param <E> Edge value
+ */
+public interface SortedOutEdges<I extends WritableComparable,
+    E extends Writable> extends OutEdges<I, E> {
+  /**
+   * Get the target vertex id of the edge at the given position, in
+   * increasing order of target vertex ids. Int ids are widened to long.
+   *
+   * @param index Position of the edge, smaller than {@link #size()}
+   * @return Target vertex id
+   */
+  long getTargetAt(int index);
+
+  /**
+   * Find the position of the edge pointing to the given vertex.
+   *
+   * @param targetVertexId Target vertex id, widened to long for int ids
+   * @return Position of the edge, or a negative value if there is none
+   */
+  int indexOf(long targetVertexId);
+}
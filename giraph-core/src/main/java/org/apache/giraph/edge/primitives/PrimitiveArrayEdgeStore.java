@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge.primitives;
+
+import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.edge.Edge;
+import org.apache.giraph.edge.EdgeFactory;
+import org.apache.giraph.edge.EdgeStore;
+import org.apache.giraph.edge.OutEdges;
+import org.apache.giraph.edge.ReusableEdge;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.partition.Partition;
+import org.apache.giraph.utils.CallableFactory;
+import org.apache.giraph.utils.ProgressableUtils;
+import org.apache.giraph.utils.PrimitiveVertexIds;
+import org.apache.giraph.utils.VertexIdEdgeIterator;
+import org.apache.giraph.utils.VertexIdEdges;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.util.Progressable;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.MapMaker;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Edge store for {@link IntWritable} and {@link LongWritable} vertex ids
+ * with {@link NullWritable}, {@link IntWritable}, {@link LongWritable},
+ * {@link FloatWritable} or {@link DoubleWritable} edge values. Unlike
+ * {@link LongEdgeStore} and {@link IntEdgeStore}, which keep an
+ * {@link OutEdges} per source vertex while edges come in, it appends
+ * incoming edges to primitive arrays of each partition (source, target and
+ * value bits), without an object or a lock per vertex or edge.
+ *
+ * When edges are moved to vertices, the edges of each partition are
+ * grouped by source, keeping their order, and every vertex gets an
+ * {@link OutEdges} of the computation class initialized to its exact
+ * number of edges. The input OutEdges class is therefore not used.
+ *
+ * @param <I> Vertex id
+ * @param <V> Vertex value
+ * @param <E> Edge value
+ */
+@SuppressWarnings("unchecked")
+public class PrimitiveArrayEdgeStore<I extends WritableComparable,
+    V extends Writable, E extends Writable> implements EdgeStore<I, V, E> {
+  /** Class logger */
+  private static final Logger LOG =
+      Logger.getLogger(PrimitiveArrayEdgeStore.class);
+  /** Service worker. */
+  private final CentralizedServiceWorker<I, V, E> service;
+  /** Giraph configuration. */
+  private final ImmutableClassesGiraphConfiguration<I, V, E> configuration;
+  /** Progressable to report progress. */
+  private final Progressable progressable;
+  /** Incoming edges of each partition. */
+  private final ConcurrentMap<Integer, PartitionEdges> transientEdges;
+  /** Whether OutEdges copy the edges they are given. */
+  private final boolean reuseEdgeObjects;
+  /** Whether edges have values. */
+  private final boolean hasEdgeValues;
+
+  /**
+   * Constructor.
+   *
+   * @param service Service worker
+   * @param configuration Configuration
+   * @param progressable Progressable
+   */
+  public PrimitiveArrayEdgeStore(
+      CentralizedServiceWorker<I, V, E> service,
+      ImmutableClassesGiraphConfiguration<I, V, E> configuration,
+      Progressable progressable) {
+    if (!isSupported(configuration)) {
+      throw new IllegalArgumentException("PrimitiveArrayEdgeStore: " +
+          "Unsupported vertex id class " + configuration.getVertexIdClass() +
+          " or edge value class " + configuration.getEdgeValueClass());
+    }
+    this.service = service;
+    this.configuration = configuration;
+    this.progressable = progressable;
+    transientEdges = new MapMaker().concurrencyLevel(
+        configuration.getNettyServerExecutionConcurrency()).makeMap();
+    reuseEdgeObjects = configuration.reuseEdgeObjects();
+    hasEdgeValues = configuration.getEdgeValueClass() != NullWritable.class;
+  }
+
+  /**
+   * Check whether the vertex id and edge value classes of a job are
+   * supported.
+   *
+   * @param configuration Configuration
+   * @return True iff this edge store can be used
+   */
+  public static boolean isSupported(
+      ImmutableClassesGiraphConfiguration<?, ?, ?> configuration) {
+    Class<?> edgeValueClass = configuration.getEdgeValueClass();
+    return PrimitiveVertexIds.isSupported(
+        configuration.getVertexIdClass()) &&
+        (edgeValueClass == NullWritable.class ||
+        edgeValueClass == IntWritable.class ||
+        edgeValueClass == LongWritable.class ||
+        edgeValueClass == FloatWritable.class ||
+        edgeValueClass == DoubleWritable.class);
+  }
+
+  /**
+   * Get the bits of a primitive edge value.
+   *
+   * @param value Edge value
+   * @return Value bits
+   */
+  private static long toBits(Writable value) {
+    if (value instanceof IntWritable) {
+      return ((IntWritable) value).get();
+    } else if (value instanceof LongWritable) {
+      return ((LongWritable) value).get();
+    } else if (value instanceof FloatWritable) {
+      return Float.floatToRawIntBits(((FloatWritable) value).get());
+    } else {
+      return Double.doubleToRawLongBits(((DoubleWritable) value).get());
+    }
+  }
+
+  /**
+   * Set a primitive edge value from its bits.
+   *
+   * @param value Edge value to set
+   * @param bits Value bits
+   */
+  private static void fromBits(Writable value, long bits) {
+    if (value instanceof IntWritable) {
+      ((IntWritable) value).set((int) bits);
+    } else if (value instanceof LongWritable) {
+      ((LongWritable) value).set(bits);
+    } else if (value instanceof FloatWritable) {
+      ((FloatWritable) value).set(Float.intBitsToFloat((int) bits));
+    } else {
+      ((DoubleWritable) value).set(Double.longBitsToDouble(bits));
+    }
+  }
+
+  /**
+   * Get the incoming edges of a partition, creating them if needed.
+   *
+   * @param partitionId Partition id
+   * @return Incoming edges
+   */
+  private PartitionEdges getPartitionEdges(int partitionId) {
+    PartitionEdges partitionEdges = transientEdges.get(partitionId);
+    if (partitionEdges == null) {
+      PartitionEdges newPartitionEdges = new PartitionEdges(hasEdgeValues);
+      partitionEdges =
+          transientEdges.putIfAbsent(partitionId, newPartitionEdges);
+      if (partitionEdges == null) {
+        partitionEdges = newPartitionEdges;
+      }
+    }
+    return partitionEdges;
+  }
+
+  @Override
+  public void addPartitionEdges(int partitionId, VertexIdEdges<I, E> edges) {
+    // Collect the edges of the request first, to lock the partition once
+    PartitionEdges requestEdges = new PartitionEdges(hasEdgeValues);
+    VertexIdEdgeIterator<I, E> vertexIdEdgeIterator =
+        edges.getVertexIdEdgeIterator();
+    while (vertexIdEdgeIterator.hasNext()) {
+      vertexIdEdgeIterator.next();
+      Edge<I, E> edge = vertexIdEdgeIterator.getCurrentEdge();
+      requestEdges.sources.add(PrimitiveVertexIds.getId(
+          vertexIdEdgeIterator.getCurrentVertexId()));
+      requestEdges.targets.add(
+          PrimitiveVertexIds.getId(edge.getTargetVertexId()));
+      if (hasEdgeValues) {
+        requestEdges.values.add(toBits(edge.getValue()));
+      }
+    }
+    getPartitionEdges(partitionId).addAll(requestEdges);
+  }
+
+  @Override
+  public void moveEdgesToVertices() {
+    if (transientEdges.isEmpty()) {
+      if (LOG.isInfoEnabled()) {
+        LOG.info("moveEdgesToVertices: No edges to move");
+      }
+      return;
+    }
+
+    if (LOG.isInfoEnabled()) {
+      LOG.info("moveEdgesToVertices: Moving incoming edges to vertices.");
+    }
+
+    final BlockingQueue<Integer> partitionIdQueue =
+        new ArrayBlockingQueue<>(transientEdges.size());
+    partitionIdQueue.addAll(transientEdges.keySet());
+    int numThreads = configuration.getNumInputSplitsThreads();
+
+    CallableFactory<Void> callableFactory = new CallableFactory<Void>() {
+      @Override
+      public Callable<Void> newCallable(int callableId) {
+        return new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            Integer partitionId;
+            I representativeVertexId = configuration.createVertexId();
+            ReusableEdge<I, E> representativeEdge =
+                configuration.createReusableEdge();
+            while ((partitionId = partitionIdQueue.poll()) != null) {
+              Partition<I, V, E> partition =
+                  service.getPartitionStore().getOrCreatePartition(partitionId);
+              moveEdgesToVertices(transientEdges.remove(partitionId),
+                  partition, representativeVertexId, representativeEdge);
+              // Some PartitionStore implementations
+              // (e.g. DiskBackedPartitionStore) require us to put back the
+              // partition after modifying it.
+              service.getPartitionStore().putPartition(partition);
+            }
+            return null;
+          }
+        };
+      }
+    };
+    ProgressableUtils.getResultsWithNCallables(callableFactory, numThreads,
+        "move-edges-%d", progressable);
+
+    // remove all entries
+    transientEdges.clear();
+
+    if (LOG.isInfoEnabled()) {
+      LOG.info("moveEdgesToVertices: Finished moving incoming edges to " +
+          "vertices.");
+    }
+  }
+
+  /**
+   * Group the edges of a partition by source and move them to their source
+   * vertices.
+   *
+   * @param partitionEdges Incoming edges of the partition
+   * @param partition Partition
+   * @param representativeVertexId Reusable vertex id
+   * @param representativeEdge Reusable edge
+   */
+  private void moveEdgesToVertices(PartitionEdges partitionEdges,
+      Partition<I, V, E> partition, I representativeVertexId,
+      ReusableEdge<I, E> representativeEdge) {
+    boolean createSourceVertex = configuration.getCreateSourceVertex();
+    int numEdges = partitionEdges.sources.size();
+    long[] sources = partitionEdges.sources.elements();
+    // Count the edges of each source, and turn counts into offsets
+    Long2IntOpenHashMap offsets = new Long2IntOpenHashMap();
+    for (int i = 0; i < numEdges; i++) {
+      offsets.addTo(sources[i], 1);
+    }
+    long[] distinctSources = offsets.keySet().toLongArray();
+    int[] starts = new int[distinctSources.length];
+    int offset = 0;
+    for (int s = 0; s < distinctSources.length; s++) {
+      starts[s] = offset;
+      offset += offsets.put(distinctSources[s], offset);
+    }
+    // Stable scatter of edge indices, grouped by source
+    int[] order = new int[numEdges];
+    for (int i = 0; i < numEdges; i++) {
+      order[offsets.addTo(sources[i], 1)] = i;
+    }
+
+    long[] targets = partitionEdges.targets.elements();
+    long[] values = hasEdgeValues ? partitionEdges.values.elements() : null;
+    for (int s = 0; s < distinctSources.length; s++) {
+      int end = s + 1 < distinctSources.length ?
+          starts[s + 1] : numEdges;
+      OutEdges<I, E> outEdges =
+          configuration.createAndInitializeOutEdges(end - starts[s]);
+      for (int j = starts[s]; j < end; j++) {
+        Edge<I, E> edge = reuseEdgeObjects ? representativeEdge :
+            configuration.createReusableEdge();
+        PrimitiveVertexIds.setId(edge.getTargetVertexId(),
+            targets[order[j]]);
+        if (hasEdgeValues) {
+          fromBits(edge.getValue(), values[order[j]]);
+        }
+        outEdges.add(edge);
+      }
+      PrimitiveVertexIds.setId(representativeVertexId, distinctSources[s]);
+      Vertex<I, V, E> vertex = partition.getVertex(representativeVertexId);
+      // If the source vertex doesn't exist, create it. Otherwise,
+      // just set the edges.
+      if (vertex == null) {
+        if (createSourceVertex) {
+          // createVertex only if it is allowed by configuration
+          I vertexId = configuration.createVertexId();
+          PrimitiveVertexIds.setId(vertexId, distinctSources[s]);
+          vertex = configuration.createVertex();
+          vertex.initialize(vertexId, configuration.createVertexValue(),
+              outEdges);
+          partition.putVertex(vertex);
+        }
+      } else {
+        // A vertex may exist with or without edges initially
+        // and optimize the case of no initial edges
+        if (vertex.getNumEdges() == 0) {
+          vertex.setEdges(outEdges);
+        } else {
+          for (Edge<I, E> edge : outEdges) {
+            vertex.addEdge(edge);
+          }
+        }
+        // Some Partition implementations (e.g. ByteArrayPartition)
+        // require us to put back the vertex after modifying it.
+        partition.saveVertex(vertex);
+      }
+    }
+  }
+
+  /**
+   * Incoming edges of a partition, as parallel primitive arrays.
+   */
+  private static class PartitionEdges {
+    /** Source vertex id of each edge */
+    private final LongArrayList sources = new LongArrayList();
+    /** Target vertex id of each edge */
+    private final LongArrayList targets = new LongArrayList();
+    /** Value bits of each edge, null if edges have no values */
+    private final LongArrayList values;
+
+    /**
+     * Constructor
+     *
+     * @param hasEdgeValues Whether edges have values
+     */
+    public PartitionEdges(boolean hasEdgeValues) {
+      values = hasEdgeValues ? new LongArrayList() : null;
+    }
+
+    /**
+     * Append other edges.
+     *
+     * @param other Edges to append
+     */
+    public synchronized void addAll(PartitionEdges other) {
+      sources.addAll(other.sources);
+      targets.addAll(other.targets);
+      if (values != null) {
+        values.addAll(other.values);
+      }
+    }
+  }
+}
@@ -21,6 +21,7 @@ package org.apache.giraph.graph;
 import org.apache.giraph.comm.WorkerClientRequestProcessor;
 import org.apache.giraph.conf.DefaultImmutableClassesGiraphConfigurable;
 import org.apache.giraph.edge.Edge;
+import org.apache.giraph.edge.InEdgeIndex;
 import org.apache.giraph.edge.OutEdges;
 import org.apache.giraph.worker.WorkerAggregatorUsage;
 import org.apache.giraph.worker.WorkerContext;
@@ -187,6 +188,63 @@ public abstract class AbstractComputation<I extends WritableComparable,
         vertexIdIterator, message);
   }
 
+  /**
+   * Send a message to a vertex id, combining it with the message combiner
+   * with other messages sent to the same vertex by this thread before it
+   * leaves the worker. Requires a message combiner.
+   *
+   * @param id Vertex id to send the message to
+   * @param message Message data to send, can be reused after the call
+   */
+  @Override
+  public void sendCombinedMessage(I id, M2 message) {
+    workerClientRequestProcessor.sendCombinedMessageRequest(id, message);
+  }
+
+  /**
+   * Get the sources of the in-edges of a vertex in the input graph.
+   *
+   * @param vertex Vertex of this worker
+   * @return Source ids of the in-edges, the returned id object is reused
+   */
+  @Override
+  public Iterable<I> getInNeighbors(Vertex<I, V, E> vertex) {
+    return getInEdgeIndex().getInNeighbors(
+        getPartitionId(vertex.getId()), vertex.getId());
+  }
+
+  /**
+   * Get the number of in-edges of a vertex in the input graph.
+   *
+   * @param vertex Vertex of this worker
+   * @return Number of in-edges
+   */
+  @Override
+  public int getNumInEdges(Vertex<I, V, E> vertex) {
+    return getInEdgeIndex().getNumInEdges(
+        getPartitionId(vertex.getId()), vertex.getId());
+  }
+
+  /**
+   * Get the in-edge index of this worker.
+   *
+   * @return In-edge index
+   */
+  private InEdgeIndex<I> getInEdgeIndex() {
+    return graphTaskManager.getServiceWorker().getServerData()
+        .getInEdgeIndex();
+  }
+
+  /**
+   * Get the partition a vertex belongs to.
+   *
+   * @param vertexId Vertex id
+   * @return Partition id
+   */
+  private int getPartitionId(I vertexId) {
+    return graphTaskManager.getServiceWorker().getPartitionId(vertexId);
+  }
+
   /**
    * Sends a request to create a vertex that will be available during the
    * next superstep.
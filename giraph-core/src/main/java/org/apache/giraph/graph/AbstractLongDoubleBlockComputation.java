@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.graph;
+
+import org.apache.giraph.combiner.MessageCombiner;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Computation for graphs with long ids, double values and double messages
+ * which computes a whole partition at once. Instead of being called for
+ * every vertex with Writable ids, values, edges and messages, it gets a
+ * {@link LongDoubleVertexBlock} with primitive arrays of all vertices of
+ * the partition, their combined messages and their out-edges, and can loop
+ * over them directly.
+ *
+ * Messages received by a vertex are combined with the message combiner,
+ * which is required if vertices can receive more than one message. Edges
+ * can't be mutated through the block, use mutation requests instead.
+ *
+ * @param <E> Edge value
+ */
+public abstract class AbstractLongDoubleBlockComputation<E extends Writable>
+    extends AbstractComputation<LongWritable, DoubleWritable, E,
+    DoubleWritable, DoubleWritable> {
+  /** Reusable id for sending messages */
+  private final LongWritable reusableId = new LongWritable();
+  /** Reusable message for sending messages */
+  private final DoubleWritable reusableMessage = new DoubleWritable();
+  /** Block for computing single vertices */
+  private LongDoubleVertexBlock singleVertexBlock;
+
+  /**
+   * Compute all vertices of a block. Only vertices for which
+   * {@link LongDoubleVertexBlock#isComputed(int)} is true should be
+   * computed, the others have to be left untouched.
+   *
+   * @param block Vertices to compute
+   * @throws IOException
+   */
+  public abstract void computeBlock(LongDoubleVertexBlock block)
+    throws IOException;
+
+  /**
+   * Compute a single vertex as a block of one vertex, used when the
+   * vertices of a partition are not computed as a block.
+   *
+   * @param vertex Vertex
+   * @param messages Messages that were sent to this vertex in the previous
+   *                 superstep.  Each message is only guaranteed to have
+   *                 a life expectancy as long as next() is not called.
+   * @throws IOException
+   */
+  @Override
+  public void compute(Vertex<LongWritable, DoubleWritable, E> vertex,
+      Iterable<DoubleWritable> messages) throws IOException {
+    if (singleVertexBlock == null) {
+      singleVertexBlock = createBlock();
+    }
+    singleVertexBlock.clear();
+    singleVertexBlock.addVertex(vertex);
+    singleVertexBlock.setMessages(0, messages, getMessageCombiner());
+    computeBlock(singleVertexBlock);
+    singleVertexBlock.storeVertex(0, vertex);
+  }
+
+  /**
+   * Create an empty block for the vertices of this computation.
+   *
+   * @return Vertex block
+   */
+  public LongDoubleVertexBlock createBlock() {
+    return new LongDoubleVertexBlock(getConf().getEdgeValueClass());
+  }
+
+  /**
+   * Create the combiner to combine messages of a vertex with.
+   *
+   * @return Message combiner, or null if none is configured
+   */
+  public MessageCombiner<LongWritable, DoubleWritable> getMessageCombiner() {
+    return getConf().useMessageCombiner() ?
+        getConf().<DoubleWritable>createMessageCombiner() : null;
+  }
+
+  /**
+   * Send a message to a vertex id.
+   *
+   * @param id Vertex id to send the message to
+   * @param message Message to send
+   */
+  public void sendMessage(long id, double message) {
+    reusableId.set(id);
+    reusableMessage.set(message);
+    sendMessage(reusableId, reusableMessage);
+  }
+
+  /**
+   * Send a message to all out-edges of a vertex in a block.
+   *
+   * @param block Block the vertex belongs to
+   * @param index Index of the vertex in the block
+   * @param message Message to send
+   */
+  public void sendMessageToAllEdges(final LongDoubleVertexBlock block,
+      final int index, double message) {
+    reusableMessage.set(message);
+    sendMessageToMultipleEdges(new Iterator<LongWritable>() {
+      /** Position of the next edge */
+      private int edge = block.getEdgeOffsets()[index];
+
+      @Override
+      public boolean hasNext() {
+        return edge < block.getEdgeOffsets()[index + 1];
+      }
+
+      @Override
+      public LongWritable next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        reusableId.set(block.getEdgeTargets()[edge++]);
+        return reusableId;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("remove: Not supported");
+      }
+    }, reusableMessage);
+  }
+}
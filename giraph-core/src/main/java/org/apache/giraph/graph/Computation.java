@@ -142,6 +142,36 @@ public interface Computation<I extends WritableComparable,
    */
   void sendMessageToMultipleEdges(Iterator<I> vertexIdIterator, M2 message);
 
+  /**
+   * Send a message to a vertex id, combining it with the message combiner
+   * with other messages sent to the same vertex by this thread before it
+   * leaves the worker. Requires a message combiner.
+   *
+   * @param id Vertex id to send the message to
+   * @param message Message data to send, can be reused after the call
+   */
+  void sendCombinedMessage(I id, M2 message);
+
+  /**
+   * Get the sources of the in-edges of a vertex in the input graph.
+   * Requires the in-edge index (giraph.inEdgeIndex) and IntWritable or
+   * LongWritable ids. Edge mutations are not reflected, and the index is
+   * not available after restarting from a checkpoint which didn't store it.
+   *
+   * @param vertex Vertex of this worker
+   * @return Source ids of the in-edges, the returned id object is reused
+   */
+  Iterable<I> getInNeighbors(Vertex<I, V, E> vertex);
+
+  /**
+   * Get the number of in-edges of a vertex in the input graph, see
+   * {@link #getInNeighbors(Vertex)}.
+   *
+   * @param vertex Vertex of this worker
+   * @return Number of in-edges
+   */
+  int getNumInEdges(Vertex<I, V, E> vertex);
+
   /**
    * Sends a request to create a vertex that will be available during the
    * next superstep.
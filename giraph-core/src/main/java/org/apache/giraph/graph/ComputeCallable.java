@@ -21,34 +21,46 @@ import org.apache.giraph.bsp.CentralizedServiceWorker;
 import org.apache.giraph.comm.WorkerClientRequestProcessor;
 import org.apache.giraph.comm.messages.MessageStore;
 import org.apache.giraph.comm.netty.NettyWorkerClientRequestProcessor;
+import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.io.SimpleVertexWriter;
 import org.apache.giraph.metrics.GiraphMetrics;
 import org.apache.giraph.metrics.MetricNames;
 import org.apache.giraph.metrics.SuperstepMetricsRegistry;
 import org.apache.giraph.partition.Partition;
+import org.apache.giraph.partition.PartitionMetadata;
 import org.apache.giraph.partition.PartitionStats;
+import org.apache.giraph.partition.SimplePartition;
 import org.apache.giraph.time.SystemTime;
 import org.apache.giraph.time.Time;
 import org.apache.giraph.time.Times;
 import org.apache.giraph.utils.MemoryUtils;
+import org.apache.giraph.utils.ReflectionUtils;
 import org.apache.giraph.utils.TimedLogger;
 import org.apache.giraph.utils.Trimmable;
 import org.apache.giraph.worker.WorkerContext;
 import org.apache.giraph.worker.WorkerProgress;
 import org.apache.giraph.worker.WorkerThreadAggregatorUsage;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.log4j.Logger;
 
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.yammer.metrics.core.Counter;
 
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 
@@ -93,12 +105,26 @@ public class ComputeCallable<I extends WritableComparable, V extends Writable,
   private SimpleVertexWriter<I, V, E> vertexWriter;
   /** Get the start time in nanos */
   private final long startNanos = TIME.getNanoseconds();
+  /** Active vertices left in each partition by the last computation */
+  private final ComputeFrontiers<I> computeFrontiers;
+  /** Largest fraction of active vertices for sparse computation */
+  private final float maxActiveFraction;
+  /** Whether partitions in which all vertices are halted are skipped */
+  private final boolean skipHaltedPartitions;
+  /** Whether the message store wants vertices in increasing id order */
+  private final boolean traverseMessagesInOrder;
+  /** Reusable vertex block for block computations */
+  private LongDoubleVertexBlock vertexBlock;
 
   // Per-Superstep Metrics
   /** Messages sent */
   private final Counter messagesSentCounter;
   /** Message bytes sent */
   private final Counter messageBytesSentCounter;
+  /** Persistent compute threads, or null if threads are per superstep */
+  private final ComputeThreads<I, V, E> computeThreads;
+  /** Id of the persistent compute thread running this callable */
+  private final int threadId;
 
   /**
    * Constructor
@@ -116,25 +142,61 @@ public class ComputeCallable<I extends WritableComparable, V extends Writable,
       BlockingQueue<Integer> partitionIdQueue,
       ImmutableClassesGiraphConfiguration<I, V, E> configuration,
       CentralizedServiceWorker<I, V, E> serviceWorker) {
+    this(context, graphState, messageStore, partitionIdQueue, configuration,
+        serviceWorker, null, -1);
+  }
+
+  /**
+   * Constructor for callables run on persistent compute threads, which
+   * reuse their request processor across supersteps.
+   *
+   * @param context Context
+   * @param graphState Current graph state (use to create own graph state)
+   * @param messageStore Message store
+   * @param partitionIdQueue Queue of partition ids (thread-safe)
+   * @param configuration Configuration
+   * @param serviceWorker Service worker
+   * @param computeThreads Persistent compute threads, or null if none
+   * @param threadId Id of the compute thread running this callable
+   */
+  public ComputeCallable(
+      Mapper<?, ?, ?, ?>.Context context, GraphState graphState,
+      MessageStore<I, M1> messageStore,
+      BlockingQueue<Integer> partitionIdQueue,
+      ImmutableClassesGiraphConfiguration<I, V, E> configuration,
+      CentralizedServiceWorker<I, V, E> serviceWorker,
+      ComputeThreads<I, V, E> computeThreads, int threadId) {
     this.context = context;
     this.configuration = configuration;
     this.partitionIdQueue = partitionIdQueue;
     this.messageStore = messageStore;
     this.serviceWorker = serviceWorker;
     this.graphState = graphState;
+    computeFrontiers = serviceWorker.getServerData().getComputeFrontiers();
+    maxActiveFraction =
+        GiraphConstants.SPARSE_COMPUTE_MAX_ACTIVE_FRACTION.get(configuration);
+    skipHaltedPartitions =
+        GiraphConstants.SKIP_HALTED_PARTITIONS.get(configuration);
+    traverseMessagesInOrder = ReflectionUtils.newInstance(
+        GiraphConstants.MESSAGE_STORE_FACTORY_CLASS.get(configuration))
+        .shouldTraverseMessagesInOrder();
 
     SuperstepMetricsRegistry metrics = GiraphMetrics.get().perSuperstep();
     messagesSentCounter = metrics.getCounter(MetricNames.MESSAGES_SENT);
     messageBytesSentCounter =
       metrics.getCounter(MetricNames.MESSAGE_BYTES_SENT);
+    this.computeThreads = computeThreads;
+    this.threadId = threadId;
   }
 
   @Override
   public Collection<PartitionStats> call() {
     // Thread initialization (for locality)
     WorkerClientRequestProcessor<I, V, E> workerClientRequestProcessor =
-        new NettyWorkerClientRequestProcessor<I, V, E>(
-            context, configuration, serviceWorker);
+        computeThreads == null ?
+            new NettyWorkerClientRequestProcessor<I, V, E>(
+                context, configuration, serviceWorker) :
+            computeThreads.getRequestProcessor(threadId);
     WorkerThreadAggregatorUsage aggregatorUsage =
         serviceWorker.getAggregatorHandler().newThreadAggregatorUsage();
     WorkerContext workerContext = serviceWorker.getWorkerContext();
@@ -148,6 +210,12 @@ public class ComputeCallable<I extends WritableComparable, V extends Writable,
         break;
       }
 
+      PartitionStats haltedPartitionStats = skipHaltedPartition(partitionId);
+      if (haltedPartitionStats != null) {
+        partitionStatsList.add(haltedPartitionStats);
+        continue;
+      }
+
       Partition<I, V, E> partition =
           serviceWorker.getPartitionStore().getOrCreatePartition(partitionId);
 
@@ -158,9 +226,22 @@ public class ComputeCallable<I extends WritableComparable, V extends Writable,
       computation.preSuperstep();
 
       try {
+        long partitionStartMillis = TIME.getMilliseconds();
         PartitionStats partitionStats =
             computePartition(computation, partition);
+        partitionStats.setComputeMs(
+            TIME.getMilliseconds() - partitionStartMillis);
         partitionStatsList.add(partitionStats);
+        PartitionMetadata metadata =
+            serviceWorker.getPartitionStore().getPartitionMetadata(
+                partitionId);
+        metadata.updateStats(partitionStats);
+        if (partitionStats.getFinishedVertexCount() ==
+            partitionStats.getVertexCount()) {
+          metadata.setHaltedSuperstep(graphState.getSuperstep());
+        } else {
+          metadata.resetHaltedSuperstep();
+        }
         long partitionMsgs = workerClientRequestProcessor.resetMessageCount();
         partitionStats.addMessagesSentCount(partitionMsgs);
         messagesSentCounter.inc(partitionMsgs);
@@ -200,6 +281,11 @@ public class ComputeCallable<I extends WritableComparable, V extends Writable,
       // The messages flushed out from the cache is
       // from the last partition processed
       if (partitionStatsList.size() > 0) {
+        // Combined messages are only counted when they are flushed
+        long partitionMsgs = workerClientRequestProcessor.resetMessageCount();
+        partitionStatsList.get(partitionStatsList.size() - 1).
+          addMessagesSentCount(partitionMsgs);
+        messagesSentCounter.inc(partitionMsgs);
         long partitionMsgBytes =
           workerClientRequestProcessor.resetMessageBytesCount();
         partitionStatsList.get(partitionStatsList.size() - 1).
@@ -223,52 +309,336 @@ public class ComputeCallable<I extends WritableComparable, V extends Writable,
   private PartitionStats computePartition(
       Computation<I, V, E, M1, M2> computation,
       Partition<I, V, E> partition) throws IOException, InterruptedException {
+    PartitionStats partitionStats;
+    // Make sure this is thread-safe across runs
+    synchronized (partition) {
+      long maxActiveVertices =
+          (long) (maxActiveFraction * partition.getVertexCount());
+      ComputeFrontiers.Frontier<I> frontier =
+          getFrontier(partition, maxActiveVertices);
+      if (computation instanceof AbstractLongDoubleBlockComputation) {
+        partitionStats = computeBlock(
+            (AbstractLongDoubleBlockComputation<?>) computation, partition,
+            maxActiveVertices);
+      } else if (frontier == null) {
+        partitionStats = computeAllVertices(
+            computation, partition, maxActiveVertices);
+      } else {
+        partitionStats = computeActiveVertices(
+            computation, partition, frontier, maxActiveVertices);
+      }
+      messageStore.clearPartition(partition.getId());
+    }
+    WorkerProgress.get().incrementPartitionsComputed();
+    return partitionStats;
+  }
+
+  /**
+   * Skip a partition in which all vertices were halted by the previous
+   * superstep and which has no messages, without getting it from the
+   * partition store (which would load it from disk if it is out-of-core).
+   * Whether all vertices were halted is kept in the metadata of the
+   * partition, so this doesn't depend on sparse computation.
+   *
+   * @param partitionId Id of partition to compute
+   * @return Partition stats for the skipped partition, or null if the
+   *         partition has to be computed
+   */
+  private PartitionStats skipHaltedPartition(int partitionId) {
+    if (!skipHaltedPartitions) {
+      return null;
+    }
+    long superstep = graphState.getSuperstep();
+    PartitionMetadata metadata =
+        serviceWorker.getPartitionStore().getPartitionMetadata(partitionId);
+    if (metadata.getHaltedSuperstep() != superstep - 1 ||
+        messageStore.hasMessagesForPartition(partitionId)) {
+      return null;
+    }
+    metadata.setHaltedSuperstep(superstep);
+    ComputeFrontiers.Frontier<I> frontier =
+        computeFrontiers.getFrontier(partitionId, superstep);
+    if (frontier != null) {
+      computeFrontiers.setFrontier(partitionId,
+          new ComputeFrontiers.Frontier<I>(superstep,
+              frontier.getActiveVertexIds(), frontier.getVertexCount(),
+              frontier.getEdgeCount()));
+    }
+    WorkerProgress.get().addVerticesComputed(metadata.getVertexCount());
+    WorkerProgress.get().incrementPartitionsComputed();
+    return new PartitionStats(partitionId, metadata.getVertexCount(),
+        metadata.getVertexCount(), metadata.getEdgeCount(), 0, 0);
+  }
+
+  /**
+   * Get the frontier of a partition if it is small enough that only the
+   * vertices in it and the ones with messages need to be visited.
+   *
+   * @param partition Partition to compute
+   * @param maxActiveVertices Largest number of active vertices for which
+   *                          the partition is computed sparsely
+   * @return Frontier left by the previous superstep, or null if all
+   *         vertices of the partition have to be visited
+   */
+  private ComputeFrontiers.Frontier<I> getFrontier(
+      Partition<I, V, E> partition, long maxActiveVertices) {
+    if (maxActiveFraction <= 0) {
+      return null;
+    }
+    ComputeFrontiers.Frontier<I> frontier = computeFrontiers.getFrontier(
+        partition.getId(), graphState.getSuperstep());
+    if (frontier == null ||
+        frontier.getVertexCount() != partition.getVertexCount() ||
+        frontier.getActiveVertexIds().size() > maxActiveVertices) {
+      return null;
+    }
+    return frontier;
+  }
+
+  /**
+   * Compute a partition by iterating over all of its vertices, recording
+   * the vertices left active if there are few enough of them.
+   *
+   * @param computation Computation to use
+   * @param partition Partition to compute
+   * @param maxActiveVertices Largest number of active vertices to record
+   * @return Partition stats for this computed partition
+   */
+  private PartitionStats computeAllVertices(
+      Computation<I, V, E, M1, M2> computation,
+      Partition<I, V, E> partition,
+      long maxActiveVertices) throws IOException, InterruptedException {
     PartitionStats partitionStats =
         new PartitionStats(partition.getId(), 0, 0, 0, 0, 0);
+    List<I> activeVertexIds =
+        maxActiveFraction > 0 ? Lists.<I>newArrayList() : null;
     long verticesComputedProgress = 0;
-    // Make sure this is thread-safe across runs
-    synchronized (partition) {
-      for (Vertex<I, V, E> vertex : partition) {
-        Iterable<M1> messages = messageStore.getVertexMessages(vertex.getId());
-        if (vertex.isHalted() && !Iterables.isEmpty(messages)) {
-          vertex.wakeUp();
+    for (Vertex<I, V, E> vertex : getVerticesInMessageOrder(partition)) {
+      computeVertex(computation, partition, vertex);
+      if (vertex.isHalted()) {
+        partitionStats.incrFinishedVertexCount();
+      } else if (activeVertexIds != null) {
+        if (activeVertexIds.size() < maxActiveVertices) {
+          // Vertex objects (and their ids) can be reused by the partition
+          activeVertexIds.add(WritableUtils.clone(vertex.getId(),
+              configuration));
+        } else {
+          activeVertexIds = null;
         }
-        if (!vertex.isHalted()) {
-          context.progress();
-          computation.compute(vertex, messages);
-          // Need to unwrap the mutated edges (possibly)
-          vertex.unwrapMutableEdges();
-          //Compact edges representation if possible
-          if (vertex instanceof Trimmable) {
-            ((Trimmable) vertex).trim();
+      }
+
+      // Add statistics for this vertex
+      partitionStats.incrVertexCount();
+      partitionStats.addEdgeCount(vertex.getNumEdges());
+
+      verticesComputedProgress++;
+      if (verticesComputedProgress == VERTICES_TO_UPDATE_PROGRESS) {
+        WorkerProgress.get().addVerticesComputed(verticesComputedProgress);
+        verticesComputedProgress = 0;
+      }
+    }
+    WorkerProgress.get().addVerticesComputed(verticesComputedProgress);
+
+    recordFrontier(partitionStats, activeVertexIds);
+    return partitionStats;
+  }
+
+  /**
+   * Get all vertices of a partition in an order the message store can read
+   * their messages efficiently. Only {@link SimplePartition} iterates in
+   * increasing id order when the message store asks for it, so for other
+   * partitions the vertices with messages are visited first in increasing
+   * id order, followed by the remaining vertices in partition order.
+   *
+   * @param partition Partition to compute
+   * @return Vertices of the partition
+   */
+  private Iterable<Vertex<I, V, E>> getVerticesInMessageOrder(
+      final Partition<I, V, E> partition) {
+    if (!traverseMessagesInOrder || partition instanceof SimplePartition) {
+      return partition;
+    }
+    final Set<I> destinations = Sets.newTreeSet(
+        messageStore.getPartitionDestinationVertices(partition.getId()));
+    Iterable<Vertex<I, V, E>> withMessages = Iterables.filter(
+        Iterables.transform(destinations, new Function<I, Vertex<I, V, E>>() {
+          @Override
+          public Vertex<I, V, E> apply(I vertexId) {
+            return partition.getVertex(vertexId);
           }
-          // Write vertex to superstep output (no-op if it is not used)
-          vertexWriter.writeVertex(vertex);
-          // Need to save the vertex changes (possibly)
-          partition.saveVertex(vertex);
-        }
-        if (vertex.isHalted()) {
-          partitionStats.incrFinishedVertexCount();
-        }
-        // Remove the messages now that the vertex has finished computation
-        messageStore.clearVertexMessages(vertex.getId());
+        }), Predicates.notNull());
+    Iterable<Vertex<I, V, E>> withoutMessages = Iterables.filter(partition,
+        new Predicate<Vertex<I, V, E>>() {
+          @Override
+          public boolean apply(Vertex<I, V, E> vertex) {
+            return !destinations.contains(vertex.getId());
+          }
+        });
+    return Iterables.concat(withMessages, withoutMessages);
+  }
 
-        // Add statistics for this vertex
-        partitionStats.incrVertexCount();
-        partitionStats.addEdgeCount(vertex.getNumEdges());
+  /**
+   * Compute a partition as a block with a primitive block computation.
+   *
+   * @param computation Block computation to use
+   * @param partition Partition to compute
+   * @param maxActiveVertices Largest number of active vertices to record
+   * @return Partition stats for this computed partition
+   */
+  @SuppressWarnings("unchecked")
+  private PartitionStats computeBlock(
+      AbstractLongDoubleBlockComputation<?> computation,
+      Partition<I, V, E> partition,
+      long maxActiveVertices) throws IOException, InterruptedException {
+    Partition<LongWritable, DoubleWritable, Writable> blockPartition =
+        (Partition<LongWritable, DoubleWritable, Writable>) partition;
+    if (vertexBlock == null) {
+      vertexBlock = computation.createBlock();
+    }
+    vertexBlock.clear();
+    for (Vertex<LongWritable, DoubleWritable, Writable> vertex :
+        blockPartition) {
+      vertexBlock.addVertex(vertex);
+    }
+    vertexBlock.setMessages(partition.getId(),
+        (MessageStore<LongWritable, DoubleWritable>) messageStore,
+        computation.getMessageCombiner());
+    context.progress();
+    computation.computeBlock(vertexBlock);
 
-        verticesComputedProgress++;
-        if (verticesComputedProgress == VERTICES_TO_UPDATE_PROGRESS) {
-          WorkerProgress.get().addVerticesComputed(verticesComputedProgress);
-          verticesComputedProgress = 0;
+    PartitionStats partitionStats = new PartitionStats(partition.getId(),
+        vertexBlock.size(), 0, vertexBlock.getEdgeOffsets()[vertexBlock.size()],
+        0, 0);
+    List<I> activeVertexIds =
+        maxActiveFraction > 0 ? Lists.<I>newArrayList() : null;
+    LongWritable vertexId = new LongWritable();
+    for (int i = 0; i < vertexBlock.size(); i++) {
+      if (vertexBlock.isComputed(i)) {
+        vertexId.set(vertexBlock.getIds()[i]);
+        Vertex<LongWritable, DoubleWritable, Writable> vertex =
+            blockPartition.getVertex(vertexId);
+        vertexBlock.storeVertex(i, vertex);
+        vertexWriter.writeVertex((Vertex<I, V, E>) vertex);
+        blockPartition.saveVertex(vertex);
+      }
+      if (vertexBlock.isHalted(i)) {
+        partitionStats.incrFinishedVertexCount();
+      } else if (activeVertexIds != null) {
+        if (activeVertexIds.size() < maxActiveVertices) {
+          activeVertexIds.add((I) new LongWritable(vertexBlock.getIds()[i]));
+        } else {
+          activeVertexIds = null;
         }
       }
-
-      messageStore.clearPartition(partition.getId());
     }
-    WorkerProgress.get().addVerticesComputed(verticesComputedProgress);
-    WorkerProgress.get().incrementPartitionsComputed();
+    WorkerProgress.get().addVerticesComputed(vertexBlock.size());
+
+    recordFrontier(partitionStats, activeVertexIds);
     return partitionStats;
   }
-}
 
+  /**
+   * Record the vertices left active in a partition after computing all of
+   * its vertices.
+   *
+   * @param partitionStats Stats of the computed partition
+   * @param activeVertexIds Ids of the active vertices, or null if there
+   *                        were too many of them
+   */
+  private void recordFrontier(PartitionStats partitionStats,
+      List<I> activeVertexIds) {
+    if (activeVertexIds == null) {
+      computeFrontiers.invalidate(partitionStats.getPartitionId());
+    } else {
+      computeFrontiers.setFrontier(partitionStats.getPartitionId(),
+          new ComputeFrontiers.Frontier<I>(graphState.getSuperstep(),
+              activeVertexIds, partitionStats.getVertexCount(),
+              partitionStats.getEdgeCount()));
+    }
+  }
+
+  /**
+   * Compute a partition by visiting only the vertices which were left
+   * active by the previous superstep and the ones which received messages.
+   * All other vertices are halted without messages, so they would not be
+   * computed anyway. Falls back to iterating over all vertices if there are
+   * too many vertices with messages.
+   *
+   * @param computation Computation to use
+   * @param partition Partition to compute
+   * @param frontier Frontier left by the previous superstep
+   * @param maxActiveVertices Largest number of active vertices for which
+   *                          the partition is computed sparsely
+   * @return Partition stats for this computed partition
+   */
+  private PartitionStats computeActiveVertices(
+      Computation<I, V, E, M1, M2> computation,
+      Partition<I, V, E> partition,
+      ComputeFrontiers.Frontier<I> frontier,
+      long maxActiveVertices) throws IOException, InterruptedException {
+    Set<I> vertexIds = traverseMessagesInOrder ?
+        Sets.<I>newTreeSet(frontier.getActiveVertexIds()) :
+        Sets.newHashSet(frontier.getActiveVertexIds());
+    for (I vertexId :
+        messageStore.getPartitionDestinationVertices(partition.getId())) {
+      if (vertexIds.add(vertexId) && vertexIds.size() > maxActiveVertices) {
+        return computeAllVertices(computation, partition, maxActiveVertices);
+      }
+    }
+
+    List<I> activeVertexIds = Lists.newArrayList();
+    long edgeCount = frontier.getEdgeCount();
+    for (I vertexId : vertexIds) {
+      Vertex<I, V, E> vertex = partition.getVertex(vertexId);
+      if (vertex == null) {
+        continue;
+      }
+      long edgesBefore = vertex.getNumEdges();
+      computeVertex(computation, partition, vertex);
+      edgeCount += vertex.getNumEdges() - edgesBefore;
+      if (!vertex.isHalted()) {
+        activeVertexIds.add(vertexId);
+      }
+    }
+    WorkerProgress.get().addVerticesComputed(frontier.getVertexCount());
+
+    computeFrontiers.setFrontier(partition.getId(),
+        new ComputeFrontiers.Frontier<I>(graphState.getSuperstep(),
+            activeVertexIds, frontier.getVertexCount(), edgeCount));
+    return new PartitionStats(partition.getId(), frontier.getVertexCount(),
+        frontier.getVertexCount() - activeVertexIds.size(), edgeCount, 0, 0);
+  }
+
+  /**
+   * Compute a single vertex if it is active or has messages, and remove its
+   * messages afterwards.
+   *
+   * @param computation Computation to use
+   * @param partition Partition the vertex belongs to
+   * @param vertex Vertex to compute
+   */
+  private void computeVertex(Computation<I, V, E, M1, M2> computation,
+      Partition<I, V, E> partition,
+      Vertex<I, V, E> vertex) throws IOException, InterruptedException {
+    Iterable<M1> messages = messageStore.getVertexMessages(vertex.getId());
+    if (vertex.isHalted() && !Iterables.isEmpty(messages)) {
+      vertex.wakeUp();
+    }
+    if (!vertex.isHalted()) {
+      context.progress();
+      computation.compute(vertex, messages);
+      // Need to unwrap the mutated edges (possibly)
+      vertex.unwrapMutableEdges();
+      //Compact edges representation if possible
+      if (vertex instanceof Trimmable) {
+        ((Trimmable) vertex).trim();
+      }
+      // Write vertex to superstep output (no-op if it is not used)
+      vertexWriter.writeVertex(vertex);
+      // Need to save the vertex changes (possibly)
+      partition.saveVertex(vertex);
+    }
+    // Remove the messages now that the vertex has finished computation
+    messageStore.clearVertexMessages(vertex.getId());
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.graph;
+
+import org.apache.hadoop.io.WritableComparable;
+
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers, for every partition computed on this worker, which vertices
+ * were left active (not halted) at the end of the superstep. In the next
+ * superstep only these vertices and the ones which received messages can
+ * be active, so a partition with a small frontier can be computed without
+ * iterating all of its vertices.
+ *
+ * Partitions in which all vertices are halted are skipped using the
+ * {@link org.apache.giraph.partition.PartitionMetadata} instead, which
+ * doesn't depend on sparse computation.
+ *
+ * A frontier is only valid for the superstep directly following the one it
+ * was recorded in, and is dropped whenever vertices of the partition are
+ * created, removed or mutated outside of the computation.
+ *
+ * @param <I> Vertex id
+ */
+@SuppressWarnings("rawtypes")
+public class ComputeFrontiers<I extends WritableComparable> {
+  /** Frontier of every partition, keyed by partition id */
+  private final ConcurrentMap<Integer, Frontier<I>> frontiers =
+      Maps.newConcurrentMap();
+
+  /**
+   * Record the frontier of a partition after it was computed.
+   *
+   * @param partitionId Partition id
+   * @param frontier Frontier left by the computation
+   */
+  public void setFrontier(int partitionId, Frontier<I> frontier) {
+    frontiers.put(partitionId, frontier);
+  }
+
+  /**
+   * Get the frontier of a partition which can be used in a superstep.
+   *
+   * @param partitionId Partition id
+   * @param superstep Superstep about to be computed
+   * @return Frontier recorded in the previous superstep, or null if there
+   *         is no valid frontier for the partition
+   */
+  public Frontier<I> getFrontier(int partitionId, long superstep) {
+    Frontier<I> frontier = frontiers.get(partitionId);
+    if (frontier == null || frontier.getSuperstep() != superstep - 1) {
+      return null;
+    }
+    return frontier;
+  }
+
+  /**
+   * Drop the frontier of a partition, so that the next computation of the
+   * partition visits all of its vertices.
+   *
+   * @param partitionId Partition id
+   */
+  public void invalidate(int partitionId) {
+    frontiers.remove(partitionId);
+  }
+
+  /**
+   * Active vertices of a single partition after a superstep.
+   *
+   * @param <I> Vertex id
+   */
+  public static class Frontier<I extends WritableComparable> {
+    /** Superstep in which the frontier was recorded */
+    private final long superstep;
+    /** Ids of the vertices which were not halted */
+    private final List<I> activeVertexIds;
+    /** Number of vertices in the partition */
+    private final long vertexCount;
+    /** Number of edges in the partition */
+    private final long edgeCount;
+
+    /**
+     * Constructor
+     *
+     * @param superstep Superstep in which the frontier was recorded
+     * @param activeVertexIds Ids of the vertices which were not halted
+     * @param vertexCount Number of vertices in the partition
+     * @param edgeCount Number of edges in the partition
+     */
+    public Frontier(long superstep, List<I> activeVertexIds,
+        long vertexCount, long edgeCount) {
+      this.superstep = superstep;
+      this.activeVertexIds = activeVertexIds;
+      this.vertexCount = vertexCount;
+      this.edgeCount = edgeCount;
+    }
+
+    public long getSuperstep() {
+      return superstep;
+    }
+
+    public List<I> getActiveVertexIds() {
+      return activeVertexIds;
+    }
+
+    public long getVertexCount() {
+      return vertexCount;
+    }
+
+    public long getEdgeCount() {
+      return edgeCount;
+    }
+  }
+}
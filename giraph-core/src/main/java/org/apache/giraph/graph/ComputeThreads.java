@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.graph;
+
+import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.comm.WorkerClientRequestProcessor;
+import org.apache.giraph.comm.netty.NettyWorkerClientRequestProcessor;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.partition.PartitionOwner;
+import org.apache.giraph.utils.CallableFactory;
+import org.apache.giraph.utils.ProgressableUtils;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Compute threads kept across supersteps. Each thread has its own
+ * single-thread executor, so the i-th compute callable of every superstep
+ * runs on the i-th thread. Every compute thread keeps its request
+ * processor, and with it its send caches, as long as no partition moves
+ * between workers, since the caches group data by the owners of the
+ * partitions. Optionally, partitions are assigned to the threads statically
+ * so a partition is always computed by the same thread.
+ *
+ * @param <I> Vertex id
+ * @param <V> Vertex value
+ * @param <E> Edge value
+ */
+@SuppressWarnings("rawtypes")
+public class ComputeThreads<I extends WritableComparable, V extends Writable,
+    E extends Writable> {
+  /** Class logger */
+  private static final Logger LOG = Logger.getLogger(ComputeThreads.class);
+  /** Mapper context */
+  private final Mapper<?, ?, ?, ?>.Context context;
+  /** Configuration */
+  private final ImmutableClassesGiraphConfiguration<I, V, E> conf;
+  /** Service worker */
+  private final CentralizedServiceWorker<I, V, E> serviceWorker;
+  /** Executor of each compute thread */
+  private final List<ExecutorService> executorServices;
+  /** Request processor of each thread, created on the compute thread */
+  private final AtomicReferenceArray<NettyWorkerClientRequestProcessor<I, V, E>>
+  requestProcessors;
+  /** Whether partitions are assigned to threads statically */
+  private final boolean partitionAffinity;
+  /**
+   * Partition id and owner task id of every partition, for the owners the
+   * request processors were built for
+   */
+  private int[] partitionOwners = new int[0];
+
+  /**
+   * Constructor
+   *
+   * @param context Mapper context
+   * @param conf Configuration
+   * @param serviceWorker Service worker
+   */
+  public ComputeThreads(Mapper<?, ?, ?, ?>.Context context,
+      ImmutableClassesGiraphConfiguration<I, V, E> conf,
+      CentralizedServiceWorker<I, V, E> serviceWorker) {
+    this.context = context;
+    this.conf = conf;
+    this.serviceWorker = serviceWorker;
+    int numThreads = conf.getNumComputeThreads();
+    executorServices = Lists.newArrayListWithCapacity(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      executorServices.add(Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setNameFormat("compute-" + i)
+              .setDaemon(true).build()));
+    }
+    requestProcessors =
+        new AtomicReferenceArray<NettyWorkerClientRequestProcessor<I, V, E>>(
+            numThreads);
+    partitionAffinity = GiraphConstants.COMPUTE_PARTITION_AFFINITY.get(conf);
+  }
+
+  /**
+   * Prepare the threads for a superstep: drop the request processors if
+   * partitions moved, and register the metrics of the others with the
+   * current superstep.
+   */
+  public void startSuperstep() {
+    List<PartitionOwner> owners =
+        Lists.newArrayList(serviceWorker.getPartitionOwners());
+    int[] newPartitionOwners = new int[2 * owners.size()];
+    int index = 0;
+    for (PartitionOwner partitionOwner : owners) {
+      newPartitionOwners[index++] = partitionOwner.getPartitionId();
+      newPartitionOwners[index++] =
+          partitionOwner.getWorkerInfo().getTaskId();
+    }
+    boolean ownersChanged =
+        !Arrays.equals(newPartitionOwners, partitionOwners);
+    partitionOwners = newPartitionOwners;
+    for (int i = 0; i < requestProcessors.length(); i++) {
+      NettyWorkerClientRequestProcessor<I, V, E> processor =
+          requestProcessors.get(i);
+      if (processor == null) {
+        continue;
+      }
+      if (ownersChanged) {
+        requestProcessors.set(i, null);
+      } else {
+        processor.startSuperstep();
+      }
+    }
+    if (ownersChanged && LOG.isInfoEnabled()) {
+      LOG.info("startSuperstep: Partition owners changed, request " +
+          "processors will be recreated");
+    }
+  }
+
+  /**
+   * Get the request processor of a thread, creating it if needed. Must be
+   * called from that compute thread, i.e. by the callable with the same id
+   * run by {@link #run(CallableFactory, int)}.
+   *
+   * @param threadId Thread id
+   * @return Request processor
+   */
+  public WorkerClientRequestProcessor<I, V, E> getRequestProcessor(
+      int threadId) {
+    NettyWorkerClientRequestProcessor<I, V, E> processor =
+        requestProcessors.get(threadId);
+    if (processor == null) {
+      processor = new NettyWorkerClientRequestProcessor<I, V, E>(
+          context, conf, serviceWorker);
+      requestProcessors.set(threadId, processor);
+    }
+    return processor;
+  }
+
+  /**
+   * Get the queue of partitions each thread computes. Without partition
+   * affinity all threads share the queue of all partitions, otherwise the
+   * partitions are spread over the threads in order of their ids, so each
+   * thread gets the same partitions every superstep as long as the
+   * partitions of the worker don't change.
+   *
+   * @param partitionIdQueue Queue of all partition ids to compute
+   * @param numThreads Number of threads computing
+   * @return Queue of partition ids of each thread
+   */
+  public List<BlockingQueue<Integer>> getPartitionIdQueues(
+      BlockingQueue<Integer> partitionIdQueue, int numThreads) {
+    if (!partitionAffinity) {
+      return Collections.nCopies(numThreads, partitionIdQueue);
+    }
+    List<Integer> sortedIds = Lists.newArrayList(partitionIdQueue);
+    Collections.sort(sortedIds);
+    List<BlockingQueue<Integer>> queues =
+        Lists.newArrayListWithCapacity(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      queues.add(new ArrayBlockingQueue<Integer>(
+          sortedIds.size() / numThreads + 1));
+    }
+    for (int i = 0; i < sortedIds.size(); i++) {
+      queues.get(i % numThreads).add(sortedIds.get(i));
+    }
+    return queues;
+  }
+
+  /**
+   * Run callables on the compute threads and gather their results. The
+   * callable with id i runs on thread i.
+   *
+   * @param callableFactory Factory for the callable of each thread
+   * @param numThreads Number of threads to use, at most the number of
+   *                   compute threads
+   * @param <R> Type of the results
+   * @return Result of each callable
+   */
+  public <R> List<R> run(CallableFactory<R> callableFactory,
+      int numThreads) {
+    return ProgressableUtils.getResultsWithNCallables(callableFactory,
+        numThreads, executorServices, context);
+  }
+
+  /**
+   * Stop the compute threads.
+   */
+  public void shutdown() {
+    for (ExecutorService executorService : executorServices) {
+      executorService.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.graph;
+
+import org.apache.giraph.combiner.MessageCombiner;
+import org.apache.giraph.edge.Edge;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Gather-apply-scatter style computation. Every superstep, a vertex
+ * gathers values over its in-edges, combined with the message combiner,
+ * applies the gathered value to itself, and then scatters, i.e. provides
+ * the values its out-neighbors gather over the edges from it in the next
+ * superstep.
+ *
+ * Giraph only keeps out-edges, so gathering is done on the source side:
+ * {@link #gather(Vertex, Edge)} is called for every out-edge of a
+ * scattering vertex, and the results for the same target are combined
+ * on each worker before being sent, so at most one partial gather per
+ * destination vertex and compute thread leaves the worker (see
+ * {@link Computation#sendCombinedMessage(WritableComparable, Writable)}).
+ *
+ * A message combiner which combines the gathered values is required.
+ * Vertices stay active until they vote to halt in
+ * {@link #apply(Vertex, Writable)}, and are woken up by gathered values.
+ *
+ * @param <I> Vertex id
+ * @param <V> Vertex value
+ * @param <E> Edge value
+ * @param <G> Gathered value
+ */
+@SuppressWarnings("rawtypes")
+public abstract class GatherApplyScatterComputation<
+    I extends WritableComparable, V extends Writable, E extends Writable,
+    G extends Writable> extends AbstractComputation<I, V, E, G, G> {
+  /** Combiner for gathered values, if a vertex gets more than one */
+  private MessageCombiner<I, G> combiner;
+
+  /**
+   * Get the value the target of an edge gathers over it.
+   *
+   * @param source Source vertex of the edge
+   * @param edge Out-edge of the source vertex
+   * @return Value to gather, can be reused after the call, or null if the
+   *         target gathers nothing over this edge
+   */
+  public abstract G gather(Vertex<I, V, E> source, Edge<I, E> edge);
+
+  /**
+   * Apply the gathered value to a vertex.
+   *
+   * @param vertex Vertex
+   * @param gathered Combined value gathered over the in-edges of the
+   *                 vertex, or null if nothing was gathered
+   * @throws IOException
+   */
+  public abstract void apply(Vertex<I, V, E> vertex, G gathered)
+    throws IOException;
+
+  /**
+   * Check whether a vertex scatters after being applied, i.e. whether its
+   * out-neighbors gather over the edges from it.
+   *
+   * @param vertex Vertex
+   * @return True iff the vertex scatters, true by default
+   */
+  public boolean scatter(Vertex<I, V, E> vertex) {
+    return true;
+  }
+
+  @Override
+  public void compute(Vertex<I, V, E> vertex, Iterable<G> messages)
+    throws IOException {
+    apply(vertex, combineGathered(vertex.getId(), messages));
+    if (scatter(vertex)) {
+      for (Edge<I, E> edge : vertex.getEdges()) {
+        G value = gather(vertex, edge);
+        if (value != null) {
+          sendCombinedMessage(edge.getTargetVertexId(), value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Combine the values a vertex gathered. Message stores normally combine
+   * them already, so there is at most one.
+   *
+   * @param vertexId Vertex id
+   * @param messages Gathered values
+   * @return Combined value, or null if there is none
+   */
+  private G combineGathered(I vertexId, Iterable<G> messages) {
+    Iterator<G> iterator = messages.iterator();
+    if (!iterator.hasNext()) {
+      return null;
+    }
+    G gathered = iterator.next();
+    if (!iterator.hasNext()) {
+      return gathered;
+    }
+    if (combiner == null) {
+      combiner = getConf().createMessageCombiner();
+    }
+    G combined = combiner.createInitialMessage();
+    combiner.combine(vertexId, combined, gathered);
+    while (iterator.hasNext()) {
+      combiner.combine(vertexId, combined, iterator.next());
+    }
+    return combined;
+  }
+}
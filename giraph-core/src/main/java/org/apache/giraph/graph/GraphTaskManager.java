@@ -36,7 +36,6 @@ import org.apache.giraph.metrics.GiraphTimer;
 import org.apache.giraph.metrics.GiraphTimerContext;
 import org.apache.giraph.metrics.ResetSuperstepMetricsObserver;
 import org.apache.giraph.metrics.SuperstepMetricsRegistry;
-import org.apache.giraph.partition.Partition;
 import org.apache.giraph.partition.PartitionOwner;
 import org.apache.giraph.partition.PartitionStats;
 import org.apache.giraph.partition.PartitionStore;
@@ -152,6 +151,8 @@ public class GraphTaskManager<I extends WritableComparable, V extends Writable,
   private Mapper<?, ?, ?, ?>.Context context;
   /** is this GraphTaskManager the master? */
   private boolean isMaster;
+  /** Compute threads kept across supersteps, or null if not used */
+  private ComputeThreads<I, V, E> computeThreads;
 
   /**
    * Default constructor for GiraphTaskManager.
@@ -510,6 +511,10 @@ public class GraphTaskManager<I extends WritableComparable, V extends Writable,
     return serviceWorker.getWorkerContext();
   }
 
+  public CentralizedServiceWorker<I, V, E> getServiceWorker() {
+    return serviceWorker;
+  }
+
   public JobProgressTracker getJobProgressTracker() {
     return jobProgressTracker;
   }
@@ -735,11 +740,9 @@ public class GraphTaskManager<I extends WritableComparable, V extends Writable,
     PartitionStore<I, V, E> partitionStore = serviceWorker.getPartitionStore();
     for (Integer partitionId : partitionStore.getPartitionIds()) {
       computePartitionIdQueue.add(partitionId);
-
-      Partition<I, V, E> partition =
-        partitionStore.getOrCreatePartition(partitionId);
-      verticesToCompute += partition.getVertexCount();
-      partitionStore.putPartition(partition);
+      // Use the metadata, getting the partition could load it from disk
+      verticesToCompute +=
+          partitionStore.getPartitionMetadata(partitionId).getVertexCount();
     }
     WorkerProgress.get().startSuperstep(
         serviceWorker.getSuperstep(),
@@ -749,23 +752,52 @@ public class GraphTaskManager<I extends WritableComparable, V extends Writable,
     GiraphTimerContext computeAllTimerContext = computeAll.time();
     timeToFirstMessageTimerContext = timeToFirstMessage.time();
 
-    CallableFactory<Collection<PartitionStats>> callableFactory =
-        new CallableFactory<Collection<PartitionStats>>() {
-          @Override
-          public Callable<Collection<PartitionStats>> newCallable(
-              int callableId) {
-            return new ComputeCallable<I, V, E, Writable, Writable>(
-                context,
-                graphState,
-                messageStore,
-                computePartitionIdQueue,
-                conf,
-                serviceWorker);
-          }
-        };
-    List<Collection<PartitionStats>> results =
-        ProgressableUtils.getResultsWithNCallables(callableFactory,
-            numThreads, "compute-%d", context);
+    if (computeThreads == null &&
+        GiraphConstants.PERSISTENT_COMPUTE_THREADS.get(conf)) {
+      computeThreads =
+          new ComputeThreads<I, V, E>(context, conf, serviceWorker);
+    }
+    List<Collection<PartitionStats>> results;
+    if (computeThreads == null) {
+      CallableFactory<Collection<PartitionStats>> callableFactory =
+          new CallableFactory<Collection<PartitionStats>>() {
+            @Override
+            public Callable<Collection<PartitionStats>> newCallable(
+                int callableId) {
+              return new ComputeCallable<I, V, E, Writable, Writable>(
+                  context,
+                  graphState,
+                  messageStore,
+                  computePartitionIdQueue,
+                  conf,
+                  serviceWorker);
+            }
+          };
+      results = ProgressableUtils.getResultsWithNCallables(callableFactory,
+          numThreads, "compute-%d", context);
+    } else {
+      computeThreads.startSuperstep();
+      final List<BlockingQueue<Integer>> partitionIdQueues =
+          computeThreads.getPartitionIdQueues(
+              computePartitionIdQueue, numThreads);
+      CallableFactory<Collection<PartitionStats>> callableFactory =
+          new CallableFactory<Collection<PartitionStats>>() {
+            @Override
+            public Callable<Collection<PartitionStats>> newCallable(
+                int callableId) {
+              return new ComputeCallable<I, V, E, Writable, Writable>(
+                  context,
+                  graphState,
+                  messageStore,
+                  partitionIdQueues.get(callableId),
+                  conf,
+                  serviceWorker,
+                  computeThreads,
+                  callableId);
+            }
+          };
+      results = computeThreads.run(callableFactory, numThreads);
+    }
     for (Collection<PartitionStats> result : results) {
       partitionStatsList.addAll(result);
     }
@@ -908,6 +940,10 @@ public class GraphTaskManager<I extends WritableComparable, V extends Writable,
       LOG.info("cleanup: Starting for " + getGraphFunctions());
     }
     jobProgressTracker.cleanup();
+    if (computeThreads != null) {
+      computeThreads.shutdown();
+      computeThreads = null;
+    }
     if (done) {
       return;
     }
@@ -0,0 +1,365 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.graph;
+
+import org.apache.giraph.combiner.MessageCombiner;
+import org.apache.giraph.comm.messages.MessageStore;
+import org.apache.giraph.comm.messages.primitives.LongDoubleMessageStore;
+import org.apache.giraph.edge.Edge;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Vertices of a partition with long ids and double values, laid out as
+ * primitive arrays for {@link AbstractLongDoubleBlockComputation}.
+ *
+ * Vertex i has id {@link #getIds()}[i], value {@link #getValues()}[i] and,
+ * if {@link #hasMessage(int)}, the combined message
+ * {@link #getMessages()}[i]. Its out-edges are stored in compressed sparse
+ * row form: the targets of its edges are
+ * {@link #getEdgeTargets()}[{@link #getEdgeOffsets()}[i]] up to (not
+ * including) {@link #getEdgeTargets()}[{@link #getEdgeOffsets()}[i + 1]],
+ * and if edge values are numeric, {@link #getEdgeValues()} holds them at
+ * the same positions.
+ *
+ * Only values and the halted state are copied back to the vertices;
+ * edges are read-only. Arrays are reused from one partition to the next,
+ * so they may be longer than the number of vertices or edges.
+ */
+public class LongDoubleVertexBlock {
+  /** Number of vertices */
+  private int size;
+  /** Vertex ids */
+  private long[] ids = new long[0];
+  /** Vertex values */
+  private double[] values = new double[0];
+  /** Combined message of each vertex */
+  private double[] messages = new double[0];
+  /** Whether each vertex received a message */
+  private boolean[] hasMessages = new boolean[0];
+  /** Whether each vertex is halted */
+  private boolean[] halted = new boolean[0];
+  /** Whether each vertex is computed in this superstep */
+  private boolean[] computed = new boolean[0];
+  /** Start of the edges of each vertex, plus the total number of edges */
+  private int[] edgeOffsets = new int[1];
+  /** Targets of all edges */
+  private long[] edgeTargets = new long[0];
+  /** Values of all edges, or null if edge values are not numeric */
+  private double[] edgeValues;
+  /** Whether edge values are copied to edgeValues */
+  private final boolean numericEdgeValues;
+
+  /**
+   * Constructor
+   *
+   * @param edgeValueClass Edge value class, edge values are only available
+   *                       if it is {@link DoubleWritable} or
+   *                       {@link FloatWritable}
+   */
+  public LongDoubleVertexBlock(Class<? extends Writable> edgeValueClass) {
+    numericEdgeValues = edgeValueClass == DoubleWritable.class ||
+        edgeValueClass == FloatWritable.class;
+    if (numericEdgeValues) {
+      edgeValues = new double[0];
+    }
+  }
+
+  /**
+   * Remove all vertices, keeping the arrays for reuse.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Append a vertex. It is active unless it is halted, messages have to be
+   * set afterwards.
+   *
+   * @param vertex Vertex to copy the id, value, halted state and edges of
+   */
+  public void addVertex(Vertex<LongWritable, DoubleWritable, ?> vertex) {
+    ensureVertexCapacity(size + 1);
+    int edgeOffset = edgeOffsets[size];
+    ensureEdgeCapacity(edgeOffset + vertex.getNumEdges());
+    ids[size] = vertex.getId().get();
+    values[size] = vertex.getValue().get();
+    halted[size] = vertex.isHalted();
+    computed[size] = !halted[size];
+    hasMessages[size] = false;
+    for (Edge<LongWritable, ? extends Writable> edge : vertex.getEdges()) {
+      edgeTargets[edgeOffset] = edge.getTargetVertexId().get();
+      if (numericEdgeValues) {
+        edgeValues[edgeOffset] = getNumericValue(edge.getValue());
+      }
+      edgeOffset++;
+    }
+    size++;
+    edgeOffsets[size] = edgeOffset;
+  }
+
+  /**
+   * Set the messages of a vertex, waking it up if there are any.
+   *
+   * @param index Vertex index
+   * @param vertexMessages Messages of the vertex
+   * @param combiner Combiner to combine several messages with, or null if
+   *                 there is none
+   */
+  public void setMessages(int index, Iterable<DoubleWritable> vertexMessages,
+      MessageCombiner<LongWritable, DoubleWritable> combiner) {
+    Iterator<DoubleWritable> iterator = vertexMessages.iterator();
+    if (!iterator.hasNext()) {
+      return;
+    }
+    DoubleWritable message = iterator.next();
+    if (iterator.hasNext()) {
+      if (combiner == null) {
+        throw new IllegalStateException("setMessages: Vertex " + ids[index] +
+            " received several messages, block computations need a " +
+            "message combiner");
+      }
+      DoubleWritable combined = combiner.createInitialMessage();
+      LongWritable vertexId = new LongWritable(ids[index]);
+      combiner.combine(vertexId, combined, message);
+      while (iterator.hasNext()) {
+        combiner.combine(vertexId, combined, iterator.next());
+      }
+      message = combined;
+    }
+    setMessage(index, message.get());
+  }
+
+  /**
+   * Set the messages of all vertices of a partition from a message store.
+   *
+   * @param partitionId Partition the vertices belong to
+   * @param messageStore Message store
+   * @param combiner Combiner to combine several messages with, or null if
+   *                 there is none
+   * @throws IOException
+   */
+  public void setMessages(int partitionId,
+      MessageStore<LongWritable, DoubleWritable> messageStore,
+      MessageCombiner<LongWritable, DoubleWritable> combiner)
+    throws IOException {
+    if (!messageStore.hasMessagesForPartition(partitionId)) {
+      return;
+    }
+    if (messageStore instanceof LongDoubleMessageStore) {
+      ((LongDoubleMessageStore) messageStore).getPartitionMessages(
+          partitionId, ids, size, messages, hasMessages);
+      for (int i = 0; i < size; i++) {
+        if (hasMessages[i]) {
+          halted[i] = false;
+          computed[i] = true;
+        }
+      }
+    } else {
+      LongWritable vertexId = new LongWritable();
+      for (int i = 0; i < size; i++) {
+        vertexId.set(ids[i]);
+        setMessages(i, messageStore.getVertexMessages(vertexId), combiner);
+      }
+    }
+  }
+
+  /**
+   * Copy the value and halted state of a vertex back to it.
+   *
+   * @param index Vertex index
+   * @param vertex Vertex with the same id
+   */
+  public void storeVertex(int index,
+      Vertex<LongWritable, DoubleWritable, ?> vertex) {
+    vertex.getValue().set(values[index]);
+    if (halted[index]) {
+      vertex.voteToHalt();
+    } else {
+      vertex.wakeUp();
+    }
+  }
+
+  /**
+   * Set the combined message of a vertex, waking it up.
+   *
+   * @param index Vertex index
+   * @param message Message
+   */
+  private void setMessage(int index, double message) {
+    messages[index] = message;
+    hasMessages[index] = true;
+    halted[index] = false;
+    computed[index] = true;
+  }
+
+  /**
+   * Get the value of a numeric edge value.
+   *
+   * @param value Edge value
+   * @return Value as double
+   */
+  private static double getNumericValue(Writable value) {
+    if (value instanceof DoubleWritable) {
+      return ((DoubleWritable) value).get();
+    } else {
+      return ((FloatWritable) value).get();
+    }
+  }
+
+  /**
+   * Make sure vertex arrays can hold a number of vertices.
+   *
+   * @param capacity Number of vertices
+   */
+  private void ensureVertexCapacity(int capacity) {
+    if (ids.length >= capacity) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, ids.length * 2);
+    ids = Arrays.copyOf(ids, newCapacity);
+    values = Arrays.copyOf(values, newCapacity);
+    messages = Arrays.copyOf(messages, newCapacity);
+    hasMessages = Arrays.copyOf(hasMessages, newCapacity);
+    halted = Arrays.copyOf(halted, newCapacity);
+    computed = Arrays.copyOf(computed, newCapacity);
+    edgeOffsets = Arrays.copyOf(edgeOffsets, newCapacity + 1);
+  }
+
+  /**
+   * Make sure edge arrays can hold a number of edges.
+   *
+   * @param capacity Number of edges
+   */
+  private void ensureEdgeCapacity(int capacity) {
+    if (edgeTargets.length >= capacity) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, edgeTargets.length * 2);
+    edgeTargets = Arrays.copyOf(edgeTargets, newCapacity);
+    if (numericEdgeValues) {
+      edgeValues = Arrays.copyOf(edgeValues, newCapacity);
+    }
+  }
+
+  /**
+   * Get the number of vertices.
+   *
+   * @return Number of vertices
+   */
+  public int size() {
+    return size;
+  }
+
+  public long[] getIds() {
+    return ids;
+  }
+
+  public double[] getValues() {
+    return values;
+  }
+
+  public double[] getMessages() {
+    return messages;
+  }
+
+  public int[] getEdgeOffsets() {
+    return edgeOffsets;
+  }
+
+  public long[] getEdgeTargets() {
+    return edgeTargets;
+  }
+
+  /**
+   * Get values of all edges, in the same order as
+   * {@link #getEdgeTargets()}.
+   *
+   * @return Edge values, or null if the edge value class is not numeric
+   */
+  public double[] getEdgeValues() {
+    return edgeValues;
+  }
+
+  /**
+   * Get the number of out-edges of a vertex.
+   *
+   * @param index Vertex index
+   * @return Number of edges
+   */
+  public int getNumEdges(int index) {
+    return edgeOffsets[index + 1] - edgeOffsets[index];
+  }
+
+  /**
+   * Check whether a vertex received a message.
+   *
+   * @param index Vertex index
+   * @return True iff {@link #getMessages()}[index] is set
+   */
+  public boolean hasMessage(int index) {
+    return hasMessages[index];
+  }
+
+  /**
+   * Check whether a vertex is computed in this superstep, i.e. it was not
+   * halted or it received a message. Computations should leave vertices
+   * which aren't computed untouched.
+   *
+   * @param index Vertex index
+   * @return True iff the vertex has to be computed
+   */
+  public boolean isComputed(int index) {
+    return computed[index];
+  }
+
+  /**
+   * Check whether a vertex is halted.
+   *
+   * @param index Vertex index
+   * @return True iff the vertex is halted
+   */
+  public boolean isHalted(int index) {
+    return halted[index];
+  }
+
+  /**
+   * Halt a vertex, it will be woken up by a message.
+   *
+   * @param index Vertex index
+   */
+  public void voteToHalt(int index) {
+    halted[index] = true;
+  }
+
+  /**
+   * Wake up a vertex.
+   *
+   * @param index Vertex index
+   */
+  public void wakeUp(int index) {
+    halted[index] = false;
+  }
+}
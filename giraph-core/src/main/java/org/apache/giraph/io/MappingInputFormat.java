@@ -61,4 +61,26 @@ public abstract class MappingInputFormat<I extends WritableComparable,
    */
   public abstract MappingReader<I, V, E, B> createMappingReader(
       InputSplit split, TaskAttemptContext context) throws IOException;
+
+  /**
+   * Whether entries produced by this format depend on the order in which
+   * input splits are read. If so, every worker reads the splits in the same
+   * order and from a single thread, so all workers end up with the same
+   * mapping.
+   *
+   * @return True iff mapping entries depend on the order of input splits
+   */
+  public boolean isOrderSensitive() {
+    return false;
+  }
+
+  /**
+   * Set the number of workers of the job, which can be more than the
+   * minimum number of workers configured. Called on every worker before
+   * any mapping reader is created.
+   *
+   * @param numWorkers Number of workers
+   */
+  public void setNumWorkers(int numWorkers) {
+  }
 }
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.io.formats;
+
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.io.MappingInputFormat;
+import org.apache.giraph.io.MappingReader;
+import org.apache.giraph.io.VertexInputFormat;
+import org.apache.giraph.io.VertexReader;
+import org.apache.giraph.mapping.LongByteStreamingPartitioner;
+import org.apache.giraph.mapping.MappingEntry;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.ByteWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.log4j.Logger;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Mapping input format which computes the mapping itself, by streaming the
+ * job's vertex input through a {@link LongByteStreamingPartitioner}
+ * (linear deterministic greedy or Fennel) before vertices are loaded.
+ * Every vertex is placed on the worker where most of its already seen
+ * neighbours are, which lowers edge cut and so cross-worker messages.
+ *
+ * To use it, set this class as the mapping input format together with
+ * {@link org.apache.giraph.mapping.LongByteMappingStore},
+ * {@link org.apache.giraph.mapping.DefaultLongByteOps} and
+ * {@link org.apache.giraph.partition.LongMappingStorePartitionerFactory}.
+ * Tunables are the giraph.streamingPartitioner.* options.
+ *
+ * Since every worker reads the whole input here, decisions have to be the
+ * same on all of them, so this format is order sensitive.
+ *
+ * @param <V> vertexValue type
+ * @param <E> edgeValue type
+ */
+public class LongByteStreamingMappingInputFormat<V extends Writable,
+    E extends Writable>
+    extends MappingInputFormat<LongWritable, V, E, ByteWritable> {
+  /** Class logger */
+  private static final Logger LOG =
+      Logger.getLogger(LongByteStreamingMappingInputFormat.class);
+  /** Vertex input format of the job, which supplies the graph */
+  private VertexInputFormat<LongWritable, V, E> vertexInputFormat;
+  /** Partitioner shared by all readers created by this format */
+  private LongByteStreamingPartitioner partitioner;
+  /** Number of workers of the job, -1 until set */
+  private int numWorkers = -1;
+
+  /**
+   * Get the vertex input format of the job, creating it if needed
+   *
+   * @return Vertex input format
+   */
+  private synchronized VertexInputFormat<LongWritable, V, E>
+  getVertexInputFormat() {
+    if (vertexInputFormat == null) {
+      vertexInputFormat = getConf().createWrappedVertexInputFormat();
+    }
+    return vertexInputFormat;
+  }
+
+  /**
+   * Get the partitioner, creating it if needed
+   *
+   * @return Streaming partitioner
+   */
+  private synchronized LongByteStreamingPartitioner getPartitioner() {
+    if (partitioner == null) {
+      ImmutableClassesGiraphConfiguration<LongWritable, V, E> conf =
+          getConf();
+      partitioner = new LongByteStreamingPartitioner(
+          GiraphConstants.STREAMING_PARTITIONER_ALGORITHM.get(conf),
+          numWorkers > 0 ? numWorkers : conf.getMinWorkers(),
+          GiraphConstants.STREAMING_PARTITIONER_SLACK.get(conf),
+          GiraphConstants.STREAMING_PARTITIONER_FENNEL_GAMMA.get(conf),
+          GiraphConstants.STREAMING_PARTITIONER_EXPECTED_VERTICES.get(conf),
+          GiraphConstants.STREAMING_PARTITIONER_EXPECTED_EDGES.get(conf));
+    }
+    return partitioner;
+  }
+
+  @Override
+  public void checkInputSpecs(Configuration conf) {
+    if (!getConf().hasVertexInputFormat()) {
+      throw new IllegalStateException("checkInputSpecs: " +
+          "LongByteStreamingMappingInputFormat requires a vertex input format");
+    }
+    getVertexInputFormat().checkInputSpecs(conf);
+  }
+
+  @Override
+  public List<InputSplit> getSplits(JobContext context, int minSplitCountHint)
+    throws IOException, InterruptedException {
+    return getVertexInputFormat().getSplits(context, minSplitCountHint);
+  }
+
+  @Override
+  public MappingReader<LongWritable, V, E, ByteWritable> createMappingReader(
+      InputSplit split, TaskAttemptContext context) throws IOException {
+    return new StreamingMappingReader(
+        getVertexInputFormat().createVertexReader(split, context),
+        getPartitioner());
+  }
+
+  @Override
+  public void writeInputSplit(InputSplit inputSplit,
+      DataOutput dataOutput) throws IOException {
+    getVertexInputFormat().writeInputSplit(inputSplit, dataOutput);
+  }
+
+  @Override
+  public InputSplit readInputSplit(DataInput dataInput) throws IOException,
+      ClassNotFoundException {
+    return getVertexInputFormat().readInputSplit(dataInput);
+  }
+
+  @Override
+  public boolean isOrderSensitive() {
+    return true;
+  }
+
+  @Override
+  public synchronized void setNumWorkers(int numWorkers) {
+    if (partitioner != null) {
+      throw new IllegalStateException("setNumWorkers: Partitioner was " +
+          "already created");
+    }
+    this.numWorkers = numWorkers;
+  }
+
+  /**
+   * Mapping reader which places every vertex read by the underlying vertex
+   * reader and returns its target
+   */
+  private class StreamingMappingReader
+      extends MappingReader<LongWritable, V, E, ByteWritable> {
+    /** Reader of the vertex input */
+    private final VertexReader<LongWritable, V, E> vertexReader;
+    /** Partitioner to place vertices with */
+    private final LongByteStreamingPartitioner partitioner;
+    /** Reusable entry */
+    private final MappingEntry<LongWritable, ByteWritable> entry =
+        new MappingEntry<>(new LongWritable(), new ByteWritable());
+    /** Whether vertex reader was closed already */
+    private boolean closed;
+
+    /**
+     * Constructor
+     *
+     * @param vertexReader Reader of the vertex input
+     * @param partitioner Partitioner to place vertices with
+     */
+    public StreamingMappingReader(
+        VertexReader<LongWritable, V, E> vertexReader,
+        LongByteStreamingPartitioner partitioner) {
+      this.vertexReader = vertexReader;
+      this.partitioner = partitioner;
+    }
+
+    @Override
+    public void initialize(InputSplit inputSplit,
+        TaskAttemptContext context) throws IOException, InterruptedException {
+      vertexReader.initialize(inputSplit, context);
+    }
+
+    @Override
+    public boolean nextEntry() throws IOException, InterruptedException {
+      if (closed) {
+        return false;
+      }
+      if (!vertexReader.nextVertex()) {
+        // Mapping readers aren't closed by the framework, release the
+        // underlying input as soon as it's exhausted
+        close();
+        if (LOG.isInfoEnabled()) {
+          LOG.info("nextEntry: Placed " + partitioner.getPlacedVertices() +
+              " vertices so far, known edge cut " +
+              partitioner.getKnownCutEdges());
+        }
+        return false;
+      }
+      Vertex<LongWritable, V, E> vertex = vertexReader.getCurrentVertex();
+      long id = vertex.getId().get();
+      entry.getVertexId().set(id);
+      entry.getMappingTarget().set(partitioner.place(id, vertex.getEdges()));
+      return true;
+    }
+
+    @Override
+    public MappingEntry<LongWritable, ByteWritable> getCurrentEntry()
+      throws IOException, InterruptedException {
+      return entry;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        vertexReader.close();
+      }
+    }
+
+    @Override
+    public float getProgress() throws IOException, InterruptedException {
+      return closed ? 1.0f : vertexReader.getProgress();
+    }
+  }
+}
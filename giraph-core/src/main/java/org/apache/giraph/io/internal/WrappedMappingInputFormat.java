@@ -84,6 +84,16 @@ public class WrappedMappingInputFormat<I extends WritableComparable,
     return new WrappedMappingReader<>(mappingReader, getConf());
   }
 
+  @Override
+  public boolean isOrderSensitive() {
+    return originalInputFormat.isOrderSensitive();
+  }
+
+  @Override
+  public void setNumWorkers(int numWorkers) {
+    originalInputFormat.setNumWorkers(numWorkers);
+  }
+
 
   @Override
   public void writeInputSplit(InputSplit inputSplit,
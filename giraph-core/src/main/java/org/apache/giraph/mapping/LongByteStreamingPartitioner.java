@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.mapping;
+
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import org.apache.giraph.edge.Edge;
+import org.apache.hadoop.io.LongWritable;
+
+import java.util.Arrays;
+
+/**
+ * Streaming graph partitioner which assigns every vertex to a target
+ * (worker) the first time it sees it, based on where its already placed
+ * neighbours went. Both linear deterministic greedy (LDG) and Fennel
+ * heuristics are supported, see {@link StreamingPartitionerAlgorithm}.
+ *
+ * Decisions only depend on the order in which vertices are streamed, so
+ * two instances fed with the same stream produce the same assignment. Keeps
+ * a primitive id to target map of everything it has placed, which is
+ * dropped together with the partitioner once input is read.
+ */
+public class LongByteStreamingPartitioner {
+  /**
+   * Maximum number of targets representable by LongByteMappingStore.
+   * Targets are read as unsigned bytes, and -1 (0xFF) marks vertices which
+   * weren't placed, leaving targets 0 to 254.
+   */
+  public static final int MAX_TARGETS = 255;
+
+  /** Heuristic to use */
+  private final StreamingPartitionerAlgorithm algorithm;
+  /** Number of targets to place vertices on */
+  private final int numTargets;
+  /** Number of vertices placed on each target */
+  private final long[] loads;
+  /** Number of neighbours of the current vertex on each target */
+  private final int[] neighbourCounts;
+  /** Allowed imbalance, capacity is slack * (vertices / targets) */
+  private final float slack;
+  /** Fennel exponent for the size penalty */
+  private final float gamma;
+  /** Expected number of vertices, or 0 when unknown */
+  private final long expectedVertices;
+  /** Expected number of edges, or 0 when unknown */
+  private final long expectedEdges;
+  /** Targets of all vertices placed so far */
+  private final Long2ByteOpenHashMap assignments;
+  /** Number of vertices placed so far */
+  private long placedVertices;
+  /** Number of edges streamed so far */
+  private long placedEdges;
+  /** Number of edges whose endpoints were placed on different targets */
+  private long cutEdges;
+
+  /**
+   * Constructor
+   *
+   * @param algorithm Heuristic to use
+   * @param numTargets Number of targets to place vertices on
+   * @param slack Allowed imbalance, must be at least 1
+   * @param gamma Fennel exponent for the size penalty, must be above 1
+   * @param expectedVertices Expected number of vertices, 0 when unknown
+   * @param expectedEdges Expected number of edges, 0 when unknown
+   */
+  public LongByteStreamingPartitioner(StreamingPartitionerAlgorithm algorithm,
+      int numTargets, float slack, float gamma, long expectedVertices,
+      long expectedEdges) {
+    if (numTargets <= 0 || numTargets > MAX_TARGETS) {
+      throw new IllegalArgumentException("LongByteStreamingPartitioner: " +
+          "Number of targets must be in [1, " + MAX_TARGETS + "], got " +
+          numTargets);
+    }
+    if (slack < 1) {
+      throw new IllegalArgumentException("LongByteStreamingPartitioner: " +
+          "Slack must be at least 1, got " + slack);
+    }
+    if (gamma <= 1) {
+      throw new IllegalArgumentException("LongByteStreamingPartitioner: " +
+          "Gamma must be above 1, got " + gamma);
+    }
+    this.algorithm = algorithm;
+    this.numTargets = numTargets;
+    this.slack = slack;
+    this.gamma = gamma;
+    this.expectedVertices = expectedVertices;
+    this.expectedEdges = expectedEdges;
+    loads = new long[numTargets];
+    neighbourCounts = new int[numTargets];
+    assignments = new Long2ByteOpenHashMap(
+        (int) Math.min(Math.max(expectedVertices, 16), Integer.MAX_VALUE / 2));
+    assignments.defaultReturnValue((byte) -1);
+  }
+
+  /**
+   * Place a vertex on a target. Vertices which were already placed keep
+   * their previous target.
+   *
+   * @param vertexId Id of the vertex
+   * @param edges Out-edges of the vertex
+   * @return Target the vertex was placed on
+   */
+  public synchronized byte place(long vertexId,
+      Iterable<? extends Edge<LongWritable, ?>> edges) {
+    byte previous = assignments.get(vertexId);
+    if (previous != -1) {
+      return previous;
+    }
+
+    Arrays.fill(neighbourCounts, 0);
+    int degree = 0;
+    for (Edge<LongWritable, ?> edge : edges) {
+      byte neighbourTarget = assignments.get(edge.getTargetVertexId().get());
+      if (neighbourTarget != -1) {
+        neighbourCounts[neighbourTarget & 0xFF]++;
+      }
+      degree++;
+    }
+
+    int target = chooseTarget();
+    for (int i = 0; i < numTargets; i++) {
+      if (i != target) {
+        cutEdges += neighbourCounts[i];
+      }
+    }
+    loads[target]++;
+    placedVertices++;
+    placedEdges += degree;
+    assignments.put(vertexId, (byte) target);
+    return (byte) target;
+  }
+
+  /**
+   * Get the target a vertex was placed on
+   *
+   * @param vertexId Id of the vertex
+   * @return Target, or -1 if the vertex wasn't placed yet
+   */
+  public synchronized byte getTarget(long vertexId) {
+    return assignments.get(vertexId);
+  }
+
+  /**
+   * Choose the target for the current vertex, using the neighbour counts
+   * already filled in
+   *
+   * @return Target index
+   */
+  private int chooseTarget() {
+    double capacity = getCapacity();
+    double alpha = algorithm == StreamingPartitionerAlgorithm.FENNEL ?
+        getFennelAlpha() : 0;
+    int best = -1;
+    double bestScore = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < numTargets; i++) {
+      if (loads[i] >= capacity) {
+        continue;
+      }
+      double score;
+      if (algorithm == StreamingPartitionerAlgorithm.LDG) {
+        score = neighbourCounts[i] * (1 - loads[i] / capacity);
+      } else {
+        score = neighbourCounts[i] -
+            alpha * gamma * Math.pow(loads[i], gamma - 1);
+      }
+      // Ties go to the least loaded target, then to the lowest index
+      if (score > bestScore ||
+          (score == bestScore && loads[i] < loads[best])) {
+        best = i;
+        bestScore = score;
+      }
+    }
+    if (best == -1) {
+      // Every target is at capacity, fall back to the least loaded one
+      best = 0;
+      for (int i = 1; i < numTargets; i++) {
+        if (loads[i] < loads[best]) {
+          best = i;
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Maximum number of vertices per target. When the total number of vertices
+   * is unknown, it is estimated from the vertices placed so far, which keeps
+   * targets balanced at every point of the stream.
+   *
+   * @return Capacity of a target
+   */
+  private double getCapacity() {
+    long vertices = Math.max(expectedVertices, placedVertices + 1);
+    return Math.max(1.0, Math.ceil(slack * vertices / numTargets));
+  }
+
+  /**
+   * Fennel alpha, m * k^(gamma - 1) / n^gamma, using running estimates of
+   * n and m when they were not provided
+   *
+   * @return Fennel alpha
+   */
+  private double getFennelAlpha() {
+    double vertices = Math.max(expectedVertices, placedVertices + 1);
+    double edges = expectedEdges > 0 ? expectedEdges :
+        Math.max(placedEdges, 1) * vertices / (placedVertices + 1);
+    return edges * Math.pow(numTargets, gamma - 1) /
+        Math.pow(vertices, gamma);
+  }
+
+  public synchronized long getPlacedVertices() {
+    return placedVertices;
+  }
+
+  /**
+   * Get the number of vertices placed on a target
+   *
+   * @param target Target index
+   * @return Number of vertices on the target
+   */
+  public synchronized long getLoad(int target) {
+    return loads[target];
+  }
+
+  /**
+   * Number of streamed edges which point to a vertex placed earlier on a
+   * different target. Edges pointing to vertices placed later are not
+   * counted, so this is a lower bound of the final edge cut.
+   *
+   * @return Known edge cut
+   */
+  public synchronized long getKnownCutEdges() {
+    return cutEdges;
+  }
+}
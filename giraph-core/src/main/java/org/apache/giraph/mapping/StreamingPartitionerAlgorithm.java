@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.mapping;
+
+/**
+ * Heuristic used by {@link LongByteStreamingPartitioner} to choose a target
+ * for every vertex streamed through it.
+ */
+public enum StreamingPartitionerAlgorithm {
+  /**
+   * Linear deterministic greedy: maximize the number of already placed
+   * neighbours on a target, weighted by the remaining capacity of the target
+   */
+  LDG,
+  /**
+   * Fennel: maximize the number of already placed neighbours on a target,
+   * minus a super-linear penalty on the size of the target
+   */
+  FENNEL
+}
@@ -66,6 +66,7 @@ import org.apache.giraph.time.Time;
 import org.apache.giraph.utils.LogStacktraceCallable;
 import org.apache.giraph.utils.WritableUtils;
 import org.apache.giraph.worker.WorkerInfo;
+import org.apache.giraph.worker.WorkerSuperstepReport;
 import org.apache.giraph.zk.BspEvent;
 import org.apache.giraph.zk.PredicateLock;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -169,6 +170,10 @@ public class BspServiceMaster<I extends WritableComparable,
       new ArrayList<PartitionStats>();
   /** Handler for aggregators */
   private MasterAggregatorHandler aggregatorHandler;
+  /** Superstep reports received from workers over Netty */
+  private final WorkerSuperstepReports workerSuperstepReports;
+  /** Whether workers report finished supersteps over Netty */
+  private final boolean nettySuperstepBarrier;
   /** Master class */
   private MasterCompute masterCompute;
   /** IPC Client */
@@ -207,6 +212,7 @@ public class BspServiceMaster<I extends WritableComparable,
     registerBspEvent(workerWroteCheckpoint);
     superstepStateChanged = new PredicateLock(context);
     registerBspEvent(superstepStateChanged);
+    workerSuperstepReports = new WorkerSuperstepReports(superstepStateChanged);
 
     ImmutableClassesGiraphConfiguration<I, V, E> conf =
         getConfiguration();
@@ -218,6 +224,7 @@ public class BspServiceMaster<I extends WritableComparable,
     eventWaitMsecs = conf.getEventWaitMsecs();
     maxSuperstepWaitMsecs = conf.getMaxMasterSuperstepWaitMsecs();
     partitionLongTailMinPrint = PARTITION_LONG_TAIL_MIN_PRINT.get(conf);
+    nettySuperstepBarrier = GiraphConstants.NETTY_SUPERSTEP_BARRIER.get(conf);
     masterGraphPartitioner =
         getGraphPartitionerFactory().createMasterGraphPartitioner();
     if (conf.isJMapHistogramDumpEnabled()) {
@@ -742,6 +749,11 @@ public class BspServiceMaster<I extends WritableComparable,
     return aggregatorHandler;
   }
 
+  @Override
+  public WorkerSuperstepReports getWorkerSuperstepReports() {
+    return workerSuperstepReports;
+  }
+
   @Override
   public MasterCompute getMasterCompute() {
     return masterCompute;
@@ -932,9 +944,48 @@ public class BspServiceMaster<I extends WritableComparable,
   private GlobalStats aggregateWorkerStats(long superstep) {
     ImmutableClassesGiraphConfiguration conf = getConfiguration();
 
-    Class<? extends PartitionStats> partitionStatsClass =
-        masterGraphPartitioner.createPartitionStats().getClass();
     GlobalStats globalStats = new GlobalStats();
+    AggregatedMetrics aggregatedMetrics = new AggregatedMetrics();
+    allPartitionStatsList.clear();
+    if (nettySuperstepBarrier) {
+      for (WorkerSuperstepReport report : workerSuperstepReports.getReports(
+          getApplicationAttempt(), superstep)) {
+        addWorkerStats(globalStats, aggregatedMetrics,
+            report.getHostnameId(), report.getPartitionStatsBytes(),
+            report.getSentMessages(), report.getSentMessageBytes(),
+            report.getMetricsBytes());
+      }
+      workerSuperstepReports.removeReports(superstep);
+    } else {
+      aggregateWorkerStatsFromZooKeeper(
+          superstep, globalStats, aggregatedMetrics);
+    }
+
+    if (conf.metricsEnabled()) {
+      if (GiraphConstants.METRICS_DIRECTORY.isDefaultValue(conf)) {
+        aggregatedMetrics.print(superstep, System.err);
+      } else {
+        printAggregatedMetricsToHDFS(superstep, aggregatedMetrics);
+      }
+    }
+
+    if (LOG.isInfoEnabled()) {
+      LOG.info("aggregateWorkerStats: Aggregation found " + globalStats +
+          " on superstep = " + getSuperstep());
+    }
+    return globalStats;
+  }
+
+  /**
+   * Collect the worker statistics for a particular superstep from the
+   * worker finished znodes.
+   *
+   * @param superstep Superstep to aggregate on
+   * @param globalStats Global statistics to add the worker statistics to
+   * @param aggregatedMetrics Metrics to add the worker metrics to
+   */
+  private void aggregateWorkerStatsFromZooKeeper(long superstep,
+      GlobalStats globalStats, AggregatedMetrics aggregatedMetrics) {
     // Get the stats from the all the worker selected nodes
     String workerFinishedPath =
         getWorkerFinishedPath(getApplicationAttempt(), superstep);
@@ -951,9 +1002,6 @@ public class BspServiceMaster<I extends WritableComparable,
           "aggregateWorkerStats: InterruptedException", e);
     }
 
-    AggregatedMetrics aggregatedMetrics = new AggregatedMetrics();
-
-    allPartitionStatsList.clear();
     for (String finishedPath : workerFinishedPathList) {
       String hostnamePartitionId = FilenameUtils.getName(finishedPath);
       JSONObject workerFinishedInfoObj = null;
@@ -962,32 +1010,14 @@ public class BspServiceMaster<I extends WritableComparable,
             getZkExt().getData(finishedPath, false, null);
         workerFinishedInfoObj = new JSONObject(new String(zkData,
             Charset.defaultCharset()));
-        List<PartitionStats> statsList =
-            WritableUtils.readListFieldsFromByteArray(
+        addWorkerStats(globalStats, aggregatedMetrics, hostnamePartitionId,
+            Base64.decode(workerFinishedInfoObj.getString(
+                JSONOBJ_PARTITION_STATS_KEY)),
+            workerFinishedInfoObj.getLong(JSONOBJ_NUM_MESSAGES_KEY),
+            workerFinishedInfoObj.getLong(JSONOBJ_NUM_MESSAGE_BYTES_KEY),
+            workerFinishedInfoObj.has(JSONOBJ_METRICS_KEY) ?
                 Base64.decode(workerFinishedInfoObj.getString(
-                    JSONOBJ_PARTITION_STATS_KEY)),
-                    partitionStatsClass,
-                    conf);
-        for (PartitionStats partitionStats : statsList) {
-          globalStats.addPartitionStats(partitionStats);
-          allPartitionStatsList.add(partitionStats);
-        }
-        globalStats.addMessageCount(
-            workerFinishedInfoObj.getLong(
-                JSONOBJ_NUM_MESSAGES_KEY));
-        globalStats.addMessageBytesCount(
-          workerFinishedInfoObj.getLong(
-              JSONOBJ_NUM_MESSAGE_BYTES_KEY));
-        if (conf.metricsEnabled() &&
-            workerFinishedInfoObj.has(JSONOBJ_METRICS_KEY)) {
-          WorkerSuperstepMetrics workerMetrics = new WorkerSuperstepMetrics();
-          WritableUtils.readFieldsFromByteArray(
-              Base64.decode(
-                  workerFinishedInfoObj.getString(
-                      JSONOBJ_METRICS_KEY)),
-              workerMetrics);
-          aggregatedMetrics.add(workerMetrics, hostnamePartitionId);
-        }
+                    JSONOBJ_METRICS_KEY)) : null);
       } catch (JSONException e) {
         throw new IllegalStateException(
             "aggregateWorkerStats: JSONException", e);
@@ -1002,20 +1032,40 @@ public class BspServiceMaster<I extends WritableComparable,
             "aggregateWorkerStats: IOException", e);
       }
     }
+  }
 
-    if (conf.metricsEnabled()) {
-      if (GiraphConstants.METRICS_DIRECTORY.isDefaultValue(conf)) {
-        aggregatedMetrics.print(superstep, System.err);
-      } else {
-        printAggregatedMetricsToHDFS(superstep, aggregatedMetrics);
-      }
-    }
-
-    if (LOG.isInfoEnabled()) {
-      LOG.info("aggregateWorkerStats: Aggregation found " + globalStats +
-          " on superstep = " + getSuperstep());
+  /**
+   * Add the statistics reported by a single worker.
+   *
+   * @param globalStats Global statistics to add the worker statistics to
+   * @param aggregatedMetrics Metrics to add the worker metrics to
+   * @param hostnamePartitionId Hostname and id of the worker
+   * @param partitionStatsBytes Serialized list of partition stats
+   * @param sentMessages Number of messages sent by the worker
+   * @param sentMessageBytes Number of message bytes sent by the worker
+   * @param metricsBytes Serialized worker metrics (null if not reported)
+   */
+  private void addWorkerStats(GlobalStats globalStats,
+      AggregatedMetrics aggregatedMetrics, String hostnamePartitionId,
+      byte[] partitionStatsBytes, long sentMessages, long sentMessageBytes,
+      byte[] metricsBytes) {
+    ImmutableClassesGiraphConfiguration conf = getConfiguration();
+    Class<? extends PartitionStats> partitionStatsClass =
+        masterGraphPartitioner.createPartitionStats().getClass();
+    List<PartitionStats> statsList =
+        WritableUtils.readListFieldsFromByteArray(
+            partitionStatsBytes, partitionStatsClass, conf);
+    for (PartitionStats partitionStats : statsList) {
+      globalStats.addPartitionStats(partitionStats);
+      allPartitionStatsList.add(partitionStats);
+    }
+    globalStats.addMessageCount(sentMessages);
+    globalStats.addMessageBytesCount(sentMessageBytes);
+    if (conf.metricsEnabled() && metricsBytes != null) {
+      WorkerSuperstepMetrics workerMetrics = new WorkerSuperstepMetrics();
+      WritableUtils.readFieldsFromByteArray(metricsBytes, workerMetrics);
+      aggregatedMetrics.add(workerMetrics, hostnamePartitionId);
     }
-    return globalStats;
   }
 
   /**
@@ -1301,6 +1351,30 @@ public class BspServiceMaster<I extends WritableComparable,
       List<WorkerInfo> workerInfoList,
       BspEvent event,
       boolean ignoreDeath) {
+    return barrierOnWorkerList(finishedWorkerPath, workerInfoList, event,
+        ignoreDeath, false);
+  }
+
+  /**
+   * Barrier on a list of workers, which either register their hostname and
+   * id on a path in ZooKeeper or send their superstep reports over Netty.
+   *
+   * @param finishedWorkerPath Path to where the workers will register their
+   *        hostname and id
+   * @param workerInfoList List of the workers to wait for
+   * @param event Event to wait on for a chance to be done.
+   * @param ignoreDeath In case if worker died after making it through
+   *                    barrier, we will ignore death if set to true.
+   * @param useSuperstepReports Wait for the superstep reports received over
+   *                            Netty rather than for the znodes
+   * @return True if barrier was successful, false if there was a worker
+   *         failure
+   */
+  private boolean barrierOnWorkerList(String finishedWorkerPath,
+      List<WorkerInfo> workerInfoList,
+      BspEvent event,
+      boolean ignoreDeath,
+      boolean useSuperstepReports) {
     try {
       getZkExt().createOnceExt(finishedWorkerPath,
           null,
@@ -1331,11 +1405,17 @@ public class BspServiceMaster<I extends WritableComparable,
     List<WorkerInfo> deadWorkers = new ArrayList<>();
     while (true) {
       try {
-        finishedHostnameIdList =
-            getZkExt().getChildrenExt(finishedWorkerPath,
-                true,
-                false,
-                false);
+        if (useSuperstepReports) {
+          finishedHostnameIdList =
+              workerSuperstepReports.getFinishedHostnameIds(
+                  getApplicationAttempt(), getSuperstep());
+        } else {
+          finishedHostnameIdList =
+              getZkExt().getChildrenExt(finishedWorkerPath,
+                  true,
+                  false,
+                  false);
+        }
       } catch (KeeperException e) {
         throw new IllegalStateException(
             "barrierOnWorkerList: KeeperException - Couldn't get " +
@@ -1639,7 +1719,8 @@ public class BspServiceMaster<I extends WritableComparable,
     if (!barrierOnWorkerList(finishedWorkerPath,
         chosenWorkerInfoList,
         getSuperstepStateChangedEvent(),
-        false)) {
+        false,
+        nettySuperstepBarrier)) {
       return SuperstepState.WORKER_FAILURE;
     }
 
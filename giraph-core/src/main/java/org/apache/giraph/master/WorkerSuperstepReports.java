@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.master;
+
+import org.apache.giraph.worker.WorkerSuperstepReport;
+import org.apache.giraph.zk.BspEvent;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Superstep reports which workers sent to the master over Netty, used
+ * instead of the worker finished znodes for the superstep barrier and the
+ * aggregation of worker stats.
+ */
+public class WorkerSuperstepReports {
+  /** Reports keyed by hostname and id of the worker */
+  private final ConcurrentMap<String, WorkerSuperstepReport> reports =
+      Maps.newConcurrentMap();
+  /** Event to signal when a report arrives */
+  private final BspEvent reportReceived;
+
+  /**
+   * Constructor
+   *
+   * @param reportReceived Event to signal when a report arrives
+   */
+  public WorkerSuperstepReports(BspEvent reportReceived) {
+    this.reportReceived = reportReceived;
+  }
+
+  /**
+   * Add a report received from a worker.
+   *
+   * @param report Worker superstep report
+   */
+  public void addReport(WorkerSuperstepReport report) {
+    reports.put(report.getHostnameId(), report);
+    reportReceived.signal();
+  }
+
+  /**
+   * Get the reports of all workers which finished a superstep.
+   *
+   * @param applicationAttempt Application attempt
+   * @param superstep Superstep
+   * @return Reports for the superstep
+   */
+  public List<WorkerSuperstepReport> getReports(long applicationAttempt,
+      long superstep) {
+    List<WorkerSuperstepReport> superstepReports = Lists.newArrayList();
+    for (WorkerSuperstepReport report : reports.values()) {
+      if (report.getApplicationAttempt() == applicationAttempt &&
+          report.getSuperstep() == superstep) {
+        superstepReports.add(report);
+      }
+    }
+    return superstepReports;
+  }
+
+  /**
+   * Get the hostname and ids of all workers which finished a superstep.
+   *
+   * @param applicationAttempt Application attempt
+   * @param superstep Superstep
+   * @return Hostname and ids of the finished workers
+   */
+  public List<String> getFinishedHostnameIds(long applicationAttempt,
+      long superstep) {
+    List<String> hostnameIds = Lists.newArrayList();
+    for (WorkerSuperstepReport report :
+        getReports(applicationAttempt, superstep)) {
+      hostnameIds.add(report.getHostnameId());
+    }
+    return hostnameIds;
+  }
+
+  /**
+   * Remove all reports up to and including a superstep.
+   *
+   * @param superstep Last superstep to remove reports for
+   */
+  public void removeReports(long superstep) {
+    Iterator<WorkerSuperstepReport> iterator = reports.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().getSuperstep() <= superstep) {
+        iterator.remove();
+      }
+    }
+  }
+}
@@ -31,7 +31,11 @@ public enum MeterDesc {
   /** Total edges loaded */
   EDGES_LOADED("edges-loaded", "edges", TimeUnit.SECONDS),
   /** Total vertices loaded */
-  VERTICES_LOADED("vertices-loaded", "vertices", TimeUnit.SECONDS);
+  VERTICES_LOADED("vertices-loaded", "vertices", TimeUnit.SECONDS),
+  /** Bytes of out-of-core data read from local disks */
+  DISK_BYTES_READ("disk-bytes-read", "bytes", TimeUnit.SECONDS),
+  /** Bytes of out-of-core data written to local disks */
+  DISK_BYTES_WRITTEN("disk-bytes-written", "bytes", TimeUnit.SECONDS);
 
   /** Name of meter */
   private final String name;
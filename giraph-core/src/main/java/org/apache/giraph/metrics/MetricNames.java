@@ -74,11 +74,24 @@ public interface MetricNames {
   /** Histogram for vertices in mutations requests */
   String VERTICES_IN_MUTATION_REQUEST = "vertices-per-mutations-request";
 
+  /** Size of requests before compression */
+  String REQUEST_COMPRESSION_INPUT_BYTES = "request-compression-input-bytes";
+  /** Size of requests after compression */
+  String REQUEST_COMPRESSION_OUTPUT_BYTES =
+      "request-compression-output-bytes";
+  /** Time spent compressing requests */
+  String REQUEST_COMPRESSION_NANOS = "request-compression-nanos";
+  /** Requests sent uncompressed as they were too small or incompressible */
+  String REQUEST_COMPRESSION_SKIPPED = "request-compression-skipped";
+
   /** Number of bytes sent in superstep */
   String SENT_BYTES = "sent-bytes";
   /** Number of bytes received in superstep */
   String RECEIVED_BYTES = "received-bytes";
 
+  /** Milliseconds out-of-core data waited for local disks to load it */
+  String DISK_DEMAND_LOAD_WAIT_MSECS = "disk-demand-load-wait-ms";
+
   /** PercentGauge of memory free */
   String MEMORY_FREE_PERCENT = "memory-free-pct";
 
@@ -0,0 +1,632 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.partition;
+
+import org.apache.giraph.comm.netty.handler.RequestCompressionAlgorithm;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.edge.Edge;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.utils.ExtendedDataInput;
+import org.apache.giraph.utils.ExtendedDataOutput;
+import org.apache.giraph.utils.PrimitiveVertexIds;
+import org.apache.giraph.utils.WritableUtils;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.util.Progressable;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Partition which keeps its vertices serialized in compressed blocks of up
+ * to giraph.compressedPartitionBlockSize vertices, compressed with
+ * giraph.partitionCompressionAlgorithm. Like {@link ByteArrayPartition} it
+ * trades CPU for memory, but neighboring vertices compress together and
+ * there is no map entry holding an array per vertex, only an id to
+ * location entry (primitive for int and long ids).
+ *
+ * A block is decompressed when one of its vertices is accessed, and kept
+ * decompressed in a cache of the giraph.compressedPartitionCachedBlocks
+ * most recently used blocks. Changed blocks are recompressed when they
+ * leave the cache or the partition is written. Iteration goes block by
+ * block, so with the default cache of a single block every block is
+ * decompressed and recompressed at most once per superstep. Random access
+ * (e.g. resolving mutations) can thrash the cache if it is too small.
+ *
+ * Iteration and getVertex reinitialize a single representative vertex, so
+ * only one thread at a time may use them.
+ *
+ * @param <I> Vertex index value
+ * @param <V> Vertex value
+ * @param <E> Edge value
+ */
+@SuppressWarnings("rawtypes")
+public class CompressedBlockPartition<I extends WritableComparable,
+    V extends Writable, E extends Writable>
+    extends BasicPartition<I, V, E>
+    implements ReusesObjectsPartition<I, V, E> {
+  /** Location of each vertex id, if ids are int or long */
+  private Long2IntOpenHashMap primitiveLocations;
+  /** Location of each vertex id, for other ids */
+  private Object2IntOpenHashMap<I> locations;
+  /** Blocks of vertices, location / blockSize is the block of a location */
+  private List<Block> blocks;
+  /** Maximum number of vertices in a block */
+  private int blockSize;
+  /** Locations freed by removed vertices */
+  private IntArrayList freeLocations;
+  /** Decompressed blocks, least recently used first */
+  private Map<Block, Block> cache;
+  /** Maximum number of decompressed blocks */
+  private int cachedBlocks;
+  /** Algorithm to compress blocks with */
+  private RequestCompressionAlgorithm algorithm;
+  /** Total number of out-edges */
+  private long edgeCount;
+  /** Buffer to serialize vertices and blocks with */
+  private ExtendedDataOutput buffer;
+  /** Representative vertex */
+  private Vertex<I, V, E> representativeVertex;
+  /** Location the representative vertex was last read from, or -1 */
+  private int representativeLocation;
+  /** Representative combiner vertex */
+  private Vertex<I, V, E> representativeCombinerVertex;
+
+  /**
+   * Constructor for reflection.
+   */
+  public CompressedBlockPartition() { }
+
+  @Override
+  public void initialize(int partitionId, Progressable progressable) {
+    super.initialize(partitionId, progressable);
+    initializeBlocks(
+        GiraphConstants.COMPRESSED_PARTITION_BLOCK_SIZE.get(getConf()));
+  }
+
+  /**
+   * Create the (empty) blocks and the reusable objects.
+   *
+   * @param blockSize Maximum number of vertices in a block
+   */
+  private void initializeBlocks(int blockSize) {
+    if (blockSize <= 0) {
+      throw new IllegalStateException("initializeBlocks: Block size has " +
+          "to be positive, not " + blockSize);
+    }
+    this.blockSize = blockSize;
+    if (PrimitiveVertexIds.isSupported(getConf().getVertexIdClass())) {
+      primitiveLocations = new Long2IntOpenHashMap();
+      primitiveLocations.defaultReturnValue(-1);
+      locations = null;
+    } else {
+      locations = new Object2IntOpenHashMap<I>();
+      locations.defaultReturnValue(-1);
+      primitiveLocations = null;
+    }
+    blocks = new ArrayList<Block>();
+    freeLocations = new IntArrayList();
+    cachedBlocks = Math.max(1,
+        GiraphConstants.COMPRESSED_PARTITION_CACHED_BLOCKS.get(getConf()));
+    cache = new LinkedHashMap<Block, Block>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Block, Block> eldest) {
+        if (size() <= cachedBlocks) {
+          return false;
+        }
+        eldest.getKey().evict();
+        return true;
+      }
+    };
+    algorithm =
+        GiraphConstants.PARTITION_COMPRESSION_ALGORITHM.get(getConf());
+    edgeCount = 0;
+    buffer = getConf().createExtendedDataOutput();
+    representativeVertex = getConf().createVertex();
+    representativeVertex.initialize(
+        getConf().createVertexId(),
+        getConf().createVertexValue(),
+        getConf().createOutEdges());
+    representativeLocation = -1;
+    representativeCombinerVertex = getConf().createVertex();
+    representativeCombinerVertex.initialize(
+        getConf().createVertexId(),
+        getConf().createVertexValue(),
+        getConf().createOutEdges());
+  }
+
+  /**
+   * Get the location of a vertex id.
+   *
+   * @param vertexId Vertex id
+   * @return Location, or -1 if the vertex doesn't exist
+   */
+  private int getLocation(I vertexId) {
+    if (primitiveLocations != null) {
+      return primitiveLocations.get(PrimitiveVertexIds.getId(vertexId));
+    }
+    return locations.getInt(vertexId);
+  }
+
+  /**
+   * Remove the location of a vertex id.
+   *
+   * @param vertexId Vertex id
+   * @return Location the vertex had, or -1 if it didn't exist
+   */
+  private int removeLocation(I vertexId) {
+    if (primitiveLocations != null) {
+      return primitiveLocations.remove(
+          PrimitiveVertexIds.getId(vertexId));
+    }
+    return locations.removeInt(vertexId);
+  }
+
+  /**
+   * Get a free location for a new vertex id, appending to the last block
+   * unless removed vertices left a location free.
+   *
+   * @param vertexId Vertex id, copied if ids are not primitive
+   * @return Location
+   */
+  private int allocateLocation(I vertexId) {
+    int location;
+    if (!freeLocations.isEmpty()) {
+      location = freeLocations.popInt();
+    } else {
+      if (blocks.isEmpty() ||
+          blocks.get(blocks.size() - 1).slotCount == blockSize) {
+        Block block = new Block();
+        blocks.add(block);
+        cache.put(block, block);
+      }
+      Block block = blocks.get(blocks.size() - 1);
+      openBlock(block);
+      location = (blocks.size() - 1) * blockSize + block.allocateSlot();
+    }
+    putLocation(vertexId, location);
+    return location;
+  }
+
+  /**
+   * Set the location of a vertex id.
+   *
+   * @param vertexId Vertex id, copied if ids are not primitive
+   * @param location Location
+   */
+  private void putLocation(I vertexId, int location) {
+    if (primitiveLocations != null) {
+      primitiveLocations.put(PrimitiveVertexIds.getId(vertexId), location);
+    } else {
+      I vertexIdCopy = getConf().createVertexId();
+      WritableUtils.readFieldsFromByteArray(
+          WritableUtils.writeToByteArray(vertexId), vertexIdCopy);
+      locations.put(vertexIdCopy, location);
+    }
+  }
+
+  /**
+   * Make sure a block is decompressed, and mark it as the most recently
+   * used one.
+   *
+   * @param block Block
+   */
+  private void openBlock(Block block) {
+    if (cache.get(block) == null) {
+      block.decompress();
+      cache.put(block, block);
+    }
+  }
+
+  /**
+   * Reinitialize a vertex from its location, reusing its id, value and
+   * out-edges objects.
+   *
+   * @param location Location
+   * @param vertex Vertex to reinitialize
+   */
+  private void readVertex(int location, Vertex<I, V, E> vertex) {
+    Block block = blocks.get(location / blockSize);
+    openBlock(block);
+    byte[] vertexData = block.slots[location % blockSize];
+    try {
+      WritableUtils.reinitializeVertexFromDataInput(
+          getConf().createExtendedDataInput(
+              vertexData, 0, vertexData.length), vertex, getConf());
+    } catch (IOException e) {
+      throw new IllegalStateException("readVertex: IOException", e);
+    }
+    if (vertex == representativeVertex) {
+      representativeLocation = location;
+    }
+  }
+
+  /**
+   * Store a vertex at a location.
+   *
+   * @param location Location
+   * @param vertex Vertex
+   */
+  private void writeVertex(int location, Vertex<I, V, E> vertex) {
+    Block block = blocks.get(location / blockSize);
+    // Open first, evicting another block reuses the buffer
+    openBlock(block);
+    int slot = location % blockSize;
+    buffer.reset();
+    try {
+      WritableUtils.writeVertexToDataOutput(buffer, vertex, getConf());
+    } catch (IOException e) {
+      throw new IllegalStateException("writeVertex: IOException", e);
+    }
+    int length = buffer.getPos();
+    byte[] vertexData = block.slots[slot];
+    if (vertexData != null && vertexData.length == length) {
+      System.arraycopy(buffer.getByteArray(), 0, vertexData, 0, length);
+    } else {
+      block.slots[slot] = Arrays.copyOf(buffer.getByteArray(), length);
+    }
+    edgeCount += vertex.getNumEdges() - block.edgeCounts[slot];
+    block.edgeCounts[slot] = vertex.getNumEdges();
+    block.dirty = true;
+  }
+
+  @Override
+  public synchronized Vertex<I, V, E> getVertex(I vertexIndex) {
+    int location = getLocation(vertexIndex);
+    if (location < 0) {
+      return null;
+    }
+    readVertex(location, representativeVertex);
+    return representativeVertex;
+  }
+
+  @Override
+  public synchronized Vertex<I, V, E> putVertex(Vertex<I, V, E> vertex) {
+    int location = getLocation(vertex.getId());
+    Vertex<I, V, E> oldVertex = null;
+    if (location < 0) {
+      location = allocateLocation(vertex.getId());
+    } else {
+      readVertex(location, representativeCombinerVertex);
+      oldVertex = representativeCombinerVertex;
+    }
+    writeVertex(location, vertex);
+    return oldVertex;
+  }
+
+  @Override
+  public synchronized Vertex<I, V, E> removeVertex(I vertexIndex) {
+    int location = removeLocation(vertexIndex);
+    if (location < 0) {
+      return null;
+    }
+    readVertex(location, representativeVertex);
+    representativeLocation = -1;
+    Block block = blocks.get(location / blockSize);
+    int slot = location % blockSize;
+    edgeCount -= block.edgeCounts[slot];
+    block.edgeCounts[slot] = 0;
+    block.slots[slot] = null;
+    block.dirty = true;
+    freeLocations.add(location);
+    return representativeVertex;
+  }
+
+  @Override
+  public synchronized void addPartition(Partition<I, V, E> partition) {
+    // Only work with other CompressedBlockPartition instances
+    if (!(partition instanceof CompressedBlockPartition)) {
+      throw new IllegalStateException("addPartition: Cannot add partition " +
+          "of type " + partition.getClass());
+    }
+    for (Vertex<I, V, E> vertex : partition) {
+      putOrCombine(vertex);
+    }
+  }
+
+  @Override
+  public synchronized boolean putOrCombine(Vertex<I, V, E> vertex) {
+    int location = getLocation(vertex.getId());
+    if (location < 0) {
+      writeVertex(allocateLocation(vertex.getId()), vertex);
+      return true;
+    }
+    readVertex(location, representativeVertex);
+    getVertexValueCombiner().combine(representativeVertex.getValue(),
+        vertex.getValue());
+    // Add the edges to the representative vertex
+    for (Edge<I, E> edge : vertex.getEdges()) {
+      representativeVertex.addEdge(edge);
+    }
+    writeVertex(location, representativeVertex);
+    return false;
+  }
+
+  @Override
+  public synchronized long getVertexCount() {
+    return primitiveLocations != null ?
+        primitiveLocations.size() : locations.size();
+  }
+
+  @Override
+  public synchronized long getEdgeCount() {
+    return edgeCount;
+  }
+
+  @Override
+  public synchronized void saveVertex(Vertex<I, V, E> vertex) {
+    int location;
+    if (vertex == representativeVertex && representativeLocation >= 0) {
+      // The vertex was read from this partition, no lookup is needed
+      location = representativeLocation;
+    } else {
+      location = getLocation(vertex.getId());
+      if (location < 0) {
+        location = allocateLocation(vertex.getId());
+      }
+    }
+    writeVertex(location, vertex);
+  }
+
+  @Override
+  public synchronized void write(DataOutput output) throws IOException {
+    super.write(output);
+    output.writeInt(blockSize);
+    output.writeInt(blocks.size());
+    for (Block block : blocks) {
+      progress();
+      block.flush();
+      output.writeInt(block.slotCount);
+      output.writeInt(block.decompressedSize);
+      output.writeInt(block.compressed.length);
+      output.write(block.compressed);
+      for (int slot = 0; slot < block.slotCount; slot++) {
+        output.writeInt(block.edgeCounts[slot]);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void readFields(DataInput input) throws IOException {
+    super.readFields(input);
+    initializeBlocks(input.readInt());
+    int blockCount = input.readInt();
+    for (int i = 0; i < blockCount; ++i) {
+      progress();
+      Block block = new Block();
+      block.slotCount = input.readInt();
+      block.decompressedSize = input.readInt();
+      block.compressed = new byte[input.readInt()];
+      input.readFully(block.compressed);
+      block.edgeCounts = new int[block.slotCount];
+      for (int slot = 0; slot < block.slotCount; slot++) {
+        block.edgeCounts[slot] = input.readInt();
+        edgeCount += block.edgeCounts[slot];
+      }
+      block.slots = null;
+      block.dirty = false;
+      blocks.add(block);
+      // Decompress once to find the ids, without caching the block
+      block.decompress();
+      for (int slot = 0; slot < block.slotCount; slot++) {
+        int location = i * blockSize + slot;
+        if (block.slots[slot] == null) {
+          freeLocations.add(location);
+          continue;
+        }
+        readVertex(location, representativeVertex);
+        if (getLocation(representativeVertex.getId()) >= 0) {
+          throw new IllegalStateException("readFields: Already saw vertex " +
+              representativeVertex.getId());
+        }
+        putLocation(representativeVertex.getId(), location);
+      }
+      cache.remove(block);
+      block.evict();
+    }
+    representativeLocation = -1;
+  }
+
+  @Override
+  public Iterator<Vertex<I, V, E>> iterator() {
+    return new RepresentativeVertexIterator();
+  }
+
+  @Override
+  public String toString() {
+    return "(id=" + getId() + ",V=" + getVertexCount() + ",blocks=" +
+        blocks.size() + ")";
+  }
+
+  /**
+   * Block of up to blockSize vertices, stored compressed and, while it is
+   * in the cache, also decompressed with a serialized vertex per slot.
+   * Compressed, a block is the sequence of its slots, each an int length
+   * (0 for free slots) followed by the serialized vertex.
+   */
+  private class Block {
+    /** Compressed slots, up to date unless dirty */
+    private byte[] compressed;
+    /** Size of the compressed slots once decompressed */
+    private int decompressedSize;
+    /**
+     * Serialized vertex in each slot, null if the slot is free, or null
+     * altogether if the block is not decompressed
+     */
+    private byte[][] slots = new byte[0][];
+    /** Number of out-edges of the vertex in each slot */
+    private int[] edgeCounts = new int[0];
+    /** Number of slots ever used */
+    private int slotCount;
+    /** Whether slots changed since they were last compressed */
+    private boolean dirty = true;
+
+    /**
+     * Use the next slot of a decompressed block, which must not be full.
+     *
+     * @return Slot
+     */
+    private int allocateSlot() {
+      if (slotCount == edgeCounts.length) {
+        int capacity = Math.min(blockSize, Math.max(16, slotCount * 2));
+        slots = Arrays.copyOf(slots, capacity);
+        edgeCounts = Arrays.copyOf(edgeCounts, capacity);
+      }
+      return slotCount++;
+    }
+
+    /**
+     * Decompress the slots, if they aren't already.
+     */
+    private void decompress() {
+      if (slots != null) {
+        return;
+      }
+      byte[] data = compressed;
+      try {
+        if (algorithm != RequestCompressionAlgorithm.NONE) {
+          ByteBuf decompressed = Unpooled.buffer(decompressedSize);
+          algorithm.decompress(Unpooled.wrappedBuffer(compressed),
+              decompressed);
+          data = decompressed.array();
+        }
+        slots = new byte[edgeCounts.length][];
+        ExtendedDataInput input =
+            getConf().createExtendedDataInput(data, 0, decompressedSize);
+        for (int slot = 0; slot < slotCount; slot++) {
+          int length = input.readInt();
+          if (length > 0) {
+            slots[slot] = new byte[length];
+            input.readFully(slots[slot]);
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("decompress: IOException", e);
+      }
+    }
+
+    /**
+     * Recompress the slots if they changed. The block stays decompressed.
+     */
+    private void flush() {
+      if (!dirty) {
+        return;
+      }
+      buffer.reset();
+      try {
+        for (int slot = 0; slot < slotCount; slot++) {
+          if (slots[slot] == null) {
+            buffer.writeInt(0);
+          } else {
+            buffer.writeInt(slots[slot].length);
+            buffer.write(slots[slot]);
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("flush: IOException", e);
+      }
+      decompressedSize = buffer.getPos();
+      if (algorithm == RequestCompressionAlgorithm.NONE) {
+        compressed = Arrays.copyOf(buffer.getByteArray(), decompressedSize);
+      } else {
+        ByteBuf out = Unpooled.buffer(decompressedSize / 2 + 16);
+        algorithm.compress(Unpooled.wrappedBuffer(
+            buffer.getByteArray(), 0, decompressedSize), out);
+        compressed = new byte[out.readableBytes()];
+        out.readBytes(compressed);
+      }
+      dirty = false;
+    }
+
+    /**
+     * Recompress the slots if they changed and drop the decompressed ones.
+     */
+    private void evict() {
+      flush();
+      slots = null;
+    }
+  }
+
+  /**
+   * Iterator over the blocks and their slots in order, reinitializing the
+   * same representative vertex from each used slot.
+   */
+  private class RepresentativeVertexIterator implements
+      Iterator<Vertex<I, V, E>> {
+    /** Next location to check */
+    private int nextLocation = 0;
+
+    /**
+     * Skip free locations and the unused end of blocks.
+     */
+    private void skipFreeLocations() {
+      while (nextLocation / blockSize < blocks.size()) {
+        Block block = blocks.get(nextLocation / blockSize);
+        int slot = nextLocation % blockSize;
+        if (slot >= block.slotCount) {
+          nextLocation = (nextLocation / blockSize + 1) * blockSize;
+          continue;
+        }
+        openBlock(block);
+        if (block.slots[slot] != null) {
+          return;
+        }
+        nextLocation++;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      synchronized (CompressedBlockPartition.this) {
+        skipFreeLocations();
+        return nextLocation / blockSize < blocks.size();
+      }
+    }
+
+    @Override
+    public Vertex<I, V, E> next() {
+      synchronized (CompressedBlockPartition.this) {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        readVertex(nextLocation++, representativeVertex);
+        return representativeVertex;
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new IllegalAccessError("remove: This method is not supported.");
+    }
+  }
+}
@@ -25,15 +25,11 @@ import static org.apache.giraph.conf.GiraphConstants.NUM_INPUT_THREADS;
 import static org.apache.giraph.conf.GiraphConstants.NUM_OUTPUT_THREADS;
 import static org.apache.giraph.conf.GiraphConstants.PARTITIONS_DIRECTORY;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map;
@@ -46,6 +42,8 @@ import org.apache.giraph.bsp.CentralizedServiceWorker;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.edge.OutEdges;
 import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.utils.io.DiskIOPriority;
+import org.apache.giraph.utils.io.DiskIOScheduler;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.mapreduce.Mapper;
@@ -116,6 +114,8 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
   /** Class logger. */
   private static final Logger LOG =
       Logger.getLogger(DiskBackedPartitionStore.class);
+  /** Buffer size for reading and writing partition files */
+  private static final int BUFFER_SIZE = 8192;
   /** States the partition can be found in */
   private enum State { INIT, ACTIVE, INACTIVE, ONDISK };
 
@@ -132,6 +132,8 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
   private final Context context;
   /** Base path where the partition files are written to */
   private final String[] basePaths;
+  /** Scheduler for reading and writing partition files */
+  private final DiskIOScheduler diskIOScheduler;
   /** Used to hash partition Ids */
   private final HashFunction hasher = Hashing.murmur3_32();
   /** Maximum number of slots. Read-only value, no need for concurrency
@@ -160,6 +162,7 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
     this.conf = conf;
     this.context = context;
     this.serviceWorker = serviceWorker;
+    this.diskIOScheduler = DiskIOScheduler.get(serviceWorker);
 
     this.passedThroughEdges = 0;
     this.numPartitionsInMem = new AtomicInteger(0);
@@ -272,6 +275,7 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
   public void putPartition(Partition<I, V, E> partition) {
     Integer id = partition.getId();
     MetaPartition meta = partitions.get(id);
+    getPartitionMetadata(id).setVertexCount(partition.getVertexCount());
     putPartition(meta);
   }
 
@@ -299,6 +303,25 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
     return null;
   }
 
+  @Override
+  public Iterable<Vertex<I, V, E>> removePartitionVertices(Integer id) {
+    MetaPartition meta = partitions.get(id);
+    if (meta == null) {
+      return null;
+    }
+    synchronized (meta) {
+      // Edges of a static graph are not rewritten on every offload, so they
+      // can be in a different order than the vertices. Only stream
+      // partitions whose files were written together.
+      if (meta.getState() == State.ONDISK && !conf.isStaticGraph()) {
+        partitions.remove(id);
+        removePartitionMetadata(id);
+        return new OnDiskVertices(id, meta.getVertexCount());
+      }
+    }
+    return removePartition(id);
+  }
+
   @Override
   public void addPartition(Partition<I, V, E> partition) {
     Integer id = partition.getId();
@@ -412,7 +435,9 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
 
   /**
    * Load a partition from disk. It deletes the files after the load,
-   * except for the edges, if the graph is static.
+   * except for the edges, if the graph is static. The files are read in
+   * chunks on their disk's I/O thread and deserialized on the calling
+   * thread.
    *
    * @param id The id of the partition to load
    * @param numVertices The number of vertices contained on disk
@@ -431,15 +456,17 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
         partition.getId() + " from " + file.getAbsolutePath());
     }
 
-    FileInputStream filein = new FileInputStream(file);
-    BufferedInputStream bufferin = new BufferedInputStream(filein);
-    DataInputStream inputStream  = new DataInputStream(bufferin);
-    for (int i = 0; i < numVertices; ++i) {
-      Vertex<I, V , E> vertex = conf.createVertex();
-      readVertexData(inputStream, vertex);
-      partition.putVertex(vertex);
+    DataInputStream input =
+        diskIOScheduler.openScheduledInput(file, DiskIOPriority.DEMAND_LOAD);
+    try {
+      for (int i = 0; i < numVertices; ++i) {
+        Vertex<I, V , E> vertex = conf.createVertex();
+        readVertexData(input, vertex);
+        partition.putVertex(vertex);
+      }
+    } finally {
+      input.close();
     }
-    inputStream.close();
     if (!file.delete()) {
       String msg = "loadPartition: failed to delete " + file.getAbsolutePath();
       LOG.error(msg);
@@ -454,13 +481,15 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
         partition.getId() + " from " + file.getAbsolutePath());
     }
 
-    filein = new FileInputStream(file);
-    bufferin = new BufferedInputStream(filein);
-    inputStream  = new DataInputStream(bufferin);
-    for (int i = 0; i < numVertices; ++i) {
-      readOutEdges(inputStream, partition);
+    input =
+        diskIOScheduler.openScheduledInput(file, DiskIOPriority.DEMAND_LOAD);
+    try {
+      for (int i = 0; i < numVertices; ++i) {
+        readOutEdges(input, partition);
+      }
+    } finally {
+      input.close();
     }
-    inputStream.close();
     // If the graph is static, keep the file around.
     if (!conf.isStaticGraph() && !file.delete()) {
       String msg = "loadPartition: failed to delete " + file.getAbsolutePath();
@@ -471,7 +500,8 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
   }
 
   /**
-   * Write a partition to disk.
+   * Write a partition to disk. The partition is serialized on the calling
+   * thread and written in chunks on its disk's I/O thread.
    *
    * @param meta meta partition containing the partition to offload
    * @throws IOException
@@ -498,13 +528,16 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
         partition.getId() + " to " + file.getAbsolutePath());
     }
 
-    FileOutputStream fileout = new FileOutputStream(file);
-    BufferedOutputStream bufferout = new BufferedOutputStream(fileout);
-    DataOutputStream outputStream  = new DataOutputStream(bufferout);
-    for (Vertex<I, V, E> vertex : partition) {
-      writeVertexData(outputStream, vertex);
+    DataOutputStream output =
+        diskIOScheduler.openScheduledOutput(file, DiskIOPriority.EVICTION,
+            false);
+    try {
+      for (Vertex<I, V, E> vertex : partition) {
+        writeVertexData(output, vertex);
+      }
+    } finally {
+      output.close();
     }
-    outputStream.close();
 
     // Avoid writing back edges if we have already written them once and
     // the graph is not changing.
@@ -526,14 +559,31 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
           partition.getId() + " to " + file.getAbsolutePath());
       }
 
-      fileout = new FileOutputStream(file);
-      bufferout = new BufferedOutputStream(fileout);
-      outputStream = new DataOutputStream(bufferout);
-      for (Vertex<I, V, E> vertex : partition) {
-        writeOutEdges(outputStream, vertex);
+      output = diskIOScheduler.openScheduledOutput(file,
+          DiskIOPriority.EVICTION, false);
+      try {
+        for (Vertex<I, V, E> vertex : partition) {
+          writeOutEdges(output, vertex);
+        }
+      } finally {
+        output.close();
       }
-      outputStream.close();
     }
+    updateOnDiskMetadata(partition.getId(), partition.getVertexCount());
+  }
+
+  /**
+   * Update the metadata of a partition which was written to disk.
+   *
+   * @param id Partition id
+   * @param vertexCount Number of vertices in the partition
+   */
+  private void updateOnDiskMetadata(int id, long vertexCount) {
+    PartitionMetadata metadata = getPartitionMetadata(id);
+    metadata.setVertexCount(vertexCount);
+    metadata.setInMemory(false);
+    metadata.setSerializedBytes(new File(getVerticesPath(id)).length() +
+        new File(getEdgesPath(id)).length());
   }
 
   /**
@@ -549,25 +599,26 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
     Partition<I, V, E> partition) throws IOException {
 
     Integer id = partition.getId();
-    File file = new File(getVerticesPath(id));
-    DataOutputStream outputStream = null;
-
-    FileOutputStream fileout = new FileOutputStream(file, true);
-    BufferedOutputStream bufferout = new BufferedOutputStream(fileout);
-    outputStream = new DataOutputStream(bufferout);
-    for (Vertex<I, V, E> vertex : partition) {
-      writeVertexData(outputStream, vertex);
+    DataOutputStream output = diskIOScheduler.openScheduledOutput(
+        new File(getVerticesPath(id)), DiskIOPriority.EVICTION, true);
+    try {
+      for (Vertex<I, V, E> vertex : partition) {
+        writeVertexData(output, vertex);
+      }
+    } finally {
+      output.close();
     }
-    outputStream.close();
 
-    file = new File(getEdgesPath(id));
-    fileout = new FileOutputStream(file, true);
-    bufferout = new BufferedOutputStream(fileout);
-    outputStream = new DataOutputStream(bufferout);
-    for (Vertex<I, V, E> vertex : partition) {
-      writeOutEdges(outputStream, vertex);
+    output = diskIOScheduler.openScheduledOutput(
+        new File(getEdgesPath(id)), DiskIOPriority.EVICTION, true);
+    try {
+      for (Vertex<I, V, E> vertex : partition) {
+        writeOutEdges(output, vertex);
+      }
+    } finally {
+      output.close();
     }
-    outputStream.close();
+    updateOnDiskMetadata(id, meta.getVertexCount());
   }
 
   /**
@@ -783,6 +834,7 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
               throw new IllegalStateException(e);
             }
             meta.setActive(partition);
+            getPartitionMetadata(meta.getId()).setInMemory(true);
 
             isNotDone = false;
             break;
@@ -891,6 +943,8 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
           throw new IllegalStateException(msg);
         }
 
+        getPartitionMetadata(meta.getId()).setVertexCount(
+            partition.getVertexCount());
         synchronized (lru) {
           if (numPartitionsInMem.get() < maxPartitionsInMem || meta.isSticky) {
             meta.setState(State.INACTIVE);
@@ -990,7 +1044,10 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
           }
         } else {
           existing.addPartition(partition);
+          getPartitionMetadata(meta.getId()).setVertexCount(
+              existing.getVertexCount());
         }
+        getPartitionMetadata(meta.getId()).resetHaltedSuperstep();
       }
     }
   }
@@ -1071,6 +1128,106 @@ public class DiskBackedPartitionStore<I extends WritableComparable,
         }
       }
       partitions.remove(id);
+      removePartitionMetadata(id);
+    }
+  }
+
+  /**
+   * Vertices of a partition which was removed from the store while on disk.
+   * Vertices are read one at a time from the partition files, which are
+   * deleted once fully read.
+   */
+  private class OnDiskVertices implements Iterable<Vertex<I, V, E>> {
+    /** Id of the partition */
+    private final int id;
+    /** Number of vertices in the partition files */
+    private final long numVertices;
+
+    /**
+     * Constructor
+     *
+     * @param id Id of the partition
+     * @param numVertices Number of vertices in the partition files
+     */
+    public OnDiskVertices(int id, long numVertices) {
+      this.id = id;
+      this.numVertices = numVertices;
+    }
+
+    @Override
+    public Iterator<Vertex<I, V, E>> iterator() {
+      final DataInputStream verticesIn;
+      final DataInputStream edgesIn;
+      try {
+        verticesIn = diskIOScheduler.openInput(
+            new File(getVerticesPath(id)), BUFFER_SIZE);
+        edgesIn = diskIOScheduler.openInput(
+            new File(getEdgesPath(id)), BUFFER_SIZE);
+      } catch (IOException e) {
+        throw new IllegalStateException("iterator: Failed to open files " +
+            "of partition " + id, e);
+      }
+      return new Iterator<Vertex<I, V, E>>() {
+        /** Number of vertices read so far */
+        private long read = 0;
+        /** Whether files were closed already */
+        private boolean closed = false;
+
+        @Override
+        public boolean hasNext() {
+          if (read < numVertices) {
+            return true;
+          }
+          close();
+          return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Vertex<I, V, E> next() {
+          Vertex<I, V, E> vertex = conf.createVertex();
+          try {
+            readVertexData(verticesIn, vertex);
+            I edgesId = conf.createVertexId();
+            edgesId.readFields(edgesIn);
+            if (!edgesId.equals(vertex.getId())) {
+              throw new IllegalStateException("next: Edges of " + edgesId +
+                  " found in place of " + vertex.getId() + " in partition " +
+                  id);
+            }
+            ((OutEdges<I, E>) vertex.getEdges()).readFields(edgesIn);
+          } catch (IOException e) {
+            throw new IllegalStateException("next: Failed to read vertex " +
+                "of partition " + id, e);
+          }
+          ++read;
+          return vertex;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException(
+              "remove: Not supported on on-disk partitions");
+        }
+
+        /**
+         * Close the partition files and delete them
+         */
+        private void close() {
+          if (closed) {
+            return;
+          }
+          closed = true;
+          try {
+            verticesIn.close();
+            edgesIn.close();
+          } catch (IOException e) {
+            throw new IllegalStateException("close: Failed to close files " +
+                "of partition " + id, e);
+          }
+          deletePartitionFiles(id);
+        }
+      };
     }
   }
 
@@ -51,6 +51,47 @@ public class PartitionBalancer {
   /** Rebalance across supersteps by vertices */
   public static final String VERTICES_BALANCE_ALGORITHM =
     "vertices";
+  /**
+   * Rebalance across supersteps by measured load (compute time and sent
+   * message bytes), moving partitions only when it pays off
+   */
+  public static final String LOAD_BALANCE_ALGORITHM =
+    "load";
+  /**
+   * Network throughput used by the load algorithm to convert bytes to
+   * milliseconds, both for sent messages and for moved partitions
+   */
+  public static final String LOAD_BALANCE_NETWORK_BYTES_PER_MS =
+    "hash.loadBalance.networkBytesPerMs";
+  /** Default network throughput, about 100 MB/s */
+  public static final float LOAD_BALANCE_NETWORK_BYTES_PER_MS_DEFAULT =
+    100000f;
+  /** Estimated serialized size of a vertex when moving a partition */
+  public static final String LOAD_BALANCE_BYTES_PER_VERTEX =
+    "hash.loadBalance.bytesPerVertex";
+  /** Default estimated serialized size of a vertex */
+  public static final int LOAD_BALANCE_BYTES_PER_VERTEX_DEFAULT = 32;
+  /** Estimated serialized size of an edge when moving a partition */
+  public static final String LOAD_BALANCE_BYTES_PER_EDGE =
+    "hash.loadBalance.bytesPerEdge";
+  /** Default estimated serialized size of an edge */
+  public static final int LOAD_BALANCE_BYTES_PER_EDGE_DEFAULT = 12;
+  /**
+   * Maximum allowed ratio of the most loaded worker to the average before
+   * the load algorithm starts moving partitions
+   */
+  public static final String LOAD_BALANCE_MAX_IMBALANCE =
+    "hash.loadBalance.maxImbalance";
+  /** Default maximum allowed imbalance */
+  public static final float LOAD_BALANCE_MAX_IMBALANCE_DEFAULT = 1.1f;
+  /**
+   * Number of future supersteps a move is expected to keep paying off,
+   * savings are multiplied by it before comparing with the transfer cost
+   */
+  public static final String LOAD_BALANCE_AMORTIZATION_SUPERSTEPS =
+    "hash.loadBalance.amortizationSupersteps";
+  /** Default number of supersteps a move is amortized over */
+  public static final int LOAD_BALANCE_AMORTIZATION_SUPERSTEPS_DEFAULT = 2;
   /** Class logger */
   private static Logger LOG = Logger.getLogger(PartitionBalancer.class);
 
@@ -223,6 +264,9 @@ public class PartitionBalancer {
     BalanceValue balanceValue = BalanceValue.UNSET;
     if (balanceAlgorithm.equals(STATIC_BALANCE_ALGORITHM)) {
       return partitionOwners;
+    } else if (balanceAlgorithm.equals(LOAD_BALANCE_ALGORITHM)) {
+      return balancePartitionsByLoad(conf, partitionOwners,
+          allPartitionStats, availableWorkerInfos);
     } else if (balanceAlgorithm.equals(EGDE_BALANCE_ALGORITHM)) {
       balanceValue = BalanceValue.EDGES;
     } else if (balanceAlgorithm.equals(VERTICES_BALANCE_ALGORITHM)) {
@@ -300,6 +344,152 @@ public class PartitionBalancer {
     return partitionOwnerList;
   }
 
+  /**
+   * Balance the partitions by measured load. The load of a partition is the
+   * time it spent computing plus the time its sent messages take on the
+   * network. Starting from the current assignment, partitions are moved one
+   * by one from the most loaded worker to the least loaded one, as long as
+   * the most loaded worker is above the allowed imbalance and the projected
+   * savings (over the amortization supersteps) outweigh the time needed to
+   * send the partition through the partition exchange.
+   *
+   * @param conf Configuration with the cost model parameters
+   * @param partitionOwners All the owners of all partitions
+   * @param allPartitionStats All the partition stats
+   * @param availableWorkerInfos All the available workers
+   * @return Partition owners, with previous worker set for moved ones
+   */
+  private static Collection<PartitionOwner> balancePartitionsByLoad(
+      Configuration conf,
+      Collection<PartitionOwner> partitionOwners,
+      Collection<PartitionStats> allPartitionStats,
+      Collection<WorkerInfo> availableWorkerInfos) {
+    float networkBytesPerMs = conf.getFloat(
+        LOAD_BALANCE_NETWORK_BYTES_PER_MS,
+        LOAD_BALANCE_NETWORK_BYTES_PER_MS_DEFAULT);
+    int bytesPerVertex = conf.getInt(LOAD_BALANCE_BYTES_PER_VERTEX,
+        LOAD_BALANCE_BYTES_PER_VERTEX_DEFAULT);
+    int bytesPerEdge = conf.getInt(LOAD_BALANCE_BYTES_PER_EDGE,
+        LOAD_BALANCE_BYTES_PER_EDGE_DEFAULT);
+    float maxImbalance = conf.getFloat(LOAD_BALANCE_MAX_IMBALANCE,
+        LOAD_BALANCE_MAX_IMBALANCE_DEFAULT);
+    int amortizationSupersteps = conf.getInt(
+        LOAD_BALANCE_AMORTIZATION_SUPERSTEPS,
+        LOAD_BALANCE_AMORTIZATION_SUPERSTEPS_DEFAULT);
+
+    Map<Integer, PartitionStats> idStatMap =
+        new HashMap<Integer, PartitionStats>();
+    for (PartitionStats partitionStats : allPartitionStats) {
+      idStatMap.put(partitionStats.getPartitionId(), partitionStats);
+    }
+
+    // Current load and partitions of every worker
+    Map<WorkerInfo, Double> workerLoadMap =
+        new HashMap<WorkerInfo, Double>();
+    Map<WorkerInfo, List<PartitionOwner>> workerOwnersMap =
+        new HashMap<WorkerInfo, List<PartitionOwner>>();
+    for (WorkerInfo workerInfo : availableWorkerInfos) {
+      workerLoadMap.put(workerInfo, 0d);
+      workerOwnersMap.put(workerInfo, new ArrayList<PartitionOwner>());
+    }
+    Map<PartitionOwner, Double> ownerLoadMap =
+        new HashMap<PartitionOwner, Double>();
+    double totalLoad = 0;
+    for (PartitionOwner partitionOwner : partitionOwners) {
+      PartitionStats partitionStats =
+          idStatMap.get(partitionOwner.getPartitionId());
+      if (partitionStats == null) {
+        throw new IllegalStateException(
+            "balancePartitionsByLoad: Missing partition " +
+                "stats for " + partitionOwner);
+      }
+      partitionOwner.setPreviousWorkerInfo(null);
+      double load = partitionStats.getComputeMs() +
+          partitionStats.getMessageBytesSentCount() / networkBytesPerMs;
+      ownerLoadMap.put(partitionOwner, load);
+      totalLoad += load;
+      List<PartitionOwner> workerOwners =
+          workerOwnersMap.get(partitionOwner.getWorkerInfo());
+      if (workerOwners == null) {
+        throw new IllegalStateException(
+            "balancePartitionsByLoad: Partition " + partitionOwner +
+                " is owned by a worker which is not available");
+      }
+      workerOwners.add(partitionOwner);
+      workerLoadMap.put(partitionOwner.getWorkerInfo(),
+          workerLoadMap.get(partitionOwner.getWorkerInfo()) + load);
+    }
+    double maxAllowedLoad =
+        maxImbalance * totalLoad / availableWorkerInfos.size();
+
+    int moved = 0;
+    // Every partition moves at most once, so this terminates
+    for (int i = 0; i < partitionOwners.size(); ++i) {
+      WorkerInfo maxWorker = null;
+      WorkerInfo minWorker = null;
+      for (Map.Entry<WorkerInfo, Double> entry : workerLoadMap.entrySet()) {
+        if (maxWorker == null ||
+            entry.getValue() > workerLoadMap.get(maxWorker)) {
+          maxWorker = entry.getKey();
+        }
+        if (minWorker == null ||
+            entry.getValue() < workerLoadMap.get(minWorker)) {
+          minWorker = entry.getKey();
+        }
+      }
+      double maxLoad = workerLoadMap.get(maxWorker);
+      double minLoad = workerLoadMap.get(minWorker);
+      if (maxLoad <= maxAllowedLoad || maxWorker.equals(minWorker)) {
+        break;
+      }
+
+      // Find the partition whose move gives the best net gain
+      PartitionOwner bestOwner = null;
+      double bestGain = 0;
+      for (PartitionOwner partitionOwner : workerOwnersMap.get(maxWorker)) {
+        if (partitionOwner.getPreviousWorkerInfo() != null) {
+          continue;
+        }
+        double load = ownerLoadMap.get(partitionOwner);
+        double newPairMax = Math.max(maxLoad - load, minLoad + load);
+        double savingMs = (maxLoad - newPairMax) * amortizationSupersteps;
+        PartitionStats partitionStats =
+            idStatMap.get(partitionOwner.getPartitionId());
+        double transferMs = (partitionStats.getVertexCount() *
+            bytesPerVertex + partitionStats.getEdgeCount() * bytesPerEdge) /
+            networkBytesPerMs;
+        double gain = savingMs - transferMs;
+        if (gain > bestGain) {
+          bestGain = gain;
+          bestOwner = partitionOwner;
+        }
+      }
+      if (bestOwner == null) {
+        break;
+      }
+
+      double load = ownerLoadMap.get(bestOwner);
+      workerOwnersMap.get(maxWorker).remove(bestOwner);
+      workerOwnersMap.get(minWorker).add(bestOwner);
+      workerLoadMap.put(maxWorker, maxLoad - load);
+      workerLoadMap.put(minWorker, minLoad + load);
+      bestOwner.setPreviousWorkerInfo(maxWorker);
+      bestOwner.setWorkerInfo(minWorker);
+      ++moved;
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("balancePartitionsByLoad: Moving " + bestOwner +
+            " with load " + load + " ms, gain " + bestGain + " ms");
+      }
+    }
+
+    if (LOG.isInfoEnabled()) {
+      LOG.info("balancePartitionsByLoad: Moved " + moved + " partitions, " +
+          "total load " + totalLoad + " ms, max allowed worker load " +
+          maxAllowedLoad + " ms");
+    }
+    return new ArrayList<PartitionOwner>(partitionOwners);
+  }
+
   /**
    * Helper function to update partition owners and determine which
    * partitions need to be sent from a specific worker.
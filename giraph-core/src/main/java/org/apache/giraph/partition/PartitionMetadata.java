@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.partition;
+
+/**
+ * Metadata of a partition kept by a {@link PartitionStore}, so that
+ * statistics about the partition can be read without getting the
+ * partition from the store, which could force it to be loaded from disk.
+ *
+ * The vertex count and the in-memory state are maintained by the store
+ * whenever the partition is added, put back, loaded or offloaded. Edge and
+ * halted vertex counts and the compute time are taken from the statistics
+ * of the last time the partition was processed, in the input superstep or
+ * by a computation. The last superstep after which all vertices were
+ * halted is set by the computation, and is reset whenever vertices are
+ * added to the partition or mutated.
+ */
+public class PartitionMetadata {
+  /** Halted superstep of partitions which may have active vertices */
+  public static final long NO_SUPERSTEP = Long.MIN_VALUE;
+  /** Partition id */
+  private final int partitionId;
+  /** Number of vertices */
+  private volatile long vertexCount;
+  /** Number of edges, as of the last time the partition was processed */
+  private volatile long edgeCount;
+  /** Number of halted vertices, as of the last computation */
+  private volatile long haltedVertexCount;
+  /** Whether the partition is in memory */
+  private volatile boolean inMemory = true;
+  /** Size of the partition on disk, as of the last time it was written */
+  private volatile long serializedBytes;
+  /** Time the last computation of the partition took, in milliseconds */
+  private volatile long lastComputeMs;
+  /**
+   * Last superstep after which all vertices were halted, or
+   * {@link #NO_SUPERSTEP} if vertices may be active
+   */
+  private volatile long haltedSuperstep = NO_SUPERSTEP;
+
+  /**
+   * Constructor
+   *
+   * @param partitionId Partition id
+   */
+  public PartitionMetadata(int partitionId) {
+    this.partitionId = partitionId;
+  }
+
+  /**
+   * Update the counts and the compute time from the statistics of the
+   * partition after it was processed.
+   *
+   * @param partitionStats Statistics of the partition
+   */
+  public void updateStats(PartitionStats partitionStats) {
+    vertexCount = partitionStats.getVertexCount();
+    edgeCount = partitionStats.getEdgeCount();
+    haltedVertexCount = partitionStats.getFinishedVertexCount();
+    lastComputeMs = partitionStats.getComputeMs();
+  }
+
+  public int getPartitionId() {
+    return partitionId;
+  }
+
+  public long getVertexCount() {
+    return vertexCount;
+  }
+
+  public void setVertexCount(long vertexCount) {
+    this.vertexCount = vertexCount;
+  }
+
+  public long getEdgeCount() {
+    return edgeCount;
+  }
+
+  public long getHaltedVertexCount() {
+    return haltedVertexCount;
+  }
+
+  public boolean isInMemory() {
+    return inMemory;
+  }
+
+  public void setInMemory(boolean inMemory) {
+    this.inMemory = inMemory;
+  }
+
+  public long getSerializedBytes() {
+    return serializedBytes;
+  }
+
+  public void setSerializedBytes(long serializedBytes) {
+    this.serializedBytes = serializedBytes;
+  }
+
+  public long getLastComputeMs() {
+    return lastComputeMs;
+  }
+
+  public long getHaltedSuperstep() {
+    return haltedSuperstep;
+  }
+
+  public void setHaltedSuperstep(long haltedSuperstep) {
+    this.haltedSuperstep = haltedSuperstep;
+  }
+
+  /**
+   * Forget that all vertices of the partition were halted, because vertices
+   * were added to it or mutated.
+   */
+  public void resetHaltedSuperstep() {
+    haltedSuperstep = NO_SUPERSTEP;
+  }
+
+  @Override
+  public String toString() {
+    return "(id=" + partitionId + ",V=" + vertexCount + ",E=" + edgeCount +
+        ",halted=" + haltedVertexCount + ",inMemory=" + inMemory +
+        ",bytes=" + serializedBytes + ",computeMs=" + lastComputeMs +
+        ",haltedSuperstep=" + haltedSuperstep + ")";
+  }
+}
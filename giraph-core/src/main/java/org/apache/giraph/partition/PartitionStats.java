@@ -40,6 +40,8 @@ public class PartitionStats implements Writable {
   private long messagesSentCount = 0;
   /** Message byetes sent from this partition */
   private long messageBytesSentCount = 0;
+  /** Milliseconds spent computing this partition */
+  private long computeMs = 0;
 
   /**
    * Default constructor for reflection.
@@ -174,6 +176,24 @@ public class PartitionStats implements Writable {
     return messageBytesSentCount;
   }
 
+  /**
+   * Set the time spent computing this partition.
+   *
+   * @param computeMs Milliseconds spent computing.
+   */
+  public void setComputeMs(long computeMs) {
+    this.computeMs = computeMs;
+  }
+
+  /**
+   * Get the time spent computing this partition.
+   *
+   * @return Milliseconds spent computing.
+   */
+  public long getComputeMs() {
+    return computeMs;
+  }
+
   @Override
   public void readFields(DataInput input) throws IOException {
     partitionId = input.readInt();
@@ -182,6 +202,7 @@ public class PartitionStats implements Writable {
     edgeCount = input.readLong();
     messagesSentCount = input.readLong();
     messageBytesSentCount = input.readLong();
+    computeMs = input.readLong();
   }
 
   @Override
@@ -192,6 +213,7 @@ public class PartitionStats implements Writable {
     output.writeLong(edgeCount);
     output.writeLong(messagesSentCount);
     output.writeLong(messageBytesSentCount);
+    output.writeLong(computeMs);
   }
 
   @Override
@@ -199,6 +221,6 @@ public class PartitionStats implements Writable {
     return "(id=" + partitionId + ",vtx=" + vertexCount + ",finVtx=" +
         finishedVertexCount + ",edges=" + edgeCount + ",msgsSent=" +
         messagesSentCount + ",msgBytesSent=" +
-          messageBytesSentCount + ")";
+          messageBytesSentCount + ",computeMs=" + computeMs + ")";
   }
 }
@@ -18,9 +18,14 @@
 
 package org.apache.giraph.partition;
 
+import org.apache.giraph.graph.Vertex;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
 
+import com.google.common.collect.Maps;
+
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Structure that stores partitions for a worker.
  *
@@ -30,6 +35,10 @@ import org.apache.hadoop.io.WritableComparable;
  */
 public abstract class PartitionStore<I extends WritableComparable,
     V extends Writable, E extends Writable> {
+  /** Metadata of the partitions, maintained by the implementations */
+  private final ConcurrentMap<Integer, PartitionMetadata> partitionMetadata =
+      Maps.newConcurrentMap();
+
   /**
    * Add a new partition to the store or just the vertices from the partition
    * to the old partition.
@@ -64,6 +73,21 @@ public abstract class PartitionStore<I extends WritableComparable,
    */
   public abstract Partition<I, V, E> removePartition(Integer partitionId);
 
+  /**
+   * Remove a partition and return its vertices, to be iterated over only
+   * once. Stores keeping partitions out of core can stream the vertices
+   * instead of loading the whole partition in memory first, which is what
+   * makes it cheaper than {@link #removePartition(Integer)} when a
+   * partition is about to be sent to another worker.
+   *
+   * @param partitionId Partition id
+   * @return Vertices of the removed partition, null if it wasn't present
+   */
+  public Iterable<Vertex<I, V, E>> removePartitionVertices(
+      Integer partitionId) {
+    return removePartition(partitionId);
+  }
+
   /**
    * Just delete a partition
    * (more efficient than {@link #removePartition(Integer partitionID)} if the
@@ -104,6 +128,47 @@ public abstract class PartitionStore<I extends WritableComparable,
     return getNumPartitions() == 0;
   }
 
+  /**
+   * Get the metadata of a partition, which can be read without getting the
+   * partition from the store.
+   *
+   * @param partitionId Partition id
+   * @return Metadata of the partition (never null)
+   */
+  public PartitionMetadata getPartitionMetadata(int partitionId) {
+    PartitionMetadata metadata = partitionMetadata.get(partitionId);
+    if (metadata == null) {
+      PartitionMetadata newMetadata = new PartitionMetadata(partitionId);
+      metadata = partitionMetadata.putIfAbsent(partitionId, newMetadata);
+      if (metadata == null) {
+        metadata = newMetadata;
+      }
+    }
+    return metadata;
+  }
+
+  /**
+   * Get the number of vertices in all partitions from their metadata.
+   *
+   * @return Number of vertices
+   */
+  public long getVertexCount() {
+    long vertexCount = 0;
+    for (Integer partitionId : getPartitionIds()) {
+      vertexCount += getPartitionMetadata(partitionId).getVertexCount();
+    }
+    return vertexCount;
+  }
+
+  /**
+   * Drop the metadata of a partition which left the store.
+   *
+   * @param partitionId Partition id
+   */
+  protected void removePartitionMetadata(int partitionId) {
+    partitionMetadata.remove(partitionId);
+  }
+
   /**
    * Called at the end of the computation.
    */
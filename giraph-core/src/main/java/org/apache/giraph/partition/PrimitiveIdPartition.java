@@ -0,0 +1,629 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.partition;
+
+import org.apache.giraph.edge.Edge;
+import org.apache.giraph.edge.OutEdges;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.utils.ExtendedDataOutput;
+import org.apache.giraph.utils.PrimitiveVertexIds;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.util.Progressable;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Partition for {@link org.apache.hadoop.io.IntWritable} and
+ * {@link org.apache.hadoop.io.LongWritable} vertex ids. Vertices are kept
+ * in slots of primitive arrays, found through a primitive open hash map
+ * from id to slot: the values and the out-edges of all vertices are
+ * serialized into two shared byte arrays, and the halted state of a vertex
+ * is a bit. A vertex whose value or out-edges change size has them
+ * appended, and the arrays are compacted once most of them is garbage.
+ *
+ * Iteration walks the slots in order and reinitializes a single
+ * representative vertex, reusing its value and out-edges objects.
+ * {@link #saveVertex(Vertex)} of the vertex just returned by the iterator
+ * or getVertex needs no lookup, and if the graph is static
+ * (giraph.isStaticGraph) only saves the value and halted state unless
+ * the edges were replaced or their number changed. Serialized state is
+ * only written back if its bytes changed. Must guarantee,
+ * however, that only one thread at a time iterates or calls getVertex
+ * since the representative vertex is a singleton.
+ *
+ * @param <I> Vertex index value
+ * @param <V> Vertex value
+ * @param <E> Edge value
+ */
+@SuppressWarnings("rawtypes")
+public class PrimitiveIdPartition<I extends WritableComparable,
+    V extends Writable, E extends Writable>
+    extends BasicPartition<I, V, E>
+    implements ReusesObjectsPartition<I, V, E> {
+  /** Slot of each vertex id */
+  private Long2IntOpenHashMap idSlots;
+  /** Vertex id in each slot */
+  private long[] ids;
+  /** Serialized vertex values, whose slots are free if they have none */
+  private PackedBytes values;
+  /** Serialized out-edges */
+  private PackedBytes edges;
+  /** Number of out-edges in each slot */
+  private int[] edgeCounts;
+  /** Whether the vertex in each slot is halted */
+  private BitSet halted;
+  /** Number of slots ever used */
+  private int slotCount;
+  /** Slots freed by removed vertices */
+  private IntArrayList freeSlots;
+  /** Total number of out-edges */
+  private long edgeCount;
+  /** Buffer to serialize values and edges with */
+  private ExtendedDataOutput buffer;
+  /** Representative vertex */
+  private Vertex<I, V, E> representativeVertex;
+  /** Slot the representative vertex was last read from, or -1 */
+  private int representativeSlot;
+  /** Out-edges the representative vertex was last read into */
+  private Iterable<Edge<I, E>> representativeEdges;
+  /** Representative combiner vertex */
+  private Vertex<I, V, E> representativeCombinerVertex;
+  /** Whether edges don't change after input */
+  private boolean staticGraph;
+
+  /**
+   * Constructor for reflection.
+   */
+  public PrimitiveIdPartition() { }
+
+  @Override
+  public void initialize(int partitionId, Progressable progressable) {
+    super.initialize(partitionId, progressable);
+    initializeSlots(16);
+  }
+
+  /**
+   * Create the slots and the reusable objects.
+   *
+   * @param capacity Initial number of slots
+   */
+  private void initializeSlots(int capacity) {
+    if (!PrimitiveVertexIds.isSupported(getConf().getVertexIdClass())) {
+      throw new IllegalStateException("initializeSlots: " +
+          "PrimitiveIdPartition only supports IntWritable and LongWritable " +
+          "ids, not " + getConf().getVertexIdClass());
+    }
+    idSlots = new Long2IntOpenHashMap(capacity);
+    idSlots.defaultReturnValue(-1);
+    ids = new long[capacity];
+    values = new PackedBytes(capacity);
+    edges = new PackedBytes(capacity);
+    edgeCounts = new int[capacity];
+    halted = new BitSet(capacity);
+    slotCount = 0;
+    freeSlots = new IntArrayList();
+    edgeCount = 0;
+    buffer = getConf().createExtendedDataOutput();
+    representativeVertex = getConf().createVertex();
+    representativeVertex.initialize(
+        getConf().createVertexId(),
+        getConf().createVertexValue(),
+        getConf().createOutEdges());
+    representativeSlot = -1;
+    representativeCombinerVertex = getConf().createVertex();
+    representativeCombinerVertex.initialize(
+        getConf().createVertexId(),
+        getConf().createVertexValue(),
+        getConf().createOutEdges());
+    staticGraph = getConf().isStaticGraph();
+  }
+
+  @Override
+  public Vertex<I, V, E> getVertex(I vertexIndex) {
+    int slot = idSlots.get(PrimitiveVertexIds.getId(vertexIndex));
+    if (slot < 0) {
+      return null;
+    }
+    readVertex(slot, representativeVertex);
+    return representativeVertex;
+  }
+
+  @Override
+  public synchronized Vertex<I, V, E> putVertex(Vertex<I, V, E> vertex) {
+    long id = PrimitiveVertexIds.getId(vertex.getId());
+    int slot = idSlots.get(id);
+    Vertex<I, V, E> oldVertex = null;
+    if (slot < 0) {
+      slot = allocateSlot(id);
+    } else {
+      readVertex(slot, representativeCombinerVertex);
+      oldVertex = representativeCombinerVertex;
+    }
+    writeVertex(slot, vertex, true);
+    return oldVertex;
+  }
+
+  @Override
+  public synchronized Vertex<I, V, E> removeVertex(I vertexIndex) {
+    int slot = idSlots.remove(PrimitiveVertexIds.getId(vertexIndex));
+    if (slot < 0) {
+      return null;
+    }
+    readVertex(slot, representativeVertex);
+    edgeCount -= edgeCounts[slot];
+    values.free(slot);
+    edges.free(slot);
+    freeSlots.add(slot);
+    return representativeVertex;
+  }
+
+  @Override
+  public synchronized void addPartition(Partition<I, V, E> partition) {
+    // Only work with other PrimitiveIdPartition instances
+    if (!(partition instanceof PrimitiveIdPartition)) {
+      throw new IllegalStateException("addPartition: Cannot add partition " +
+          "of type " + partition.getClass());
+    }
+
+    PrimitiveIdPartition<I, V, E> otherPartition =
+        (PrimitiveIdPartition<I, V, E>) partition;
+    for (int otherSlot = 0; otherSlot < otherPartition.slotCount;
+         otherSlot++) {
+      if (otherPartition.values.isFree(otherSlot)) {
+        continue;
+      }
+      long id = otherPartition.ids[otherSlot];
+      int slot = idSlots.get(id);
+      if (slot < 0) {
+        // Vertex doesn't exist yet, just take over its bytes
+        slot = allocateSlot(id);
+        values.set(slot, otherPartition.values, otherSlot);
+        edges.set(slot, otherPartition.edges, otherSlot);
+        edgeCounts[slot] = otherPartition.edgeCounts[otherSlot];
+        edgeCount += edgeCounts[slot];
+        halted.set(slot, otherPartition.halted.get(otherSlot));
+      } else {
+        otherPartition.readVertex(otherSlot, representativeCombinerVertex);
+        combine(slot, representativeCombinerVertex);
+      }
+    }
+  }
+
+  @Override
+  public synchronized boolean putOrCombine(Vertex<I, V, E> vertex) {
+    long id = PrimitiveVertexIds.getId(vertex.getId());
+    int slot = idSlots.get(id);
+    if (slot < 0) {
+      writeVertex(allocateSlot(id), vertex, true);
+      return true;
+    }
+    combine(slot, vertex);
+    return false;
+  }
+
+  /**
+   * Combine a vertex with the vertex in a slot, storing the result in the
+   * slot.
+   *
+   * @param slot Slot of the existing vertex
+   * @param vertex New vertex to combine
+   */
+  private void combine(int slot, Vertex<I, V, E> vertex) {
+    readVertex(slot, representativeVertex);
+    getVertexValueCombiner().combine(representativeVertex.getValue(),
+        vertex.getValue());
+    // Add the edges to the representative vertex
+    for (Edge<I, E> edge : vertex.getEdges()) {
+      representativeVertex.addEdge(edge);
+    }
+    writeVertex(slot, representativeVertex, true);
+  }
+
+  @Override
+  public long getVertexCount() {
+    return idSlots.size();
+  }
+
+  @Override
+  public long getEdgeCount() {
+    return edgeCount;
+  }
+
+  @Override
+  public synchronized void saveVertex(Vertex<I, V, E> vertex) {
+    long id = PrimitiveVertexIds.getId(vertex.getId());
+    if (vertex == representativeVertex && representativeSlot >= 0 &&
+        ids[representativeSlot] == id &&
+        !values.isFree(representativeSlot)) {
+      // The vertex was read from this partition, so no lookup is needed,
+      // and in a static graph the edges only change while they are moved
+      // to the vertices after input
+      boolean edgesChanged = !staticGraph ||
+          vertex.getEdges() != representativeEdges ||
+          vertex.getNumEdges() != edgeCounts[representativeSlot];
+      writeVertex(representativeSlot, vertex, edgesChanged);
+      return;
+    }
+    int slot = idSlots.get(id);
+    if (slot < 0) {
+      slot = allocateSlot(id);
+    }
+    writeVertex(slot, vertex, true);
+  }
+
+  /**
+   * Get a free slot for a new vertex id.
+   *
+   * @param id Vertex id
+   * @return Slot
+   */
+  private int allocateSlot(long id) {
+    int slot;
+    if (!freeSlots.isEmpty()) {
+      slot = freeSlots.popInt();
+    } else {
+      if (slotCount == ids.length) {
+        int capacity = Math.max(16, slotCount * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        values.growSlots(capacity);
+        edges.growSlots(capacity);
+        edgeCounts = Arrays.copyOf(edgeCounts, capacity);
+      }
+      slot = slotCount++;
+    }
+    ids[slot] = id;
+    edgeCounts[slot] = 0;
+    idSlots.put(id, slot);
+    return slot;
+  }
+
+  /**
+   * Store a vertex in a slot, writing back only what changed.
+   *
+   * @param slot Slot
+   * @param vertex Vertex
+   * @param writeEdges Whether to store the edges too
+   */
+  private void writeVertex(int slot, Vertex<I, V, E> vertex,
+      boolean writeEdges) {
+    serialize(vertex.getValue());
+    values.set(slot, buffer.getByteArray(), 0, buffer.getPos());
+    if (writeEdges) {
+      serialize((OutEdges<I, E>) vertex.getEdges());
+      edges.set(slot, buffer.getByteArray(), 0, buffer.getPos());
+      edgeCount += vertex.getNumEdges() - edgeCounts[slot];
+      edgeCounts[slot] = vertex.getNumEdges();
+    }
+    if (halted.get(slot) != vertex.isHalted()) {
+      halted.set(slot, vertex.isHalted());
+    }
+  }
+
+  /**
+   * Serialize an object into the buffer.
+   *
+   * @param writable Object to serialize
+   */
+  private void serialize(Writable writable) {
+    buffer.reset();
+    try {
+      writable.write(buffer);
+    } catch (IOException e) {
+      throw new IllegalStateException("serialize: IOException", e);
+    }
+  }
+
+  /**
+   * Reinitialize a vertex from a slot, reusing its id, value and out-edges
+   * objects.
+   *
+   * @param slot Slot
+   * @param vertex Vertex to reinitialize
+   */
+  private void readVertex(int slot, Vertex<I, V, E> vertex) {
+    PrimitiveVertexIds.setId(vertex.getId(), ids[slot]);
+    try {
+      vertex.getValue().readFields(getConf().createExtendedDataInput(
+          values.getData(), values.getOffset(slot), values.getLength(slot)));
+      ((OutEdges<I, E>) vertex.getEdges()).readFields(
+          getConf().createExtendedDataInput(
+              edges.getData(), edges.getOffset(slot), edges.getLength(slot)));
+    } catch (IOException e) {
+      throw new IllegalStateException("readVertex: IOException", e);
+    }
+    if (halted.get(slot)) {
+      vertex.voteToHalt();
+    } else {
+      vertex.wakeUp();
+    }
+    if (vertex == representativeVertex) {
+      representativeSlot = slot;
+      representativeEdges = vertex.getEdges();
+    }
+  }
+
+  @Override
+  public void write(DataOutput output) throws IOException {
+    super.write(output);
+    output.writeInt(idSlots.size());
+    for (int slot = 0; slot < slotCount; slot++) {
+      if (values.isFree(slot)) {
+        continue;
+      }
+      progress();
+      output.writeLong(ids[slot]);
+      output.writeInt(values.getLength(slot));
+      output.write(values.getData(), values.getOffset(slot),
+          values.getLength(slot));
+      output.writeInt(edgeCounts[slot]);
+      output.writeInt(edges.getLength(slot));
+      output.write(edges.getData(), edges.getOffset(slot),
+          edges.getLength(slot));
+      output.writeBoolean(halted.get(slot));
+    }
+  }
+
+  @Override
+  public void readFields(DataInput input) throws IOException {
+    super.readFields(input);
+    int size = input.readInt();
+    initializeSlots(Math.max(16, size));
+    for (int i = 0; i < size; ++i) {
+      progress();
+      long id = input.readLong();
+      if (idSlots.containsKey(id)) {
+        throw new IllegalStateException("readFields: Already saw vertex " +
+            id);
+      }
+      int slot = allocateSlot(id);
+      values.read(slot, input, input.readInt());
+      edgeCounts[slot] = input.readInt();
+      edgeCount += edgeCounts[slot];
+      edges.read(slot, input, input.readInt());
+      halted.set(slot, input.readBoolean());
+    }
+  }
+
+  @Override
+  public Iterator<Vertex<I, V, E>> iterator() {
+    return new RepresentativeVertexIterator();
+  }
+
+  @Override
+  public String toString() {
+    return "(id=" + getId() + ",V=" + idSlots.size() + ")";
+  }
+
+  /**
+   * Iterator over the slots, reinitializing the same representative vertex
+   * from each of them.
+   */
+  private class RepresentativeVertexIterator implements
+      Iterator<Vertex<I, V, E>> {
+    /** Next slot to check */
+    private int nextSlot = 0;
+
+    /**
+     * Skip free slots.
+     */
+    private void skipFreeSlots() {
+      while (nextSlot < slotCount && values.isFree(nextSlot)) {
+        nextSlot++;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      skipFreeSlots();
+      return nextSlot < slotCount;
+    }
+
+    @Override
+    public Vertex<I, V, E> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      readVertex(nextSlot++, representativeVertex);
+      return representativeVertex;
+    }
+
+    @Override
+    public void remove() {
+      throw new IllegalAccessError("remove: This method is not supported.");
+    }
+  }
+
+  /**
+   * Serialized objects of all slots packed into one array. An object is
+   * overwritten in place if its size didn't change and appended otherwise,
+   * and the array is compacted when it has to grow and most of it is
+   * garbage.
+   */
+  private static class PackedBytes {
+    /** Serialized objects */
+    private byte[] data;
+    /** Number of bytes used in data, including garbage */
+    private int size;
+    /** Number of bytes in data no slot refers to */
+    private int garbage;
+    /** Offset of the object of each slot in data */
+    private int[] offsets;
+    /** Length of the object of each slot, -1 if the slot is free */
+    private int[] lengths;
+
+    /**
+     * Constructor
+     *
+     * @param capacity Initial number of slots
+     */
+    PackedBytes(int capacity) {
+      data = new byte[capacity * 16];
+      offsets = new int[capacity];
+      lengths = new int[capacity];
+      Arrays.fill(lengths, -1);
+    }
+
+    /**
+     * Make room for more slots.
+     *
+     * @param capacity New number of slots
+     */
+    void growSlots(int capacity) {
+      int oldCapacity = lengths.length;
+      offsets = Arrays.copyOf(offsets, capacity);
+      lengths = Arrays.copyOf(lengths, capacity);
+      Arrays.fill(lengths, oldCapacity, capacity, -1);
+    }
+
+    /**
+     * Check whether a slot has no object.
+     *
+     * @param slot Slot
+     * @return True iff the slot is free
+     */
+    boolean isFree(int slot) {
+      return lengths[slot] < 0;
+    }
+
+    byte[] getData() {
+      return data;
+    }
+
+    int getOffset(int slot) {
+      return offsets[slot];
+    }
+
+    int getLength(int slot) {
+      return lengths[slot];
+    }
+
+    /**
+     * Store the object of a slot, unless its bytes didn't change.
+     *
+     * @param slot Slot
+     * @param bytes Array with the serialized object
+     * @param offset Offset of the object in bytes
+     * @param length Length of the object
+     */
+    void set(int slot, byte[] bytes, int offset, int length) {
+      if (lengths[slot] == length) {
+        int start = offsets[slot];
+        int i = 0;
+        while (i < length && data[start + i] == bytes[offset + i]) {
+          i++;
+        }
+        if (i < length) {
+          System.arraycopy(bytes, offset + i, data, start + i, length - i);
+        }
+        return;
+      }
+      System.arraycopy(bytes, offset, data, append(slot, length), length);
+    }
+
+    /**
+     * Store the object of a slot of other packed bytes.
+     *
+     * @param slot Slot
+     * @param other Packed bytes to copy from
+     * @param otherSlot Slot of the object in other
+     */
+    void set(int slot, PackedBytes other, int otherSlot) {
+      set(slot, other.data, other.offsets[otherSlot],
+          other.lengths[otherSlot]);
+    }
+
+    /**
+     * Read the object of a slot.
+     *
+     * @param slot Slot
+     * @param input Input to read from
+     * @param length Length of the object
+     * @throws IOException
+     */
+    void read(int slot, DataInput input, int length) throws IOException {
+      input.readFully(data, append(slot, length), length);
+    }
+
+    /**
+     * Remove the object of a slot.
+     *
+     * @param slot Slot
+     */
+    void free(int slot) {
+      if (lengths[slot] >= 0) {
+        garbage += lengths[slot];
+        lengths[slot] = -1;
+      }
+    }
+
+    /**
+     * Make room for a new object of a slot at the end of the data.
+     *
+     * @param slot Slot
+     * @param length Length of the object
+     * @return Offset to write the object at
+     */
+    private int append(int slot, int length) {
+      free(slot);
+      if (size + length > data.length) {
+        if (garbage > size / 2) {
+          compact();
+        }
+        if (size + length > data.length) {
+          data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8,
+              Math.max((long) size + length, 2L * data.length)));
+        }
+      }
+      int offset = size;
+      offsets[slot] = offset;
+      lengths[slot] = length;
+      size += length;
+      return offset;
+    }
+
+    /**
+     * Move all objects to the front of a new array, dropping the garbage.
+     */
+    private void compact() {
+      byte[] compacted = new byte[data.length];
+      int compactedSize = 0;
+      for (int slot = 0; slot < lengths.length; slot++) {
+        if (lengths[slot] > 0) {
+          System.arraycopy(data, offsets[slot], compacted, compactedSize,
+              lengths[slot]);
+        }
+        offsets[slot] = compactedSize;
+        compactedSize += Math.max(0, lengths[slot]);
+      }
+      data = compacted;
+      size = compactedSize;
+      garbage = 0;
+    }
+  }
+}
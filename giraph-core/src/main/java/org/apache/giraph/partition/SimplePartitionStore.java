@@ -63,11 +63,16 @@ public class SimplePartitionStore<I extends WritableComparable,
     if (oldPartition == null) {
       oldPartition = partitions.putIfAbsent(partition.getId(), partition);
       if (oldPartition == null) {
+        getPartitionMetadata(partition.getId()).setVertexCount(
+            partition.getVertexCount());
         return;
       }
     }
     // This is thread-safe
     oldPartition.addPartition(partition);
+    PartitionMetadata metadata = getPartitionMetadata(partition.getId());
+    metadata.setVertexCount(oldPartition.getVertexCount());
+    metadata.resetHaltedSuperstep();
   }
 
   @Override
@@ -86,11 +91,13 @@ public class SimplePartitionStore<I extends WritableComparable,
 
   @Override
   public Partition<I, V, E> removePartition(Integer partitionId) {
+    removePartitionMetadata(partitionId);
     return partitions.remove(partitionId);
   }
 
   @Override
   public void deletePartition(Integer partitionId) {
+    removePartitionMetadata(partitionId);
     partitions.remove(partitionId);
   }
 
@@ -110,5 +117,8 @@ public class SimplePartitionStore<I extends WritableComparable,
   }
 
   @Override
-  public void putPartition(Partition<I, V, E> partition) { }
+  public void putPartition(Partition<I, V, E> partition) {
+    getPartitionMetadata(partition.getId()).setVertexCount(
+        partition.getVertexCount());
+  }
 }
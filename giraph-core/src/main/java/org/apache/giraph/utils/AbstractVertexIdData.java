@@ -41,21 +41,31 @@ public abstract class AbstractVertexIdData<I extends WritableComparable, T>
   protected ExtendedDataOutput extendedDataOutput;
   /** Configuration */
   private ImmutableClassesGiraphConfiguration<I, ?, ?> configuration;
+  /** Last id added, when ids are delta encoded */
+  private long lastId;
+  /** Whether lastId has to be read back from the serialized data */
+  private boolean lastIdUnknown;
+  /** Id to decode serialized ids into, when ids are delta encoded */
+  private I serializedIdReader;
 
   @Override
   public void initialize() {
     extendedDataOutput = getConf().createExtendedDataOutput();
+    lastId = 0;
+    lastIdUnknown = false;
   }
 
   @Override
   public void initialize(int expectedSize) {
     extendedDataOutput = getConf().createExtendedDataOutput(expectedSize);
+    lastId = 0;
+    lastIdUnknown = false;
   }
 
   @Override
   public void add(I vertexId, T data) {
     try {
-      vertexId.write(extendedDataOutput);
+      writeId(vertexId);
       writeData(extendedDataOutput, data);
     } catch (IOException e) {
       throw new IllegalStateException("add: IOException", e);
@@ -65,13 +75,67 @@ public abstract class AbstractVertexIdData<I extends WritableComparable, T>
   @Override
   public void add(byte[] serializedId, int idPos, T data) {
     try {
-      extendedDataOutput.write(serializedId, 0, idPos);
+      if (getConf().useVertexIdDeltaEncoding()) {
+        if (serializedIdReader == null) {
+          serializedIdReader = getConf().createVertexId();
+        }
+        serializedIdReader.readFields(
+            getConf().createExtendedDataInput(serializedId, 0, idPos));
+        writeId(serializedIdReader);
+      } else {
+        extendedDataOutput.write(serializedId, 0, idPos);
+      }
       writeData(extendedDataOutput, data);
     } catch (IOException e) {
       throw new IllegalStateException("add: IOException", e);
     }
   }
 
+  /**
+   * Write a vertex id, delta encoded against the previous one if
+   * {@link ImmutableClassesGiraphConfiguration#useVertexIdDeltaEncoding()}.
+   *
+   * @param vertexId Vertex id to write
+   * @throws IOException
+   */
+  private void writeId(I vertexId) throws IOException {
+    if (getConf().useVertexIdDeltaEncoding()) {
+      if (lastIdUnknown) {
+        lastId = readLastId();
+        lastIdUnknown = false;
+      }
+      long id = PrimitiveVertexIds.getId(vertexId);
+      VertexIdDeltaEncoding.writeDelta(extendedDataOutput, id, lastId);
+      lastId = id;
+    } else {
+      vertexId.write(extendedDataOutput);
+    }
+  }
+
+  /**
+   * Called when the serialized data was replaced, so that ids added later
+   * are delta encoded against the last id of the new data.
+   */
+  protected void resetLastId() {
+    lastId = 0;
+    lastIdUnknown = true;
+  }
+
+  /**
+   * Decode the serialized data to find its last id.
+   *
+   * @return Last id, 0 if there is none
+   */
+  private long readLastId() {
+    long id = 0;
+    VertexIdDataIterator<I, T> iterator = getVertexIdDataIterator();
+    while (iterator.hasNext()) {
+      iterator.next();
+      id = PrimitiveVertexIds.getId(iterator.getCurrentVertexId());
+    }
+    return id;
+  }
+
   @Override
   public int getSize() {
     return extendedDataOutput.getPos();
@@ -93,6 +157,8 @@ public abstract class AbstractVertexIdData<I extends WritableComparable, T>
   @Override
   public void clear() {
     extendedDataOutput.reset();
+    lastId = 0;
+    lastIdUnknown = false;
   }
 
   @Override
@@ -65,6 +65,9 @@ public class ByteArrayOneMessageToManyIds<I extends WritableComparable,
   /**
    * Add a message.
    * The order is: the message>id count>ids .
+   * When {@link org.apache.giraph.conf.ImmutableClassesGiraphConfiguration
+   * #useVertexIdDeltaEncoding()} is set, the ids have to be written with
+   * {@link VertexIdDeltaEncoding}, starting from 0 for every message.
    *
    * @param ids   The byte array which holds target ids
    *              of this message on the worker
@@ -51,5 +51,6 @@ public abstract class ByteArrayVertexIdData<I extends WritableComparable,
   public void readFields(DataInput dataInput) throws IOException {
     extendedDataOutput =
         WritableUtils.readExtendedDataOutput(dataInput, getConf());
+    resetLastId();
   }
 }
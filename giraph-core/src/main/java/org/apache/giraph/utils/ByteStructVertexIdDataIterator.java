@@ -64,7 +64,7 @@ public class ByteStructVertexIdDataIterator<I extends WritableComparable, T>
       data = vertexIdData.createData();
     }
     try {
-      vertexId.readFields(extendedDataInput);
+      readVertexId();
       int initial = extendedDataInput.getPos();
       vertexIdData.readData(extendedDataInput, data);
       dataSize = extendedDataInput.getPos() - initial;
@@ -21,6 +21,8 @@ package org.apache.giraph.utils;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.hadoop.io.WritableComparable;
 
+import java.io.IOException;
+
 /**
  * Common implementation for VertexIdEdgeIterator, VertexIdMessageIterator
  * and VertexIdMessageBytesIterator.
@@ -34,6 +36,10 @@ public abstract class ByteStructVertexIdIterator<I extends WritableComparable>
 
   /** Current vertex id */
   protected I vertexId;
+  /** Whether ids are delta encoded */
+  private final boolean deltaEncodedIds;
+  /** Last id read, when ids are delta encoded */
+  private long lastId;
 
   /**
    * Constructor.
@@ -46,12 +52,27 @@ public abstract class ByteStructVertexIdIterator<I extends WritableComparable>
     ImmutableClassesGiraphConfiguration<I, ?, ?> conf) {
     if (extendedDataOutput != null && conf != null) {
       extendedDataInput = conf.createExtendedDataInput(extendedDataOutput);
+      deltaEncodedIds = conf.useVertexIdDeltaEncoding();
     } else {
       throw new IllegalStateException("Cannot instantiate vertexIdIterator " +
         "with null arguments");
     }
   }
 
+  /**
+   * Read the next vertex id into {@link #vertexId}.
+   *
+   * @throws IOException
+   */
+  protected void readVertexId() throws IOException {
+    if (deltaEncodedIds) {
+      lastId = VertexIdDeltaEncoding.readDelta(extendedDataInput, lastId);
+      PrimitiveVertexIds.setId(vertexId, lastId);
+    } else {
+      vertexId.readFields(extendedDataInput);
+    }
+  }
+
   @Override
   public boolean hasNext() {
     return !extendedDataInput.endOfInput();
@@ -66,7 +66,7 @@ public abstract class ByteStructVertexIdMessageBytesIterator<I
     }
 
     try {
-      vertexId.readFields(extendedDataInput);
+      readVertexId();
       messageBytes = extendedDataInput.readInt();
       messageOffset = extendedDataInput.getPos();
       if (extendedDataInput.skipBytes(messageBytes) != messageBytes) {
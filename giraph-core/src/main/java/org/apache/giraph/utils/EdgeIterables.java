@@ -19,9 +19,11 @@
 package org.apache.giraph.utils;
 
 import com.google.common.collect.Iterables;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import org.apache.giraph.edge.Edge;
 import org.apache.giraph.edge.EdgeFactory;
 import org.apache.giraph.edge.OutEdges;
+import org.apache.giraph.edge.SortedOutEdges;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
@@ -155,4 +157,86 @@ public class EdgeIterables {
       ((Trimmable) edges).trim();
     }
   }
+
+  /**
+   * Count the target vertex ids two sorted out-edges have in common, e.g.
+   * to count triangles or compute neighborhood similarities.
+   *
+   * @param edges1 First out-edges
+   * @param edges2 Second out-edges
+   * @return Number of common target vertex ids
+   */
+  public static int intersectionSize(SortedOutEdges<?, ?> edges1,
+      SortedOutEdges<?, ?> edges2) {
+    return intersect(edges1, edges2, null);
+  }
+
+  /**
+   * Collect the target vertex ids two sorted out-edges have in common, in
+   * increasing order.
+   *
+   * @param edges1 First out-edges
+   * @param edges2 Second out-edges
+   * @param commonTargets List to add the common target vertex ids to
+   */
+  public static void intersection(SortedOutEdges<?, ?> edges1,
+      SortedOutEdges<?, ?> edges2, LongArrayList commonTargets) {
+    intersect(edges1, edges2, commonTargets);
+  }
+
+  /**
+   * Intersect two sorted out-edges. When one is much smaller than the
+   * other, each of its targets is binary searched in the larger one,
+   * otherwise both are merged linearly.
+   *
+   * @param edges1 First out-edges
+   * @param edges2 Second out-edges
+   * @param commonTargets List to add the common target vertex ids to, or
+   *                      null to only count them
+   * @return Number of common target vertex ids
+   */
+  private static int intersect(SortedOutEdges<?, ?> edges1,
+      SortedOutEdges<?, ?> edges2, LongArrayList commonTargets) {
+    SortedOutEdges<?, ?> small = edges1;
+    SortedOutEdges<?, ?> large = edges2;
+    if (small.size() > large.size()) {
+      small = edges2;
+      large = edges1;
+    }
+    int smallSize = small.size();
+    int largeSize = large.size();
+    int count = 0;
+    if ((long) smallSize * (32 - Integer.numberOfLeadingZeros(largeSize)) <
+        largeSize) {
+      for (int i = 0; i < smallSize; ++i) {
+        long target = small.getTargetAt(i);
+        if (large.indexOf(target) >= 0) {
+          count++;
+          if (commonTargets != null) {
+            commonTargets.add(target);
+          }
+        }
+      }
+      return count;
+    }
+    int i = 0;
+    int j = 0;
+    while (i < smallSize && j < largeSize) {
+      long target1 = small.getTargetAt(i);
+      long target2 = large.getTargetAt(j);
+      if (target1 < target2) {
+        i++;
+      } else if (target1 > target2) {
+        j++;
+      } else {
+        count++;
+        if (commonTargets != null) {
+          commonTargets.add(target1);
+        }
+        i++;
+        j++;
+      }
+    }
+    return count;
+  }
 }
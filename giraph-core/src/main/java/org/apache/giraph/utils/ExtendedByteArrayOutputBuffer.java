@@ -23,7 +23,9 @@ import org.apache.giraph.conf.FloatConfOption;
 import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.conf.IntConfOption;
+import org.apache.hadoop.io.Writable;
 
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -100,6 +102,24 @@ public class ExtendedByteArrayOutputBuffer {
     return indexAndDataOut;
   }
 
+  /**
+   * Write an object to the output of the current thread
+   *
+   * @param writable Object to write
+   * @return Pointer to the written object, index of the output in the
+   *         upper 32 bits and position in the output in the lower ones
+   * @throws IOException
+   */
+  public long write(Writable writable) throws IOException {
+    IndexAndDataOut indexAndDataOut = getIndexAndDataOut();
+    long pointer = indexAndDataOut.getIndex();
+    pointer <<= 32;
+    ExtendedDataOutput dataOutput = indexAndDataOut.getDataOutput();
+    pointer += dataOutput.getPos();
+    writable.write(dataOutput);
+    return pointer;
+  }
+
   /**
    * Get dataoutput from bytearrayOutputs
    *
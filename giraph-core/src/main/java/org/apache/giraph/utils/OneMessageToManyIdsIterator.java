@@ -36,6 +36,10 @@ public class OneMessageToManyIdsIterator<I extends WritableComparable,
   private final ByteArrayOneMessageToManyIds<I, M> vertexIdMessages;
   /** Reader of the serialized edges */
   private final ExtendedDataInput extendedDataInput;
+  /** Whether ids are delta encoded */
+  private final boolean deltaEncodedIds;
+  /** Last id read for the current message, when ids are delta encoded */
+  private long lastId;
 
   /** Current vertex Id*/
   private I vertexId;
@@ -58,6 +62,8 @@ public class OneMessageToManyIdsIterator<I extends WritableComparable,
     this.vertexIdMessages = vertexIdMessages;
     this.extendedDataInput = vertexIdMessages.getConf()
         .createExtendedDataInput(vertexIdMessages.extendedDataOutput);
+    this.deltaEncodedIds =
+        vertexIdMessages.getConf().useVertexIdDeltaEncoding();
   }
 
   @Override
@@ -116,10 +122,16 @@ public class OneMessageToManyIdsIterator<I extends WritableComparable,
         msg.readFields(extendedDataInput);
         msgSize = extendedDataInput.getPos() - initial;
         idsToRead = extendedDataInput.readInt();
+        lastId = 0;
       } else {
         newMessage = false; // same as previous message
       }
-      vertexId.readFields(extendedDataInput);
+      if (deltaEncodedIds) {
+        lastId = VertexIdDeltaEncoding.readDelta(extendedDataInput, lastId);
+        PrimitiveVertexIds.setId(vertexId, lastId);
+      } else {
+        vertexId.readFields(extendedDataInput);
+      }
       idsToRead -= 1;
     } catch (IOException e) {
       throw new IllegalStateException("next: IOException", e);
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.utils;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.WritableComparable;
+
+/**
+ * Access to the value of {@link IntWritable} and {@link LongWritable}
+ * vertex ids as a long, for code keeping ids in primitive collections.
+ */
+@SuppressWarnings("rawtypes")
+public class PrimitiveVertexIds {
+  /** Do not instantiate. */
+  private PrimitiveVertexIds() {
+  }
+
+  /**
+   * Check whether ids of some class can be accessed as longs.
+   *
+   * @param vertexIdClass Vertex id class
+   * @return True iff the class is supported
+   */
+  public static boolean isSupported(Class<?> vertexIdClass) {
+    return vertexIdClass == LongWritable.class ||
+        vertexIdClass == IntWritable.class;
+  }
+
+  /**
+   * Get the value of a supported vertex id.
+   *
+   * @param vertexId Vertex id
+   * @return Id value as long
+   */
+  public static long getId(WritableComparable vertexId) {
+    if (vertexId instanceof LongWritable) {
+      return ((LongWritable) vertexId).get();
+    } else {
+      return ((IntWritable) vertexId).get();
+    }
+  }
+
+  /**
+   * Set the value of a supported vertex id.
+   *
+   * @param vertexId Vertex id
+   * @param id Id value
+   */
+  public static void setId(WritableComparable vertexId, long id) {
+    if (vertexId instanceof LongWritable) {
+      ((LongWritable) vertexId).set(id);
+    } else {
+      ((IntWritable) vertexId).set((int) id);
+    }
+  }
+}
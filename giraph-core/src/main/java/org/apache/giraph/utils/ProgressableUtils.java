@@ -27,6 +27,7 @@ import io.netty.util.concurrent.EventExecutorGroup;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -220,15 +221,66 @@ public class ProgressableUtils {
     ExecutorService executorService =
         Executors.newFixedThreadPool(numThreads,
             new ThreadFactoryBuilder().setNameFormat(threadNameFormat).build());
+    List<Future<R>> futures = submitCallables(callableFactory, numThreads,
+        Collections.nCopies(numThreads, executorService));
+    executorService.shutdown();
+    return getFutureResults(futures, progressable);
+  }
+
+  /**
+   * Create {#link numThreads} callables from {#link callableFactory},
+   * execute the i-th callable on the i-th of the existing executors, which
+   * are left running, and gather results.
+   *
+   * @param callableFactory Factory for Callables
+   * @param numThreads Number of callables to execute
+   * @param executorServices Executor of each callable, at least numThreads
+   * @param progressable Progressable for reporting progress
+   * @param <R> Type of Callable's results
+   * @return List of results from Callables
+   */
+  public static <R> List<R> getResultsWithNCallables(
+      CallableFactory<R> callableFactory, int numThreads,
+      List<ExecutorService> executorServices, Progressable progressable) {
+    return getFutureResults(
+        submitCallables(callableFactory, numThreads, executorServices),
+        progressable);
+  }
+
+  /**
+   * Submit {#link numThreads} callables from {#link callableFactory}, the
+   * i-th one to the i-th executor.
+   *
+   * @param callableFactory Factory for Callables
+   * @param numThreads Number of callables to submit
+   * @param executorServices Executor of each callable
+   * @param <R> Type of Callable's results
+   * @return Futures of the callables
+   */
+  private static <R> List<Future<R>> submitCallables(
+      CallableFactory<R> callableFactory, int numThreads,
+      List<ExecutorService> executorServices) {
     List<Future<R>> futures = Lists.newArrayListWithCapacity(numThreads);
     for (int i = 0; i < numThreads; i++) {
       Callable<R> callable = callableFactory.newCallable(i);
-      Future<R> future = executorService.submit(
+      Future<R> future = executorServices.get(i).submit(
           new LogStacktraceCallable<R>(callable));
       futures.add(future);
     }
-    executorService.shutdown();
-    List<R> futureResults = Lists.newArrayListWithCapacity(numThreads);
+    return futures;
+  }
+
+  /**
+   * Wait for the results of futures, while periodically reporting progress.
+   *
+   * @param futures Futures
+   * @param progressable Progressable for reporting progress
+   * @param <R> Type of results
+   * @return Results in the order of the futures
+   */
+  private static <R> List<R> getFutureResults(List<Future<R>> futures,
+      Progressable progressable) {
+    List<R> futureResults = Lists.newArrayListWithCapacity(futures.size());
     for (Future<R> future : futures) {
       R result = ProgressableUtils.getFutureResult(future, progressable);
       futureResults.add(result);
@@ -0,0 +1,497 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.utils;
+
+import com.google.common.collect.Lists;
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.apache.giraph.utils.ByteUtils.SIZE_OF_BOOLEAN;
+import static org.apache.giraph.utils.ByteUtils.SIZE_OF_BYTE;
+import static org.apache.giraph.utils.ByteUtils.SIZE_OF_CHAR;
+import static org.apache.giraph.utils.ByteUtils.SIZE_OF_DOUBLE;
+import static org.apache.giraph.utils.ByteUtils.SIZE_OF_FLOAT;
+import static org.apache.giraph.utils.ByteUtils.SIZE_OF_INT;
+import static org.apache.giraph.utils.ByteUtils.SIZE_OF_LONG;
+import static org.apache.giraph.utils.ByteUtils.SIZE_OF_SHORT;
+
+/**
+ * Serializer for POJO-like classes, built once per class from its instance
+ * fields. All primitive fields form a fixed size block, which is written and
+ * read with a single bounds check directly against the backing array of
+ * {@link UnsafeByteArrayOutputStream} and {@link UnsafeArrayReads}, and
+ * through the usual {@link DataOutput}/{@link DataInput} calls for any other
+ * stream. Both paths produce the same bytes as writing each field by hand.
+ *
+ * After the primitive block, String fields are written with writeUTF and
+ * {@link Writable} fields with their own write. Writable fields are reused
+ * when reading, so deserializing into an existing object doesn't allocate
+ * unless a String field is present.
+ *
+ * Static and transient fields are skipped. Any other field type is rejected
+ * when the serializer is created.
+ *
+ * @param <T> Type of objects serialized
+ */
+@SuppressWarnings("unchecked")
+public class UnsafeFieldSerializer<T> {
+  /** Access to the unsafe class */
+  private static final sun.misc.Unsafe UNSAFE;
+  static {
+    try {
+      Field field = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      UNSAFE = (sun.misc.Unsafe) field.get(null);
+      // Checkstyle exception due to needing to check if unsafe is allowed
+      // CHECKSTYLE: stop IllegalCatch
+    } catch (Exception e) {
+      // CHECKSTYLE: resume IllegalCatch
+      throw new RuntimeException("UnsafeFieldSerializer: Failed to " +
+          "get unsafe", e);
+    }
+  }
+  /** Offset of a byte array */
+  private static final long BYTE_ARRAY_OFFSET  =
+      UNSAFE.arrayBaseOffset(byte[].class);
+  /** Serializers created so far, cached with their class */
+  private static final ClassValue<UnsafeFieldSerializer<?>> SERIALIZERS =
+      new ClassValue<UnsafeFieldSerializer<?>>() {
+        @Override
+        protected UnsafeFieldSerializer<?> computeValue(Class<?> type) {
+          return new UnsafeFieldSerializer<Object>((Class<Object>) type);
+        }
+      };
+
+  /** Kinds of supported fields */
+  private enum FieldKind {
+    /** boolean */
+    BOOLEAN(SIZE_OF_BOOLEAN),
+    /** byte */
+    BYTE(SIZE_OF_BYTE),
+    /** short */
+    SHORT(SIZE_OF_SHORT),
+    /** char */
+    CHAR(SIZE_OF_CHAR),
+    /** int */
+    INT(SIZE_OF_INT),
+    /** long */
+    LONG(SIZE_OF_LONG),
+    /** float */
+    FLOAT(SIZE_OF_FLOAT),
+    /** double */
+    DOUBLE(SIZE_OF_DOUBLE),
+    /** String */
+    STRING(0),
+    /** Writable */
+    WRITABLE(0);
+
+    /** Serialized size, 0 if not fixed */
+    private final int size;
+
+    /**
+     * Constructor
+     *
+     * @param size Serialized size, 0 if not fixed
+     */
+    FieldKind(int size) {
+      this.size = size;
+    }
+  }
+
+  /** Serialized class */
+  private final Class<T> serializedClass;
+  /** Kinds of the primitive fields */
+  private final FieldKind[] primitiveKinds;
+  /** Object offsets of the primitive fields */
+  private final long[] primitiveOffsets;
+  /** Size of the block holding all primitive fields */
+  private final int primitiveBlockSize;
+  /** Kinds of the object fields */
+  private final FieldKind[] objectKinds;
+  /** Object offsets of the object fields */
+  private final long[] objectOffsets;
+  /** Declared types of the object fields */
+  private final Class<?>[] objectTypes;
+
+  /**
+   * Constructor
+   *
+   * @param serializedClass Class to serialize
+   */
+  private UnsafeFieldSerializer(Class<T> serializedClass) {
+    this.serializedClass = serializedClass;
+    List<Field> primitives = Lists.newArrayList();
+    List<Field> objects = Lists.newArrayList();
+    collectFields(serializedClass, primitives, objects);
+
+    primitiveKinds = new FieldKind[primitives.size()];
+    primitiveOffsets = new long[primitives.size()];
+    int blockSize = 0;
+    for (int i = 0; i < primitives.size(); i++) {
+      primitiveKinds[i] = getFieldKind(primitives.get(i));
+      primitiveOffsets[i] = UNSAFE.objectFieldOffset(primitives.get(i));
+      blockSize += primitiveKinds[i].size;
+    }
+    primitiveBlockSize = blockSize;
+
+    objectKinds = new FieldKind[objects.size()];
+    objectOffsets = new long[objects.size()];
+    objectTypes = new Class<?>[objects.size()];
+    for (int i = 0; i < objects.size(); i++) {
+      objectKinds[i] = getFieldKind(objects.get(i));
+      objectOffsets[i] = UNSAFE.objectFieldOffset(objects.get(i));
+      objectTypes[i] = objects.get(i).getType();
+    }
+  }
+
+  /**
+   * Get the serializer for a class, creating it on first use.
+   *
+   * @param serializedClass Class to serialize
+   * @param <T> Type of objects serialized
+   * @return Serializer for the class
+   */
+  public static <T> UnsafeFieldSerializer<T> get(Class<T> serializedClass) {
+    return (UnsafeFieldSerializer<T>) SERIALIZERS.get(serializedClass);
+  }
+
+  /**
+   * Collect the serialized fields of a class, superclass fields first and
+   * sorted by name within a class, so the layout doesn't depend on the
+   * order reflection returns them in.
+   *
+   * @param c Class to collect fields of
+   * @param primitives Collected primitive fields
+   * @param objects Collected String and Writable fields
+   */
+  private static void collectFields(Class<?> c, List<Field> primitives,
+      List<Field> objects) {
+    if (c == null || c == Object.class) {
+      return;
+    }
+    collectFields(c.getSuperclass(), primitives, objects);
+    Field[] fields = c.getDeclaredFields();
+    Arrays.sort(fields, new Comparator<Field>() {
+      @Override
+      public int compare(Field f1, Field f2) {
+        return f1.getName().compareTo(f2.getName());
+      }
+    });
+    for (Field field : fields) {
+      int modifiers = field.getModifiers();
+      if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+        continue;
+      }
+      if (field.getType().isPrimitive()) {
+        primitives.add(field);
+      } else {
+        objects.add(field);
+      }
+    }
+  }
+
+  /**
+   * Get the kind of a field
+   *
+   * @param field Field
+   * @return Kind of the field
+   */
+  private static FieldKind getFieldKind(Field field) {
+    Class<?> type = field.getType();
+    if (type == boolean.class) {
+      return FieldKind.BOOLEAN;
+    } else if (type == byte.class) {
+      return FieldKind.BYTE;
+    } else if (type == short.class) {
+      return FieldKind.SHORT;
+    } else if (type == char.class) {
+      return FieldKind.CHAR;
+    } else if (type == int.class) {
+      return FieldKind.INT;
+    } else if (type == long.class) {
+      return FieldKind.LONG;
+    } else if (type == float.class) {
+      return FieldKind.FLOAT;
+    } else if (type == double.class) {
+      return FieldKind.DOUBLE;
+    } else if (type == String.class) {
+      return FieldKind.STRING;
+    } else if (Writable.class.isAssignableFrom(type)) {
+      return FieldKind.WRITABLE;
+    }
+    throw new IllegalArgumentException("getFieldKind: Field " +
+        field.getDeclaringClass().getName() + "." + field.getName() +
+        " of type " + type.getName() + " can't be serialized, only " +
+        "primitive, String and Writable fields are supported");
+  }
+
+  /**
+   * Get the size of the fixed block holding all primitive fields
+   *
+   * @return Size in bytes
+   */
+  public int getPrimitiveBlockSize() {
+    return primitiveBlockSize;
+  }
+
+  /**
+   * Serialize an object.
+   *
+   * @param object Object to serialize
+   * @param output Output to write to
+   * @throws IOException
+   */
+  public void write(T object, DataOutput output) throws IOException {
+    if (output instanceof UnsafeByteArrayOutputStream) {
+      writePrimitives(object, (UnsafeByteArrayOutputStream) output);
+    } else {
+      writePrimitives(object, output);
+    }
+    for (int i = 0; i < objectKinds.length; i++) {
+      Object value = UNSAFE.getObject(object, objectOffsets[i]);
+      if (objectKinds[i] == FieldKind.STRING) {
+        output.writeBoolean(value != null);
+        if (value != null) {
+          output.writeUTF((String) value);
+        }
+      } else {
+        if (value == null) {
+          throw new IllegalStateException("write: Writable field " + i +
+              " of " + serializedClass.getName() + " is null");
+        }
+        ((Writable) value).write(output);
+      }
+    }
+  }
+
+  /**
+   * Deserialize into an existing object, reusing its Writable fields.
+   *
+   * @param object Object to deserialize into
+   * @param input Input to read from
+   * @throws IOException
+   */
+  public void readFields(T object, DataInput input) throws IOException {
+    if (input instanceof UnsafeArrayReads) {
+      readPrimitives(object, (UnsafeArrayReads) input);
+    } else {
+      readPrimitives(object, input);
+    }
+    for (int i = 0; i < objectKinds.length; i++) {
+      if (objectKinds[i] == FieldKind.STRING) {
+        UNSAFE.putObject(object, objectOffsets[i],
+            input.readBoolean() ? input.readUTF() : null);
+      } else {
+        Writable value = (Writable) UNSAFE.getObject(object, objectOffsets[i]);
+        if (value == null) {
+          value = (Writable) ReflectionUtils.newInstance(objectTypes[i]);
+          UNSAFE.putObject(object, objectOffsets[i], value);
+        }
+        value.readFields(input);
+      }
+    }
+  }
+
+  /**
+   * Write the primitive block straight into the array of the output.
+   *
+   * @param object Object to serialize
+   * @param output Output to write to
+   */
+  private void writePrimitives(T object, UnsafeByteArrayOutputStream output) {
+    output.ensureWritable(primitiveBlockSize);
+    byte[] buf = output.getByteArray();
+    long address = BYTE_ARRAY_OFFSET + output.getPos();
+    for (int i = 0; i < primitiveKinds.length; i++) {
+      long offset = primitiveOffsets[i];
+      switch (primitiveKinds[i]) {
+      case BOOLEAN:
+        UNSAFE.putBoolean(buf, address, UNSAFE.getBoolean(object, offset));
+        break;
+      case BYTE:
+        UNSAFE.putByte(buf, address, UNSAFE.getByte(object, offset));
+        break;
+      case SHORT:
+        UNSAFE.putShort(buf, address, UNSAFE.getShort(object, offset));
+        break;
+      case CHAR:
+        UNSAFE.putChar(buf, address, UNSAFE.getChar(object, offset));
+        break;
+      case INT:
+        UNSAFE.putInt(buf, address, UNSAFE.getInt(object, offset));
+        break;
+      case LONG:
+        UNSAFE.putLong(buf, address, UNSAFE.getLong(object, offset));
+        break;
+      case FLOAT:
+        UNSAFE.putFloat(buf, address, UNSAFE.getFloat(object, offset));
+        break;
+      case DOUBLE:
+        UNSAFE.putDouble(buf, address, UNSAFE.getDouble(object, offset));
+        break;
+      default:
+        throw new IllegalStateException("writePrimitives: Unknown kind " +
+            primitiveKinds[i]);
+      }
+      address += primitiveKinds[i].size;
+    }
+    output.skipBytes(primitiveBlockSize);
+  }
+
+  /**
+   * Write the primitive block through a generic output.
+   *
+   * @param object Object to serialize
+   * @param output Output to write to
+   * @throws IOException
+   */
+  private void writePrimitives(T object, DataOutput output)
+    throws IOException {
+    for (int i = 0; i < primitiveKinds.length; i++) {
+      long offset = primitiveOffsets[i];
+      switch (primitiveKinds[i]) {
+      case BOOLEAN:
+        output.writeBoolean(UNSAFE.getBoolean(object, offset));
+        break;
+      case BYTE:
+        output.writeByte(UNSAFE.getByte(object, offset));
+        break;
+      case SHORT:
+        output.writeShort(UNSAFE.getShort(object, offset));
+        break;
+      case CHAR:
+        output.writeChar(UNSAFE.getChar(object, offset));
+        break;
+      case INT:
+        output.writeInt(UNSAFE.getInt(object, offset));
+        break;
+      case LONG:
+        output.writeLong(UNSAFE.getLong(object, offset));
+        break;
+      case FLOAT:
+        output.writeFloat(UNSAFE.getFloat(object, offset));
+        break;
+      case DOUBLE:
+        output.writeDouble(UNSAFE.getDouble(object, offset));
+        break;
+      default:
+        throw new IllegalStateException("writePrimitives: Unknown kind " +
+            primitiveKinds[i]);
+      }
+    }
+  }
+
+  /**
+   * Read the primitive block straight from the array of the input.
+   *
+   * @param object Object to deserialize into
+   * @param input Input to read from
+   * @throws IOException
+   */
+  private void readPrimitives(T object, UnsafeArrayReads input)
+    throws IOException {
+    input.ensureRemaining(primitiveBlockSize);
+    byte[] buf = input.buf;
+    long address = BYTE_ARRAY_OFFSET + input.pos;
+    for (int i = 0; i < primitiveKinds.length; i++) {
+      long offset = primitiveOffsets[i];
+      switch (primitiveKinds[i]) {
+      case BOOLEAN:
+        UNSAFE.putBoolean(object, offset, UNSAFE.getBoolean(buf, address));
+        break;
+      case BYTE:
+        UNSAFE.putByte(object, offset, UNSAFE.getByte(buf, address));
+        break;
+      case SHORT:
+        UNSAFE.putShort(object, offset, UNSAFE.getShort(buf, address));
+        break;
+      case CHAR:
+        UNSAFE.putChar(object, offset, UNSAFE.getChar(buf, address));
+        break;
+      case INT:
+        UNSAFE.putInt(object, offset, UNSAFE.getInt(buf, address));
+        break;
+      case LONG:
+        UNSAFE.putLong(object, offset, UNSAFE.getLong(buf, address));
+        break;
+      case FLOAT:
+        UNSAFE.putFloat(object, offset, UNSAFE.getFloat(buf, address));
+        break;
+      case DOUBLE:
+        UNSAFE.putDouble(object, offset, UNSAFE.getDouble(buf, address));
+        break;
+      default:
+        throw new IllegalStateException("readPrimitives: Unknown kind " +
+            primitiveKinds[i]);
+      }
+      address += primitiveKinds[i].size;
+    }
+    input.pos += primitiveBlockSize;
+  }
+
+  /**
+   * Read the primitive block through a generic input.
+   *
+   * @param object Object to deserialize into
+   * @param input Input to read from
+   * @throws IOException
+   */
+  private void readPrimitives(T object, DataInput input) throws IOException {
+    for (int i = 0; i < primitiveKinds.length; i++) {
+      long offset = primitiveOffsets[i];
+      switch (primitiveKinds[i]) {
+      case BOOLEAN:
+        UNSAFE.putBoolean(object, offset, input.readBoolean());
+        break;
+      case BYTE:
+        UNSAFE.putByte(object, offset, input.readByte());
+        break;
+      case SHORT:
+        UNSAFE.putShort(object, offset, input.readShort());
+        break;
+      case CHAR:
+        UNSAFE.putChar(object, offset, input.readChar());
+        break;
+      case INT:
+        UNSAFE.putInt(object, offset, input.readInt());
+        break;
+      case LONG:
+        UNSAFE.putLong(object, offset, input.readLong());
+        break;
+      case FLOAT:
+        UNSAFE.putFloat(object, offset, input.readFloat());
+        break;
+      case DOUBLE:
+        UNSAFE.putDouble(object, offset, input.readDouble());
+        break;
+      default:
+        throw new IllegalStateException("readPrimitives: Unknown kind " +
+            primitiveKinds[i]);
+      }
+    }
+  }
+}
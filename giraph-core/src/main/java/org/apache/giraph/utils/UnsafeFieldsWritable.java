@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.utils;
+
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Base class for vertex values, edge values and messages made of plain
+ * fields, which implements write and readFields with an
+ * {@link UnsafeFieldSerializer} instead of hand written code. Subclasses
+ * only declare their fields (primitives, Strings and non-null Writables)
+ * and a no-argument constructor.
+ */
+public abstract class UnsafeFieldsWritable implements Writable {
+  @Override
+  public void write(DataOutput out) throws IOException {
+    getSerializer().write(this, out);
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    getSerializer().readFields(this, in);
+  }
+
+  /**
+   * Get the serializer of the concrete class
+   *
+   * @return Serializer, cached per class
+   */
+  @SuppressWarnings("unchecked")
+  private UnsafeFieldSerializer<UnsafeFieldsWritable> getSerializer() {
+    return UnsafeFieldSerializer.get(
+        (Class<UnsafeFieldsWritable>) getClass());
+  }
+}
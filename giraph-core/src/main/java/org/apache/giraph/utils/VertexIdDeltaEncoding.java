@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.utils;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encoding of a sequence of integer vertex ids as differences between
+ * consecutive ids, written as zig-zag variable-length longs. Ids which are
+ * close to each other (or sorted) take one or two bytes instead of the four
+ * or eight of their fixed size serialization.
+ *
+ * Differences are computed with wrapping arithmetic, so any sequence of ids
+ * decodes back exactly, sorted or not.
+ *
+ * Only {@link IntWritable} and {@link LongWritable} ids are supported.
+ */
+public class VertexIdDeltaEncoding {
+  /** Do not instantiate. */
+  private VertexIdDeltaEncoding() {
+  }
+
+  /**
+   * Check whether ids of some class can be delta encoded.
+   *
+   * @param vertexIdClass Vertex id class
+   * @return True iff the class is supported
+   */
+  public static boolean isSupported(Class<?> vertexIdClass) {
+    return PrimitiveVertexIds.isSupported(vertexIdClass);
+  }
+
+  /**
+   * Write the difference between an id and the previous one.
+   *
+   * @param out Output to write to
+   * @param id Id to write
+   * @param previousId Previous id in the sequence (0 for the first one)
+   * @throws IOException
+   */
+  public static void writeDelta(DataOutput out, long id, long previousId)
+    throws IOException {
+    writeZigZagVarLong(out, id - previousId);
+  }
+
+  /**
+   * Read an id written by {@link #writeDelta(DataOutput, long, long)}.
+   *
+   * @param in Input to read from
+   * @param previousId Previous id in the sequence (0 for the first one)
+   * @return Id read
+   * @throws IOException
+   */
+  public static long readDelta(DataInput in, long previousId)
+    throws IOException {
+    return previousId + readZigZagVarLong(in);
+  }
+
+  /**
+   * Write a long as a zig-zag variable-length value, 7 bits per byte with
+   * the high bit marking that more bytes follow.
+   *
+   * @param out Output to write to
+   * @param value Value to write
+   * @throws IOException
+   */
+  public static void writeZigZagVarLong(DataOutput out, long value)
+    throws IOException {
+    long zigZag = (value << 1) ^ (value >> 63);
+    while ((zigZag & ~0x7FL) != 0) {
+      out.writeByte((int) ((zigZag & 0x7F) | 0x80));
+      zigZag >>>= 7;
+    }
+    out.writeByte((int) zigZag);
+  }
+
+  /**
+   * Read a value written by {@link #writeZigZagVarLong(DataOutput, long)}.
+   *
+   * @param in Input to read from
+   * @return Value read
+   * @throws IOException
+   */
+  public static long readZigZagVarLong(DataInput in) throws IOException {
+    long zigZag = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.readByte();
+      zigZag |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return (zigZag >>> 1) ^ -(zigZag & 1);
+  }
+}
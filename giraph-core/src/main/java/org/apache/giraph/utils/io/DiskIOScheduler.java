@@ -0,0 +1,742 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.utils.io;
+
+import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.metrics.GiraphMetrics;
+import org.apache.giraph.metrics.MeterDesc;
+import org.apache.giraph.metrics.MetricNames;
+import org.apache.giraph.metrics.ResetSuperstepMetricsObserver;
+import org.apache.giraph.metrics.SuperstepMetricsRegistry;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yammer.metrics.core.Histogram;
+import com.yammer.metrics.core.Meter;
+import com.yammer.metrics.core.NoOpHistogram;
+import com.yammer.metrics.core.NoOpMeter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules the local disk I/O of out-of-core partitions and messages of a
+ * worker. Each local disk, i.e. each file system the out-of-core
+ * directories are on, has its own queue served by
+ * {@link GiraphConstants#DISK_IO_THREADS_PER_DISK} threads, so components
+ * writing to the same disk don't compete for it while other disks idle.
+ * Queued reads and writes run by {@link DiskIOPriority}, reads a
+ * computation waits for first. The I/O threads only move chunks of bytes
+ * between files and memory, callers serialize and deserialize on their own
+ * thread while streaming through
+ * {@link #openScheduledInput(File, DiskIOPriority)} and
+ * {@link #openScheduledOutput(File, DiskIOPriority, boolean)}.
+ *
+ * Streams opened through the scheduler account the bytes read and written
+ * on each disk, which are reported as metrics and logged every superstep
+ * together with the time each disk was busy.
+ */
+public class DiskIOScheduler implements ResetSuperstepMetricsObserver {
+  /** Class logger */
+  private static final Logger LOG = Logger.getLogger(DiskIOScheduler.class);
+  /** Megabyte in bytes */
+  private static final double MEGABYTE = 1024d * 1024d;
+  /** Size of the chunks scheduled streams read and write at once */
+  private static final int CHUNK_SIZE = 1024 * 1024;
+  /** Scheduler doing all I/O on the calling thread */
+  private static final DiskIOScheduler INLINE = new DiskIOScheduler(0);
+  /** Number of threads per disk, 0 to do I/O on the calling thread */
+  private final int threadsPerDisk;
+  /** Disks by the file store they hold */
+  private final ConcurrentMap<Object, Disk> disks = Maps.newConcurrentMap();
+  /** Disks by directory */
+  private final ConcurrentMap<String, Disk> directoryDisks =
+      Maps.newConcurrentMap();
+  /** Sequence number of the next task, to run tasks in order per priority */
+  private final AtomicLong taskSequence = new AtomicLong();
+  /** Meter of bytes read */
+  private volatile Meter bytesReadMeter = NoOpMeter.INSTANCE;
+  /** Meter of bytes written */
+  private volatile Meter bytesWrittenMeter = NoOpMeter.INSTANCE;
+  /** Milliseconds demand loads waited for their disk */
+  private volatile Histogram demandLoadWaitHistogram = NoOpHistogram.INSTANCE;
+
+  /**
+   * Constructor
+   *
+   * @param conf Configuration
+   */
+  public DiskIOScheduler(ImmutableClassesGiraphConfiguration<?, ?, ?> conf) {
+    this(GiraphConstants.DISK_IO_THREADS_PER_DISK.get(conf));
+    GiraphMetrics.get().addSuperstepResetObserver(this);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param threadsPerDisk Number of threads per disk, 0 to do I/O on the
+   *                       calling thread
+   */
+  private DiskIOScheduler(int threadsPerDisk) {
+    this.threadsPerDisk = Math.max(0, threadsPerDisk);
+  }
+
+  /**
+   * Get the scheduler of a worker.
+   *
+   * @param service Service worker, can be null
+   * @return Scheduler of the worker, or a scheduler doing I/O on the
+   *         calling thread if there is no worker
+   */
+  public static DiskIOScheduler get(CentralizedServiceWorker<?, ?, ?> service) {
+    DiskIOScheduler scheduler =
+        service == null ? null : service.getDiskIOScheduler();
+    return scheduler == null ? INLINE : scheduler;
+  }
+
+  /**
+   * Open a file for reading on the disk of the file. The file is read in
+   * chunks of bounded size on the I/O threads of its disk, each read
+   * waited for when the caller needs more bytes, so the caller can
+   * deserialize a file of any size without holding it in memory.
+   *
+   * @param file File to read
+   * @param priority Priority of the reads
+   * @return Input stream
+   * @throws IOException
+   */
+  public DataInputStream openScheduledInput(File file,
+      DiskIOPriority priority) throws IOException {
+    if (!file.exists()) {
+      throw new FileNotFoundException("openScheduledInput: File " + file +
+          " doesn't exist");
+    }
+    return new DataInputStream(new ScheduledInputStream(file, priority));
+  }
+
+  /**
+   * Open a file for writing on the disk of the file. The bytes written are
+   * buffered in a chunk of bounded size, which is written on the I/O
+   * threads of the disk when it is full, so the caller can serialize any
+   * amount of data without holding it in memory. Closing the stream waits
+   * for the last chunk to be written.
+   *
+   * @param file File to write
+   * @param priority Priority of the writes
+   * @param append Whether to append to the file
+   * @return Output stream
+   */
+  public DataOutputStream openScheduledOutput(File file,
+      DiskIOPriority priority, boolean append) {
+    return new DataOutputStream(
+        new ScheduledOutputStream(file, priority, append));
+  }
+
+  /**
+   * Run a task on the disk of a file and wait for it to finish.
+   *
+   * @param file File the task reads or writes
+   * @param priority Priority of the task
+   * @param task Task, which must only do I/O
+   * @param <T> Result type
+   * @return Result of the task
+   * @throws IOException
+   */
+  private <T> T execute(File file, DiskIOPriority priority, Callable<T> task)
+    throws IOException {
+    Disk disk = getDisk(file);
+    if (disk.executor == null) {
+      return disk.call(task);
+    }
+    IOTask<T> ioTask = new IOTask<T>(disk, task, priority,
+        taskSequence.getAndIncrement());
+    disk.executor.execute(ioTask);
+    try {
+      return ioTask.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("execute: Interrupted while waiting " +
+          "for I/O on " + file, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("execute: I/O on " + file + " failed",
+          cause);
+    }
+  }
+
+  /**
+   * Open a file for reading, accounting the bytes read to its disk.
+   *
+   * @param file File
+   * @param bufferSize Buffer size
+   * @return Input stream
+   * @throws IOException
+   */
+  public DataInputStream openInput(File file, int bufferSize)
+    throws IOException {
+    return new DataInputStream(new BufferedInputStream(
+        new AccountedInputStream(new FileInputStream(file), getDisk(file)),
+        bufferSize));
+  }
+
+  /**
+   * Open a file for writing, accounting the bytes written to its disk.
+   *
+   * @param file File
+   * @param append Whether to append to the file
+   * @param bufferSize Buffer size
+   * @return Output stream
+   * @throws IOException
+   */
+  public DataOutputStream openOutput(File file, boolean append,
+      int bufferSize) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(
+        new AccountedOutputStream(new FileOutputStream(file, append),
+            getDisk(file)), bufferSize));
+  }
+
+  /**
+   * Stop the I/O threads, after running the tasks already queued.
+   */
+  public void shutdown() {
+    for (Disk disk : disks.values()) {
+      if (disk.executor != null) {
+        disk.executor.shutdown();
+      }
+    }
+  }
+
+  @Override
+  public void newSuperstep(SuperstepMetricsRegistry superstepMetrics) {
+    for (Disk disk : disks.values()) {
+      disk.logAndReset();
+    }
+    bytesReadMeter = superstepMetrics.getMeter(MeterDesc.DISK_BYTES_READ);
+    bytesWrittenMeter =
+        superstepMetrics.getMeter(MeterDesc.DISK_BYTES_WRITTEN);
+    demandLoadWaitHistogram = superstepMetrics.getUniformHistogram(
+        MetricNames.DISK_DEMAND_LOAD_WAIT_MSECS);
+  }
+
+  /**
+   * Get the disk a file is on.
+   *
+   * @param file File
+   * @return Disk
+   */
+  private Disk getDisk(File file) {
+    File directory = file.getAbsoluteFile().getParentFile();
+    String path = directory.getPath();
+    Disk disk = directoryDisks.get(path);
+    if (disk == null) {
+      Object fileStore = getFileStore(directory);
+      disk = disks.get(fileStore);
+      if (disk == null) {
+        Disk newDisk = new Disk(fileStore.toString(), disks.size());
+        disk = disks.putIfAbsent(fileStore, newDisk);
+        if (disk == null) {
+          disk = newDisk;
+          if (LOG.isInfoEnabled()) {
+            LOG.info("getDisk: Scheduling I/O on " + disk.name + " with " +
+                threadsPerDisk + " threads");
+          }
+        } else {
+          newDisk.shutdown();
+        }
+      }
+      directoryDisks.putIfAbsent(path, disk);
+    }
+    return disk;
+  }
+
+  /**
+   * Get the file store of a directory, or of its closest existing parent if
+   * it doesn't exist yet.
+   *
+   * @param directory Directory
+   * @return File store, or the top directory if it can't be found
+   */
+  private static Object getFileStore(File directory) {
+    File existing = directory;
+    while (!existing.exists() && existing.getParentFile() != null) {
+      existing = existing.getParentFile();
+    }
+    try {
+      return Files.getFileStore(existing.toPath());
+    } catch (IOException e) {
+      LOG.warn("getFileStore: Failed to find the file system of " +
+          directory + ", treating it as a separate disk", e);
+      return directory.getPath();
+    }
+  }
+
+  /**
+   * Local disk with its I/O queue and accounting.
+   */
+  private class Disk {
+    /** Disk name */
+    private final String name;
+    /** Threads doing the I/O, or null to do it on the calling thread */
+    private final ThreadPoolExecutor executor;
+    /** Bytes read since the last superstep */
+    private final AtomicLong bytesRead = new AtomicLong();
+    /** Bytes written since the last superstep */
+    private final AtomicLong bytesWritten = new AtomicLong();
+    /** Nanoseconds spent running tasks since the last superstep */
+    private final AtomicLong busyNanos = new AtomicLong();
+    /** Number of tasks run since the last superstep */
+    private final AtomicInteger tasks = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param name Disk name
+     * @param index Disk index, to name its threads
+     */
+    Disk(String name, int index) {
+      this.name = name;
+      if (threadsPerDisk > 0) {
+        executor = new ThreadPoolExecutor(threadsPerDisk, threadsPerDisk,
+            0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("disk-io-" + index + "-%d").build());
+      } else {
+        executor = null;
+      }
+    }
+
+    /**
+     * Run a task on the current thread, accounting the time it takes.
+     *
+     * @param task Task
+     * @param <T> Result type
+     * @return Result of the task
+     * @throws IOException
+     */
+    <T> T call(Callable<T> task) throws IOException {
+      long startNanos = System.nanoTime();
+      try {
+        return task.call();
+        // CHECKSTYLE: stop IllegalCatchCheck
+      } catch (IOException | RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        // CHECKSTYLE: resume IllegalCatchCheck
+        throw new IllegalStateException("call: Task failed on " + name, e);
+      } finally {
+        busyNanos.addAndGet(System.nanoTime() - startNanos);
+        tasks.incrementAndGet();
+      }
+    }
+
+    /**
+     * Account bytes read.
+     *
+     * @param bytes Number of bytes
+     */
+    void read(long bytes) {
+      bytesRead.addAndGet(bytes);
+      bytesReadMeter.mark(bytes);
+    }
+
+    /**
+     * Account bytes written.
+     *
+     * @param bytes Number of bytes
+     */
+    void written(long bytes) {
+      bytesWritten.addAndGet(bytes);
+      bytesWrittenMeter.mark(bytes);
+    }
+
+    /**
+     * Log the I/O since the last superstep, if any, and start counting
+     * again.
+     */
+    void logAndReset() {
+      long read = bytesRead.getAndSet(0);
+      long written = bytesWritten.getAndSet(0);
+      long busy = busyNanos.getAndSet(0);
+      int count = tasks.getAndSet(0);
+      if ((read > 0 || written > 0) && LOG.isInfoEnabled()) {
+        LOG.info(String.format("logAndReset: Disk %s read %.2f MB, wrote " +
+            "%.2f MB, ran %d tasks in %.2f s", name, read / MEGABYTE,
+            written / MEGABYTE, count, busy / 1e9));
+      }
+    }
+
+    /**
+     * Stop the threads of the disk.
+     */
+    void shutdown() {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Task queued on a disk, ordered by priority and then by sequence number.
+   *
+   * @param <T> Result type
+   */
+  private class IOTask<T> extends FutureTask<T>
+      implements Comparable<IOTask<?>> {
+    /** Disk the task runs on */
+    private final Disk disk;
+    /** Priority */
+    private final DiskIOPriority priority;
+    /** Sequence number */
+    private final long sequence;
+    /** Time the task was queued at */
+    private final long queuedNanos = System.nanoTime();
+
+    /**
+     * Constructor
+     *
+     * @param disk Disk the task runs on
+     * @param task Task
+     * @param priority Priority
+     * @param sequence Sequence number
+     */
+    IOTask(final Disk disk, final Callable<T> task, DiskIOPriority priority,
+        long sequence) {
+      super(new Callable<T>() {
+        @Override
+        public T call() throws Exception {
+          return disk.call(task);
+        }
+      });
+      this.disk = disk;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public void run() {
+      if (priority == DiskIOPriority.DEMAND_LOAD) {
+        demandLoadWaitHistogram.update(TimeUnit.NANOSECONDS.toMillis(
+            System.nanoTime() - queuedNanos));
+      }
+      super.run();
+    }
+
+    @Override
+    public int compareTo(IOTask<?> other) {
+      if (priority != other.priority) {
+        return other.priority.compareTo(priority);
+      }
+      return sequence < other.sequence ? -1 :
+          (sequence == other.sequence ? 0 : 1);
+    }
+  }
+
+  /**
+   * Input stream reading a file in chunks on the I/O threads of its disk.
+   */
+  private class ScheduledInputStream extends InputStream {
+    /** File to read */
+    private final File file;
+    /** Priority of the reads */
+    private final DiskIOPriority priority;
+    /** Disk of the file */
+    private final Disk disk;
+    /** Chunk read last */
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    /** Position of the next byte in the chunk */
+    private int position;
+    /** Number of bytes in the chunk */
+    private int limit;
+    /** Stream of the file, opened by the first read */
+    private InputStream in;
+    /** Whether the end of the file was reached */
+    private boolean end;
+
+    /**
+     * Constructor
+     *
+     * @param file File to read
+     * @param priority Priority of the reads
+     */
+    ScheduledInputStream(File file, DiskIOPriority priority) {
+      this.file = file;
+      this.priority = priority;
+      disk = getDisk(file);
+    }
+
+    /**
+     * Read the next chunk of the file, if the current one is used up.
+     *
+     * @return False iff the end of the file was reached
+     * @throws IOException
+     */
+    private boolean fill() throws IOException {
+      if (position < limit) {
+        return true;
+      }
+      if (end) {
+        return false;
+      }
+      limit = execute(file, priority, new Callable<Integer>() {
+        @Override
+        public Integer call() throws IOException {
+          if (in == null) {
+            in = new AccountedInputStream(new FileInputStream(file), disk);
+          }
+          int read = 0;
+          while (read < chunk.length) {
+            int bytes = in.read(chunk, read, chunk.length - read);
+            if (bytes < 0) {
+              end = true;
+              break;
+            }
+            read += bytes;
+          }
+          return read;
+        }
+      });
+      position = 0;
+      return limit > 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return fill() ? chunk[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!fill()) {
+        return -1;
+      }
+      int bytes = Math.min(len, limit - position);
+      System.arraycopy(chunk, position, b, off, bytes);
+      position += bytes;
+      return bytes;
+    }
+
+    @Override
+    public int available() {
+      return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (in != null) {
+        in.close();
+      }
+      end = true;
+      position = limit;
+    }
+  }
+
+  /**
+   * Output stream writing a file in chunks on the I/O threads of its disk.
+   */
+  private class ScheduledOutputStream extends OutputStream {
+    /** File to write */
+    private final File file;
+    /** Priority of the writes */
+    private final DiskIOPriority priority;
+    /** Disk of the file */
+    private final Disk disk;
+    /** Whether to append to the file */
+    private final boolean append;
+    /** Chunk being filled */
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    /** Number of bytes in the chunk */
+    private int position;
+    /** Stream of the file, opened by the first write */
+    private OutputStream out;
+    /** Whether the stream was closed */
+    private boolean closed;
+
+    /**
+     * Constructor
+     *
+     * @param file File to write
+     * @param priority Priority of the writes
+     * @param append Whether to append to the file
+     */
+    ScheduledOutputStream(File file, DiskIOPriority priority,
+        boolean append) {
+      this.file = file;
+      this.priority = priority;
+      this.append = append;
+      disk = getDisk(file);
+    }
+
+    /**
+     * Write the chunk to the file on the I/O threads of its disk, and wait
+     * for it.
+     *
+     * @param close Whether to close the file afterwards
+     * @throws IOException
+     */
+    private void writeChunk(final boolean close) throws IOException {
+      execute(file, priority, new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          if (out == null) {
+            out = new AccountedOutputStream(
+                new FileOutputStream(file, append), disk);
+          }
+          out.write(chunk, 0, position);
+          if (close) {
+            out.close();
+          }
+          return null;
+        }
+      });
+      position = 0;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (position == chunk.length) {
+        writeChunk(false);
+      }
+      chunk[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (position == chunk.length) {
+          writeChunk(false);
+        }
+        int bytes = Math.min(len, chunk.length - position);
+        System.arraycopy(b, off, chunk, position, bytes);
+        position += bytes;
+        off += bytes;
+        len -= bytes;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        writeChunk(true);
+      }
+    }
+  }
+
+  /**
+   * Input stream accounting the bytes read to a disk.
+   */
+  private static class AccountedInputStream extends FilterInputStream {
+    /** Disk the stream reads from */
+    private final Disk disk;
+
+    /**
+     * Constructor
+     *
+     * @param in Stream to read from
+     * @param disk Disk the stream reads from
+     */
+    AccountedInputStream(InputStream in, Disk disk) {
+      super(in);
+      this.disk = disk;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        disk.read(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int bytes = super.read(b, off, len);
+      if (bytes > 0) {
+        disk.read(bytes);
+      }
+      return bytes;
+    }
+  }
+
+  /**
+   * Output stream accounting the bytes written to a disk.
+   */
+  private static class AccountedOutputStream extends FilterOutputStream {
+    /** Disk the stream writes to */
+    private final Disk disk;
+
+    /**
+     * Constructor
+     *
+     * @param out Stream to write to
+     * @param disk Disk the stream writes to
+     */
+    AccountedOutputStream(OutputStream out, Disk disk) {
+      super(out);
+      this.disk = disk;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      disk.written(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      disk.written(len);
+    }
+  }
+}
@@ -33,6 +33,7 @@ import org.apache.giraph.comm.netty.NettyWorkerAggregatorRequestProcessor;
 import org.apache.giraph.comm.netty.NettyWorkerClient;
 import org.apache.giraph.comm.netty.NettyWorkerClientRequestProcessor;
 import org.apache.giraph.comm.netty.NettyWorkerServer;
+import org.apache.giraph.comm.requests.SendWorkerSuperstepReportRequest;
 import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.edge.Edge;
@@ -46,6 +47,7 @@ import org.apache.giraph.graph.Vertex;
 import org.apache.giraph.graph.VertexEdgeCount;
 import org.apache.giraph.io.EdgeOutputFormat;
 import org.apache.giraph.io.EdgeWriter;
+import org.apache.giraph.io.MappingInputFormat;
 import org.apache.giraph.io.VertexOutputFormat;
 import org.apache.giraph.io.VertexWriter;
 import org.apache.giraph.io.superstep_output.SuperstepOutput;
@@ -71,6 +73,7 @@ import org.apache.giraph.utils.LoggerUtils;
 import org.apache.giraph.utils.MemoryUtils;
 import org.apache.giraph.utils.ProgressableUtils;
 import org.apache.giraph.utils.WritableUtils;
+import org.apache.giraph.utils.io.DiskIOScheduler;
 import org.apache.giraph.zk.BspEvent;
 import org.apache.giraph.zk.PredicateLock;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -98,10 +101,13 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import net.iharder.Base64;
 
+import java.io.DataInput;
 import java.io.DataInputStream;
+import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -114,8 +120,10 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * ZooKeeper-based implementation of {@link CentralizedServiceWorker}.
@@ -148,6 +156,15 @@ public class BspServiceWorker<I extends WritableComparable,
   private final WorkerClient<I, V, E> workerClient;
   /** IPC Server */
   private final WorkerServer<I, V, E> workerServer;
+  /** Scheduler for local disk I/O of out-of-core data */
+  private final DiskIOScheduler diskIOScheduler;
+  /**
+   * Superstep in which this worker stored the checkpointed edges of each
+   * of its partitions, when checkpoints store the edges of static graphs
+   * only once
+   */
+  private final Map<Integer, Long> checkpointEdgesSupersteps =
+      new ConcurrentHashMap<Integer, Long>();
   /** Request processor for aggregator requests */
   private final WorkerAggregatorRequestProcessor
   workerAggregatorRequestProcessor;
@@ -202,6 +219,7 @@ public class BspServiceWorker<I extends WritableComparable,
     workerGraphPartitioner =
         getGraphPartitionerFactory().createWorkerGraphPartitioner();
     workerInfo = new WorkerInfo();
+    diskIOScheduler = new DiskIOScheduler(conf);
     workerServer = new NettyWorkerServer<I, V, E>(conf, this, context,
         graphTaskManager.createUncaughtExceptionHandler());
     workerInfo.setInetSocketAddress(workerServer.getMyAddress());
@@ -334,7 +352,15 @@ public class BspServiceWorker<I extends WritableComparable,
         getZkExt().getChildrenExt(mappingInputSplitsPaths.getPath(),
         false, false, true);
 
-    InputSplitPathOrganizer splitOrganizer =
+    MappingInputFormat<I, V, E, ? extends Writable> mappingInputFormat =
+        getConfiguration().createWrappedMappingInputFormat();
+    // Order sensitive formats have to see splits in the same order on every
+    // worker, in a single thread. ZooKeeper doesn't guarantee the order of
+    // children, so the organizer sorts them.
+    boolean orderSensitive = mappingInputFormat.isOrderSensitive();
+    mappingInputFormat.setNumWorkers(getWorkerInfoList().size());
+    InputSplitPathOrganizer splitOrganizer = orderSensitive ?
+        new InputSplitPathOrganizer(getZkExt(), inputSplitPathList) :
         new InputSplitPathOrganizer(getZkExt(),
             inputSplitPathList, getWorkerInfo().getHostname(),
             getConfiguration().useInputSplitLocality());
@@ -342,7 +368,7 @@ public class BspServiceWorker<I extends WritableComparable,
     MappingInputSplitsCallableFactory<I, V, E, ? extends Writable>
         mappingInputSplitsCallableFactory =
         new MappingInputSplitsCallableFactory<>(
-            getConfiguration().createWrappedMappingInputFormat(),
+            mappingInputFormat,
             splitOrganizer,
             getContext(),
             getConfiguration(),
@@ -354,6 +380,9 @@ public class BspServiceWorker<I extends WritableComparable,
     int maxInputSplitThreads = inputSplitPathList.size();
     int numThreads = Math.min(getConfiguration().getNumInputSplitsThreads(),
         maxInputSplitThreads);
+    if (orderSensitive) {
+      numThreads = Math.min(numThreads, 1);
+    }
     if (LOG.isInfoEnabled()) {
       LOG.info("loadInputSplits: Using " + numThreads + " thread(s), " +
           "originally " + getConfiguration().getNumInputSplitsThreads() +
@@ -691,6 +720,10 @@ public class BspServiceWorker<I extends WritableComparable,
       getServerData().getEdgeStore().moveEdgesToVertices();
     }
 
+    if (getConfiguration().useInEdgeIndex()) {
+      getServerData().getInEdgeIndex().indexReceivedInEdges();
+    }
+
     // Generate the partition stats for the input superstep and process
     // if necessary
     List<PartitionStats> partitionStatsList =
@@ -705,6 +738,8 @@ public class BspServiceWorker<I extends WritableComparable,
               partition.getEdgeCount(),
               0, 0);
       partitionStatsList.add(partitionStats);
+      getPartitionStore().getPartitionMetadata(partitionId).updateStats(
+          partitionStats);
       getPartitionStore().putPartition(partition);
     }
     workerGraphPartitioner.finalizePartitionStats(
@@ -1006,7 +1041,8 @@ public class BspServiceWorker<I extends WritableComparable,
   }
 
   /**
-   * Write finished superstep info to ZooKeeper.
+   * Write finished superstep info to ZooKeeper, or send it to the master
+   * over Netty if the Netty superstep barrier is used.
    *
    * @param partitionStatsList List of partition stats from superstep.
    * @param workerSentMessages Number of messages sent in superstep.
@@ -1027,6 +1063,17 @@ public class BspServiceWorker<I extends WritableComparable,
     metrics.readFromRegistry();
     byte[] metricsBytes = WritableUtils.writeToByteArray(metrics);
 
+    if (GiraphConstants.NETTY_SUPERSTEP_BARRIER.get(getConfiguration())) {
+      workerClient.sendWritableRequest(getMasterInfo().getTaskId(),
+          new SendWorkerSuperstepReportRequest(new WorkerSuperstepReport(
+              getApplicationAttempt(), getSuperstep(),
+              getHostnamePartitionId(), workerSentMessages,
+              workerSentMessageBytes, partitionStatsBytes, metricsBytes)));
+      // Master only counts the worker as finished once the report arrives
+      workerClient.waitAllRequests();
+      return;
+    }
+
     JSONObject workerFinishedInfoObj = new JSONObject();
     try {
       workerFinishedInfoObj.put(JSONOBJ_PARTITION_STATS_KEY,
@@ -1101,14 +1148,7 @@ public class BspServiceWorker<I extends WritableComparable,
             new ArrayBlockingQueue<Integer>(numPartitions);
     Iterables.addAll(partitionIdQueue, getPartitionStore().getPartitionIds());
 
-    long verticesToStore = 0;
-    PartitionStore<I, V, E> partitionStore = getPartitionStore();
-    for (int partitionId : partitionStore.getPartitionIds()) {
-      Partition<I, V, E> partition =
-        partitionStore.getOrCreatePartition(partitionId);
-      verticesToStore += partition.getVertexCount();
-      partitionStore.putPartition(partition);
-    }
+    long verticesToStore = getPartitionStore().getVertexCount();
     WorkerProgress.get().startStoring(
         verticesToStore, getPartitionStore().getNumPartitions());
 
@@ -1375,6 +1415,7 @@ public class BspServiceWorker<I extends WritableComparable,
     // all clients have disconnected (or the exceptions on the
     // client side ignored).
     workerServer.close();
+    diskIOScheduler.shutdown();
   }
 
   @Override
@@ -1504,6 +1545,8 @@ public class BspServiceWorker<I extends WritableComparable,
                 GiraphConstants.CHECKPOINT_COMPRESSION_CODEC
                     .get(getConfiguration())));
 
+    final boolean edgesOnce = isCheckpointEdgesOnce();
+
     long t0 = System.currentTimeMillis();
 
     CallableFactory<Void> callableFactory = new CallableFactory<Void>() {
@@ -1520,7 +1563,8 @@ public class BspServiceWorker<I extends WritableComparable,
               }
               Path path =
                   createCheckpointFilePathSafe("_" + partitionId +
-                      CHECKPOINT_VERTICES_POSTFIX);
+                      (edgesOnce ? CHECKPOINT_VERTEX_VALUES_POSTFIX :
+                          CHECKPOINT_VERTICES_POSTFIX));
 
               FSDataOutputStream uncompressedStream =
                   getFs().create(path);
@@ -1533,12 +1577,24 @@ public class BspServiceWorker<I extends WritableComparable,
               Partition<I, V, E> partition =
                   getPartitionStore().getOrCreatePartition(partitionId);
 
-              partition.write(stream);
+              if (edgesOnce) {
+                long edgesSuperstep =
+                    storeCheckpointEdgesIfChanged(partition, codec);
+                stream.writeUTF(getJobId());
+                stream.writeLong(edgesSuperstep);
+                storeCheckpointVertexValues(partition, stream);
+              } else {
+                partition.write(stream);
+              }
 
               getPartitionStore().putPartition(partition);
 
               stream.close();
               uncompressedStream.close();
+
+              if (getConfiguration().useInEdgeIndex()) {
+                storeCheckpointInEdges(partitionId, codec);
+              }
             }
             return null;
           }
@@ -1555,6 +1611,227 @@ public class BspServiceWorker<I extends WritableComparable,
         " ms, using " + numThreads + " threads");
   }
 
+  /**
+   * Store the in-edge index of a partition.
+   *
+   * @param partitionId Partition id
+   * @param codec Compression codec, null for none
+   * @throws IOException
+   */
+  private void storeCheckpointInEdges(int partitionId,
+      CompressionCodec codec) throws IOException {
+    Path path = createCheckpointFilePathSafe("_" + partitionId +
+        CHECKPOINT_IN_EDGES_POSTFIX);
+    FSDataOutputStream uncompressedStream = getFs().create(path);
+    DataOutputStream stream = codec == null ? uncompressedStream :
+        new DataOutputStream(codec.createOutputStream(uncompressedStream));
+    getServerData().getInEdgeIndex().writePartition(partitionId, stream);
+    stream.close();
+    uncompressedStream.close();
+  }
+
+  /**
+   * Load the in-edge index of a partition if the checkpoint stored it.
+   *
+   * @param superstep Superstep of the checkpoint
+   * @param partitionId Partition id
+   * @param codec Compression codec, null for none
+   * @return True iff the checkpoint stored the in-edge index
+   * @throws IOException
+   */
+  private boolean loadCheckpointInEdges(long superstep, int partitionId,
+      CompressionCodec codec) throws IOException {
+    Path path = getSavedCheckpoint(superstep, "_" + partitionId +
+        CHECKPOINT_IN_EDGES_POSTFIX);
+    if (!getFs().exists(path)) {
+      return false;
+    }
+    FSDataInputStream compressedStream = getFs().open(path);
+    DataInputStream stream = codec == null ? compressedStream :
+        new DataInputStream(codec.createInputStream(compressedStream));
+    getServerData().getInEdgeIndex().readPartition(partitionId, stream);
+    stream.close();
+    return true;
+  }
+
+  /**
+   * Whether checkpoints store the edges of each partition only once, since
+   * the graph is static.
+   *
+   * @return True to store edges once and vertex values in each checkpoint
+   */
+  private boolean isCheckpointEdgesOnce() {
+    return GiraphConstants.STATIC_GRAPH.get(getConfiguration()) &&
+        GiraphConstants.CHECKPOINT_STATIC_GRAPH_EDGES_ONCE.get(
+            getConfiguration());
+  }
+
+  /**
+   * Get the path of the edges a job stored for a partition of a static
+   * graph in some superstep. Jobs sharing a checkpoint directory store
+   * their edges in separate directories.
+   *
+   * @param basePath Checkpoint base path of the job
+   * @param jobId Id of the job which stored the edges
+   * @param superstep Superstep the edges were stored in
+   * @param partitionId Partition id
+   * @return Path of the partition's edges
+   */
+  private Path getCheckpointEdgesPath(String basePath, String jobId,
+      long superstep, int partitionId) {
+    return new Path(basePath + "/" + CHECKPOINT_EDGES_DIR + "/" + jobId +
+        "/" + superstep + "/" + partitionId);
+  }
+
+  /**
+   * Store the edges of a partition for the checkpoints of this superstep
+   * and the following ones, unless they were already stored and no vertex
+   * of the partition gained edges since.
+   *
+   * @param partition Partition
+   * @param codec Compression codec, null for none
+   * @return Superstep the checkpointed edges were stored in
+   * @throws IOException
+   */
+  private long storeCheckpointEdgesIfChanged(Partition<I, V, E> partition,
+      CompressionCodec codec) throws IOException {
+    Long edgesSuperstep = checkpointEdgesSupersteps.get(partition.getId());
+    boolean newEdges = getServerData().getPartitionsWithNewEdges().remove(
+        partition.getId());
+    if (edgesSuperstep == null || newEdges) {
+      edgesSuperstep = getSuperstep();
+      storeCheckpointEdges(partition, edgesSuperstep, codec);
+      checkpointEdgesSupersteps.put(partition.getId(), edgesSuperstep);
+    }
+    return edgesSuperstep;
+  }
+
+  /**
+   * Store a partition with its edges. The stored edges start with the id
+   * of the job, the superstep and the partition, which are checked before
+   * the edges are used. The partition is written to a temporary file
+   * first, so that a failure never leaves an incomplete file behind.
+   *
+   * @param partition Partition
+   * @param superstep Current superstep
+   * @param codec Compression codec, null for none
+   * @throws IOException
+   */
+  private void storeCheckpointEdges(Partition<I, V, E> partition,
+      long superstep, CompressionCodec codec) throws IOException {
+    Path path = getCheckpointEdgesPath(checkpointBasePath, getJobId(),
+        superstep, partition.getId());
+    Path tmpPath = path.suffix(".tmp");
+    FSDataOutputStream uncompressedStream = getFs().create(tmpPath, true);
+    DataOutputStream stream = codec == null ? uncompressedStream :
+        new DataOutputStream(codec.createOutputStream(uncompressedStream));
+    stream.writeUTF(getJobId());
+    stream.writeLong(superstep);
+    stream.writeInt(partition.getId());
+    partition.write(stream);
+    stream.close();
+    uncompressedStream.close();
+    // Left over by a failed attempt of the same job
+    if (getFs().exists(path)) {
+      getFs().delete(path, false);
+    }
+    if (!getFs().rename(tmpPath, path)) {
+      throw new IllegalStateException("storeCheckpointEdges: Failed to " +
+          "rename " + tmpPath + " to " + path);
+    }
+  }
+
+  /**
+   * Store the id, value and halted flag of each vertex of a partition, and
+   * whether it has edges.
+   *
+   * @param partition Partition
+   * @param output Output to write to
+   * @throws IOException
+   */
+  private void storeCheckpointVertexValues(Partition<I, V, E> partition,
+      DataOutput output) throws IOException {
+    output.writeLong(partition.getVertexCount());
+    for (Vertex<I, V, E> vertex : partition) {
+      vertex.getId().write(output);
+      vertex.getValue().write(output);
+      output.writeBoolean(vertex.isHalted());
+      output.writeBoolean(vertex.getNumEdges() > 0);
+    }
+  }
+
+  /**
+   * Load a partition from the vertex values stored by
+   * {@link #storeCheckpointVertexValues} and the edges stored by
+   * {@link #storeCheckpointEdges}. Vertices without edges, such as the
+   * ones created after the edges were stored, get no edges, and stored
+   * vertices without values were removed since.
+   *
+   * @param partitionId Partition id
+   * @param input Input with vertex values
+   * @param codec Compression codec, null for none
+   * @return Partition
+   * @throws IOException
+   */
+  private Partition<I, V, E> loadCheckpointVertexValues(int partitionId,
+      DataInput input, CompressionCodec codec) throws IOException {
+    ImmutableClassesGiraphConfiguration<I, V, E> conf = getConfiguration();
+    String edgesJobId = input.readUTF();
+    long edgesSuperstep = input.readLong();
+    Path edgesPath = getCheckpointEdgesPath(savedCheckpointBasePath,
+        edgesJobId, edgesSuperstep, partitionId);
+    FSDataInputStream compressedStream = getFs().open(edgesPath);
+    DataInputStream stream = codec == null ? compressedStream :
+        new DataInputStream(codec.createInputStream(compressedStream));
+    if (!edgesJobId.equals(stream.readUTF()) ||
+        edgesSuperstep != stream.readLong() ||
+        partitionId != stream.readInt()) {
+      stream.close();
+      throw new IllegalStateException("loadCheckpointVertexValues: " +
+          edgesPath + " was not stored by job " + edgesJobId +
+          " in superstep " + edgesSuperstep + " for partition " +
+          partitionId);
+    }
+    Partition<I, V, E> edgesPartition =
+        conf.createPartition(partitionId, getContext());
+    edgesPartition.readFields(stream);
+    stream.close();
+
+    Partition<I, V, E> partition =
+        conf.createPartition(partitionId, getContext());
+    long numVertices = input.readLong();
+    for (long i = 0; i < numVertices; ++i) {
+      I id = conf.createVertexId();
+      id.readFields(input);
+      V value = conf.createVertexValue();
+      value.readFields(input);
+      boolean halted = input.readBoolean();
+      Vertex<I, V, E> vertex = edgesPartition.removeVertex(id);
+      if (input.readBoolean()) {
+        if (vertex == null) {
+          throw new IllegalStateException("loadCheckpointVertexValues: " +
+              "Vertex " + id + " has edges, but none were stored in " +
+              edgesPath + ". Its edges were changed during computation, " +
+              "which " + GiraphConstants.STATIC_GRAPH.getKey() + " doesn't " +
+              "allow. Disable " +
+              GiraphConstants.CHECKPOINT_STATIC_GRAPH_EDGES_ONCE.getKey() +
+              " for graphs whose edges change.");
+        }
+        vertex.setValue(value);
+      } else {
+        vertex = conf.createVertex();
+        vertex.initialize(id, value);
+      }
+      if (halted) {
+        vertex.voteToHalt();
+      } else {
+        vertex.wakeUp();
+      }
+      partition.putVertex(vertex);
+    }
+    return partition;
+  }
+
   /**
    * Load saved partitions in multiple threads.
    * @param superstep superstep to load
@@ -1568,6 +1845,8 @@ public class BspServiceWorker<I extends WritableComparable,
 
     final Queue<Integer> partitionIdQueue =
         new ConcurrentLinkedQueue<>(partitions);
+    final boolean useInEdgeIndex = getConfiguration().useInEdgeIndex();
+    final AtomicBoolean missingInEdges = new AtomicBoolean();
 
     final CompressionCodec codec =
         new CompressionCodecFactory(getConfiguration())
@@ -1589,7 +1868,13 @@ public class BspServiceWorker<I extends WritableComparable,
               if (partitionId == null) {
                 break;
               }
-              Path path =
+              // Checkpoints of static graphs may store vertex values
+              // only, decided by the job which stored them
+              Path valuesPath =
+                  getSavedCheckpoint(superstep, "_" + partitionId +
+                      CHECKPOINT_VERTEX_VALUES_POSTFIX);
+              boolean valuesOnly = getFs().exists(valuesPath);
+              Path path = valuesOnly ? valuesPath :
                   getSavedCheckpoint(superstep, "_" + partitionId +
                       CHECKPOINT_VERTICES_POSTFIX);
 
@@ -1600,14 +1885,24 @@ public class BspServiceWorker<I extends WritableComparable,
                   new DataInputStream(
                       codec.createInputStream(compressedStream));
 
-              Partition<I, V, E> partition =
-                  getConfiguration().createPartition(partitionId, getContext());
-
-              partition.readFields(stream);
+              Partition<I, V, E> partition;
+              if (valuesOnly) {
+                partition =
+                    loadCheckpointVertexValues(partitionId, stream, codec);
+              } else {
+                partition = getConfiguration().createPartition(
+                    partitionId, getContext());
+                partition.readFields(stream);
+              }
 
               getPartitionStore().addPartition(partition);
 
               stream.close();
+
+              if (useInEdgeIndex &&
+                  !loadCheckpointInEdges(superstep, partitionId, codec)) {
+                missingInEdges.set(true);
+              }
             }
             return null;
           }
@@ -1619,6 +1914,16 @@ public class BspServiceWorker<I extends WritableComparable,
     ProgressableUtils.getResultsWithNCallables(callableFactory, numThreads,
         "load-vertices-%d", getContext());
 
+    if (useInEdgeIndex) {
+      if (missingInEdges.get()) {
+        LOG.warn("loadCheckpointVertices: Checkpoint of superstep " +
+            superstep + " didn't store the in-edge index");
+        getServerData().getInEdgeIndex().clear();
+      } else {
+        getServerData().getInEdgeIndex().indexReceivedInEdges();
+      }
+    }
+
     LOG.info("Loaded checkpoint in " + (System.currentTimeMillis() - t0) +
         " ms, using " + numThreads + " threads");
   }
@@ -1708,41 +2013,67 @@ else[HADOOP_NON_SECURE]*/
    */
   private void sendWorkerPartitions(
       Map<WorkerInfo, List<Integer>> workerPartitionMap) {
-    List<Entry<WorkerInfo, List<Integer>>> randomEntryList =
-        new ArrayList<Entry<WorkerInfo, List<Integer>>>(
-            workerPartitionMap.entrySet());
-    Collections.shuffle(randomEntryList);
-    WorkerClientRequestProcessor<I, V, E> workerClientRequestProcessor =
-        new NettyWorkerClientRequestProcessor<I, V, E>(getContext(),
-            getConfiguration(), this);
+    List<Entry<WorkerInfo, Integer>> randomEntryList =
+        new ArrayList<Entry<WorkerInfo, Integer>>();
     for (Entry<WorkerInfo, List<Integer>> workerPartitionList :
-      randomEntryList) {
+        workerPartitionMap.entrySet()) {
       for (Integer partitionId : workerPartitionList.getValue()) {
-        Partition<I, V, E> partition =
-            getPartitionStore().removePartition(partitionId);
-        if (partition == null) {
-          throw new IllegalStateException(
-              "sendWorkerPartitions: Couldn't find partition " +
-                  partitionId + " to send to " +
-                  workerPartitionList.getKey());
-        }
-        if (LOG.isInfoEnabled()) {
-          LOG.info("sendWorkerPartitions: Sending worker " +
-              workerPartitionList.getKey() + " partition " +
-              partitionId);
-        }
-        workerClientRequestProcessor.sendPartitionRequest(
-            workerPartitionList.getKey(),
-            partition);
+        randomEntryList.add(new AbstractMap.SimpleImmutableEntry<
+            WorkerInfo, Integer>(workerPartitionList.getKey(), partitionId));
       }
     }
+    Collections.shuffle(randomEntryList);
+    final Queue<Entry<WorkerInfo, Integer>> sendQueue =
+        new ConcurrentLinkedQueue<Entry<WorkerInfo, Integer>>(
+            randomEntryList);
 
-    try {
-      workerClientRequestProcessor.flush();
-      workerClient.waitAllRequests();
-    } catch (IOException e) {
-      throw new IllegalStateException("sendWorkerPartitions: Flush failed", e);
+    // Every thread streams whole partitions, in bounded requests, through
+    // its own request processor
+    CallableFactory<Void> callableFactory = new CallableFactory<Void>() {
+      @Override
+      public Callable<Void> newCallable(int callableId) {
+        return new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            WorkerClientRequestProcessor<I, V, E>
+                workerClientRequestProcessor =
+                new NettyWorkerClientRequestProcessor<I, V, E>(getContext(),
+                    getConfiguration(), BspServiceWorker.this);
+            while (true) {
+              Entry<WorkerInfo, Integer> entry = sendQueue.poll();
+              if (entry == null) {
+                break;
+              }
+              Iterable<Vertex<I, V, E>> vertices =
+                  getPartitionStore().removePartitionVertices(
+                      entry.getValue());
+              if (vertices == null) {
+                throw new IllegalStateException(
+                    "sendWorkerPartitions: Couldn't find partition " +
+                        entry.getValue() + " to send to " + entry.getKey());
+              }
+              if (LOG.isInfoEnabled()) {
+                LOG.info("sendWorkerPartitions: Sending worker " +
+                    entry.getKey() + " partition " + entry.getValue());
+              }
+              workerClientRequestProcessor.sendPartitionVerticesRequest(
+                  entry.getKey(), entry.getValue(), vertices);
+            }
+            workerClientRequestProcessor.flush();
+            return null;
+          }
+        };
+      }
+    };
+    int numThreads = Math.min(
+        GiraphConstants.NUM_PARTITION_EXCHANGE_THREADS.get(getConfiguration()),
+        randomEntryList.size());
+    if (numThreads > 0) {
+      ProgressableUtils.getResultsWithNCallables(callableFactory, numThreads,
+          "send-partitions-%d", getContext());
     }
+    workerClient.waitAllRequests();
+
     String myPartitionExchangeDonePath =
         getPartitionExchangeWorkerPath(
             getApplicationAttempt(), getSuperstep(), getWorkerInfo());
@@ -1779,9 +2110,24 @@ else[HADOOP_NON_SECURE]*/
         workerGraphPartitioner.updatePartitionOwners(
             getWorkerInfo(), masterSetPartitionOwners);
     workerClient.openConnections();
+    // Vertex mirrors are grouped by partition, so they are stale as soon
+    // as any partition moves. The in-edges of the partitions are sent
+    // along with them.
+    for (PartitionOwner partitionOwner : masterSetPartitionOwners) {
+      if (partitionOwner.getPreviousWorkerInfo() != null) {
+        getServerData().getVertexMirrors().clear();
+        break;
+      }
+    }
 
     Map<WorkerInfo, List<Integer>> sendWorkerPartitionMap =
         partitionExchange.getSendWorkerPartitionMap();
+    // Checkpointed edges of partitions which come back later may be stale
+    for (List<Integer> partitionIds : sendWorkerPartitionMap.values()) {
+      for (Integer partitionId : partitionIds) {
+        checkpointEdgesSupersteps.remove(partitionId);
+      }
+    }
     if (!getPartitionStore().isEmpty()) {
       sendWorkerPartitions(sendWorkerPartitionMap);
     }
@@ -1826,6 +2172,10 @@ else[HADOOP_NON_SECURE]*/
           "exchangeVertexPartitions: Got runtime exception", e);
     }
 
+    if (getConfiguration().useInEdgeIndex()) {
+      getServerData().getInEdgeIndex().indexReceivedInEdges();
+    }
+
     if (LOG.isInfoEnabled()) {
       LOG.info("exchangeVertexPartitions: Done with exchange.");
     }
@@ -1920,6 +2270,11 @@ else[HADOOP_NON_SECURE]*/
     return workerServer.getServerData();
   }
 
+  @Override
+  public DiskIOScheduler getDiskIOScheduler() {
+    return diskIOScheduler;
+  }
+
   @Override
   public WorkerAggregatorHandler getAggregatorHandler() {
     return aggregatorHandler;
@@ -86,6 +86,21 @@ public class InputSplitPathOrganizer {
     }
   }
 
+  /**
+   * Constructor which sorts the input splits, so every worker iterates over
+   * them in the same order whatever order ZooKeeper listed them in.
+   *
+   * @param zooKeeper the worker's ZkExt
+   * @param inputSplitPathList path of input splits to read from
+   */
+  public InputSplitPathOrganizer(
+      final ZooKeeperExt zooKeeper, final List<String> inputSplitPathList) {
+    this.zooKeeper = zooKeeper;
+    this.pathList = Lists.newArrayList(inputSplitPathList);
+    this.hostName = null;
+    Collections.sort(pathList);
+  }
+
   /**
   * Re-order list of InputSplits so files local to this worker node's
   * disk are the first it will iterate over when attempting to claim
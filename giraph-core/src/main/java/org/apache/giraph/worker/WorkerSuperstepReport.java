@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.worker;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Everything a worker reports to the master when it finishes a superstep:
+ * its partition stats, message counts and metrics. Partition stats and
+ * metrics are kept serialized, since only the master knows which partition
+ * stats class to read them with.
+ */
+public class WorkerSuperstepReport implements Writable {
+  /** Application attempt */
+  private long applicationAttempt;
+  /** Superstep which was finished */
+  private long superstep;
+  /** Hostname and id of the worker */
+  private String hostnameId;
+  /** Number of messages sent in the superstep */
+  private long sentMessages;
+  /** Number of message bytes sent in the superstep */
+  private long sentMessageBytes;
+  /** Serialized list of partition stats */
+  private byte[] partitionStatsBytes;
+  /** Serialized worker metrics */
+  private byte[] metricsBytes;
+
+  /**
+   * Constructor for reflection
+   */
+  public WorkerSuperstepReport() {
+  }
+
+  /**
+   * Constructor
+   *
+   * @param applicationAttempt Application attempt
+   * @param superstep Superstep which was finished
+   * @param hostnameId Hostname and id of the worker
+   * @param sentMessages Number of messages sent in the superstep
+   * @param sentMessageBytes Number of message bytes sent in the superstep
+   * @param partitionStatsBytes Serialized list of partition stats
+   * @param metricsBytes Serialized worker metrics
+   */
+  public WorkerSuperstepReport(long applicationAttempt, long superstep,
+      String hostnameId, long sentMessages, long sentMessageBytes,
+      byte[] partitionStatsBytes, byte[] metricsBytes) {
+    this.applicationAttempt = applicationAttempt;
+    this.superstep = superstep;
+    this.hostnameId = hostnameId;
+    this.sentMessages = sentMessages;
+    this.sentMessageBytes = sentMessageBytes;
+    this.partitionStatsBytes = partitionStatsBytes;
+    this.metricsBytes = metricsBytes;
+  }
+
+  public long getApplicationAttempt() {
+    return applicationAttempt;
+  }
+
+  public long getSuperstep() {
+    return superstep;
+  }
+
+  public String getHostnameId() {
+    return hostnameId;
+  }
+
+  public long getSentMessages() {
+    return sentMessages;
+  }
+
+  public long getSentMessageBytes() {
+    return sentMessageBytes;
+  }
+
+  public byte[] getPartitionStatsBytes() {
+    return partitionStatsBytes;
+  }
+
+  public byte[] getMetricsBytes() {
+    return metricsBytes;
+  }
+
+  @Override
+  public void write(DataOutput output) throws IOException {
+    output.writeLong(applicationAttempt);
+    output.writeLong(superstep);
+    Text.writeString(output, hostnameId);
+    output.writeLong(sentMessages);
+    output.writeLong(sentMessageBytes);
+    output.writeInt(partitionStatsBytes.length);
+    output.write(partitionStatsBytes);
+    output.writeInt(metricsBytes.length);
+    output.write(metricsBytes);
+  }
+
+  @Override
+  public void readFields(DataInput input) throws IOException {
+    applicationAttempt = input.readLong();
+    superstep = input.readLong();
+    hostnameId = Text.readString(input);
+    sentMessages = input.readLong();
+    sentMessageBytes = input.readLong();
+    partitionStatsBytes = new byte[input.readInt()];
+    input.readFully(partitionStatsBytes);
+    metricsBytes = new byte[input.readInt()];
+    input.readFully(metricsBytes);
+  }
+
+  @Override
+  public String toString() {
+    return "(attempt=" + applicationAttempt + ",superstep=" + superstep +
+        ",worker=" + hostnameId + ",messages=" + sentMessages +
+        ",messageBytes=" + sentMessageBytes + ")";
+  }
+}
@@ -21,10 +21,14 @@ package org.apache.giraph.comm;
 import org.apache.giraph.comm.netty.NettyClient;
 import org.apache.giraph.comm.netty.NettyServer;
 import org.apache.giraph.comm.netty.handler.WorkerRequestServerHandler;
+import org.apache.giraph.comm.requests.SendMirrorEdgesRequest;
+import org.apache.giraph.comm.requests.SendMirrorMessageRequest;
+import org.apache.giraph.comm.requests.RequestType;
 import org.apache.giraph.comm.requests.SendPartitionMutationsRequest;
 import org.apache.giraph.comm.requests.SendVertexRequest;
 import org.apache.giraph.comm.requests.SendWorkerMessagesRequest;
 import org.apache.giraph.comm.requests.SendWorkerOneMessageToManyRequest;
+import org.apache.giraph.comm.requests.SendWorkerSuperstepReportRequest;
 import org.apache.giraph.conf.GiraphConfiguration;
 import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
@@ -33,8 +37,10 @@ import org.apache.giraph.edge.EdgeFactory;
 import org.apache.giraph.factories.TestMessageValueFactory;
 import org.apache.giraph.graph.Vertex;
 import org.apache.giraph.graph.VertexMutations;
+import org.apache.giraph.master.WorkerSuperstepReports;
 import org.apache.giraph.metrics.GiraphMetrics;
 import org.apache.giraph.partition.Partition;
+import org.apache.giraph.partition.PartitionStats;
 import org.apache.giraph.partition.PartitionStore;
 import org.apache.giraph.utils.ByteArrayOneMessageToManyIds;
 import org.apache.giraph.utils.VertexIdMessages;
@@ -43,7 +49,11 @@ import org.apache.giraph.utils.ExtendedDataOutput;
 import org.apache.giraph.utils.IntNoOpComputation;
 import org.apache.giraph.utils.MockUtils;
 import org.apache.giraph.utils.PairList;
+import org.apache.giraph.utils.ReflectionUtils;
+import org.apache.giraph.utils.WritableUtils;
 import org.apache.giraph.worker.WorkerInfo;
+import org.apache.giraph.worker.WorkerSuperstepReport;
+import org.apache.giraph.zk.BspEvent;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.mapreduce.Mapper.Context;
 import org.junit.Before;
@@ -53,13 +63,16 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -195,6 +208,50 @@ public class RequestTest {
     assertEquals(35, messageSum);
   }
 
+  @Test
+  public void sendMirrorMessageRequest() throws IOException {
+    // Mirror of vertex 100 with edges to vertices 1 to 6 in partition 0
+    VertexMirror<IntWritable> mirror = new VertexMirror<IntWritable>(conf);
+    for (int i = 1; i < 7; ++i) {
+      mirror.addTarget(0, new IntWritable(i));
+    }
+    client.sendWritableRequest(workerInfo.getTaskId(),
+        new SendMirrorEdgesRequest<IntWritable>(new IntWritable(100), mirror));
+    client.waitAllRequests();
+
+    // Send two messages through the mirror
+    for (int j = 1; j < 3; ++j) {
+      SendMirrorMessageRequest<IntWritable, IntWritable> request =
+          new SendMirrorMessageRequest<IntWritable, IntWritable>(
+              new IntWritable(100), new IntWritable(j));
+      client.sendWritableRequest(workerInfo.getTaskId(), request);
+    }
+    client.waitAllRequests();
+
+    // Stop the service
+    client.stop();
+    server.stop();
+
+    // Check the output
+    Iterable<IntWritable> vertices =
+        serverData.getIncomingMessageStore().getPartitionDestinationVertices(0);
+    int keySum = 0;
+    int messageSum = 0;
+    for (IntWritable vertexId : vertices) {
+      keySum += vertexId.get();
+      Iterable<IntWritable> messages =
+          serverData.<IntWritable>getIncomingMessageStore().getVertexMessages(
+              vertexId);
+      synchronized (messages) {
+        for (IntWritable message : messages) {
+          messageSum += message.get();
+        }
+      }
+    }
+    assertEquals(21, keySum);
+    assertEquals(18, messageSum);
+  }
+
   @Test
   public void sendWorkerIndividualMessagesRequest() throws IOException {
     // Data to send
@@ -308,4 +365,57 @@ public class RequestTest {
     }
     assertEquals(55, keySum);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void sendWorkerSuperstepReportRequest() throws IOException {
+    // Data to send
+    byte[] partitionStatsBytes = WritableUtils.writeListToByteArray(
+        Lists.newArrayList(new PartitionStats(3, 10, 4, 20, 30, 40),
+            new PartitionStats(5, 1, 1, 0, 0, 0)));
+    byte[] metricsBytes = new byte[] {1, 2, 3};
+    SendWorkerSuperstepReportRequest request =
+        new SendWorkerSuperstepReportRequest(new WorkerSuperstepReport(
+            2, 7, "host_1", 100, 1000, partitionStatsBytes, metricsBytes));
+
+    // Serialize and deserialize the request as it goes over the wire
+    SendWorkerSuperstepReportRequest receivedRequest =
+        (SendWorkerSuperstepReportRequest) ReflectionUtils.newInstance(
+            RequestType.SEND_WORKER_SUPERSTEP_REPORT_REQUEST.getRequestClass());
+    WritableUtils.readFieldsFromByteArray(
+        WritableUtils.writeToByteArray(request), receivedRequest);
+
+    // Stop the service
+    client.stop();
+    server.stop();
+
+    // Apply it on the master
+    BspEvent reportReceived = mock(BspEvent.class);
+    WorkerSuperstepReports reports =
+        new WorkerSuperstepReports(reportReceived);
+    receivedRequest.doRequest(new MasterServerData(null, reports));
+    verify(reportReceived).signal();
+
+    // Check the output
+    assertTrue(reports.getReports(2, 6).isEmpty());
+    assertTrue(reports.getReports(1, 7).isEmpty());
+    assertEquals(Lists.newArrayList("host_1"),
+        reports.getFinishedHostnameIds(2, 7));
+    WorkerSuperstepReport report = reports.getReports(2, 7).get(0);
+    assertEquals(2, report.getApplicationAttempt());
+    assertEquals(7, report.getSuperstep());
+    assertEquals(100, report.getSentMessages());
+    assertEquals(1000, report.getSentMessageBytes());
+    assertArrayEquals(metricsBytes, report.getMetricsBytes());
+    List<PartitionStats> partitionStatsList =
+        WritableUtils.readListFieldsFromByteArray(
+            report.getPartitionStatsBytes(), PartitionStats.class, conf);
+    assertEquals(2, partitionStatsList.size());
+    assertEquals(3, partitionStatsList.get(0).getPartitionId());
+    assertEquals(10, partitionStatsList.get(0).getVertexCount());
+    assertEquals(4, partitionStatsList.get(0).getFinishedVertexCount());
+    assertEquals(20, partitionStatsList.get(0).getEdgeCount());
+    assertEquals(5, partitionStatsList.get(1).getPartitionId());
+    reports.removeReports(7);
+    assertTrue(reports.getReports(2, 7).isEmpty());
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm;
+
+import org.apache.giraph.combiner.DoubleSumMessageCombiner;
+import org.apache.giraph.comm.messages.MessageEncodeAndStoreType;
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.graph.BasicComputation;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.utils.InternalVertexRunner;
+import org.apache.giraph.utils.TestGraph;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test that messages added directly to the local message store reach the
+ * same vertices as messages sent in requests
+ */
+public class TestLocalMessageDelivery {
+  /** Number of vertices in the input graph */
+  private static final int NUM_VERTICES = 50;
+  /** Number of vertices created by messages */
+  private static final int NUM_NEW_VERTICES = 5;
+  /** Number of messages each vertex sends to existing vertices */
+  private static final int NUM_MESSAGES = 3;
+
+  /**
+   * Every vertex sends its id plus one to a few other vertices and to a
+   * vertex which doesn't exist yet, then sums what it receives.
+   */
+  public static class SpreadComputation
+      extends BasicComputation<LongWritable, DoubleWritable, NullWritable,
+      DoubleWritable> {
+    @Override
+    public void compute(
+        Vertex<LongWritable, DoubleWritable, NullWritable> vertex,
+        Iterable<DoubleWritable> messages) {
+      if (getSuperstep() == 0) {
+        long id = vertex.getId().get();
+        // Reuse objects, stores have to copy what they keep
+        LongWritable targetId = new LongWritable();
+        DoubleWritable message = new DoubleWritable(id + 1);
+        for (int k = 0; k < NUM_MESSAGES; k++) {
+          targetId.set((id * 7 + k) % NUM_VERTICES);
+          sendMessage(targetId, message);
+        }
+        targetId.set(NUM_VERTICES + id % NUM_NEW_VERTICES);
+        sendMessage(targetId, message);
+      } else {
+        double sum = 0;
+        for (DoubleWritable message : messages) {
+          sum += message.get();
+        }
+        vertex.getValue().set(sum);
+      }
+      vertex.voteToHalt();
+    }
+  }
+
+  @Test
+  public void testCombiner() throws Exception {
+    for (boolean local : new boolean[] {true, false}) {
+      GiraphConfiguration conf = createConf(local);
+      conf.setMessageCombinerClass(DoubleSumMessageCombiner.class);
+      runAndCheck(conf);
+    }
+  }
+
+  @Test
+  public void testByteArrayPerVertex() throws Exception {
+    for (boolean local : new boolean[] {true, false}) {
+      runAndCheck(createConf(local));
+    }
+  }
+
+  @Test
+  public void testPointerListPerVertex() throws Exception {
+    for (boolean local : new boolean[] {true, false}) {
+      GiraphConfiguration conf = createConf(local);
+      GiraphConstants.MESSAGE_ENCODE_AND_STORE_TYPE.set(conf,
+          MessageEncodeAndStoreType.POINTER_LIST_PER_VERTEX);
+      runAndCheck(conf);
+    }
+  }
+
+  /**
+   * Create configuration for the job
+   *
+   * @param local Whether to deliver messages to local vertices directly
+   * @return Configuration
+   */
+  private static GiraphConfiguration createConf(boolean local) {
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(SpreadComputation.class);
+    GiraphConstants.LOCAL_MESSAGE_DELIVERY.set(conf, local);
+    return conf;
+  }
+
+  /**
+   * Run the job and check every vertex got the sum of the messages sent
+   * to it
+   *
+   * @param conf Configuration
+   */
+  private static void runAndCheck(GiraphConfiguration conf)
+    throws Exception {
+    TestGraph<LongWritable, DoubleWritable, NullWritable> graph =
+        new TestGraph<LongWritable, DoubleWritable, NullWritable>(conf);
+    for (long id = 0; id < NUM_VERTICES; id++) {
+      graph.addVertex(new LongWritable(id), new DoubleWritable(0));
+    }
+
+    graph = InternalVertexRunner.runWithInMemoryOutput(conf, graph);
+
+    double[] expected = new double[NUM_VERTICES + NUM_NEW_VERTICES];
+    for (long id = 0; id < NUM_VERTICES; id++) {
+      for (int k = 0; k < NUM_MESSAGES; k++) {
+        expected[(int) ((id * 7 + k) % NUM_VERTICES)] += id + 1;
+      }
+      expected[(int) (NUM_VERTICES + id % NUM_NEW_VERTICES)] += id + 1;
+    }
+    assertEquals(expected.length, graph.getVertices().size());
+    for (int id = 0; id < expected.length; id++) {
+      assertEquals(expected[id],
+          graph.getVertex(new LongWritable(id)).getValue().get(), 0);
+    }
+  }
+}
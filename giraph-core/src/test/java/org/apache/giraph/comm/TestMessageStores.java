@@ -24,12 +24,16 @@ import com.google.common.collect.Sets;
 import com.google.common.io.Files;
 import org.apache.commons.io.FileUtils;
 import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.combiner.MinimumIntMessageCombiner;
 import org.apache.giraph.comm.messages.ByteArrayMessagesPerVertexStore;
 import org.apache.giraph.comm.messages.out_of_core.DiskBackedMessageStore;
 import org.apache.giraph.comm.messages.MessageStore;
 import org.apache.giraph.comm.messages.MessageStoreFactory;
+import org.apache.giraph.comm.messages.OneMessagePerVertexStore;
+import org.apache.giraph.comm.messages.PointerListPerVertexStore;
 import org.apache.giraph.comm.messages.out_of_core.PartitionDiskBackedMessageStore;
 import org.apache.giraph.comm.messages.out_of_core.SequentialFileMessageStore;
+import org.apache.giraph.comm.messages.out_of_core.SortedRunMessageStoreFactory;
 import org.apache.giraph.conf.GiraphConfiguration;
 import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
@@ -62,6 +66,7 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /** Test for different types of message stores */
@@ -159,6 +164,25 @@ public class TestMessageStores {
     }
   }
 
+  private static void addMessagesOneByOne(
+      MessageStore<IntWritable, IntWritable> messageStore,
+      CentralizedServiceWorker<IntWritable, ?, ?> service,
+      Map<IntWritable, Collection<IntWritable>> inputMap) throws IOException {
+    // Reuse id and message objects, the way local delivery does
+    IntWritable vertexId = new IntWritable();
+    IntWritable message = new IntWritable();
+    for (Map.Entry<IntWritable, Collection<IntWritable>> entry :
+        inputMap.entrySet()) {
+      int partitionId =
+          service.getVertexPartitionOwner(entry.getKey()).getPartitionId();
+      for (IntWritable value : entry.getValue()) {
+        vertexId.set(entry.getKey().get());
+        message.set(value.get());
+        messageStore.addMessage(partitionId, vertexId, message);
+      }
+    }
+  }
+
   private void putNTimes(
       MessageStore<IntWritable, IntWritable> messageStore,
       Map<IntWritable, Collection<IntWritable>> messages,
@@ -278,4 +302,150 @@ public class TestMessageStores {
       e.printStackTrace();
     }
   }
+
+  private SortedRunMessageStoreFactory<IntWritable, IntWritable>
+  createSortedRunFactory(boolean useCombiner) {
+    GiraphConfiguration initConfig = new GiraphConfiguration();
+    initConfig.setComputationClass(IntNoOpComputation.class);
+    GiraphConstants.MESSAGES_DIRECTORY.set(
+        initConfig, new File(directory, "giraph_messages").toString());
+    GiraphConstants.MAX_MESSAGES_IN_MEMORY.set(
+        initConfig, testData.maxMessagesInMemory);
+    // Make sure runs are merged on disk as well
+    GiraphConstants.MAX_MESSAGE_RUNS_PER_PARTITION.set(initConfig, 2);
+    if (useCombiner) {
+      initConfig.setMessageCombinerClass(MinimumIntMessageCombiner.class);
+    }
+    SortedRunMessageStoreFactory<IntWritable, IntWritable> factory =
+        new SortedRunMessageStoreFactory<IntWritable, IntWritable>();
+    factory.initialize(service, new ImmutableClassesGiraphConfiguration<
+        IntWritable, IntWritable, IntWritable>(initConfig));
+    return factory;
+  }
+
+  @Test
+  public void testSortedRunMessageStore() throws IOException {
+    testMessageStore(createSortedRunFactory(false), testData);
+  }
+
+  @Test
+  public void testSortedRunMessageStoreWithCombiner() throws IOException {
+    MessageStore<IntWritable, IntWritable> messageStore =
+        createSortedRunFactory(true).newStore(
+            new TestMessageValueFactory<IntWritable>(IntWritable.class));
+    SortedMap<IntWritable, Collection<IntWritable>> messages =
+        new TreeMap<IntWritable, Collection<IntWritable>>();
+    putNTimes(messageStore, messages, testData);
+    checkMinimumMessages(messageStore, messages);
+    messageStore.clearAll();
+  }
+
+  private void checkMinimumMessages(
+      MessageStore<IntWritable, IntWritable> messageStore,
+      Map<IntWritable, Collection<IntWritable>> messages) throws IOException {
+    int numDestinations = 0;
+    for (int partitionId = 0; partitionId < testData.numOfPartitions;
+         partitionId++) {
+      for (IntWritable vertexId :
+          messageStore.getPartitionDestinationVertices(partitionId)) {
+        numDestinations++;
+        int min = Integer.MAX_VALUE;
+        for (IntWritable message : messages.get(vertexId)) {
+          min = Math.min(min, message.get());
+        }
+        IntWritable combined = Iterables.getOnlyElement(
+            messageStore.getVertexMessages(vertexId));
+        assertEquals(min, combined.get());
+      }
+    }
+    int expectedDestinations = 0;
+    for (Collection<IntWritable> vertexMessages : messages.values()) {
+      if (!vertexMessages.isEmpty()) {
+        expectedDestinations++;
+      }
+    }
+    assertEquals(expectedDestinations, numDestinations);
+  }
+
+  /**
+   * Add the same messages to one store through requests and to another one
+   * message at a time, the way local delivery does
+   *
+   * @param requestStore Store to add requests to
+   * @param localStore Store to add single messages to
+   * @return All messages sent, by target vertex
+   */
+  private SortedMap<IntWritable, Collection<IntWritable>> putNTimesBoth(
+      MessageStore<IntWritable, IntWritable> requestStore,
+      MessageStore<IntWritable, IntWritable> localStore) throws IOException {
+    SortedMap<IntWritable, Collection<IntWritable>> messages =
+        new TreeMap<IntWritable, Collection<IntWritable>>();
+    for (int n = 0; n < testData.numTimes; n++) {
+      SortedMap<IntWritable, Collection<IntWritable>> batch =
+          createRandomMessages(testData);
+      addMessages(requestStore, service, config, batch);
+      addMessagesOneByOne(localStore, service, batch);
+      for (Entry<IntWritable, Collection<IntWritable>> entry :
+          batch.entrySet()) {
+        if (messages.containsKey(entry.getKey())) {
+          messages.get(entry.getKey()).addAll(entry.getValue());
+        } else {
+          messages.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+    return messages;
+  }
+
+  private void testAddMessage(
+      MessageStore<IntWritable, IntWritable> requestStore,
+      MessageStore<IntWritable, IntWritable> localStore) throws IOException {
+    SortedMap<IntWritable, Collection<IntWritable>> messages =
+        putNTimesBoth(requestStore, localStore);
+    assertTrue(equalMessages(requestStore, messages, testData));
+    assertTrue(equalMessages(localStore, messages, testData));
+    requestStore.clearAll();
+    localStore.clearAll();
+  }
+
+  @Test
+  public void testByteArrayMessagesPerVertexStoreAddMessage()
+    throws IOException {
+    MessageStoreFactory<IntWritable, IntWritable,
+        MessageStore<IntWritable, IntWritable>> factory =
+        ByteArrayMessagesPerVertexStore.newFactory(service, config);
+    testAddMessage(factory.newStore(
+            new TestMessageValueFactory<IntWritable>(IntWritable.class)),
+        factory.newStore(
+            new TestMessageValueFactory<IntWritable>(IntWritable.class)));
+  }
+
+  @Test
+  public void testPointerListPerVertexStoreAddMessage() throws IOException {
+    testAddMessage(
+        new PointerListPerVertexStore<IntWritable, IntWritable>(
+            new TestMessageValueFactory<IntWritable>(IntWritable.class),
+            service, config),
+        new PointerListPerVertexStore<IntWritable, IntWritable>(
+            new TestMessageValueFactory<IntWritable>(IntWritable.class),
+            service, config));
+  }
+
+  @Test
+  public void testOneMessagePerVertexStoreAddMessage() throws IOException {
+    MessageStore<IntWritable, IntWritable> requestStore =
+        new OneMessagePerVertexStore<IntWritable, IntWritable>(
+            new TestMessageValueFactory<IntWritable>(IntWritable.class),
+            service, new MinimumIntMessageCombiner(), config);
+    MessageStore<IntWritable, IntWritable> localStore =
+        new OneMessagePerVertexStore<IntWritable, IntWritable>(
+            new TestMessageValueFactory<IntWritable>(IntWritable.class),
+            service, new MinimumIntMessageCombiner(), config);
+    SortedMap<IntWritable, Collection<IntWritable>> messages =
+        putNTimesBoth(requestStore, localStore);
+    checkMinimumMessages(requestStore, messages);
+    checkMinimumMessages(localStore, messages);
+    requestStore.clearAll();
+    localStore.clearAll();
+  }
 }
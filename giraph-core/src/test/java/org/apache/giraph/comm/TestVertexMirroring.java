@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm;
+
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.edge.EdgeFactory;
+import org.apache.giraph.graph.BasicComputation;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.utils.InternalVertexRunner;
+import org.apache.giraph.utils.TestGraph;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test sending messages to all edges of high-degree vertices through
+ * mirrors
+ */
+public class TestVertexMirroring {
+  /** Id of the high-degree vertex */
+  private static final long HUB = 0;
+  /** Number of edges of the hub */
+  private static final int NUM_EDGES = 20;
+  /** Edge target the hub drops */
+  private static final long OLD_TARGET = 5;
+  /** Edge target the hub adds instead, with the same hash code */
+  private static final long NEW_TARGET = OLD_TARGET << 32;
+  /** Superstep in which the hub changes its edges */
+  private static final int CHANGE_SUPERSTEP = 2;
+  /** Number of supersteps in which the hub sends messages */
+  private static final int NUM_SENDS = 6;
+
+  /**
+   * The hub sends a message to all its edges in every superstep and
+   * replaces one edge on the way. The other vertices count the messages
+   * they receive.
+   */
+  public static class HubComputation
+      extends BasicComputation<LongWritable, LongWritable, NullWritable,
+      LongWritable> {
+    @Override
+    public void compute(
+        Vertex<LongWritable, LongWritable, NullWritable> vertex,
+        Iterable<LongWritable> messages) {
+      for (LongWritable message : messages) {
+        vertex.getValue().set(vertex.getValue().get() + message.get());
+      }
+      if (vertex.getId().get() != HUB) {
+        vertex.voteToHalt();
+        return;
+      }
+      if (getSuperstep() == CHANGE_SUPERSTEP) {
+        vertex.removeEdges(new LongWritable(OLD_TARGET));
+        vertex.addEdge(EdgeFactory.create(new LongWritable(NEW_TARGET)));
+      }
+      if (getSuperstep() < NUM_SENDS) {
+        sendMessageToAllEdges(vertex, new LongWritable(1));
+      } else {
+        vertex.voteToHalt();
+      }
+    }
+  }
+
+  @Test
+  public void testEdgesChangeWithSameHashCode() throws Exception {
+    // Make sure the targets really collide on hash code
+    assertEquals(new LongWritable(OLD_TARGET).hashCode(),
+        new LongWritable(NEW_TARGET).hashCode());
+
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(HubComputation.class);
+    GiraphConstants.VERTEX_MIRRORING_MIN_DEGREE.set(conf, NUM_EDGES / 2);
+    TestGraph<LongWritable, LongWritable, NullWritable> graph =
+        new TestGraph<LongWritable, LongWritable, NullWritable>(conf);
+    graph.addVertex(new LongWritable(HUB), new LongWritable(0));
+    for (long id = 1; id <= NUM_EDGES; id++) {
+      graph.addVertex(new LongWritable(id), new LongWritable(0));
+      graph.addEdge(new LongWritable(HUB), new LongWritable(id),
+          NullWritable.get());
+    }
+    graph.addVertex(new LongWritable(NEW_TARGET), new LongWritable(0));
+
+    graph = InternalVertexRunner.runWithInMemoryOutput(conf, graph);
+
+    // Mirrors are used from the superstep after they were built, and
+    // rebuilt once the edges change
+    for (long id = 1; id <= NUM_EDGES; id++) {
+      assertEquals(id == OLD_TARGET ? CHANGE_SUPERSTEP : NUM_SENDS,
+          graph.getVertex(new LongWritable(id)).getValue().get());
+    }
+    assertEquals(NUM_SENDS - CHANGE_SUPERSTEP,
+        graph.getVertex(new LongWritable(NEW_TARGET)).getValue().get());
+    assertEquals(0, graph.getVertex(new LongWritable(HUB)).getValue().get());
+  }
+}
@@ -18,16 +18,23 @@
 
 package org.apache.giraph.comm.messages;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Iterator;
 
 import junit.framework.Assert;
 
 import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.commons.io.FileUtils;
 import org.apache.giraph.combiner.DoubleSumMessageCombiner;
+import org.apache.giraph.comm.messages.out_of_core.MessageFiles;
 import org.apache.giraph.comm.messages.primitives.long_id.LongByteArrayMessageStore;
+import org.apache.giraph.comm.messages.primitives.long_id.LongPointerListMessageStore;
 import org.apache.giraph.comm.messages.primitives.LongDoubleMessageStore;
+import org.apache.giraph.comm.messages.primitives.SpilledPartitions;
 import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.factories.TestMessageValueFactory;
 import org.apache.giraph.graph.BasicComputation;
@@ -39,6 +46,7 @@ import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Writable;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -47,14 +55,17 @@ import org.mockito.stubbing.Answer;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 
 public class TestLongDoublePrimitiveMessageStores {
   private static final int NUM_PARTITIONS = 2;
   private static CentralizedServiceWorker<LongWritable, Writable, Writable>
     service;
+  private static File directory;
 
   @Before
   public void prepare() throws IOException {
+    directory = Files.createTempDir();
     service = Mockito.mock(CentralizedServiceWorker.class);
     Mockito.when(
         service.getPartitionId(Mockito.any(LongWritable.class))).thenAnswer(
@@ -72,10 +83,17 @@ public class TestLongDoublePrimitiveMessageStores {
         Lists.newArrayList(0, 1));
     Partition partition = Mockito.mock(Partition.class);
     Mockito.when(partition.getVertexCount()).thenReturn(Long.valueOf(1));
+    Mockito.when(partition.iterator()).thenReturn(
+        Collections.emptyIterator());
     Mockito.when(partitionStore.getOrCreatePartition(0)).thenReturn(partition);
     Mockito.when(partitionStore.getOrCreatePartition(1)).thenReturn(partition);
   }
 
+  @After
+  public void cleanUp() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
   private static class LongDoubleNoOpComputation extends
       BasicComputation<LongWritable, NullWritable, NullWritable,
           DoubleWritable> {
@@ -90,6 +108,8 @@ public class TestLongDoublePrimitiveMessageStores {
 
     GiraphConfiguration initConf = new GiraphConfiguration();
     initConf.setComputationClass(LongDoubleNoOpComputation.class);
+    GiraphConstants.MESSAGES_DIRECTORY.set(
+        initConf, new File(directory, "giraph_messages").toString());
     return new ImmutableClassesGiraphConfiguration(initConf);
   }
 
@@ -122,12 +142,68 @@ public class TestLongDoublePrimitiveMessageStores {
     messageStore.addPartitionMessages(0, messages);
   }
 
+  private static void addMessage(
+      MessageStore<LongWritable, DoubleWritable> messageStore,
+      LongWritable vertexId, DoubleWritable message, long id,
+      double value) throws IOException {
+    vertexId.set(id);
+    message.set(value);
+    messageStore.addMessage((int) (id % NUM_PARTITIONS), vertexId, message);
+  }
+
+  // Same messages as insertLongDoubleMessages, delivered one at a time
+  // with reused objects, the way local delivery does
+  private static void addLongDoubleMessages(
+      MessageStore<LongWritable, DoubleWritable> messageStore) throws
+      IOException {
+    LongWritable vertexId = new LongWritable();
+    DoubleWritable message = new DoubleWritable();
+    addMessage(messageStore, vertexId, message, 0, 1);
+    addMessage(messageStore, vertexId, message, 2, 3);
+    addMessage(messageStore, vertexId, message, 0, 4);
+    addMessage(messageStore, vertexId, message, 1, 1);
+    addMessage(messageStore, vertexId, message, 1, 3);
+    addMessage(messageStore, vertexId, message, 1, 4);
+    addMessage(messageStore, vertexId, message, 0, 5);
+  }
+
+  // Spill as soon as more than one message is in memory
+  private static SpilledPartitions createSpilledPartitions() {
+    return new SpilledPartitions(new MessageFiles(createLongDoubleConf()), 1);
+  }
+
   @Test
   public void testLongDoubleMessageStore() throws IOException {
     LongDoubleMessageStore messageStore =
         new LongDoubleMessageStore(service, new DoubleSumMessageCombiner());
     insertLongDoubleMessages(messageStore);
+    checkLongDoubleMessages(messageStore);
+  }
+
+  @Test
+  public void testLongDoubleMessageStoreAddMessage() throws IOException {
+    LongDoubleMessageStore messageStore =
+        new LongDoubleMessageStore(service, new DoubleSumMessageCombiner());
+    addLongDoubleMessages(messageStore);
+    checkLongDoubleMessages(messageStore);
+  }
+
+  @Test
+  public void testLongDoubleMessageStoreSpilling() throws IOException {
+    LongDoubleMessageStore messageStore =
+        new LongDoubleMessageStore(service, new DoubleSumMessageCombiner(),
+            createSpilledPartitions());
+    insertLongDoubleMessages(messageStore);
+    Assert.assertTrue(messageStore.hasMessagesForPartition(0));
+    checkLongDoubleMessages(messageStore);
+    messageStore.clearAll();
+    Assert.assertFalse(messageStore.hasMessagesForPartition(0));
+    Assert.assertFalse(messageStore.hasMessagesForPartition(1));
+  }
 
+  private static void checkLongDoubleMessages(
+      MessageStore<LongWritable, DoubleWritable> messageStore)
+    throws IOException {
     Iterable<DoubleWritable> m0 =
         messageStore.getVertexMessages(new LongWritable(0));
     Assert.assertEquals(1, Iterables.size(m0));
@@ -151,7 +227,54 @@ public class TestLongDoublePrimitiveMessageStores {
             new TestMessageValueFactory<DoubleWritable>(DoubleWritable.class),
             service, createLongDoubleConf());
     insertLongDoubleMessages(messageStore);
+    checkLongByteArrayMessages(messageStore);
+  }
+
+  @Test
+  public void testLongByteArrayMessageStoreAddMessage() throws IOException {
+    LongByteArrayMessageStore<DoubleWritable> messageStore =
+        new LongByteArrayMessageStore<DoubleWritable>(
+            new TestMessageValueFactory<DoubleWritable>(DoubleWritable.class),
+            service, createLongDoubleConf());
+    addLongDoubleMessages(messageStore);
+    checkLongByteArrayMessages(messageStore);
+  }
+
+  @Test
+  public void testLongPointerListMessageStoreAddMessage() throws IOException {
+    LongPointerListMessageStore<DoubleWritable> messageStore =
+        new LongPointerListMessageStore<DoubleWritable>(
+            new TestMessageValueFactory<DoubleWritable>(DoubleWritable.class),
+            service, createLongDoubleConf());
+    addLongDoubleMessages(messageStore);
+    // Messages for vertices not in the partitions wait in the nascent map
+    messageStore.finalizeStore();
+    checkLongByteArrayMessages(messageStore);
+  }
+
+  @Test
+  public void testLongByteArrayMessageStoreSpilling() throws IOException {
+    SpilledPartitions spilledPartitions = createSpilledPartitions();
+    LongByteArrayMessageStore<DoubleWritable> messageStore =
+        new LongByteArrayMessageStore<DoubleWritable>(
+            new TestMessageValueFactory<DoubleWritable>(DoubleWritable.class),
+            service, createLongDoubleConf(), spilledPartitions);
+    insertLongDoubleMessages(messageStore);
+    Assert.assertTrue(messageStore.hasMessagesForPartition(1));
+    // Both partitions were spilled, only the last message is in memory
+    Assert.assertEquals(1, spilledPartitions.getTotalMessagesInMemory());
+    checkLongByteArrayMessages(messageStore);
+    // Reading the partitions back brings all messages back into memory
+    Assert.assertEquals(7, spilledPartitions.getTotalMessagesInMemory());
+    messageStore.clearAll();
+    Assert.assertEquals(0, spilledPartitions.getTotalMessagesInMemory());
+    Assert.assertFalse(messageStore.hasMessagesForPartition(0));
+    Assert.assertFalse(messageStore.hasMessagesForPartition(1));
+  }
 
+  private static void checkLongByteArrayMessages(
+      MessageStore<LongWritable, DoubleWritable> messageStore)
+    throws IOException {
     Iterable<DoubleWritable> m0 =
         messageStore.getVertexMessages(new LongWritable(0));
     Assert.assertEquals(3, Iterables.size(m0));
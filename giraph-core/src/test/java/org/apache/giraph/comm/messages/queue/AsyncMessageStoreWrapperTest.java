@@ -95,6 +95,16 @@ public class AsyncMessageStoreWrapperTest {
       return false;
     }
 
+    @Override
+    public void addMessage(int partitionId, LongWritable vertexId,
+        IntWritable message) throws IOException {
+    }
+
+    @Override
+    public boolean hasMessagesForPartition(int partitionId) {
+      return false;
+    }
+
     @Override
     public void finalizeStore() {
 
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.comm.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test {@link RequestCompressionAlgorithm} round trips
+ */
+public class TestRequestCompressionAlgorithm {
+  /**
+   * Create compressible input spanning several Snappy chunks
+   *
+   * @return Input buffer
+   */
+  private static ByteBuf createInput() {
+    Random random = new Random(17);
+    ByteBuf in = Unpooled.buffer();
+    for (int i = 0; i < 50000; i++) {
+      in.writeInt(random.nextInt(100));
+    }
+    return in;
+  }
+
+  private static void testRoundTrip(RequestCompressionAlgorithm algorithm)
+    throws IOException {
+    ByteBuf input = createInput();
+    int size = input.readableBytes();
+    ByteBuf compressed = Unpooled.buffer();
+    algorithm.compress(input.duplicate(), compressed);
+    assertTrue(compressed.readableBytes() < size);
+
+    ByteBuf decompressed = Unpooled.buffer();
+    algorithm.decompress(compressed, decompressed);
+    assertEquals(0, compressed.readableBytes());
+    assertEquals(input, decompressed);
+  }
+
+  @Test
+  public void testSnappy() throws IOException {
+    testRoundTrip(RequestCompressionAlgorithm.SNAPPY);
+  }
+
+  @Test
+  public void testDeflate() throws IOException {
+    testRoundTrip(RequestCompressionAlgorithm.DEFLATE);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedDeflate() throws IOException {
+    ByteBuf compressed = Unpooled.buffer();
+    RequestCompressionAlgorithm.DEFLATE.compress(createInput(), compressed);
+    compressed.writerIndex(compressed.writerIndex() / 2);
+    RequestCompressionAlgorithm.DEFLATE.decompress(compressed,
+        Unpooled.buffer());
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import com.google.common.collect.Lists;
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.graph.BasicComputation;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.utils.UnsafeByteArrayInputStream;
+import org.apache.giraph.utils.UnsafeByteArrayOutputStream;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link AbstractCompressedNullEdges} implementations.
+ */
+public class TestCompressedNullEdges {
+  /** Computation with long ids and null edge values */
+  public static class LongNullComputation extends BasicComputation<
+      LongWritable, LongWritable, NullWritable, LongWritable> {
+    @Override
+    public void compute(
+        Vertex<LongWritable, LongWritable, NullWritable> vertex,
+        Iterable<LongWritable> messages) throws IOException { }
+  }
+
+  @Test
+  public void testEncoding() throws IOException {
+    // Intervals, short runs, parallel edges, negative ids and huge gaps
+    long[] targets = {Long.MAX_VALUE, 10, 11, 12, 13, 14, 3, 7, 7, 8, -5,
+        Long.MIN_VALUE, 100, 101, 102, 103, 20, 21};
+    LongNullCompressedEdges edges = createEdges(targets);
+    assertEquals(targets.length, edges.size());
+    long[] sorted = targets.clone();
+    Arrays.sort(sorted);
+    assertArrayEquals(sorted, getTargets(edges));
+
+    edges.add(EdgeFactory.create(new LongWritable(15)));
+    edges.add(EdgeFactory.create(new LongWritable(9)));
+    assertEquals(targets.length + 2, edges.size());
+    edges.remove(new LongWritable(7));
+    assertEquals(targets.length, edges.size());
+    long[] expected = {Long.MIN_VALUE, -5, 3, 8, 9, 10, 11, 12, 13, 14, 15,
+        20, 21, 100, 101, 102, 103, Long.MAX_VALUE};
+    assertArrayEquals(expected, getTargets(edges));
+
+    UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream();
+    edges.write(out);
+    LongNullCompressedEdges readEdges = new LongNullCompressedEdges();
+    readEdges.readFields(
+        new UnsafeByteArrayInputStream(out.getByteArray(), 0, out.getPos()));
+    assertEquals(expected.length, readEdges.size());
+    assertArrayEquals(expected, getTargets(readEdges));
+  }
+
+  @Test
+  public void testCompression() throws IOException {
+    // Dense neighborhood: one interval and small gaps
+    long[] targets = new long[1000];
+    for (int i = 0; i < targets.length; i++) {
+      targets[i] = 1000000000L + (i < 500 ? i : i * 3);
+    }
+    LongNullCompressedEdges edges = createEdges(targets);
+    assertArrayEquals(targets, getTargets(edges));
+    UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream();
+    edges.write(out);
+    // 8 bytes per id uncompressed
+    assertTrue(out.getPos() < targets.length);
+  }
+
+  @Test
+  public void testIntIds() {
+    IntNullCompressedEdges edges = new IntNullCompressedEdges();
+    List<Edge<IntWritable, NullWritable>> initialEdges = Lists.newArrayList();
+    for (int target : new int[] {Integer.MAX_VALUE, 5, 1, 2, 3, 4,
+        Integer.MIN_VALUE}) {
+      initialEdges.add(EdgeFactory.create(new IntWritable(target)));
+    }
+    edges.initialize(initialEdges);
+    List<Integer> targets = Lists.newArrayList();
+    for (Edge<IntWritable, NullWritable> edge : edges) {
+      targets.add(edge.getTargetVertexId().get());
+    }
+    assertEquals(Arrays.asList(Integer.MIN_VALUE, 1, 2, 3, 4, 5,
+        Integer.MAX_VALUE), targets);
+  }
+
+  @Test
+  public void testStaticGraphSelection() {
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(LongNullComputation.class);
+    assertEquals(ByteArrayEdges.class,
+        new ImmutableClassesGiraphConfiguration(conf).getOutEdgesClass());
+    GiraphConstants.STATIC_GRAPH.set(conf, true);
+    // Compression has to be asked for
+    assertEquals(ByteArrayEdges.class,
+        new ImmutableClassesGiraphConfiguration(conf).getOutEdgesClass());
+    GiraphConstants.COMPRESS_STATIC_GRAPH_EDGES.set(conf, true);
+    ImmutableClassesGiraphConfiguration immutableConf =
+        new ImmutableClassesGiraphConfiguration(conf);
+    assertEquals(LongNullCompressedEdges.class,
+        immutableConf.getOutEdgesClass());
+    // Edge input still uses the default class
+    assertEquals(ByteArrayEdges.class, immutableConf.getInputOutEdgesClass());
+  }
+
+  @Test
+  public void testIterationDoesNotEncode() {
+    LongNullCompressedEdges edges = createEdges(new long[] {1, 3, 5});
+    edges.add(EdgeFactory.create(new LongWritable(4)));
+    Iterator<Edge<LongWritable, NullWritable>> first = edges.iterator();
+    assertEquals(1, first.next().getTargetVertexId().get());
+    // Neither adding nor iterating again disturbs the first iterator
+    edges.add(EdgeFactory.create(new LongWritable(2)));
+    assertArrayEquals(new long[] {1, 2, 3, 4, 5}, getTargets(edges));
+    long[] rest = new long[3];
+    for (int i = 0; i < rest.length; i++) {
+      rest[i] = first.next().getTargetVertexId().get();
+    }
+    assertArrayEquals(new long[] {3, 4, 5}, rest);
+    assertFalse(first.hasNext());
+    assertEquals(5, edges.size());
+  }
+
+  private static LongNullCompressedEdges createEdges(long[] targets) {
+    LongNullCompressedEdges edges = new LongNullCompressedEdges();
+    List<Edge<LongWritable, NullWritable>> initialEdges =
+        Lists.newArrayList();
+    for (long target : targets) {
+      initialEdges.add(EdgeFactory.create(new LongWritable(target)));
+    }
+    edges.initialize(initialEdges);
+    return edges;
+  }
+
+  private static long[] getTargets(LongNullCompressedEdges edges) {
+    long[] targets = new long[edges.size()];
+    int i = 0;
+    for (Edge<LongWritable, NullWritable> edge : edges) {
+      targets[i++] = edge.getTargetVertexId().get();
+    }
+    return targets;
+  }
+}
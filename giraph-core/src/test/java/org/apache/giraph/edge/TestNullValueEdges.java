@@ -19,57 +19,68 @@
 package org.apache.giraph.edge;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.giraph.utils.PrimitiveVertexIds;
+import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.WritableComparable;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import static org.apache.giraph.edge.TestPrimitiveEdges.createId;
 import static org.apache.giraph.graph.TestVertexAndEdges.instantiateOutEdges;
 import static org.junit.Assert.assertEquals;
 
 /**
  * Tests {@link OutEdges} implementations with null edge values.
  */
+@SuppressWarnings("unchecked")
 public class TestNullValueEdges {
-  /** {@link OutEdges} classes to be tested. */
-  private Collection<Class<? extends MutableOutEdges>>
-      edgesClasses = Lists.newArrayList();
+  /** {@link OutEdges} classes to be tested, with their vertex id class. */
+  private Map<Class<? extends MutableOutEdges>,
+      Class<? extends WritableComparable>> edgesClasses =
+      Maps.newLinkedHashMap();
 
   @Before
   public void setUp() {
-    edgesClasses.add(LongNullArrayEdges.class);
-    edgesClasses.add(LongNullHashSetEdges.class);
+    edgesClasses.put(LongNullArrayEdges.class, LongWritable.class);
+    edgesClasses.put(LongNullHashSetEdges.class, LongWritable.class);
+    edgesClasses.put(LongNullSortedArrayEdges.class, LongWritable.class);
+    edgesClasses.put(IntNullHashSetEdges.class, IntWritable.class);
   }
 
   @Test
   public void testEdges() {
-    for (Class<? extends OutEdges> edgesClass : edgesClasses) {
-      testEdgesClass(edgesClass);
+    for (Map.Entry<Class<? extends MutableOutEdges>,
+        Class<? extends WritableComparable>> entry : edgesClasses.entrySet()) {
+      testEdgesClass(entry.getKey(),
+          (Class<WritableComparable>) entry.getValue());
     }
   }
 
-  private void testEdgesClass(
-      Class<? extends OutEdges> edgesClass) {
-    OutEdges<LongWritable, NullWritable> edges =
-        (OutEdges<LongWritable, NullWritable>)
+  private <I extends WritableComparable> void testEdgesClass(
+      Class<? extends OutEdges> edgesClass, Class<I> idClass) {
+    OutEdges<I, NullWritable> edges =
+        (OutEdges<I, NullWritable>)
             instantiateOutEdges(edgesClass);
 
-    List<Edge<LongWritable, NullWritable>> initialEdges = Lists.newArrayList(
-        EdgeFactory.create(new LongWritable(1)),
-        EdgeFactory.create(new LongWritable(2)),
-        EdgeFactory.create(new LongWritable(3)));
+    List<Edge<I, NullWritable>> initialEdges = Lists.newArrayList(
+        EdgeFactory.create(createId(idClass, 1)),
+        EdgeFactory.create(createId(idClass, 2)),
+        EdgeFactory.create(createId(idClass, 3)));
 
     edges.initialize(initialEdges);
     assertEquals(3, edges.size());
 
-    edges.add(EdgeFactory.createReusable(new LongWritable(4)));
+    edges.add(EdgeFactory.createReusable(createId(idClass, 4)));
     assertEquals(4, edges.size());
 
-    edges.remove(new LongWritable(2));
+    edges.remove(createId(idClass, 2));
     assertEquals(3, edges.size());
   }
 
@@ -79,29 +90,32 @@ public class TestNullValueEdges {
    */
   @Test
   public void testMutateEdges() {
-    for (Class<? extends MutableOutEdges> edgesClass : edgesClasses) {
-      testMutateEdgesClass(edgesClass);
+    for (Map.Entry<Class<? extends MutableOutEdges>,
+        Class<? extends WritableComparable>> entry : edgesClasses.entrySet()) {
+      testMutateEdgesClass(entry.getKey(),
+          (Class<WritableComparable>) entry.getValue());
     }
   }
 
-  private void testMutateEdgesClass(
-      Class<? extends MutableOutEdges> edgesClass) {
-    MutableOutEdges<LongWritable, NullWritable> edges =
-       (MutableOutEdges<LongWritable, NullWritable>)
+  private <I extends WritableComparable> void testMutateEdgesClass(
+      Class<? extends MutableOutEdges> edgesClass, Class<I> idClass) {
+    MutableOutEdges<I, NullWritable> edges =
+       (MutableOutEdges<I, NullWritable>)
            instantiateOutEdges(edgesClass);
 
     edges.initialize();
 
     // Add 10 edges with id i, for i = 0..9
     for (int i = 0; i < 10; ++i) {
-      edges.add(EdgeFactory.create(new LongWritable(i)));
+      edges.add(EdgeFactory.create(createId(idClass, i)));
     }
 
     // Use the mutable iterator to remove edges with even id
-    Iterator<MutableEdge<LongWritable, NullWritable>> edgeIt =
+    Iterator<MutableEdge<I, NullWritable>> edgeIt =
         edges.mutableIterator();
     while (edgeIt.hasNext()) {
-      if (edgeIt.next().getTargetVertexId().get() % 2 == 0) {
+      if (PrimitiveVertexIds.getId(
+          edgeIt.next().getTargetVertexId()) % 2 == 0) {
         edgeIt.remove();
       }
     }
@@ -109,8 +123,9 @@ public class TestNullValueEdges {
     // We should now have 5 edges
     assertEquals(5, edges.size());
     // The edge ids should be all odd
-    for (Edge<LongWritable, NullWritable> edge : edges) {
-      assertEquals(1, edge.getTargetVertexId().get() % 2);
+    for (Edge<I, NullWritable> edge : edges) {
+      assertEquals(1,
+          PrimitiveVertexIds.getId(edge.getTargetVertexId()) % 2);
     }
   }
 }
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.giraph.utils.UnsafeByteArrayInputStream;
+import org.apache.giraph.utils.UnsafeByteArrayOutputStream;
+import org.apache.giraph.utils.PrimitiveVertexIds;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.giraph.graph.TestVertexAndEdges.instantiateOutEdges;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the {@link OutEdges} implementations for primitive int and long
+ * ids with primitive edge values.
+ */
+@SuppressWarnings("unchecked")
+public class TestPrimitiveEdges {
+  @Test
+  public void testArrayEdges() throws IOException {
+    testEdgesClass(LongIntArrayEdges.class, LongWritable.class,
+        IntWritable.class);
+    testEdgesClass(LongLongArrayEdges.class, LongWritable.class,
+        LongWritable.class);
+    testEdgesClass(LongFloatArrayEdges.class, LongWritable.class,
+        FloatWritable.class);
+    testEdgesClass(IntIntArrayEdges.class, IntWritable.class,
+        IntWritable.class);
+    testEdgesClass(IntLongArrayEdges.class, IntWritable.class,
+        LongWritable.class);
+    testEdgesClass(IntFloatArrayEdges.class, IntWritable.class,
+        FloatWritable.class);
+    testEdgesClass(IntDoubleArrayEdges.class, IntWritable.class,
+        DoubleWritable.class);
+  }
+
+  @Test
+  public void testHashMapEdges() throws IOException {
+    testEdgesClass(LongIntHashMapEdges.class, LongWritable.class,
+        IntWritable.class);
+    testEdgesClass(LongLongHashMapEdges.class, LongWritable.class,
+        LongWritable.class);
+    testEdgesClass(LongFloatHashMapEdges.class, LongWritable.class,
+        FloatWritable.class);
+    testEdgesClass(IntIntHashMapEdges.class, IntWritable.class,
+        IntWritable.class);
+    testEdgesClass(IntLongHashMapEdges.class, IntWritable.class,
+        LongWritable.class);
+    testEdgesClass(IntFloatHashMapEdges.class, IntWritable.class,
+        FloatWritable.class);
+    testEdgesClass(IntDoubleHashMapEdges.class, IntWritable.class,
+        DoubleWritable.class);
+  }
+
+  @Test
+  public void testIntNullHashSetEdges() throws IOException {
+    testEdgesClass(IntNullHashSetEdges.class, IntWritable.class,
+        NullWritable.class);
+  }
+
+  /**
+   * Add, remove, mutate, look up and serialize edges of one class.
+   *
+   * @param edgesClass OutEdges class
+   * @param idClass Vertex id class
+   * @param valueClass Edge value class
+   */
+  private <I extends WritableComparable, E extends Writable> void
+  testEdgesClass(Class<? extends OutEdges> edgesClass, Class<I> idClass,
+      Class<E> valueClass) throws IOException {
+    OutEdges<I, E> edges = (OutEdges<I, E>) instantiateOutEdges(edgesClass);
+    List<Edge<I, E>> initialEdges = Lists.newArrayList();
+    for (int i = 1; i <= 3; i++) {
+      initialEdges.add(EdgeFactory.create(createId(idClass, i),
+          createValue(valueClass, i * 10)));
+    }
+    edges.initialize(initialEdges);
+    assertEquals(3, edges.size());
+
+    edges.add(EdgeFactory.createReusable(createId(idClass, 4),
+        createValue(valueClass, 40)));
+    edges.remove(createId(idClass, 2));
+    assertEquals(3, edges.size());
+    checkEdges(edges, valueClass, 1, 3, 4);
+
+    if (edges instanceof StrictRandomAccessOutEdges) {
+      StrictRandomAccessOutEdges<I, E> randomAccessEdges =
+          (StrictRandomAccessOutEdges<I, E>) edges;
+      assertNull(randomAccessEdges.getEdgeValue(createId(idClass, 2)));
+      assertEquals(getValue(createValue(valueClass, 30)), getValue(
+          randomAccessEdges.getEdgeValue(createId(idClass, 3))), 0);
+    }
+
+    if (edges instanceof MutableOutEdges) {
+      // Double the values and remove the edge to 1 in place
+      Iterator<MutableEdge<I, E>> iterator =
+          ((MutableOutEdges<I, E>) edges).mutableIterator();
+      while (iterator.hasNext()) {
+        MutableEdge<I, E> edge = iterator.next();
+        long id = PrimitiveVertexIds.getId(edge.getTargetVertexId());
+        if (id == 1) {
+          iterator.remove();
+        } else {
+          edge.setValue(createValue(valueClass, (int) id * 20));
+        }
+      }
+      assertEquals(2, edges.size());
+      if (valueClass != NullWritable.class) {
+        Map<Long, Double> values = getValues(edges);
+        assertEquals(60.0, values.get(3L), 0);
+        assertEquals(80.0, values.get(4L), 0);
+      }
+    }
+
+    UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream();
+    edges.write(out);
+    OutEdges<I, E> readEdges =
+        (OutEdges<I, E>) instantiateOutEdges(edgesClass);
+    readEdges.readFields(
+        new UnsafeByteArrayInputStream(out.getByteArray(), 0, out.getPos()));
+    assertEquals(getValues(edges), getValues(readEdges));
+  }
+
+  /**
+   * Check edges have exactly the given targets, each with a value of ten
+   * times its target.
+   *
+   * @param edges Edges
+   * @param valueClass Edge value class
+   * @param targets Expected targets
+   */
+  private <I extends WritableComparable, E extends Writable> void checkEdges(
+      OutEdges<I, E> edges, Class<E> valueClass, long... targets) {
+    Map<Long, Double> values = getValues(edges);
+    assertEquals(targets.length, values.size());
+    for (long target : targets) {
+      assertEquals(getValue(createValue(valueClass, (int) target * 10)),
+          values.get(target), 0);
+    }
+  }
+
+  /**
+   * Get the value of each edge by target.
+   *
+   * @param edges Edges
+   * @return Values as doubles, 0 for null values
+   */
+  private <I extends WritableComparable, E extends Writable>
+  Map<Long, Double> getValues(OutEdges<I, E> edges) {
+    Map<Long, Double> values = Maps.newHashMap();
+    for (Edge<I, E> edge : edges) {
+      values.put(PrimitiveVertexIds.getId(edge.getTargetVertexId()),
+          getValue(edge.getValue()));
+    }
+    return values;
+  }
+
+  public static <I extends WritableComparable> I createId(Class<I> idClass,
+      long id) {
+    I vertexId = (I) (idClass == IntWritable.class ?
+        new IntWritable() : new LongWritable());
+    PrimitiveVertexIds.setId(vertexId, id);
+    return vertexId;
+  }
+
+  public static <E extends Writable> E createValue(Class<E> valueClass,
+      int value) {
+    if (valueClass == IntWritable.class) {
+      return (E) new IntWritable(value);
+    } else if (valueClass == LongWritable.class) {
+      return (E) new LongWritable(value);
+    } else if (valueClass == FloatWritable.class) {
+      return (E) new FloatWritable(value);
+    } else if (valueClass == DoubleWritable.class) {
+      return (E) new DoubleWritable(value);
+    }
+    return (E) NullWritable.get();
+  }
+
+  public static double getValue(Writable value) {
+    if (value instanceof IntWritable) {
+      return ((IntWritable) value).get();
+    } else if (value instanceof LongWritable) {
+      return ((LongWritable) value).get();
+    } else if (value instanceof FloatWritable) {
+      return ((FloatWritable) value).get();
+    } else if (value instanceof DoubleWritable) {
+      return ((DoubleWritable) value).get();
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge;
+
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.apache.giraph.utils.EdgeIterables;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link SortedOutEdges} implementations and their intersection.
+ */
+public class TestSortedEdges {
+  @Test
+  public void testBatchedMutations() {
+    LongDoubleSortedArrayEdges edges = new LongDoubleSortedArrayEdges();
+    edges.initialize();
+    for (long target : new long[] {50, 10, 40, 20, 30, 10}) {
+      edges.add(EdgeFactory.create(new LongWritable(target),
+          new DoubleWritable(target)));
+    }
+    // The last value added for a target wins
+    edges.add(EdgeFactory.create(new LongWritable(20),
+        new DoubleWritable(200)));
+    assertEquals(5, edges.size());
+    assertArrayEquals(new long[] {10, 20, 30, 40, 50}, getTargets(edges));
+    assertEquals(200, edges.getEdgeValue(new LongWritable(20)).get(), 0);
+
+    // Removals and additions are applied in order
+    edges.remove(new LongWritable(10));
+    edges.remove(new LongWritable(40));
+    edges.remove(new LongWritable(60));
+    edges.add(EdgeFactory.create(new LongWritable(40),
+        new DoubleWritable(400)));
+    edges.add(EdgeFactory.create(new LongWritable(5),
+        new DoubleWritable(5)));
+    edges.remove(new LongWritable(5));
+    assertArrayEquals(new long[] {20, 30, 40, 50}, getTargets(edges));
+    assertEquals(400, edges.getEdgeValue(new LongWritable(40)).get(), 0);
+    assertNull(edges.getEdgeValue(new LongWritable(10)));
+    assertEquals(2, edges.indexOf(40));
+    assertTrue(edges.indexOf(45) < 0);
+  }
+
+  @Test
+  public void testIntersection() {
+    LongNullSortedArrayEdges edges1 = createLongNullEdges(1, 3, 5, 7, 9, 11);
+    LongNullSortedArrayEdges edges2 = createLongNullEdges(3, 4, 5, 6, 11, 12);
+    assertEquals(3, EdgeIterables.intersectionSize(edges1, edges2));
+    LongArrayList common = new LongArrayList();
+    EdgeIterables.intersection(edges1, edges2, common);
+    assertArrayEquals(new long[] {3, 5, 11}, common.toLongArray());
+
+    // Small against large edges, with different edge values
+    LongDoubleSortedArrayEdges large = new LongDoubleSortedArrayEdges();
+    large.initialize();
+    for (long target = 0; target < 1000; target += 2) {
+      large.add(EdgeFactory.create(new LongWritable(target),
+          new DoubleWritable(1)));
+    }
+    LongNullSortedArrayEdges small = createLongNullEdges(-2, 4, 5, 998, 999);
+    assertEquals(2, EdgeIterables.intersectionSize(small, large));
+    assertEquals(2, EdgeIterables.intersectionSize(large, small));
+  }
+
+  @Test
+  public void testIntIds() {
+    IntNullSortedArrayEdges edges = new IntNullSortedArrayEdges();
+    List<Edge<IntWritable, NullWritable>> initialEdges = Lists.newArrayList(
+        EdgeFactory.create(new IntWritable(7)),
+        EdgeFactory.create(new IntWritable(-3)),
+        EdgeFactory.create(new IntWritable(7)),
+        EdgeFactory.create(new IntWritable(2)));
+    edges.initialize(initialEdges);
+    assertEquals(3, edges.size());
+    assertEquals(-3, edges.getTargetAt(0));
+    assertEquals(NullWritable.get(), edges.getEdgeValue(new IntWritable(2)));
+    assertTrue(edges.indexOf(1L << 32 | 2) < 0);
+    assertEquals(2, EdgeIterables.intersectionSize(edges,
+        createLongNullEdges(-3, 7)));
+  }
+
+  private static LongNullSortedArrayEdges createLongNullEdges(
+      long... targets) {
+    LongNullSortedArrayEdges edges = new LongNullSortedArrayEdges();
+    List<Edge<LongWritable, NullWritable>> initialEdges =
+        Lists.newArrayList();
+    for (long target : targets) {
+      initialEdges.add(EdgeFactory.create(new LongWritable(target)));
+    }
+    edges.initialize(initialEdges);
+    return edges;
+  }
+
+  private static long[] getTargets(SortedOutEdges<?, ?> edges) {
+    long[] targets = new long[edges.size()];
+    for (int i = 0; i < targets.length; i++) {
+      targets[i] = edges.getTargetAt(i);
+    }
+    return targets;
+  }
+}
@@ -42,6 +42,7 @@ public class TestStrictGraphEdges {
   public void setUp() {
     edgesClasses.add(HashMapEdges.class);
     edgesClasses.add(LongDoubleHashMapEdges.class);
+    edgesClasses.add(LongDoubleSortedArrayEdges.class);
   }
 
   /**
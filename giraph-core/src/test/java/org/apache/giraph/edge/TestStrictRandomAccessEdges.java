@@ -19,14 +19,22 @@
 package org.apache.giraph.edge;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
+import static org.apache.giraph.edge.TestPrimitiveEdges.createId;
+import static org.apache.giraph.edge.TestPrimitiveEdges.createValue;
+import static org.apache.giraph.edge.TestPrimitiveEdges.getValue;
 import static org.apache.giraph.graph.TestVertexAndEdges.instantiateOutEdges;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
@@ -34,15 +42,44 @@ import static org.junit.Assert.assertNull;
 /**
  * Tests {@link StrictRandomAccessOutEdges} implementations.
  */
+@SuppressWarnings("unchecked")
 public class TestStrictRandomAccessEdges {
-    /** {@link StrictRandomAccessOutEdges} classes to be tested. */
-    private Collection<Class<? extends StrictRandomAccessOutEdges>>
-        edgesClasses = Lists.newArrayList();
+    /**
+     * {@link StrictRandomAccessOutEdges} classes to be tested, with their
+     * vertex id and edge value classes.
+     */
+    private Map<Class<? extends StrictRandomAccessOutEdges>, Class<?>[]>
+        edgesClasses = Maps.newLinkedHashMap();
 
     @Before
     public void setUp() {
-      edgesClasses.add(HashMapEdges.class);
-      edgesClasses.add(LongDoubleHashMapEdges.class);
+      addEdgesClass(HashMapEdges.class, LongWritable.class,
+          DoubleWritable.class);
+      addEdgesClass(LongDoubleHashMapEdges.class, LongWritable.class,
+          DoubleWritable.class);
+      addEdgesClass(LongDoubleSortedArrayEdges.class, LongWritable.class,
+          DoubleWritable.class);
+      addEdgesClass(LongIntHashMapEdges.class, LongWritable.class,
+          IntWritable.class);
+      addEdgesClass(LongLongHashMapEdges.class, LongWritable.class,
+          LongWritable.class);
+      addEdgesClass(LongFloatHashMapEdges.class, LongWritable.class,
+          FloatWritable.class);
+      addEdgesClass(IntIntHashMapEdges.class, IntWritable.class,
+          IntWritable.class);
+      addEdgesClass(IntLongHashMapEdges.class, IntWritable.class,
+          LongWritable.class);
+      addEdgesClass(IntFloatHashMapEdges.class, IntWritable.class,
+          FloatWritable.class);
+      addEdgesClass(IntDoubleHashMapEdges.class, IntWritable.class,
+          DoubleWritable.class);
+    }
+
+    private void addEdgesClass(
+        Class<? extends StrictRandomAccessOutEdges> edgesClass,
+        Class<? extends WritableComparable> idClass,
+        Class<? extends Writable> valueClass) {
+      edgesClasses.put(edgesClass, new Class<?>[] {idClass, valueClass});
     }
 
     /**
@@ -51,31 +88,38 @@ public class TestStrictRandomAccessEdges {
      */
     @Test
     public void testParallelEdges() {
-      for (Class<? extends StrictRandomAccessOutEdges> edgesClass :
-          edgesClasses) {
-        testParallelEdgesClass(edgesClass);
+      for (Map.Entry<Class<? extends StrictRandomAccessOutEdges>, Class<?>[]>
+          entry : edgesClasses.entrySet()) {
+        testParallelEdgesClass(entry.getKey(),
+            (Class<WritableComparable>) entry.getValue()[0],
+            (Class<Writable>) entry.getValue()[1]);
       }
     }
 
-    private void testParallelEdgesClass(
-        Class<? extends StrictRandomAccessOutEdges> edgesClass) {
-      StrictRandomAccessOutEdges<LongWritable, DoubleWritable> edges =
-          (StrictRandomAccessOutEdges<LongWritable, DoubleWritable>)
+    private <I extends WritableComparable, E extends Writable>
+    void testParallelEdgesClass(
+        Class<? extends StrictRandomAccessOutEdges> edgesClass,
+        Class<I> idClass, Class<E> valueClass) {
+      StrictRandomAccessOutEdges<I, E> edges =
+          (StrictRandomAccessOutEdges<I, E>)
               instantiateOutEdges(edgesClass);
 
       // Initial edges list contains parallel edges.
-      List<Edge<LongWritable, DoubleWritable>> initialEdges = Lists.newArrayList(
-          EdgeFactory.create(new LongWritable(1), new DoubleWritable(1)),
-          EdgeFactory.create(new LongWritable(2), new DoubleWritable(2)),
-          EdgeFactory.create(new LongWritable(3), new DoubleWritable(3)),
-          EdgeFactory.create(new LongWritable(2), new DoubleWritable(20)));
+      List<Edge<I, E>> initialEdges = Lists.newArrayList(
+          EdgeFactory.create(createId(idClass, 1), createValue(valueClass, 1)),
+          EdgeFactory.create(createId(idClass, 2), createValue(valueClass, 2)),
+          EdgeFactory.create(createId(idClass, 3), createValue(valueClass, 3)),
+          EdgeFactory.create(createId(idClass, 2),
+              createValue(valueClass, 20)));
 
       edges.initialize(initialEdges);
 
-      assertEquals(3.0, edges.getEdgeValue(new LongWritable(3)).get(), 0.0);
-      assertNull(edges.getEdgeValue(new LongWritable(55)));
+      assertEquals(3.0,
+          getValue(edges.getEdgeValue(createId(idClass, 3))), 0.0);
+      assertNull(edges.getEdgeValue(createId(idClass, 55)));
 
-      edges.setEdgeValue(new LongWritable(2), new DoubleWritable(33.0));
-      assertEquals(33.0, edges.getEdgeValue(new LongWritable(2)).get(), 0);
+      edges.setEdgeValue(createId(idClass, 2), createValue(valueClass, 33));
+      assertEquals(33.0,
+          getValue(edges.getEdgeValue(createId(idClass, 2))), 0);
     }
 }
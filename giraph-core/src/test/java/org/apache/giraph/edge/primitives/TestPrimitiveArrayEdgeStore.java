@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.edge.primitives;
+
+import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.edge.Edge;
+import org.apache.giraph.edge.EdgeFactory;
+import org.apache.giraph.edge.IntFloatArrayEdges;
+import org.apache.giraph.edge.LongDoubleArrayEdges;
+import org.apache.giraph.edge.OutEdges;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.partition.Partition;
+import org.apache.giraph.partition.PartitionStore;
+import org.apache.giraph.partition.SimplePartitionStore;
+import org.apache.giraph.utils.ByteArrayVertexIdEdges;
+import org.apache.giraph.utils.NoOpComputation;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.util.Progressable;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test case for {@link PrimitiveArrayEdgeStore}.
+ */
+@SuppressWarnings("unchecked")
+public class TestPrimitiveArrayEdgeStore {
+  public static class LongDoubleComputation extends NoOpComputation<
+      LongWritable, LongWritable, DoubleWritable, LongWritable> { }
+
+  public static class IntFloatComputation extends NoOpComputation<
+      IntWritable, IntWritable, FloatWritable, IntWritable> { }
+
+  private <I extends WritableComparable, V extends Writable,
+      E extends Writable> ImmutableClassesGiraphConfiguration<I, V, E>
+  createConf(Class<? extends NoOpComputation> computationClass,
+      Class<? extends OutEdges> edgesClass, boolean createSourceVertex) {
+    GiraphConfiguration configuration = new GiraphConfiguration();
+    configuration.setComputationClass(computationClass);
+    configuration.setOutEdgesClass(edgesClass);
+    configuration.setCreateSourceVertex(createSourceVertex);
+    return new ImmutableClassesGiraphConfiguration<I, V, E>(configuration);
+  }
+
+  private <I extends WritableComparable, V extends Writable,
+      E extends Writable> PartitionStore<I, V, E> moveEdges(
+      ImmutableClassesGiraphConfiguration<I, V, E> conf,
+      PartitionStore<I, V, E> partitionStore,
+      List<ByteArrayVertexIdEdges<I, E>> partition0Requests,
+      ByteArrayVertexIdEdges<I, E> partition1Request) {
+    CentralizedServiceWorker<I, V, E> service =
+        Mockito.mock(CentralizedServiceWorker.class);
+    Mockito.when(service.getPartitionStore()).thenReturn(partitionStore);
+    PrimitiveArrayEdgeStore<I, V, E> edgeStore =
+        new PrimitiveArrayEdgeStore<I, V, E>(service, conf,
+            Mockito.mock(Progressable.class));
+    for (ByteArrayVertexIdEdges<I, E> request : partition0Requests) {
+      edgeStore.addPartitionEdges(0, request);
+    }
+    edgeStore.addPartitionEdges(1, partition1Request);
+    edgeStore.moveEdgesToVertices();
+    return partitionStore;
+  }
+
+  private ByteArrayVertexIdEdges<LongWritable, DoubleWritable> longEdges(
+      ImmutableClassesGiraphConfiguration<LongWritable, ?, DoubleWritable>
+          conf, long... sourceTargetPairs) {
+    ByteArrayVertexIdEdges<LongWritable, DoubleWritable> edges =
+        new ByteArrayVertexIdEdges<LongWritable, DoubleWritable>();
+    edges.setConf(conf);
+    edges.initialize();
+    for (int i = 0; i < sourceTargetPairs.length; i += 2) {
+      edges.add(new LongWritable(sourceTargetPairs[i]),
+          EdgeFactory.create(new LongWritable(sourceTargetPairs[i + 1]),
+              new DoubleWritable(sourceTargetPairs[i + 1] / 4.0)));
+    }
+    return edges;
+  }
+
+  private PartitionStore<LongWritable, LongWritable, DoubleWritable>
+  moveLongEdges(boolean createSourceVertex) {
+    ImmutableClassesGiraphConfiguration<LongWritable, LongWritable,
+        DoubleWritable> conf = createConf(LongDoubleComputation.class,
+            LongDoubleArrayEdges.class, createSourceVertex);
+    PartitionStore<LongWritable, LongWritable, DoubleWritable>
+        partitionStore = new SimplePartitionStore<LongWritable, LongWritable,
+            DoubleWritable>(conf, Mockito.mock(Mapper.Context.class));
+    Partition<LongWritable, LongWritable, DoubleWritable> partition =
+        partitionStore.getOrCreatePartition(0);
+    // Vertex 1 exists without edges, vertex 2 with an edge to 100
+    Vertex<LongWritable, LongWritable, DoubleWritable> vertex =
+        conf.createVertex();
+    vertex.initialize(new LongWritable(1), new LongWritable(1));
+    partition.putVertex(vertex);
+    vertex = conf.createVertex();
+    vertex.initialize(new LongWritable(2), new LongWritable(2));
+    vertex.addEdge(EdgeFactory.create(new LongWritable(100),
+        new DoubleWritable(25)));
+    partition.putVertex(vertex);
+    partitionStore.putPartition(partition);
+
+    // Sources interleaved within and across requests, vertex 3 is missing
+    return moveEdges(conf, partitionStore, Lists.newArrayList(
+        longEdges(conf, 3, 30, 1, 10, 2, 20, 1, 11),
+        longEdges(conf, 3, 31, 1, 12, 2, 21)),
+        longEdges(conf, 4, 40));
+  }
+
+  private void checkLongEdges(
+      Vertex<LongWritable, LongWritable, DoubleWritable> vertex,
+      long... targets) {
+    assertNotNull(vertex);
+    assertEquals(targets.length, vertex.getNumEdges());
+    int i = 0;
+    for (Edge<LongWritable, DoubleWritable> edge : vertex.getEdges()) {
+      assertEquals(targets[i], edge.getTargetVertexId().get());
+      assertEquals(targets[i] / 4.0, edge.getValue().get(), 0);
+      i++;
+    }
+  }
+
+  @Test
+  public void testMoveEdgesCreatingSourceVertices() {
+    PartitionStore<LongWritable, LongWritable, DoubleWritable>
+        partitionStore = moveLongEdges(true);
+    Partition<LongWritable, LongWritable, DoubleWritable> partition =
+        partitionStore.getOrCreatePartition(0);
+    assertEquals(3, partition.getVertexCount());
+    checkLongEdges(partition.getVertex(new LongWritable(1)), 10, 11, 12);
+    checkLongEdges(partition.getVertex(new LongWritable(2)), 100, 20, 21);
+    Vertex<LongWritable, LongWritable, DoubleWritable> created =
+        partition.getVertex(new LongWritable(3));
+    checkLongEdges(created, 30, 31);
+    assertEquals(0, created.getValue().get());
+    assertEquals(1, partition.getVertex(new LongWritable(1)).getValue().get());
+    partitionStore.putPartition(partition);
+
+    partition = partitionStore.getOrCreatePartition(1);
+    assertEquals(1, partition.getVertexCount());
+    checkLongEdges(partition.getVertex(new LongWritable(4)), 40);
+    partitionStore.putPartition(partition);
+  }
+
+  @Test
+  public void testMoveEdgesWithoutCreatingSourceVertices() {
+    PartitionStore<LongWritable, LongWritable, DoubleWritable>
+        partitionStore = moveLongEdges(false);
+    Partition<LongWritable, LongWritable, DoubleWritable> partition =
+        partitionStore.getOrCreatePartition(0);
+    assertEquals(2, partition.getVertexCount());
+    checkLongEdges(partition.getVertex(new LongWritable(1)), 10, 11, 12);
+    checkLongEdges(partition.getVertex(new LongWritable(2)), 100, 20, 21);
+    assertNull(partition.getVertex(new LongWritable(3)));
+    partitionStore.putPartition(partition);
+
+    partition = partitionStore.getOrCreatePartition(1);
+    assertEquals(0, partition.getVertexCount());
+    partitionStore.putPartition(partition);
+  }
+
+  @Test
+  public void testIntIdsWithFloatValues() {
+    ImmutableClassesGiraphConfiguration<IntWritable, IntWritable,
+        FloatWritable> conf = createConf(IntFloatComputation.class,
+            IntFloatArrayEdges.class, true);
+    List<ByteArrayVertexIdEdges<IntWritable, FloatWritable>> requests =
+        Lists.newArrayList();
+    for (int request = 0; request < 2; request++) {
+      ByteArrayVertexIdEdges<IntWritable, FloatWritable> edges =
+          new ByteArrayVertexIdEdges<IntWritable, FloatWritable>();
+      edges.setConf(conf);
+      edges.initialize();
+      for (int target = 0; target < 4; target++) {
+        // Negative ids and values, alternating sources
+        edges.add(new IntWritable(-(target % 2) - 1), EdgeFactory.create(
+            new IntWritable(request * 4 + target),
+            new FloatWritable(-0.5f * (request * 4 + target))));
+      }
+      requests.add(edges);
+    }
+    ByteArrayVertexIdEdges<IntWritable, FloatWritable> partition1Edges =
+        new ByteArrayVertexIdEdges<IntWritable, FloatWritable>();
+    partition1Edges.setConf(conf);
+    partition1Edges.initialize();
+    PartitionStore<IntWritable, IntWritable, FloatWritable> partitionStore =
+        moveEdges(conf, new SimplePartitionStore<IntWritable, IntWritable,
+            FloatWritable>(conf, Mockito.mock(Mapper.Context.class)),
+            requests, partition1Edges);
+
+    Partition<IntWritable, IntWritable, FloatWritable> partition =
+        partitionStore.getOrCreatePartition(0);
+    assertEquals(2, partition.getVertexCount());
+    for (int source = -1; source >= -2; source--) {
+      Vertex<IntWritable, IntWritable, FloatWritable> vertex =
+          partition.getVertex(new IntWritable(source));
+      assertEquals(4, vertex.getNumEdges());
+      int target = -source - 1;
+      for (Edge<IntWritable, FloatWritable> edge : vertex.getEdges()) {
+        assertEquals(target, edge.getTargetVertexId().get());
+        assertEquals(-0.5f * target, edge.getValue().get(), 0);
+        target += 2;
+      }
+    }
+    partitionStore.putPartition(partition);
+  }
+}
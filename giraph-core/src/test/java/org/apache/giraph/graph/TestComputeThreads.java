@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.graph;
+
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.utils.InternalVertexRunner;
+import org.apache.giraph.utils.TestGraph;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test computing several supersteps with persistent compute threads
+ */
+public class TestComputeThreads {
+  /** Names of the threads which computed each vertex */
+  private static final ConcurrentMap<Long, Set<String>> THREAD_NAMES =
+      Maps.newConcurrentMap();
+
+  /**
+   * Every vertex takes the largest value it hears of and passes it on.
+   */
+  public static class MaxValueComputation
+      extends BasicComputation<LongWritable, LongWritable, NullWritable,
+      LongWritable> {
+    @Override
+    public void compute(
+        Vertex<LongWritable, LongWritable, NullWritable> vertex,
+        Iterable<LongWritable> messages) {
+      Set<String> threadNames = THREAD_NAMES.get(vertex.getId().get());
+      if (threadNames == null) {
+        threadNames = Sets.newSetFromMap(
+            Maps.<String, Boolean>newConcurrentMap());
+        Set<String> oldThreadNames =
+            THREAD_NAMES.putIfAbsent(vertex.getId().get(), threadNames);
+        if (oldThreadNames != null) {
+          threadNames = oldThreadNames;
+        }
+      }
+      threadNames.add(Thread.currentThread().getName());
+      boolean changed = getSuperstep() == 0;
+      for (LongWritable message : messages) {
+        if (message.get() > vertex.getValue().get()) {
+          vertex.getValue().set(message.get());
+          changed = true;
+        }
+      }
+      if (changed) {
+        sendMessageToAllEdges(vertex, vertex.getValue());
+      }
+      vertex.voteToHalt();
+    }
+  }
+
+  @Test
+  public void testPersistentThreads() throws Exception {
+    runMaxValue(false);
+  }
+
+  @Test
+  public void testPartitionAffinity() throws Exception {
+    runMaxValue(true);
+    // Every vertex was computed in several supersteps, always on the
+    // compute thread its partition is assigned to
+    for (Set<String> threadNames : THREAD_NAMES.values()) {
+      assertEquals(1, threadNames.size());
+      assertTrue(threadNames.iterator().next().startsWith("compute-"));
+    }
+  }
+
+  /**
+   * Propagate the largest id around a ring of vertices, which takes as
+   * many supersteps as there are vertices.
+   *
+   * @param partitionAffinity Whether to assign partitions to threads
+   */
+  private void runMaxValue(boolean partitionAffinity) throws Exception {
+    THREAD_NAMES.clear();
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(MaxValueComputation.class);
+    conf.setNumComputeThreads(3);
+    GiraphConstants.USER_PARTITION_COUNT.set(conf, 7);
+    GiraphConstants.PERSISTENT_COMPUTE_THREADS.set(conf, true);
+    GiraphConstants.COMPUTE_PARTITION_AFFINITY.set(conf, partitionAffinity);
+    TestGraph<LongWritable, LongWritable, NullWritable> graph =
+        new TestGraph<LongWritable, LongWritable, NullWritable>(conf);
+    int numVertices = 30;
+    for (long id = 0; id < numVertices; id++) {
+      graph.addVertex(new LongWritable(id), new LongWritable(id));
+      graph.addEdge(new LongWritable(id),
+          new LongWritable((id + 1) % numVertices), NullWritable.get());
+    }
+
+    graph = InternalVertexRunner.runWithInMemoryOutput(conf, graph);
+
+    for (long id = 0; id < numVertices; id++) {
+      assertEquals(numVertices - 1,
+          graph.getVertex(new LongWritable(id)).getValue().get());
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.graph;
+
+import org.apache.giraph.combiner.DoubleSumMessageCombiner;
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.edge.Edge;
+import org.apache.giraph.utils.InternalVertexRunner;
+import org.apache.giraph.utils.TestGraph;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test {@link GatherApplyScatterComputation}
+ */
+public class TestGatherApplyScatterComputation {
+  /**
+   * Every vertex gathers the number of its in-edges.
+   */
+  public static class InDegreeComputation
+      extends GatherApplyScatterComputation<LongWritable, DoubleWritable,
+      NullWritable, DoubleWritable> {
+    /** Gathered over every edge */
+    private final DoubleWritable one = new DoubleWritable(1);
+
+    @Override
+    public DoubleWritable gather(
+        Vertex<LongWritable, DoubleWritable, NullWritable> source,
+        Edge<LongWritable, NullWritable> edge) {
+      return one;
+    }
+
+    @Override
+    public void apply(Vertex<LongWritable, DoubleWritable, NullWritable> vertex,
+        DoubleWritable gathered) {
+      vertex.getValue().set(gathered == null ? 0 : gathered.get());
+      if (getSuperstep() > 0) {
+        vertex.voteToHalt();
+      }
+    }
+
+    @Override
+    public boolean scatter(
+        Vertex<LongWritable, DoubleWritable, NullWritable> vertex) {
+      return getSuperstep() == 0;
+    }
+  }
+
+  @Test
+  public void testInDegree() throws Exception {
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(InDegreeComputation.class);
+    conf.setMessageCombinerClass(DoubleSumMessageCombiner.class);
+    TestGraph<LongWritable, DoubleWritable, NullWritable> graph =
+        new TestGraph<LongWritable, DoubleWritable, NullWritable>(conf);
+    for (long id = 0; id < 20; id++) {
+      graph.addVertex(new LongWritable(id), new DoubleWritable());
+    }
+    for (long id = 1; id < 20; id++) {
+      graph.addEdge(new LongWritable(id), new LongWritable(0),
+          NullWritable.get());
+      graph.addEdge(new LongWritable(0), new LongWritable(id),
+          NullWritable.get());
+      graph.addEdge(new LongWritable(id), new LongWritable(id % 2 + 1),
+          NullWritable.get());
+    }
+
+    graph = InternalVertexRunner.runWithInMemoryOutput(conf, graph);
+
+    assertEquals(19, getValue(graph, 0), 0);
+    assertEquals(10, getValue(graph, 1), 0);
+    assertEquals(11, getValue(graph, 2), 0);
+    for (long id = 3; id < 20; id++) {
+      assertEquals(1, getValue(graph, id), 0);
+    }
+  }
+
+  private static double getValue(
+      TestGraph<LongWritable, DoubleWritable, ?> graph, long id) {
+    return graph.getVertex(new LongWritable(id)).getValue().get();
+  }
+}
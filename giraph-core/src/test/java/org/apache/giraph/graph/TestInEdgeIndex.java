@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.graph;
+
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.utils.InternalVertexRunner;
+import org.apache.giraph.utils.TestGraph;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test {@link Computation#getInNeighbors(Vertex)} with the in-edge index
+ */
+public class TestInEdgeIndex {
+  /**
+   * Every vertex stores its in-degree times 1000 plus the sum of the ids
+   * of its in-neighbors.
+   */
+  public static class InNeighborsComputation
+      extends BasicComputation<LongWritable, LongWritable, NullWritable,
+      NullWritable> {
+    @Override
+    public void compute(
+        Vertex<LongWritable, LongWritable, NullWritable> vertex,
+        Iterable<NullWritable> messages) {
+      long value = 1000L * getNumInEdges(vertex);
+      for (LongWritable sourceId : getInNeighbors(vertex)) {
+        value += sourceId.get();
+      }
+      vertex.getValue().set(value);
+      vertex.voteToHalt();
+    }
+  }
+
+  @Test
+  public void testInNeighbors() throws Exception {
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(InNeighborsComputation.class);
+    GiraphConstants.IN_EDGE_INDEX.set(conf, true);
+    TestGraph<LongWritable, LongWritable, NullWritable> graph =
+        new TestGraph<LongWritable, LongWritable, NullWritable>(conf);
+    for (long id = 0; id < 20; id++) {
+      graph.addVertex(new LongWritable(id), new LongWritable());
+    }
+    for (long id = 1; id < 20; id++) {
+      graph.addEdge(new LongWritable(id), new LongWritable(0),
+          NullWritable.get());
+      graph.addEdge(new LongWritable(id), new LongWritable(id % 3 + 1),
+          NullWritable.get());
+    }
+
+    graph = InternalVertexRunner.runWithInMemoryOutput(conf, graph);
+
+    // Every vertex but 0 points to 0
+    assertEquals(19 * 1000 + 190, getValue(graph, 0));
+    // Ids 3, 6, ..., 18 point to 1
+    assertEquals(6 * 1000 + 63, getValue(graph, 1));
+    // Ids 1, 4, ..., 19 point to 2
+    assertEquals(7 * 1000 + 70, getValue(graph, 2));
+    // Ids 2, 5, ..., 17 point to 3
+    assertEquals(6 * 1000 + 57, getValue(graph, 3));
+    for (long id = 4; id < 20; id++) {
+      assertEquals(0, getValue(graph, id));
+    }
+  }
+
+  private static long getValue(
+      TestGraph<LongWritable, LongWritable, ?> graph, long id) {
+    return graph.getVertex(new LongWritable(id)).getValue().get();
+  }
+}
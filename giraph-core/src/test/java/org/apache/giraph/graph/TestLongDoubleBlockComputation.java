@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.graph;
+
+import org.apache.giraph.combiner.DoubleSumMessageCombiner;
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.utils.InternalVertexRunner;
+import org.apache.giraph.utils.TestGraph;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test {@link AbstractLongDoubleBlockComputation}
+ */
+public class TestLongDoubleBlockComputation {
+  /**
+   * Sends the vertex value multiplied by the edge value along every edge,
+   * then sets the value to the sum of the received messages.
+   */
+  public static class WeightedSumComputation
+      extends AbstractLongDoubleBlockComputation<DoubleWritable> {
+    @Override
+    public void computeBlock(LongDoubleVertexBlock block) {
+      double[] values = block.getValues();
+      int[] offsets = block.getEdgeOffsets();
+      long[] targets = block.getEdgeTargets();
+      double[] weights = block.getEdgeValues();
+      for (int i = 0; i < block.size(); i++) {
+        if (!block.isComputed(i)) {
+          continue;
+        }
+        if (getSuperstep() == 0) {
+          for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+            sendMessage(targets[e], values[i] * weights[e]);
+          }
+        } else {
+          if (block.hasMessage(i)) {
+            values[i] = block.getMessages()[i];
+          }
+          block.voteToHalt(i);
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the in-degree of every vertex.
+   */
+  public static class InDegreeComputation
+      extends AbstractLongDoubleBlockComputation<NullWritable> {
+    @Override
+    public void computeBlock(LongDoubleVertexBlock block) {
+      assertNull(block.getEdgeValues());
+      for (int i = 0; i < block.size(); i++) {
+        if (!block.isComputed(i)) {
+          continue;
+        }
+        if (getSuperstep() == 0) {
+          block.getValues()[i] = 0;
+          sendMessageToAllEdges(block, i, 1);
+        } else if (block.hasMessage(i)) {
+          block.getValues()[i] = block.getMessages()[i];
+        }
+        block.voteToHalt(i);
+      }
+    }
+  }
+
+  @Test
+  public void testWeightedSum() throws Exception {
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(WeightedSumComputation.class);
+    conf.setMessageCombinerClass(DoubleSumMessageCombiner.class);
+    TestGraph<LongWritable, DoubleWritable, DoubleWritable> graph =
+        new TestGraph<LongWritable, DoubleWritable, DoubleWritable>(conf);
+    graph.addVertex(new LongWritable(1), new DoubleWritable(1));
+    graph.addVertex(new LongWritable(2), new DoubleWritable(10));
+    graph.addVertex(new LongWritable(3), new DoubleWritable(100));
+    graph.addEdge(new LongWritable(1), new LongWritable(2),
+        new DoubleWritable(2));
+    graph.addEdge(new LongWritable(1), new LongWritable(3),
+        new DoubleWritable(3));
+    graph.addEdge(new LongWritable(2), new LongWritable(3),
+        new DoubleWritable(1));
+
+    graph = InternalVertexRunner.runWithInMemoryOutput(conf, graph);
+
+    assertEquals(1, getValue(graph, 1), 0);
+    assertEquals(2, getValue(graph, 2), 0);
+    assertEquals(13, getValue(graph, 3), 0);
+  }
+
+  @Test
+  public void testInDegree() throws Exception {
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(InDegreeComputation.class);
+    conf.setMessageCombinerClass(DoubleSumMessageCombiner.class);
+    TestGraph<LongWritable, DoubleWritable, NullWritable> graph =
+        new TestGraph<LongWritable, DoubleWritable, NullWritable>(conf);
+    for (long id = 0; id < 10; id++) {
+      graph.addVertex(new LongWritable(id), new DoubleWritable());
+    }
+    for (long id = 1; id < 10; id++) {
+      graph.addEdge(new LongWritable(id), new LongWritable(0),
+          NullWritable.get());
+      graph.addEdge(new LongWritable(id), new LongWritable(id - 1),
+          NullWritable.get());
+    }
+
+    graph = InternalVertexRunner.runWithInMemoryOutput(conf, graph);
+
+    assertEquals(10, getValue(graph, 0), 0);
+    for (long id = 1; id < 9; id++) {
+      assertEquals(1, getValue(graph, id), 0);
+    }
+    assertEquals(0, getValue(graph, 9), 0);
+  }
+
+  private static double getValue(
+      TestGraph<LongWritable, DoubleWritable, ?> graph, long id) {
+    return graph.getVertex(new LongWritable(id)).getValue().get();
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.graph;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.giraph.comm.messages.out_of_core.SortedRunMessageStoreFactory;
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.partition.ByteArrayPartition;
+import org.apache.giraph.utils.InternalVertexRunner;
+import org.apache.giraph.utils.TestGraph;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Test;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test that vertices of partitions which don't iterate in id order are
+ * computed in increasing id order when the message store asks for it.
+ */
+public class TestSortedMessageTraversal {
+  /** Number of vertices */
+  private static final int NUM_VERTICES = 200;
+  /** Ids of the vertices with messages, in computation order */
+  private static final List<Long> WITH_MESSAGES =
+      Collections.synchronizedList(Lists.<Long>newArrayList());
+  /** Ids of the vertices without messages, in computation order */
+  private static final List<Long> WITHOUT_MESSAGES =
+      Collections.synchronizedList(Lists.<Long>newArrayList());
+
+  /**
+   * Every even vertex sends a message to the next vertex in superstep 0,
+   * and all vertices record whether they got messages in superstep 1.
+   */
+  public static class RecordOrderComputation
+      extends BasicComputation<LongWritable, LongWritable, NullWritable,
+      LongWritable> {
+    @Override
+    public void compute(
+        Vertex<LongWritable, LongWritable, NullWritable> vertex,
+        Iterable<LongWritable> messages) {
+      long id = vertex.getId().get();
+      if (getSuperstep() == 0) {
+        if (id % 2 == 0) {
+          sendMessage(new LongWritable(id + 1), new LongWritable(id));
+        }
+        return;
+      }
+      for (LongWritable message : messages) {
+        vertex.getValue().set(vertex.getValue().get() + message.get());
+      }
+      if (Iterables.isEmpty(messages)) {
+        WITHOUT_MESSAGES.add(id);
+      } else {
+        WITH_MESSAGES.add(id);
+      }
+      vertex.voteToHalt();
+    }
+  }
+
+  @Test
+  public void testByteArrayPartitionWithSortedRuns() throws Exception {
+    WITH_MESSAGES.clear();
+    WITHOUT_MESSAGES.clear();
+    File directory = Files.createTempDir();
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(RecordOrderComputation.class);
+    conf.setPartitionClass(ByteArrayPartition.class);
+    GiraphConstants.MESSAGE_STORE_FACTORY_CLASS.set(conf,
+        SortedRunMessageStoreFactory.class);
+    GiraphConstants.MESSAGES_DIRECTORY.set(
+        conf, new File(directory, "giraph_messages").toString());
+    // Write several runs so that restarting the merge would be costly
+    GiraphConstants.MAX_MESSAGES_IN_MEMORY.set(conf, 10);
+    GiraphConstants.USER_PARTITION_COUNT.set(conf, 1);
+    GiraphConstants.NUM_COMPUTE_THREADS.set(conf, 1);
+    TestGraph<LongWritable, LongWritable, NullWritable> graph =
+        new TestGraph<LongWritable, LongWritable, NullWritable>(conf);
+    for (long id = 0; id < NUM_VERTICES; id++) {
+      graph.addVertex(new LongWritable(id), new LongWritable(0));
+    }
+
+    try {
+      graph = InternalVertexRunner.runWithInMemoryOutput(conf, graph);
+    } finally {
+      FileUtils.deleteDirectory(directory);
+    }
+
+    // Vertices with messages are computed in increasing order, and every
+    // vertex is computed exactly once
+    List<Long> sorted = Lists.newArrayList(WITH_MESSAGES);
+    Collections.sort(sorted);
+    assertEquals(sorted, WITH_MESSAGES);
+    assertEquals(NUM_VERTICES / 2, WITH_MESSAGES.size());
+    assertEquals(NUM_VERTICES / 2, WITHOUT_MESSAGES.size());
+    assertEquals(NUM_VERTICES, Sets.newHashSet(
+        Iterables.concat(WITH_MESSAGES, WITHOUT_MESSAGES)).size());
+    for (long id = 1; id < NUM_VERTICES; id += 2) {
+      assertEquals(id - 1,
+          graph.getVertex(new LongWritable(id)).getValue().get());
+    }
+  }
+}
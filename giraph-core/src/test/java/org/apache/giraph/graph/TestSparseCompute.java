@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.graph;
+
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.utils.InternalVertexRunner;
+import org.apache.giraph.utils.TestGraph;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test computing only the active vertices of sparse partitions
+ */
+public class TestSparseCompute {
+  /** Number of vertices in the ring */
+  private static final int NUM_RING_VERTICES = 30;
+  /** Vertex which stays active for a while without messages */
+  private static final long ACTIVE_VERTEX = 15;
+  /** Number of supersteps the active vertex stays active for */
+  private static final int ACTIVE_SUPERSTEPS = 10;
+  /** Number of vertices in the star */
+  private static final int NUM_STAR_VERTICES = 100;
+
+  /**
+   * A token goes around a ring twice, waking up one halted vertex per
+   * superstep. Every vertex adds the tokens it receives to its value.
+   */
+  public static class TokenRingComputation
+      extends BasicComputation<LongWritable, LongWritable, NullWritable,
+      LongWritable> {
+    @Override
+    public void compute(
+        Vertex<LongWritable, LongWritable, NullWritable> vertex,
+        Iterable<LongWritable> messages) {
+      long token = -1;
+      for (LongWritable message : messages) {
+        token = message.get();
+        vertex.getValue().set(vertex.getValue().get() + token);
+      }
+      if (getSuperstep() == 0 && vertex.getId().get() == 0) {
+        token = 0;
+      }
+      if (token >= 0 && token < 2 * NUM_RING_VERTICES) {
+        sendMessageToAllEdges(vertex, new LongWritable(token + 1));
+      }
+      if (vertex.getId().get() == ACTIVE_VERTEX &&
+          getSuperstep() < ACTIVE_SUPERSTEPS) {
+        vertex.getValue().set(vertex.getValue().get() + 1000);
+      } else {
+        vertex.voteToHalt();
+      }
+    }
+  }
+
+  /**
+   * The center of a star wakes up all other vertices, half of which stay
+   * active without messages for another superstep and then answer the
+   * center.
+   */
+  public static class StarComputation
+      extends BasicComputation<LongWritable, LongWritable, NullWritable,
+      LongWritable> {
+    @Override
+    public void compute(
+        Vertex<LongWritable, LongWritable, NullWritable> vertex,
+        Iterable<LongWritable> messages) {
+      for (LongWritable message : messages) {
+        vertex.getValue().set(vertex.getValue().get() + message.get());
+      }
+      long id = vertex.getId().get();
+      if (id == 0) {
+        // The center is the only active vertex of superstep 1
+        if (getSuperstep() == 1) {
+          sendMessageToAllEdges(vertex, new LongWritable(1));
+        }
+        if (getSuperstep() >= 1) {
+          vertex.voteToHalt();
+        }
+      } else if (id % 2 == 0 && getSuperstep() == 3) {
+        vertex.getValue().set(vertex.getValue().get() * 10);
+        sendMessage(new LongWritable(0), new LongWritable(1));
+        vertex.voteToHalt();
+      } else if (id % 2 != 0 || getSuperstep() != 2) {
+        vertex.voteToHalt();
+      }
+    }
+  }
+
+  @Test
+  public void testMessagesToHaltedVertices() throws Exception {
+    runTokenRing(0.1f);
+  }
+
+  @Test
+  public void testSparseComputeDisabled() throws Exception {
+    runTokenRing(0);
+  }
+
+  @Test
+  public void testCrossingActiveThreshold() throws Exception {
+    GiraphConfiguration conf = createConf(StarComputation.class, 0.1f);
+    TestGraph<LongWritable, LongWritable, NullWritable> graph =
+        new TestGraph<LongWritable, LongWritable, NullWritable>(conf);
+    graph.addVertex(new LongWritable(0), new LongWritable(0));
+    for (long id = 1; id < NUM_STAR_VERTICES; id++) {
+      graph.addVertex(new LongWritable(id), new LongWritable(0));
+      graph.addEdge(new LongWritable(0), new LongWritable(id),
+          NullWritable.get());
+    }
+
+    graph = InternalVertexRunner.runWithInMemoryOutput(conf, graph);
+
+    // The partitions go from sparse to dense with messages, stay dense
+    // with active vertices and become sparse again
+    assertEquals((NUM_STAR_VERTICES - 1) / 2,
+        graph.getVertex(new LongWritable(0)).getValue().get());
+    for (long id = 1; id < NUM_STAR_VERTICES; id++) {
+      assertEquals(id % 2 == 0 ? 10 : 1,
+          graph.getVertex(new LongWritable(id)).getValue().get());
+    }
+  }
+
+  /**
+   * Send a token around a ring twice.
+   *
+   * @param maxActiveFraction Largest fraction of active vertices for
+   *                          sparse computation
+   */
+  private void runTokenRing(float maxActiveFraction) throws Exception {
+    GiraphConfiguration conf =
+        createConf(TokenRingComputation.class, maxActiveFraction);
+    TestGraph<LongWritable, LongWritable, NullWritable> graph =
+        new TestGraph<LongWritable, LongWritable, NullWritable>(conf);
+    for (long id = 0; id < NUM_RING_VERTICES; id++) {
+      graph.addVertex(new LongWritable(id), new LongWritable(0));
+      graph.addEdge(new LongWritable(id),
+          new LongWritable((id + 1) % NUM_RING_VERTICES), NullWritable.get());
+    }
+
+    graph = InternalVertexRunner.runWithInMemoryOutput(conf, graph);
+
+    // Vertex 0 gets the tokens ending both rounds, every other vertex gets
+    // one token per round
+    assertEquals(3 * NUM_RING_VERTICES,
+        graph.getVertex(new LongWritable(0)).getValue().get());
+    for (long id = 1; id < NUM_RING_VERTICES; id++) {
+      long expected = NUM_RING_VERTICES + 2 * id;
+      if (id == ACTIVE_VERTEX) {
+        expected += 1000 * ACTIVE_SUPERSTEPS;
+      }
+      assertEquals(expected,
+          graph.getVertex(new LongWritable(id)).getValue().get());
+    }
+  }
+
+  /**
+   * Create the configuration of a job computing sparse partitions.
+   *
+   * @param computationClass Computation to run
+   * @param maxActiveFraction Largest fraction of active vertices for
+   *                          sparse computation
+   * @return Configuration
+   */
+  private GiraphConfiguration createConf(
+      Class<? extends Computation> computationClass,
+      float maxActiveFraction) {
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(computationClass);
+    GiraphConstants.USER_PARTITION_COUNT.set(conf, 2);
+    GiraphConstants.SPARSE_COMPUTE_MAX_ACTIVE_FRACTION.set(
+        conf, maxActiveFraction);
+    return conf;
+  }
+}
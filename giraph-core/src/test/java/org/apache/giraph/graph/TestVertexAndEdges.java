@@ -18,10 +18,12 @@
 package org.apache.giraph.graph;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import org.apache.giraph.comm.messages.MessageStoreFactory;
 import org.apache.giraph.comm.messages.out_of_core.DiskBackedMessageStoreFactory;
 import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphTypes;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
 import org.apache.giraph.edge.ArrayListEdges;
 import org.apache.giraph.edge.ByteArrayEdges;
@@ -29,8 +31,23 @@ import org.apache.giraph.edge.Edge;
 import org.apache.giraph.edge.EdgeFactory;
 import org.apache.giraph.edge.HashMapEdges;
 import org.apache.giraph.edge.HashMultimapEdges;
+import org.apache.giraph.edge.IntDoubleArrayEdges;
+import org.apache.giraph.edge.IntDoubleHashMapEdges;
+import org.apache.giraph.edge.IntFloatArrayEdges;
+import org.apache.giraph.edge.IntFloatHashMapEdges;
+import org.apache.giraph.edge.IntIntArrayEdges;
+import org.apache.giraph.edge.IntIntHashMapEdges;
+import org.apache.giraph.edge.IntLongArrayEdges;
+import org.apache.giraph.edge.IntLongHashMapEdges;
 import org.apache.giraph.edge.LongDoubleArrayEdges;
 import org.apache.giraph.edge.LongDoubleHashMapEdges;
+import org.apache.giraph.edge.LongDoubleSortedArrayEdges;
+import org.apache.giraph.edge.LongFloatArrayEdges;
+import org.apache.giraph.edge.LongFloatHashMapEdges;
+import org.apache.giraph.edge.LongIntArrayEdges;
+import org.apache.giraph.edge.LongIntHashMapEdges;
+import org.apache.giraph.edge.LongLongArrayEdges;
+import org.apache.giraph.edge.LongLongHashMapEdges;
 import org.apache.giraph.edge.MutableEdge;
 import org.apache.giraph.edge.OutEdges;
 import org.apache.giraph.time.SystemTime;
@@ -42,10 +59,14 @@ import org.apache.giraph.utils.EdgeIterables;
 import org.apache.giraph.utils.NoOpComputation;
 import org.apache.giraph.utils.UnsafeByteArrayInputStream;
 import org.apache.giraph.utils.UnsafeByteArrayOutputStream;
+import org.apache.giraph.utils.PrimitiveVertexIds;
 import org.apache.giraph.utils.WritableUtils;
 import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -55,7 +76,11 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import static org.apache.giraph.edge.TestPrimitiveEdges.createId;
+import static org.apache.giraph.edge.TestPrimitiveEdges.createValue;
+import static org.apache.giraph.edge.TestPrimitiveEdges.getValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -64,12 +89,19 @@ import static org.junit.Assert.assertTrue;
  * Test {@link Vertex} functionality across the provided {@link org.apache.giraph.edge.OutEdges}
  * classes.
  */
+@SuppressWarnings("unchecked")
 public class TestVertexAndEdges {
   /** Number of repetitions. */
   public static final int REPS = 100;
   /** {@link org.apache.giraph.edge.OutEdges} classes to be tested. */
   private Collection<Class<? extends OutEdges>> edgesClasses =
       Lists.newArrayList();
+  /**
+   * Primitive {@link org.apache.giraph.edge.OutEdges} classes to be tested,
+   * with their vertex id and edge value classes.
+   */
+  private Map<Class<? extends OutEdges>, Class<?>[]> primitiveEdgesClasses =
+      Maps.newLinkedHashMap();
 
   /**
    * Dummy concrete vertex.
@@ -159,6 +191,43 @@ public class TestVertexAndEdges {
     edgesClasses.add(HashMultimapEdges.class);
     edgesClasses.add(LongDoubleArrayEdges.class);
     edgesClasses.add(LongDoubleHashMapEdges.class);
+    edgesClasses.add(LongDoubleSortedArrayEdges.class);
+
+    addPrimitiveEdgesClass(LongIntArrayEdges.class, LongWritable.class,
+        IntWritable.class);
+    addPrimitiveEdgesClass(LongLongArrayEdges.class, LongWritable.class,
+        LongWritable.class);
+    addPrimitiveEdgesClass(LongFloatArrayEdges.class, LongWritable.class,
+        FloatWritable.class);
+    addPrimitiveEdgesClass(IntIntArrayEdges.class, IntWritable.class,
+        IntWritable.class);
+    addPrimitiveEdgesClass(IntLongArrayEdges.class, IntWritable.class,
+        LongWritable.class);
+    addPrimitiveEdgesClass(IntFloatArrayEdges.class, IntWritable.class,
+        FloatWritable.class);
+    addPrimitiveEdgesClass(IntDoubleArrayEdges.class, IntWritable.class,
+        DoubleWritable.class);
+    addPrimitiveEdgesClass(LongIntHashMapEdges.class, LongWritable.class,
+        IntWritable.class);
+    addPrimitiveEdgesClass(LongLongHashMapEdges.class, LongWritable.class,
+        LongWritable.class);
+    addPrimitiveEdgesClass(LongFloatHashMapEdges.class, LongWritable.class,
+        FloatWritable.class);
+    addPrimitiveEdgesClass(IntIntHashMapEdges.class, IntWritable.class,
+        IntWritable.class);
+    addPrimitiveEdgesClass(IntLongHashMapEdges.class, IntWritable.class,
+        LongWritable.class);
+    addPrimitiveEdgesClass(IntFloatHashMapEdges.class, IntWritable.class,
+        FloatWritable.class);
+    addPrimitiveEdgesClass(IntDoubleHashMapEdges.class, IntWritable.class,
+        DoubleWritable.class);
+  }
+
+  private void addPrimitiveEdgesClass(Class<? extends OutEdges> edgesClass,
+      Class<? extends WritableComparable> idClass,
+      Class<? extends Writable> valueClass) {
+    primitiveEdgesClasses.put(edgesClass,
+        new Class<?>[] {idClass, valueClass});
   }
 
   protected Vertex<LongWritable, FloatWritable, DoubleWritable>
@@ -241,6 +310,103 @@ public class TestVertexAndEdges {
     assertEquals(33.0, vertex.getEdgeValue(new LongWritable(10)).get(), 0);
   }
 
+  /**
+   * Instantiate a vertex with a primitive {@link OutEdges} class, with the
+   * vertex id and edge value classes of the edges.
+   */
+  private <I extends WritableComparable, E extends Writable>
+  Vertex<I, FloatWritable, E> instantiatePrimitiveVertex(
+      Class<? extends OutEdges> edgesClass) {
+    Class<?>[] types = primitiveEdgesClasses.get(edgesClass);
+    GiraphConfiguration giraphConfiguration = new GiraphConfiguration();
+    new GiraphTypes(types[0], FloatWritable.class, types[1],
+        LongWritable.class, LongWritable.class).writeTo(giraphConfiguration);
+    giraphConfiguration.setOutEdgesClass(edgesClass);
+    ImmutableClassesGiraphConfiguration<I, FloatWritable, E> conf =
+        new ImmutableClassesGiraphConfiguration<I, FloatWritable, E>(
+            giraphConfiguration);
+    Vertex<I, FloatWritable, E> vertex = conf.createVertex();
+    vertex.initialize(conf.createVertexId(), new FloatWritable(1),
+        conf.createOutEdges());
+    return vertex;
+  }
+
+  /**
+   * Test the vertex edge operations with the primitive
+   * {@link org.apache.giraph.edge.OutEdges} implementations.
+   */
+  @Test
+  public void testPrimitiveEdges() throws IOException {
+    for (Class<? extends OutEdges> edgesClass :
+        primitiveEdgesClasses.keySet()) {
+      testPrimitiveEdgesClass(edgesClass);
+    }
+  }
+
+  private <I extends WritableComparable, E extends Writable>
+  void testPrimitiveEdgesClass(Class<? extends OutEdges> edgesClass)
+    throws IOException {
+    Vertex<I, FloatWritable, E> vertex =
+        instantiatePrimitiveVertex(edgesClass);
+    Class<I> idClass = (Class<I>) vertex.getId().getClass();
+    Class<E> valueClass =
+        (Class<E>) primitiveEdgesClasses.get(edgesClass)[1];
+
+    List<Edge<I, E>> edges = Lists.newArrayList();
+    for (int i = 100; i > 0; --i) {
+      edges.add(EdgeFactory.create(createId(idClass, i),
+          createValue(valueClass, i * 2)));
+    }
+    OutEdges<I, E> outEdges = instantiateOutEdges(edgesClass);
+    outEdges.initialize(edges);
+    vertex.initialize(createId(idClass, 1), new FloatWritable(1), outEdges);
+
+    assertEquals(20.0,
+        getValue(vertex.getEdgeValue(createId(idClass, 10))), 0.0);
+    assertEquals(100, vertex.getNumEdges());
+    for (Edge<I, E> edge : vertex.getEdges()) {
+      assertEquals(PrimitiveVertexIds.getId(edge.getTargetVertexId()) * 2.0,
+          getValue(edge.getValue()), 0);
+    }
+    vertex.removeEdges(createId(idClass, 50));
+    assertEquals(99, vertex.getNumEdges());
+    for (Edge<I, E> edge : vertex.getEdges()) {
+      assertTrue(PrimitiveVertexIds.getId(edge.getTargetVertexId()) != 50);
+    }
+    vertex.setEdgeValue(createId(idClass, 10), createValue(valueClass, 33));
+    assertEquals(33.0,
+        getValue(vertex.getEdgeValue(createId(idClass, 10))), 0);
+
+    // Double the values in place and remove the edges with even ids
+    for (MutableEdge<I, E> edge : vertex.getMutableEdges()) {
+      edge.setValue(createValue(valueClass,
+          (int) getValue(edge.getValue()) * 2));
+    }
+    Iterator<MutableEdge<I, E>> edgeIt = vertex.getMutableEdges().iterator();
+    while (edgeIt.hasNext()) {
+      if (PrimitiveVertexIds.getId(
+          edgeIt.next().getTargetVertexId()) % 2 == 0) {
+        edgeIt.remove();
+      }
+    }
+    assertEquals(50, vertex.getNumEdges());
+    for (Edge<I, E> edge : vertex.getEdges()) {
+      long id = PrimitiveVertexIds.getId(edge.getTargetVertexId());
+      assertEquals(1, id % 2);
+      assertEquals(id * 4.0, getValue(edge.getValue()), 0);
+    }
+
+    Vertex<I, FloatWritable, E> readVertex =
+        instantiatePrimitiveVertex(edgesClass);
+    WritableUtils.reinitializeVertexFromByteArray(
+        WritableUtils.writeVertexToByteArray(vertex, false, vertex.getConf()),
+        readVertex, false, readVertex.getConf());
+    assertEquals(vertex.getId(), readVertex.getId());
+    assertEquals(vertex.getValue(), readVertex.getValue());
+    assertTrue(
+        EdgeIterables.sameEdges(vertex.getEdges(), readVertex.getEdges()));
+  }
+
   /**
    * Test in-place edge mutations via the iterable returned by {@link
    * Vertex#getMutableEdges()}.
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.mapping;
+
+import com.google.common.collect.Lists;
+import org.apache.giraph.edge.Edge;
+import org.apache.giraph.edge.EdgeFactory;
+import org.apache.hadoop.io.LongWritable;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Test {@link LongByteStreamingPartitioner}. */
+public class TestLongByteStreamingPartitioner {
+  /** Number of cliques in the test graph */
+  private static final int NUM_CLIQUES = 4;
+  /** Number of vertices in each clique */
+  private static final int CLIQUE_SIZE = 25;
+
+  /**
+   * Get out-edges of a vertex in a graph made of disconnected cliques,
+   * where vertex i belongs to clique i / CLIQUE_SIZE
+   *
+   * @param vertexId Vertex id
+   * @return Edges to all other vertices of the same clique
+   */
+  private static List<Edge<LongWritable, ?>> cliqueEdges(long vertexId) {
+    List<Edge<LongWritable, ?>> edges = Lists.newArrayList();
+    long first = (vertexId / CLIQUE_SIZE) * CLIQUE_SIZE;
+    for (long i = first; i < first + CLIQUE_SIZE; i++) {
+      if (i != vertexId) {
+        edges.add(EdgeFactory.create(new LongWritable(i)));
+      }
+    }
+    return edges;
+  }
+
+  /**
+   * Stream the clique graph through a partitioner
+   *
+   * @param partitioner Partitioner
+   * @return Targets of all vertices
+   */
+  private static byte[] streamCliques(
+      LongByteStreamingPartitioner partitioner) {
+    byte[] targets = new byte[NUM_CLIQUES * CLIQUE_SIZE];
+    for (int i = 0; i < targets.length; i++) {
+      targets[i] = partitioner.place(i, cliqueEdges(i));
+    }
+    return targets;
+  }
+
+  @Test
+  public void testLdgKeepsCliquesTogether() {
+    LongByteStreamingPartitioner partitioner =
+        new LongByteStreamingPartitioner(StreamingPartitionerAlgorithm.LDG,
+            NUM_CLIQUES, 1.0f, 1.5f, NUM_CLIQUES * CLIQUE_SIZE, 0);
+    byte[] targets = streamCliques(partitioner);
+    for (int i = 0; i < targets.length; i++) {
+      assertEquals(targets[i - i % CLIQUE_SIZE], targets[i]);
+    }
+    assertEquals(0, partitioner.getKnownCutEdges());
+    for (int i = 0; i < NUM_CLIQUES; i++) {
+      assertEquals(CLIQUE_SIZE, partitioner.getLoad(i));
+    }
+  }
+
+  @Test
+  public void testFennelIsDeterministicAndBalanced() {
+    byte[] first = streamCliques(new LongByteStreamingPartitioner(
+        StreamingPartitionerAlgorithm.FENNEL, 3, 1.1f, 1.5f, 0, 0));
+    LongByteStreamingPartitioner partitioner =
+        new LongByteStreamingPartitioner(StreamingPartitionerAlgorithm.FENNEL,
+            3, 1.1f, 1.5f, 0, 0);
+    byte[] second = streamCliques(partitioner);
+    for (int i = 0; i < first.length; i++) {
+      assertEquals(first[i], second[i]);
+      assertEquals(second[i], partitioner.getTarget(i));
+    }
+    long capacity = (long) Math.ceil(1.1 * first.length / 3);
+    for (int i = 0; i < 3; i++) {
+      assertTrue(partitioner.getLoad(i) <= capacity);
+    }
+  }
+
+  @Test
+  public void testPlacedVertexKeepsTarget() {
+    LongByteStreamingPartitioner partitioner =
+        new LongByteStreamingPartitioner(StreamingPartitionerAlgorithm.LDG,
+            2, 1.0f, 1.5f, 0, 0);
+    byte target = partitioner.place(7, cliqueEdges(7));
+    assertEquals(target, partitioner.place(7, cliqueEdges(7)));
+    assertEquals(1, partitioner.getPlacedVertices());
+    assertEquals(-1, partitioner.getTarget(8));
+  }
+
+  @Test
+  public void testMaxTargets() {
+    int numTargets = LongByteStreamingPartitioner.MAX_TARGETS;
+    LongByteStreamingPartitioner partitioner =
+        new LongByteStreamingPartitioner(StreamingPartitionerAlgorithm.LDG,
+            numTargets, 1.0f, 1.5f, numTargets, 0);
+    List<Edge<LongWritable, ?>> noEdges = Lists.newArrayList();
+    for (int i = 0; i < numTargets; i++) {
+      assertEquals(i, partitioner.place(i, noEdges) & 0xFF);
+    }
+    assertEquals(numTargets - 1, partitioner.getTarget(numTargets - 1) & 0xFF);
+    assertEquals(1, partitioner.getLoad(numTargets - 1));
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.master;
+
+import org.apache.giraph.aggregators.LongSumAggregator;
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.edge.EdgeFactory;
+import org.apache.giraph.graph.BasicComputation;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.utils.InternalVertexRunner;
+import org.apache.giraph.utils.TestGraph;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that the master gets the same worker stats with superstep reports
+ * sent over Netty as with the worker finished znodes.
+ */
+public class TestNettySuperstepBarrier {
+  /** Number of vertices */
+  private static final int NUM_VERTICES = 20;
+  /** Number of supersteps */
+  private static final int NUM_SUPERSTEPS = 4;
+  /** Name of the aggregator counting computed vertices */
+  private static final String COMPUTED_AGG = "computed";
+  /** Supersteps in which the master recorded stats */
+  private static final List<Long> SUPERSTEPS =
+      Collections.synchronizedList(Lists.<Long>newArrayList());
+  /** Number of vertices the master saw in every superstep */
+  private static final List<Long> VERTEX_COUNTS =
+      Collections.synchronizedList(Lists.<Long>newArrayList());
+  /** Number of edges the master saw in every superstep */
+  private static final List<Long> EDGE_COUNTS =
+      Collections.synchronizedList(Lists.<Long>newArrayList());
+  /** Number of computed vertices the master saw in every superstep */
+  private static final List<Long> COMPUTED_COUNTS =
+      Collections.synchronizedList(Lists.<Long>newArrayList());
+
+  /**
+   * Every vertex adds an edge in every superstep.
+   */
+  public static class AddEdgeComputation
+      extends BasicComputation<LongWritable, LongWritable, NullWritable,
+      LongWritable> {
+    @Override
+    public void compute(
+        Vertex<LongWritable, LongWritable, NullWritable> vertex,
+        Iterable<LongWritable> messages) {
+      aggregate(COMPUTED_AGG, new LongWritable(1));
+      vertex.addEdge(EdgeFactory.create(new LongWritable(
+          (vertex.getId().get() + getSuperstep() + 2) % NUM_VERTICES)));
+      if (getSuperstep() == NUM_SUPERSTEPS - 1) {
+        vertex.voteToHalt();
+      }
+    }
+  }
+
+  /**
+   * Records the graph stats and aggregated values it gets in every
+   * superstep.
+   */
+  public static class RecordingMasterCompute extends DefaultMasterCompute {
+    @Override
+    public void initialize() throws InstantiationException,
+        IllegalAccessException {
+      registerAggregator(COMPUTED_AGG, LongSumAggregator.class);
+    }
+
+    @Override
+    public void compute() {
+      if (getSuperstep() > 0) {
+        SUPERSTEPS.add(getSuperstep());
+        VERTEX_COUNTS.add(getTotalNumVertices());
+        EDGE_COUNTS.add(getTotalNumEdges());
+        COMPUTED_COUNTS.add(
+            this.<LongWritable>getAggregatedValue(COMPUTED_AGG).get());
+      }
+    }
+  }
+
+  @Test
+  public void testNettySuperstepBarrier() throws Exception {
+    runAddEdges(true);
+  }
+
+  @Test
+  public void testZooKeeperSuperstepBarrier() throws Exception {
+    runAddEdges(false);
+  }
+
+  /**
+   * Run a job adding edges and check the stats seen by the master.
+   *
+   * @param nettySuperstepBarrier Whether workers report over Netty
+   */
+  private void runAddEdges(boolean nettySuperstepBarrier) throws Exception {
+    SUPERSTEPS.clear();
+    VERTEX_COUNTS.clear();
+    EDGE_COUNTS.clear();
+    COMPUTED_COUNTS.clear();
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(AddEdgeComputation.class);
+    conf.setMasterComputeClass(RecordingMasterCompute.class);
+    GiraphConstants.USER_PARTITION_COUNT.set(conf, 3);
+    GiraphConstants.NETTY_SUPERSTEP_BARRIER.set(conf, nettySuperstepBarrier);
+    TestGraph<LongWritable, LongWritable, NullWritable> graph =
+        new TestGraph<LongWritable, LongWritable, NullWritable>(conf);
+    for (long id = 0; id < NUM_VERTICES; id++) {
+      graph.addVertex(new LongWritable(id), new LongWritable(id));
+      graph.addEdge(new LongWritable(id),
+          new LongWritable((id + 1) % NUM_VERTICES), NullWritable.get());
+    }
+
+    graph = InternalVertexRunner.runWithInMemoryOutput(conf, graph);
+
+    // The master sees the graph as it was before the superstep the
+    // workers just finished, and the values they aggregated in it
+    assertTrue(SUPERSTEPS.size() >= NUM_SUPERSTEPS - 1);
+    for (int i = 0; i < SUPERSTEPS.size(); i++) {
+      long superstep = SUPERSTEPS.get(i);
+      assertEquals(i + 1, superstep);
+      assertEquals(NUM_VERTICES, (long) VERTEX_COUNTS.get(i));
+      assertEquals(NUM_VERTICES * superstep, (long) EDGE_COUNTS.get(i));
+      assertEquals(NUM_VERTICES, (long) COMPUTED_COUNTS.get(i));
+    }
+    assertEquals(NUM_SUPERSTEPS + 1, graph.getVertex(
+        new LongWritable(0)).getNumEdges());
+  }
+}
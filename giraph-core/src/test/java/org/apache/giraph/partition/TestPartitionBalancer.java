@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.partition;
+
+import org.apache.giraph.worker.WorkerInfo;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/** Test the load algorithm of {@link PartitionBalancer}. */
+public class TestPartitionBalancer {
+  /**
+   * Create a worker info
+   *
+   * @param taskId Task id
+   * @return Worker info
+   */
+  private static WorkerInfo createWorkerInfo(int taskId) {
+    WorkerInfo workerInfo = new WorkerInfo();
+    workerInfo.setInetSocketAddress(new InetSocketAddress(8080));
+    workerInfo.setTaskId(taskId);
+    return workerInfo;
+  }
+
+  /**
+   * Create partition stats with given compute time
+   *
+   * @param partitionId Partition id
+   * @param vertexCount Vertex count
+   * @param computeMs Compute time
+   * @return Partition stats
+   */
+  private static PartitionStats createStats(int partitionId,
+      long vertexCount, long computeMs) {
+    PartitionStats stats =
+        new PartitionStats(partitionId, vertexCount, 0, 0, 0, 0);
+    stats.setComputeMs(computeMs);
+    return stats;
+  }
+
+  /**
+   * Run the load balancer on three heavy partitions on one worker and a
+   * light one on the other
+   *
+   * @param vertexCount Number of vertices in every partition
+   * @return Partition owners after balancing
+   */
+  private static List<PartitionOwner> balance(long vertexCount) {
+    WorkerInfo heavy = createWorkerInfo(0);
+    WorkerInfo light = createWorkerInfo(1);
+    List<PartitionOwner> owners = Lists.<PartitionOwner>newArrayList(
+        new BasicPartitionOwner(0, heavy),
+        new BasicPartitionOwner(1, heavy),
+        new BasicPartitionOwner(2, heavy),
+        new BasicPartitionOwner(3, light));
+    List<PartitionStats> stats = Lists.newArrayList(
+        createStats(0, vertexCount, 1000),
+        createStats(1, vertexCount, 1000),
+        createStats(2, vertexCount, 1000),
+        createStats(3, vertexCount, 100));
+    Configuration conf = new Configuration();
+    conf.set(PartitionBalancer.PARTITION_BALANCE_ALGORITHM,
+        PartitionBalancer.LOAD_BALANCE_ALGORITHM);
+    return Lists.newArrayList(PartitionBalancer.balancePartitionsAcrossWorkers(
+        conf, owners, stats, Lists.newArrayList(heavy, light)));
+  }
+
+  @Test
+  public void testMovesOnlyWhatPaysOff() {
+    List<PartitionOwner> owners = balance(10);
+    int moved = 0;
+    for (PartitionOwner owner : owners) {
+      if (owner.getPreviousWorkerInfo() != null) {
+        ++moved;
+        assertEquals(0, owner.getPreviousWorkerInfo().getTaskId());
+        assertEquals(1, owner.getWorkerInfo().getTaskId());
+      }
+    }
+    // A second move would make the light worker the bottleneck
+    assertEquals(1, moved);
+  }
+
+  @Test
+  public void testExpensiveTransferIsNotDone() {
+    for (PartitionOwner owner : balance(1000000000L)) {
+      assertNull(owner.getPreviousWorkerInfo());
+    }
+  }
+}
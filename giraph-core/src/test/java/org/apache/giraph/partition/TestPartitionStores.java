@@ -24,43 +24,69 @@ import static org.apache.giraph.conf.GiraphConstants.USER_PARTITION_COUNT;
 import static org.apache.giraph.conf.GiraphConstants.USE_OUT_OF_CORE_GRAPH;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.giraph.bsp.BspService;
 import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.comm.ServerData;
+import org.apache.giraph.comm.WorkerClient;
+import org.apache.giraph.comm.WorkerClientRequestProcessor;
+import org.apache.giraph.comm.netty.NettyWorkerClientRequestProcessor;
+import org.apache.giraph.comm.requests.SendWorkerInEdgesRequest;
+import org.apache.giraph.comm.requests.SendWorkerVerticesRequest;
+import org.apache.giraph.comm.requests.WorkerRequest;
+import org.apache.giraph.comm.requests.WritableRequest;
 import org.apache.giraph.conf.GiraphConfiguration;
 import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.edge.Edge;
 import org.apache.giraph.edge.EdgeFactory;
+import org.apache.giraph.edge.InEdgeIndex;
 import org.apache.giraph.graph.BasicComputation;
 import org.apache.giraph.graph.Vertex;
 import org.apache.giraph.io.formats.IdWithValueTextOutputFormat;
 import org.apache.giraph.io.formats.JsonLongDoubleFloatDoubleVertexInputFormat;
+import org.apache.giraph.metrics.GiraphMetrics;
 import org.apache.giraph.utils.InternalVertexRunner;
 import org.apache.giraph.utils.NoOpComputation;
 import org.apache.giraph.utils.UnsafeByteArrayInputStream;
 import org.apache.giraph.utils.UnsafeByteArrayOutputStream;
+import org.apache.giraph.utils.WritableUtils;
+import org.apache.giraph.worker.DefaultWorkerContext;
+import org.apache.giraph.worker.WorkerInfo;
 import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.FloatWritable;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.io.Files;
 
 /**
@@ -202,6 +228,53 @@ public class TestPartitionStores {
     FileUtils.deleteDirectory(directory);
   }
 
+  @Test
+  public void testDiskBackedPartitionMetadata() throws IOException {
+    File directory = Files.createTempDir();
+    GiraphConstants.PARTITIONS_DIRECTORY.set(
+        conf, new File(directory, "giraph_partitions").toString());
+    GiraphConstants.USE_OUT_OF_CORE_GRAPH.set(conf, true);
+    GiraphConstants.MAX_PARTITIONS_IN_MEMORY.set(conf, 1);
+
+    CentralizedServiceWorker<IntWritable, IntWritable, NullWritable>
+    serviceWorker = Mockito.mock(CentralizedServiceWorker.class);
+    Mockito.when(serviceWorker.getSuperstep()).thenReturn(
+      BspService.INPUT_SUPERSTEP);
+
+    PartitionStore<IntWritable, IntWritable, NullWritable> partitionStore =
+        new DiskBackedPartitionStore<IntWritable, IntWritable, NullWritable>(
+            conf, context, serviceWorker);
+    Vertex<IntWritable, IntWritable, NullWritable> v1 = conf.createVertex();
+    v1.initialize(new IntWritable(1), new IntWritable(1));
+    Vertex<IntWritable, IntWritable, NullWritable> v2 = conf.createVertex();
+    v2.initialize(new IntWritable(2), new IntWritable(2));
+    Vertex<IntWritable, IntWritable, NullWritable> v3 = conf.createVertex();
+    v3.initialize(new IntWritable(3), new IntWritable(3));
+    partitionStore.addPartition(createPartition(conf, 1, v1, v2));
+    partitionStore.addPartition(createPartition(conf, 2, v3));
+
+    // Only one partition fits in memory, the second one went to disk
+    PartitionMetadata metadata1 = partitionStore.getPartitionMetadata(1);
+    PartitionMetadata metadata2 = partitionStore.getPartitionMetadata(2);
+    assertEquals(2, metadata1.getVertexCount());
+    assertTrue(metadata1.isInMemory());
+    assertEquals(1, metadata2.getVertexCount());
+    assertFalse(metadata2.isInMemory());
+    assertTrue(metadata2.getSerializedBytes() > 0);
+    assertEquals(3, partitionStore.getVertexCount());
+
+    Partition<IntWritable, IntWritable, NullWritable> partition2 =
+        partitionStore.getOrCreatePartition(2);
+    assertTrue(metadata2.isInMemory());
+    assertFalse(metadata1.isInMemory());
+    partitionStore.putPartition(partition2);
+
+    partitionStore.deletePartition(2);
+    assertEquals(2, partitionStore.getVertexCount());
+    partitionStore.shutdown();
+    FileUtils.deleteDirectory(directory);
+  }
+
   @Test
   public void testDiskBackedPartitionStoreWithByteArrayComputation()
     throws Exception {
@@ -236,6 +309,120 @@ public class TestPartitionStores {
     FileUtils.deleteDirectory(directory);
   }
 
+  /** Vertex which stays active while all other vertices are halted */
+  private static final long ACTIVE_VERTEX = 1;
+  /** Number of supersteps the active vertex stays active for */
+  private static final int ACTIVE_SUPERSTEPS = 5;
+  /** Id of the partition of the active vertex */
+  private static volatile int ACTIVE_PARTITION = -1;
+  /** Whether vertices put into partitions are counted */
+  private static volatile boolean COUNT_LOADED_VERTICES = false;
+  /** Vertices put into partitions other than the active one */
+  private static final AtomicInteger LOADED_HALTED_VERTICES =
+      new AtomicInteger();
+
+  /**
+   * Partition counting the vertices put into it while the halted
+   * partitions could be loaded from disk.
+   */
+  public static class LoadCountingPartition<I extends WritableComparable,
+      V extends Writable, E extends Writable>
+      extends SimplePartition<I, V, E> {
+    @Override
+    public Vertex<I, V, E> putVertex(Vertex<I, V, E> vertex) {
+      if (((LongWritable) vertex.getId()).get() == ACTIVE_VERTEX) {
+        ACTIVE_PARTITION = getId();
+      } else if (COUNT_LOADED_VERTICES && getId() != ACTIVE_PARTITION) {
+        LOADED_HALTED_VERTICES.incrementAndGet();
+      }
+      return super.putVertex(vertex);
+    }
+  }
+
+  /**
+   * Counts loaded vertices between the end of the first superstep and the
+   * output of the vertices.
+   */
+  public static class LoadCountingWorkerContext extends DefaultWorkerContext {
+    @Override
+    public void postSuperstep() {
+      COUNT_LOADED_VERTICES = getSuperstep() < ACTIVE_SUPERSTEPS;
+    }
+  }
+
+  /**
+   * All vertices but one halt in the first superstep and never get
+   * messages.
+   */
+  public static class OneActiveComputation
+    extends BasicComputation<LongWritable, DoubleWritable, FloatWritable,
+      LongWritable> {
+    @Override
+    public void compute(
+      Vertex<LongWritable, DoubleWritable, FloatWritable> vertex,
+      Iterable<LongWritable> messages) throws IOException {
+      if (vertex.getId().get() == ACTIVE_VERTEX &&
+          getSuperstep() < ACTIVE_SUPERSTEPS) {
+        vertex.getValue().set(vertex.getValue().get() + 1);
+      } else {
+        vertex.voteToHalt();
+      }
+    }
+  }
+
+  @Test
+  public void testDiskBackedHaltedPartitionsNotLoaded() throws Exception {
+    assertEquals(0, countLoadedHaltedVertices(true));
+    // Without skipping, the halted partitions are loaded every superstep
+    assertTrue(countLoadedHaltedVertices(false) > 0);
+  }
+
+  /**
+   * Run a job in which all partitions but one are halted with at most one
+   * partition in memory.
+   *
+   * @param skipHaltedPartitions Whether halted partitions are skipped
+   * @return Number of vertices loaded into halted partitions
+   */
+  private int countLoadedHaltedVertices(boolean skipHaltedPartitions)
+    throws Exception {
+    String[] graph =
+    {
+      "[1,0,[]]", "[2,0,[]]", "[3,0,[]]", "[4,0,[]]", "[5,0,[]]",
+      "[6,0,[]]", "[7,0,[]]", "[8,0,[]]", "[9,0,[]]", "[10,0,[]]"
+    };
+    String[] expected =
+    {
+      "1\t" + (double) ACTIVE_SUPERSTEPS, "2\t0.0", "3\t0.0", "4\t0.0",
+      "5\t0.0", "6\t0.0", "7\t0.0", "8\t0.0", "9\t0.0", "10\t0.0"
+    };
+    ACTIVE_PARTITION = -1;
+    COUNT_LOADED_VERTICES = false;
+    LOADED_HALTED_VERTICES.set(0);
+
+    USE_OUT_OF_CORE_GRAPH.set(conf, true);
+    MAX_PARTITIONS_IN_MEMORY.set(conf, 1);
+    USER_PARTITION_COUNT.set(conf, 4);
+    GiraphConstants.SKIP_HALTED_PARTITIONS.set(conf, skipHaltedPartitions);
+
+    File directory = Files.createTempDir();
+    PARTITIONS_DIRECTORY.set(conf,
+      new File(directory, "giraph_partitions").toString());
+
+    conf.setPartitionClass(LoadCountingPartition.class);
+    conf.setComputationClass(OneActiveComputation.class);
+    conf.setWorkerContextClass(LoadCountingWorkerContext.class);
+    conf.setVertexInputFormatClass(
+        JsonLongDoubleFloatDoubleVertexInputFormat.class);
+    conf.setVertexOutputFormatClass(IdWithValueTextOutputFormat.class);
+
+    Iterable<String> results = InternalVertexRunner.run(conf, graph);
+    assertEquals(expected.length, Iterables.size(results));
+    checkResults(results, expected);
+    FileUtils.deleteDirectory(directory);
+    return LOADED_HALTED_VERTICES.get();
+  }
+
   @Test
   public void testDiskBackedPartitionStoreMT() throws Exception {
     GiraphConstants.STATIC_GRAPH.set(conf, false);
@@ -476,7 +663,496 @@ public class TestPartitionStores {
   public void testEdgeCombineWithByteArrayPartition() throws IOException {
     testEdgeCombine(ByteArrayPartition.class);
   }
+
+  @Test
+  public void testEdgeCombineWithPrimitiveIdPartition() throws IOException {
+    testEdgeCombine(PrimitiveIdPartition.class);
+  }
+
+  @Test
+  public void testPrimitiveIdPartition() throws IOException {
+    GiraphConstants.STATIC_GRAPH.set(conf, true);
+    conf.setPartitionClass(PrimitiveIdPartition.class);
+    Partition<IntWritable, IntWritable, NullWritable> partition =
+        conf.createPartition(5, context);
+    for (int id = 0; id < 10; id++) {
+      Vertex<IntWritable, IntWritable, NullWritable> v = conf.createVertex();
+      v.initialize(new IntWritable(id), new IntWritable(id));
+      v.addEdge(EdgeFactory.create(new IntWritable((id + 1) % 10)));
+      partition.putVertex(v);
+    }
+    assertNotNull(partition.removeVertex(new IntWritable(3)));
+    assertEquals(9, partition.getVertexCount());
+    assertEquals(9, partition.getEdgeCount());
+
+    // Iteration reuses one vertex object, saving only changes its value
+    Vertex<IntWritable, IntWritable, NullWritable> previous = null;
+    int sum = 0;
+    for (Vertex<IntWritable, IntWritable, NullWritable> v : partition) {
+      assertTrue(previous == null || previous == v);
+      assertEquals((v.getId().get() + 1) % 10,
+          v.getEdges().iterator().next().getTargetVertexId().get());
+      sum += v.getId().get();
+      v.getValue().set(v.getId().get() * 2);
+      v.voteToHalt();
+      partition.saveVertex(v);
+      previous = v;
+    }
+    assertEquals(42, sum);
+
+    UnsafeByteArrayOutputStream outputStream =
+        new UnsafeByteArrayOutputStream();
+    partition.write(outputStream);
+    UnsafeByteArrayInputStream inputStream = new UnsafeByteArrayInputStream(
+        outputStream.getByteArray(), 0, outputStream.getPos());
+    Partition<IntWritable, IntWritable, NullWritable> deserializedPartition =
+        conf.createPartition(-1, context);
+    deserializedPartition.readFields(inputStream);
+
+    assertEquals(5, deserializedPartition.getId());
+    assertEquals(9, deserializedPartition.getVertexCount());
+    assertEquals(9, deserializedPartition.getEdgeCount());
+    assertNull(deserializedPartition.getVertex(new IntWritable(3)));
+    Vertex<IntWritable, IntWritable, NullWritable> v7 =
+        deserializedPartition.getVertex(new IntWritable(7));
+    assertEquals(14, v7.getValue().get());
+    assertTrue(v7.isHalted());
+    assertEquals(1, v7.getNumEdges());
+  }
  
+  @Test
+  public void testPrimitiveIdPartitionGrowingVertices() throws IOException {
+    conf.setPartitionClass(PrimitiveIdPartition.class);
+    Partition<IntWritable, IntWritable, NullWritable> partition =
+        conf.createPartition(5, context);
+    for (int id = 0; id < 10; id++) {
+      Vertex<IntWritable, IntWritable, NullWritable> v = conf.createVertex();
+      v.initialize(new IntWritable(id), new IntWritable(id));
+      partition.putVertex(v);
+    }
+
+    // Out-edges grow every round, so they are appended and compacted
+    for (int round = 1; round <= 20; round++) {
+      for (Vertex<IntWritable, IntWritable, NullWritable> v : partition) {
+        v.addEdge(EdgeFactory.create(new IntWritable(round)));
+        if (v.getId().get() % 2 == 0) {
+          v.voteToHalt();
+        }
+        partition.saveVertex(v);
+      }
+    }
+    assertEquals(200, partition.getEdgeCount());
+
+    UnsafeByteArrayOutputStream outputStream =
+        new UnsafeByteArrayOutputStream();
+    partition.write(outputStream);
+    UnsafeByteArrayInputStream inputStream = new UnsafeByteArrayInputStream(
+        outputStream.getByteArray(), 0, outputStream.getPos());
+    Partition<IntWritable, IntWritable, NullWritable> deserializedPartition =
+        conf.createPartition(-1, context);
+    deserializedPartition.readFields(inputStream);
+
+    assertEquals(10, deserializedPartition.getVertexCount());
+    assertEquals(200, deserializedPartition.getEdgeCount());
+    for (int id = 0; id < 10; id++) {
+      Vertex<IntWritable, IntWritable, NullWritable> v =
+          deserializedPartition.getVertex(new IntWritable(id));
+      assertEquals(id, v.getValue().get());
+      assertEquals(id % 2 == 0, v.isHalted());
+      int round = 0;
+      for (Edge<IntWritable, NullWritable> edge : v.getEdges()) {
+        assertEquals(++round, edge.getTargetVertexId().get());
+      }
+      assertEquals(20, round);
+    }
+  }
+
+  @Test
+  public void testEdgeCombineWithCompressedBlockPartition()
+      throws IOException {
+    testEdgeCombine(CompressedBlockPartition.class);
+  }
+
+  @Test
+  public void testCompressedBlockPartition() throws IOException {
+    // Small blocks and a single cached block, to decompress and recompress
+    // blocks often
+    GiraphConstants.COMPRESSED_PARTITION_BLOCK_SIZE.set(conf, 3);
+    GiraphConstants.COMPRESSED_PARTITION_CACHED_BLOCKS.set(conf, 1);
+    conf.setPartitionClass(CompressedBlockPartition.class);
+    Partition<IntWritable, IntWritable, NullWritable> partition =
+        conf.createPartition(5, context);
+    for (int id = 0; id < 10; id++) {
+      Vertex<IntWritable, IntWritable, NullWritable> v = conf.createVertex();
+      v.initialize(new IntWritable(id), new IntWritable(id));
+      v.addEdge(EdgeFactory.create(new IntWritable((id + 1) % 10)));
+      partition.putVertex(v);
+    }
+    assertEquals(10, partition.getVertexCount());
+    assertEquals(9, partition.getVertex(new IntWritable(9)).getValue().get());
+    assertNotNull(partition.removeVertex(new IntWritable(3)));
+    assertNull(partition.getVertex(new IntWritable(3)));
+    assertEquals(9, partition.getVertexCount());
+    assertEquals(9, partition.getEdgeCount());
+
+    // Iteration reuses one vertex object, saving it changes its value
+    Vertex<IntWritable, IntWritable, NullWritable> previous = null;
+    int sum = 0;
+    for (Vertex<IntWritable, IntWritable, NullWritable> v : partition) {
+      assertTrue(previous == null || previous == v);
+      assertEquals((v.getId().get() + 1) % 10,
+          v.getEdges().iterator().next().getTargetVertexId().get());
+      sum += v.getId().get();
+      v.getValue().set(v.getId().get() * 2);
+      v.voteToHalt();
+      partition.saveVertex(v);
+      previous = v;
+    }
+    assertEquals(42, sum);
+    assertEquals(2, partition.getVertex(new IntWritable(1)).getValue().get());
+
+    // A new vertex takes the location of the removed one
+    Vertex<IntWritable, IntWritable, NullWritable> v10 = conf.createVertex();
+    v10.initialize(new IntWritable(10), new IntWritable(10));
+    assertNull(partition.putVertex(v10));
+    assertEquals(10, partition.getVertexCount());
+    assertEquals(9, partition.getEdgeCount());
+
+    UnsafeByteArrayOutputStream outputStream =
+        new UnsafeByteArrayOutputStream();
+    partition.write(outputStream);
+    UnsafeByteArrayInputStream inputStream = new UnsafeByteArrayInputStream(
+        outputStream.getByteArray(), 0, outputStream.getPos());
+    Partition<IntWritable, IntWritable, NullWritable> deserializedPartition =
+        conf.createPartition(-1, context);
+    deserializedPartition.readFields(inputStream);
+
+    assertEquals(5, deserializedPartition.getId());
+    assertEquals(10, deserializedPartition.getVertexCount());
+    assertEquals(9, deserializedPartition.getEdgeCount());
+    assertNull(deserializedPartition.getVertex(new IntWritable(3)));
+    assertEquals(10, deserializedPartition.getVertex(
+        new IntWritable(10)).getValue().get());
+    Vertex<IntWritable, IntWritable, NullWritable> v7 =
+        deserializedPartition.getVertex(new IntWritable(7));
+    assertEquals(14, v7.getValue().get());
+    assertTrue(v7.isHalted());
+    assertEquals(1, v7.getNumEdges());
+  }
+
+  @Test
+  public void testExchangeOnDiskPartitionsInChunks() throws Exception {
+    File directory = Files.createTempDir();
+    GiraphConstants.PARTITIONS_DIRECTORY.set(
+        conf, new File(directory, "giraph_partitions").toString());
+    GiraphConstants.USE_OUT_OF_CORE_GRAPH.set(conf, true);
+    GiraphConstants.MAX_PARTITIONS_IN_MEMORY.set(conf, 1);
+    // Small requests, so that every partition is sent in many chunks
+    GiraphConstants.MAX_VERTEX_REQUEST_SIZE.set(conf, 1024);
+    GiraphMetrics.init(conf);
+
+    WorkerInfo sender = createWorkerInfo(0);
+    final WorkerInfo receiver = createWorkerInfo(1);
+    final CentralizedServiceWorker<IntWritable, IntWritable, NullWritable>
+        serviceWorker = Mockito.mock(CentralizedServiceWorker.class);
+    Mockito.when(serviceWorker.getSuperstep()).thenReturn(
+        BspService.INPUT_SUPERSTEP);
+    Mockito.when(serviceWorker.getWorkerInfo()).thenReturn(sender);
+    Mockito.when(serviceWorker.getWorkerInfoList()).thenReturn(
+        Lists.newArrayList(sender, receiver));
+    Mockito.doReturn(Lists.newArrayList(
+        new BasicPartitionOwner(0, sender),
+        new BasicPartitionOwner(1, receiver),
+        new BasicPartitionOwner(2, receiver))).when(
+        serviceWorker).getPartitionOwners();
+
+    // The receiver applies the requests as they arrive over the wire
+    final PartitionStore<IntWritable, IntWritable, NullWritable>
+        receiverStore = new SimplePartitionStore<IntWritable, IntWritable,
+        NullWritable>(conf, context);
+    final ServerData<IntWritable, IntWritable, NullWritable> receiverData =
+        Mockito.mock(ServerData.class);
+    Mockito.when(receiverData.getPartitionStore()).thenReturn(receiverStore);
+    final AtomicInteger numRequests = new AtomicInteger();
+    WorkerClient<IntWritable, IntWritable, NullWritable> workerClient =
+        Mockito.mock(WorkerClient.class);
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        assertEquals(receiver.getTaskId(), invocation.getArguments()[0]);
+        SendWorkerVerticesRequest<IntWritable, IntWritable, NullWritable>
+            request = new SendWorkerVerticesRequest<IntWritable, IntWritable,
+            NullWritable>();
+        request.setConf(conf);
+        WritableUtils.readFieldsFromByteArray(WritableUtils.writeToByteArray(
+            (WritableRequest) invocation.getArguments()[1]), request);
+        request.doRequest(receiverData);
+        numRequests.incrementAndGet();
+        return null;
+      }
+    }).when(workerClient).sendWritableRequest(
+        Mockito.anyInt(), Mockito.any(WritableRequest.class));
+    Mockito.when(serviceWorker.getWorkerClient()).thenReturn(workerClient);
+
+    // Partition 0 fills the memory, partitions 1 and 2 go to disk
+    final PartitionStore<IntWritable, IntWritable, NullWritable>
+        senderStore = new DiskBackedPartitionStore<IntWritable, IntWritable,
+        NullWritable>(conf, context, serviceWorker);
+    int numVertices = 1000;
+    for (int partitionId = 0; partitionId < 3; ++partitionId) {
+      Partition<IntWritable, IntWritable, NullWritable> partition =
+          conf.createPartition(partitionId, context);
+      for (int i = 0; i < numVertices; ++i) {
+        int id = partitionId * numVertices + i;
+        Vertex<IntWritable, IntWritable, NullWritable> v =
+            conf.createVertex();
+        v.initialize(new IntWritable(id), new IntWritable(id));
+        for (int j = 1; j <= NUM_OF_EDGES_PER_VERTEX; ++j) {
+          v.addEdge(EdgeFactory.create(new IntWritable(id + j)));
+        }
+        partition.putVertex(v);
+      }
+      senderStore.addPartition(partition);
+    }
+
+    // Send both on-disk partitions concurrently, each thread with its own
+    // request processor
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    List<Future<Void>> results = Lists.newArrayList();
+    for (int partitionId = 1; partitionId < 3; ++partitionId) {
+      final int id = partitionId;
+      results.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          Iterable<Vertex<IntWritable, IntWritable, NullWritable>> vertices =
+              senderStore.removePartitionVertices(id);
+          // Streamed from the partition files, not loaded into memory
+          assertFalse(vertices instanceof Partition);
+          WorkerClientRequestProcessor<IntWritable, IntWritable,
+              NullWritable> processor = new NettyWorkerClientRequestProcessor<
+              IntWritable, IntWritable, NullWritable>(context, conf,
+              serviceWorker);
+          processor.sendPartitionVerticesRequest(receiver, id, vertices);
+          processor.flush();
+          return null;
+        }
+      }));
+    }
+    for (Future<Void> result : results) {
+      result.get();
+    }
+    executor.shutdown();
+
+    assertTrue(numRequests.get() > 2);
+    assertTrue(senderStore.hasPartition(0));
+    assertFalse(senderStore.hasPartition(1));
+    assertFalse(senderStore.hasPartition(2));
+    for (int partitionId = 1; partitionId < 3; ++partitionId) {
+      Partition<IntWritable, IntWritable, NullWritable> partition =
+          receiverStore.getOrCreatePartition(partitionId);
+      assertEquals(numVertices, partition.getVertexCount());
+      assertEquals(numVertices * NUM_OF_EDGES_PER_VERTEX,
+          partition.getEdgeCount());
+      for (Vertex<IntWritable, IntWritable, NullWritable> v : partition) {
+        int id = v.getId().get();
+        assertEquals(partitionId, id / numVertices);
+        assertEquals(id, v.getValue().get());
+        int expectedEdgeSum = 0;
+        int edgeSum = 0;
+        for (int j = 1; j <= NUM_OF_EDGES_PER_VERTEX; ++j) {
+          expectedEdgeSum += id + j;
+        }
+        for (Edge<IntWritable, NullWritable> edge : v.getEdges()) {
+          edgeSum += edge.getTargetVertexId().get();
+        }
+        assertEquals(expectedEdgeSum, edgeSum);
+      }
+      receiverStore.putPartition(partition);
+    }
+    senderStore.shutdown();
+    receiverStore.shutdown();
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void testExchangePartitionMovesInEdgeIndex() throws Exception {
+    GiraphConfiguration configuration = new GiraphConfiguration(conf);
+    GiraphConstants.IN_EDGE_INDEX.set(configuration, true);
+    final ImmutableClassesGiraphConfiguration<IntWritable, IntWritable,
+        NullWritable> indexConf = new ImmutableClassesGiraphConfiguration<
+        IntWritable, IntWritable, NullWritable>(configuration);
+    GiraphMetrics.init(indexConf);
+
+    WorkerInfo sender = createWorkerInfo(0);
+    final WorkerInfo receiver = createWorkerInfo(1);
+    final CentralizedServiceWorker<IntWritable, IntWritable, NullWritable>
+        serviceWorker = Mockito.mock(CentralizedServiceWorker.class);
+    Mockito.when(serviceWorker.getSuperstep()).thenReturn(
+        BspService.INPUT_SUPERSTEP);
+    Mockito.when(serviceWorker.getWorkerInfo()).thenReturn(sender);
+    Mockito.when(serviceWorker.getWorkerInfoList()).thenReturn(
+        Lists.newArrayList(sender, receiver));
+    Mockito.doReturn(Lists.newArrayList(
+        new BasicPartitionOwner(0, sender),
+        new BasicPartitionOwner(1, receiver))).when(
+        serviceWorker).getPartitionOwners();
+    // All vertices and edge targets are in partition 1
+    Mockito.when(serviceWorker.getVertexPartitionOwner(
+        Mockito.any(IntWritable.class))).thenReturn(
+        new BasicPartitionOwner(1, receiver));
+
+    // The receiver applies vertex and in-edge requests to its store and
+    // its in-edge index
+    final PartitionStore<IntWritable, IntWritable, NullWritable>
+        receiverStore = new SimplePartitionStore<IntWritable, IntWritable,
+        NullWritable>(indexConf, context);
+    final InEdgeIndex<IntWritable> inEdgeIndex =
+        new InEdgeIndex<IntWritable>(indexConf);
+    final ServerData<IntWritable, IntWritable, NullWritable> receiverData =
+        Mockito.mock(ServerData.class);
+    Mockito.when(receiverData.getPartitionStore()).thenReturn(receiverStore);
+    Mockito.when(receiverData.getInEdgeIndex()).thenReturn(inEdgeIndex);
+    // The partition later moves on to a third worker
+    final PartitionStore<IntWritable, IntWritable, NullWritable>
+        movedStore = new SimplePartitionStore<IntWritable, IntWritable,
+        NullWritable>(indexConf, context);
+    final InEdgeIndex<IntWritable> movedInEdgeIndex =
+        new InEdgeIndex<IntWritable>(indexConf);
+    final ServerData<IntWritable, IntWritable, NullWritable> movedData =
+        Mockito.mock(ServerData.class);
+    Mockito.when(movedData.getPartitionStore()).thenReturn(movedStore);
+    Mockito.when(movedData.getInEdgeIndex()).thenReturn(movedInEdgeIndex);
+    final AtomicReference<ServerData<IntWritable, IntWritable,
+        NullWritable>> destinationData = new AtomicReference<ServerData<
+        IntWritable, IntWritable, NullWritable>>(receiverData);
+    final AtomicInteger numInEdgeRequests = new AtomicInteger();
+    WorkerClient<IntWritable, IntWritable, NullWritable> workerClient =
+        Mockito.mock(WorkerClient.class);
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        WritableRequest sent = (WritableRequest) invocation.getArguments()[1];
+        WritableRequest request;
+        if (sent instanceof SendWorkerInEdgesRequest) {
+          request = new SendWorkerInEdgesRequest<IntWritable>();
+          numInEdgeRequests.incrementAndGet();
+        } else {
+          request = new SendWorkerVerticesRequest<IntWritable, IntWritable,
+              NullWritable>();
+        }
+        request.setConf(indexConf);
+        WritableUtils.readFieldsFromByteArray(
+            WritableUtils.writeToByteArray(sent), request);
+        ((WorkerRequest) request).doRequest(destinationData.get());
+        return null;
+      }
+    }).when(workerClient).sendWritableRequest(
+        Mockito.anyInt(), Mockito.any(WritableRequest.class));
+    Mockito.when(serviceWorker.getWorkerClient()).thenReturn(workerClient);
+
+    // Input: every vertex points to the next ones
+    int numVertices = 100;
+    WorkerClientRequestProcessor<IntWritable, IntWritable, NullWritable>
+        processor = new NettyWorkerClientRequestProcessor<IntWritable,
+        IntWritable, NullWritable>(context, indexConf, serviceWorker);
+    for (int id = 0; id < numVertices; ++id) {
+      Vertex<IntWritable, IntWritable, NullWritable> v =
+          indexConf.createVertex();
+      v.initialize(new IntWritable(id), new IntWritable(id));
+      for (int j = 1; j <= NUM_OF_EDGES_PER_VERTEX; ++j) {
+        v.addEdge(EdgeFactory.create(new IntWritable(id + j)));
+      }
+      processor.sendVertexRequest(new BasicPartitionOwner(1, receiver), v);
+    }
+    processor.flush();
+    inEdgeIndex.indexReceivedInEdges();
+    int inputInEdgeRequests = numInEdgeRequests.get();
+    assertTrue(inputInEdgeRequests > 0);
+    assertEquals(NUM_OF_EDGES_PER_VERTEX,
+        inEdgeIndex.getNumInEdges(1, new IntWritable(numVertices - 1)));
+
+    // Moving the partition from the receiver sends its vertices and moves
+    // its in-edges to the index of the new owner
+    WorkerInfo moved = createWorkerInfo(2);
+    Mockito.when(serviceWorker.getServerData()).thenReturn(receiverData);
+    destinationData.set(movedData);
+    Partition<IntWritable, IntWritable, NullWritable> partition =
+        receiverStore.removePartition(1);
+    assertEquals(numVertices, partition.getVertexCount());
+    processor = new NettyWorkerClientRequestProcessor<IntWritable,
+        IntWritable, NullWritable>(context, indexConf, serviceWorker);
+    processor.sendPartitionVerticesRequest(moved, 1, partition);
+    processor.flush();
+    movedInEdgeIndex.indexReceivedInEdges();
+    assertTrue(numInEdgeRequests.get() > inputInEdgeRequests);
+    assertEquals(0, inEdgeIndex.getInEdgeCount());
+    assertEquals(numVertices * NUM_OF_EDGES_PER_VERTEX,
+        movedInEdgeIndex.getInEdgeCount());
+    assertEquals(numVertices,
+        movedStore.getOrCreatePartition(1).getVertexCount());
+
+    // Vertex 10 is pointed to by vertices 5 to 9
+    assertEquals(NUM_OF_EDGES_PER_VERTEX,
+        movedInEdgeIndex.getNumInEdges(1, new IntWritable(10)));
+    int sourceSum = 0;
+    for (IntWritable sourceId :
+        movedInEdgeIndex.getInNeighbors(1, new IntWritable(10))) {
+      sourceSum += sourceId.get();
+    }
+    assertEquals(5 + 6 + 7 + 8 + 9, sourceSum);
+    receiverStore.shutdown();
+    movedStore.shutdown();
+  }
+
+  @Test
+  public void testInEdgeIndexWriteReadPartition() throws IOException {
+    GiraphConfiguration configuration = new GiraphConfiguration(conf);
+    GiraphConstants.IN_EDGE_INDEX.set(configuration, true);
+    ImmutableClassesGiraphConfiguration<IntWritable, IntWritable,
+        NullWritable> indexConf = new ImmutableClassesGiraphConfiguration<
+        IntWritable, IntWritable, NullWritable>(configuration);
+    InEdgeIndex<IntWritable> inEdgeIndex =
+        new InEdgeIndex<IntWritable>(indexConf);
+    // Vertex 1 is pointed to by 2 and 3, vertex 2 by 3
+    inEdgeIndex.addInEdges(4, new long[] {1, 3, 2, 3, 1, 2}, 6);
+    inEdgeIndex.indexReceivedInEdges();
+
+    // Like storing and loading a checkpoint
+    UnsafeByteArrayOutputStream outputStream =
+        new UnsafeByteArrayOutputStream();
+    inEdgeIndex.writePartition(4, outputStream);
+    InEdgeIndex<IntWritable> loadedInEdgeIndex =
+        new InEdgeIndex<IntWritable>(indexConf);
+    loadedInEdgeIndex.readPartition(4, new UnsafeByteArrayInputStream(
+        outputStream.getByteArray(), 0, outputStream.getPos()));
+    loadedInEdgeIndex.indexReceivedInEdges();
+
+    assertEquals(3, loadedInEdgeIndex.getInEdgeCount());
+    assertEquals(2, loadedInEdgeIndex.getNumInEdges(4, new IntWritable(1)));
+    assertEquals(1, loadedInEdgeIndex.getNumInEdges(4, new IntWritable(2)));
+    assertEquals(0, loadedInEdgeIndex.getNumInEdges(4, new IntWritable(3)));
+    List<Integer> sources = Lists.newArrayList();
+    for (IntWritable sourceId :
+        loadedInEdgeIndex.getInNeighbors(4, new IntWritable(1))) {
+      sources.add(sourceId.get());
+    }
+    assertEquals(Lists.newArrayList(2, 3), sources);
+  }
+
+  /**
+   * Create the info of a worker that is not listening anywhere.
+   *
+   * @param taskId Task id of the worker
+   * @return Worker info
+   */
+  private static WorkerInfo createWorkerInfo(int taskId) {
+    WorkerInfo workerInfo = new WorkerInfo();
+    workerInfo.setTaskId(taskId);
+    workerInfo.setInetSocketAddress(
+        InetSocketAddress.createUnresolved("worker" + taskId, 30000));
+    return workerInfo;
+  }
+
   private void testEdgeCombine(Class<? extends Partition> partitionClass)
       throws IOException {
     Vertex<IntWritable, IntWritable, NullWritable> v1 = conf.createVertex();
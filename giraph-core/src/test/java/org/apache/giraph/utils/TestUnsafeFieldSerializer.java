@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.utils;
+
+import org.apache.hadoop.io.LongWritable;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test {@link UnsafeFieldSerializer} and {@link UnsafeFieldsWritable}
+ */
+public class TestUnsafeFieldSerializer {
+  /** Base message with a few primitive fields */
+  public static class BaseMessage extends UnsafeFieldsWritable {
+    /** Not serialized */
+    private static int IGNORED_STATIC = 5;
+    /** Int field */
+    int count;
+    /** Not serialized */
+    transient int ignoredTransient;
+  }
+
+  /** Composite message with all supported kinds of fields */
+  public static class CompositeMessage extends BaseMessage {
+    /** Boolean field */
+    private boolean flag;
+    /** Byte field */
+    private byte b;
+    /** Short field */
+    private short s;
+    /** Char field */
+    private char c;
+    /** Long field */
+    private long l;
+    /** Float field */
+    private float f;
+    /** Double field */
+    private double d;
+    /** String field */
+    private String name;
+    /** Writable field */
+    private final LongWritable source = new LongWritable();
+  }
+
+  /** Same message, serialized by hand */
+  private static void writeByHand(CompositeMessage message, DataOutput out)
+    throws IOException {
+    // Superclass fields first, then primitives, then objects
+    out.writeInt(message.count);
+    out.writeByte(message.b);
+    out.writeChar(message.c);
+    out.writeDouble(message.d);
+    out.writeFloat(message.f);
+    out.writeBoolean(message.flag);
+    out.writeLong(message.l);
+    out.writeShort(message.s);
+    out.writeBoolean(message.name != null);
+    if (message.name != null) {
+      out.writeUTF(message.name);
+    }
+    message.source.write(out);
+  }
+
+  private static CompositeMessage createMessage() {
+    CompositeMessage message = new CompositeMessage();
+    message.count = 17;
+    message.ignoredTransient = 3;
+    message.flag = true;
+    message.b = -3;
+    message.s = 1234;
+    message.c = 'x';
+    message.l = Long.MAX_VALUE - 7;
+    message.f = 1.5f;
+    message.d = -2.25;
+    message.name = "message";
+    message.source.set(42);
+    return message;
+  }
+
+  private static void assertMessageEquals(CompositeMessage expected,
+      CompositeMessage actual) {
+    assertEquals(expected.count, actual.count);
+    assertEquals(expected.flag, actual.flag);
+    assertEquals(expected.b, actual.b);
+    assertEquals(expected.s, actual.s);
+    assertEquals(expected.c, actual.c);
+    assertEquals(expected.l, actual.l);
+    assertEquals(expected.f, actual.f, 0);
+    assertEquals(expected.d, actual.d, 0);
+    assertEquals(expected.name, actual.name);
+    assertEquals(expected.source, actual.source);
+  }
+
+  @Test
+  public void testPrimitiveBlockSize() {
+    assertEquals(4 + 1 + 1 + 2 + 2 + 8 + 4 + 8,
+        UnsafeFieldSerializer.get(CompositeMessage.class)
+            .getPrimitiveBlockSize());
+  }
+
+  @Test
+  public void testUnsafeStreams() throws IOException {
+    CompositeMessage message = createMessage();
+    UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream(4);
+    message.write(out);
+    message.write(out);
+
+    UnsafeByteArrayOutputStream expected = new UnsafeByteArrayOutputStream();
+    writeByHand(message, expected);
+    writeByHand(message, expected);
+    assertArrayEquals(expected.toByteArray(), out.toByteArray());
+
+    UnsafeByteArrayInputStream in =
+        new UnsafeByteArrayInputStream(out.getByteArray(), 0, out.getPos());
+    CompositeMessage read = new CompositeMessage();
+    LongWritable source = read.source;
+    read.readFields(in);
+    assertMessageEquals(message, read);
+    read.readFields(in);
+    assertMessageEquals(message, read);
+    assertSame(source, read.source);
+    assertEquals(0, read.ignoredTransient);
+    assertEquals(0, in.available());
+  }
+
+  @Test
+  public void testGenericStreams() throws IOException {
+    CompositeMessage message = createMessage();
+    message.name = null;
+    ExtendedByteArrayDataOutput out = new ExtendedByteArrayDataOutput();
+    message.write(out);
+
+    DataInput in = new ExtendedByteArrayDataInput(
+        out.getByteArray(), 0, out.getPos());
+    CompositeMessage read = createMessage();
+    read.readFields(in);
+    assertNull(read.name);
+    assertMessageEquals(message, read);
+  }
+
+  /** Message with a field which can't be serialized */
+  public static class UnsupportedMessage extends UnsafeFieldsWritable {
+    /** Unsupported field */
+    private Object object;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedField() throws IOException {
+    new UnsupportedMessage().write(new UnsafeByteArrayOutputStream());
+  }
+}
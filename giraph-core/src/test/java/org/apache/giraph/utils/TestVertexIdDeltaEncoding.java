@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.utils;
+
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.factories.TestMessageValueFactory;
+import org.apache.hadoop.io.LongWritable;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test {@link VertexIdDeltaEncoding} and its use in vertex id buffers
+ */
+public class TestVertexIdDeltaEncoding {
+  private static final long[] IDS = {
+      5, 6, 7, 1000, 999, -3, Long.MAX_VALUE, Long.MIN_VALUE, 0, 42
+  };
+
+  private static ImmutableClassesGiraphConfiguration<LongWritable, ?, ?>
+  createConf(boolean deltaEncoding) {
+    GiraphConfiguration initConf = new GiraphConfiguration();
+    initConf.setComputationClass(LongNoOpComputation.class);
+    GiraphConstants.VERTEX_ID_DELTA_ENCODING.set(initConf, deltaEncoding);
+    return new ImmutableClassesGiraphConfiguration<LongWritable,
+        LongWritable, LongWritable>(initConf);
+  }
+
+  @Test
+  public void testZigZagVarLong() throws IOException {
+    ExtendedByteArrayDataOutput out = new ExtendedByteArrayDataOutput();
+    long previousId = 0;
+    for (long id : IDS) {
+      VertexIdDeltaEncoding.writeDelta(out, id, previousId);
+      previousId = id;
+    }
+    ExtendedByteArrayDataInput in =
+        new ExtendedByteArrayDataInput(out.getByteArray(), 0, out.getPos());
+    previousId = 0;
+    for (long id : IDS) {
+      previousId = VertexIdDeltaEncoding.readDelta(in, previousId);
+      assertEquals(id, previousId);
+    }
+    assertTrue(in.endOfInput());
+  }
+
+  @Test
+  public void testSmallDeltasAreOneByte() throws IOException {
+    ExtendedByteArrayDataOutput out = new ExtendedByteArrayDataOutput();
+    VertexIdDeltaEncoding.writeZigZagVarLong(out, 63);
+    VertexIdDeltaEncoding.writeZigZagVarLong(out, -64);
+    assertEquals(2, out.getPos());
+  }
+
+  @Test
+  public void testVertexIdMessages() {
+    ImmutableClassesGiraphConfiguration<LongWritable, ?, ?> conf =
+        createConf(true);
+    assertTrue(conf.useVertexIdDeltaEncoding());
+    ByteArrayVertexIdMessages<LongWritable, LongWritable> messages =
+        new ByteArrayVertexIdMessages<LongWritable, LongWritable>(
+            new TestMessageValueFactory<LongWritable>(LongWritable.class));
+    messages.setConf(conf);
+    messages.initialize();
+    for (long id : IDS) {
+      messages.add(new LongWritable(id), new LongWritable(id * 2));
+    }
+
+    VertexIdMessageIterator<LongWritable, LongWritable> iterator =
+        messages.getVertexIdMessageIterator();
+    for (long id : IDS) {
+      assertTrue(iterator.hasNext());
+      iterator.next();
+      assertEquals(id, iterator.getCurrentVertexId().get());
+      assertEquals(id * 2, iterator.getCurrentMessage().get());
+    }
+    assertFalse(iterator.hasNext());
+
+    // Encoding restarts after clearing the buffer
+    messages.clear();
+    messages.add(new LongWritable(3), new LongWritable(4));
+    iterator = messages.getVertexIdMessageIterator();
+    iterator.next();
+    assertEquals(3, iterator.getCurrentVertexId().get());
+  }
+
+  @Test
+  public void testAddAfterReadFields() throws IOException {
+    ImmutableClassesGiraphConfiguration<LongWritable, ?, ?> conf =
+        createConf(true);
+    ByteArrayVertexIdMessages<LongWritable, LongWritable> written =
+        new ByteArrayVertexIdMessages<LongWritable, LongWritable>(
+            new TestMessageValueFactory<LongWritable>(LongWritable.class));
+    written.setConf(conf);
+    written.initialize();
+    written.add(new LongWritable(10), new LongWritable(1));
+    written.add(new LongWritable(20), new LongWritable(2));
+    ExtendedDataOutput out = conf.createExtendedDataOutput();
+    written.write(out);
+
+    // Reused object which already encoded ids against another base
+    ByteArrayVertexIdMessages<LongWritable, LongWritable> messages =
+        new ByteArrayVertexIdMessages<LongWritable, LongWritable>(
+            new TestMessageValueFactory<LongWritable>(LongWritable.class));
+    messages.setConf(conf);
+    messages.initialize();
+    messages.add(new LongWritable(1000), new LongWritable(0));
+    messages.readFields(
+        conf.createExtendedDataInput(out.getByteArray(), 0, out.getPos()));
+    messages.add(new LongWritable(25), new LongWritable(3));
+
+    VertexIdMessageIterator<LongWritable, LongWritable> iterator =
+        messages.getVertexIdMessageIterator();
+    for (long id : new long[] {10, 20, 25}) {
+      iterator.next();
+      assertEquals(id, iterator.getCurrentVertexId().get());
+    }
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testOneMessageToManyIds() throws IOException {
+    ImmutableClassesGiraphConfiguration<LongWritable, ?, ?> conf =
+        createConf(true);
+    ByteArrayOneMessageToManyIds<LongWritable, LongWritable> messages =
+        new ByteArrayOneMessageToManyIds<LongWritable, LongWritable>(
+            new TestMessageValueFactory<LongWritable>(LongWritable.class));
+    messages.setConf(conf);
+    messages.initialize();
+    for (int m = 0; m < 2; m++) {
+      ExtendedDataOutput ids = conf.createExtendedDataOutput();
+      long previousId = 0;
+      for (long id = 100; id < 110; id++) {
+        VertexIdDeltaEncoding.writeDelta(ids, id + m, previousId);
+        previousId = id + m;
+      }
+      messages.add(ids.getByteArray(), ids.getPos(), 10, new LongWritable(m));
+    }
+
+    VertexIdMessageIterator<LongWritable, LongWritable> iterator =
+        messages.getVertexIdMessageIterator();
+    for (int m = 0; m < 2; m++) {
+      for (long id = 100; id < 110; id++) {
+        iterator.next();
+        assertEquals(id + m, iterator.getCurrentVertexId().get());
+        assertEquals(m, iterator.getCurrentMessage().get());
+      }
+    }
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testDisabled() {
+    ImmutableClassesGiraphConfiguration<LongWritable, ?, ?> conf =
+        createConf(false);
+    assertFalse(conf.useVertexIdDeltaEncoding());
+    ByteArrayVertexIdMessages<LongWritable, LongWritable> messages =
+        new ByteArrayVertexIdMessages<LongWritable, LongWritable>(
+            new TestMessageValueFactory<LongWritable>(LongWritable.class));
+    messages.setConf(conf);
+    messages.initialize();
+    messages.add(new LongWritable(1), new LongWritable(2));
+    assertEquals(16, messages.getSize());
+  }
+}
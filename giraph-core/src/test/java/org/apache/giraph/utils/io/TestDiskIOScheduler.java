@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.utils.io;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Test case for DiskIOScheduler.
+ */
+public class TestDiskIOScheduler {
+  private File directory;
+  private DiskIOScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    directory = Files.createTempDir();
+    GiraphConfiguration conf = new GiraphConfiguration();
+    GiraphConstants.DISK_IO_THREADS_PER_DISK.set(conf, 1);
+    scheduler = new DiskIOScheduler(
+        new ImmutableClassesGiraphConfiguration(conf));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    scheduler.shutdown();
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private void writeInts(File file, int count, boolean append)
+    throws IOException {
+    DataOutputStream out = scheduler.openScheduledOutput(file,
+        DiskIOPriority.EVICTION, append);
+    for (int i = 0; i < count; i++) {
+      out.writeInt(i);
+    }
+    out.close();
+  }
+
+  private long sumInts(File file) throws IOException {
+    DataInputStream in =
+        scheduler.openScheduledInput(file, DiskIOPriority.DEMAND_LOAD);
+    long sum = 0;
+    for (long i = 0; i < file.length() / 4; i++) {
+      sum += in.readInt();
+    }
+    Assert.assertEquals(-1, in.read());
+    in.close();
+    return sum;
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    File file = new File(directory, "ints");
+    writeInts(file, 100, false);
+    Assert.assertEquals(400, file.length());
+    Assert.assertEquals(4950, sumInts(file));
+  }
+
+  @Test
+  public void testMultipleChunks() throws IOException {
+    // 4 MB are written and read in several chunks
+    File file = new File(directory, "chunks");
+    int count = 1024 * 1024;
+    writeInts(file, count, false);
+    Assert.assertEquals(4L * count, file.length());
+    Assert.assertEquals((long) count * (count - 1) / 2, sumInts(file));
+  }
+
+  @Test
+  public void testEmptyFile() throws IOException {
+    File file = new File(directory, "empty");
+    writeInts(file, 0, false);
+    Assert.assertTrue(file.exists());
+    Assert.assertEquals(0, sumInts(file));
+  }
+
+  @Test
+  public void testAppend() throws IOException {
+    File file = new File(directory, "appended");
+    writeInts(file, 10, false);
+    writeInts(file, 10, true);
+    Assert.assertEquals(80, file.length());
+    Assert.assertEquals(90, sumInts(file));
+    writeInts(file, 5, false);
+    Assert.assertEquals(20, file.length());
+  }
+
+  @Test
+  public void testInline() throws IOException {
+    GiraphConfiguration conf = new GiraphConfiguration();
+    GiraphConstants.DISK_IO_THREADS_PER_DISK.set(conf, 0);
+    DiskIOScheduler inline = new DiskIOScheduler(
+        new ImmutableClassesGiraphConfiguration(conf));
+    File file = new File(directory, "inline");
+    DataOutputStream out =
+        inline.openScheduledOutput(file, DiskIOPriority.EVICTION, false);
+    out.write(new byte[] {1, 2, 3}, 0, 2);
+    out.close();
+    byte[] bytes = new byte[2];
+    DataInputStream in =
+        inline.openScheduledInput(file, DiskIOPriority.DEMAND_LOAD);
+    in.readFully(bytes);
+    Assert.assertEquals(-1, in.read());
+    in.close();
+    Assert.assertArrayEquals(new byte[] {1, 2}, bytes);
+    inline.shutdown();
+  }
+
+  @Test(expected = IOException.class)
+  public void testFailedRead() throws IOException {
+    scheduler.openScheduledInput(new File(directory, "missing"),
+        DiskIOPriority.DEMAND_LOAD);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph.worker;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link InputSplitPathOrganizer}.
+ */
+public class TestInputSplitPathOrganizer {
+  /**
+   * Order sensitive mapping formats rely on every worker iterating over
+   * the splits in the same order, whatever order ZooKeeper lists them in.
+   */
+  @Test
+  public void testSameOrderForShuffledPaths() {
+    List<String> paths = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      paths.add("/_hadoopBsp/job/_mappingInputSplitDir/" + i);
+    }
+    List<String> expected = Lists.newArrayList(
+        new InputSplitPathOrganizer(null, paths).getPathList());
+    Random random = new Random(42);
+    for (int i = 0; i < 10; i++) {
+      List<String> shuffled = Lists.newArrayList(paths);
+      Collections.shuffle(shuffled, random);
+      assertEquals(expected, Lists.newArrayList(
+          new InputSplitPathOrganizer(null, shuffled).getPathList()));
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.giraph;
+
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.edge.Edge;
+import org.apache.giraph.edge.EdgeFactory;
+import org.apache.giraph.edge.OutEdges;
+import org.apache.giraph.examples.SimpleSuperstepComputation;
+import org.apache.giraph.graph.BasicComputation;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.job.GiraphJob;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that checkpoints of a static graph, which store the edges only
+ * once, restore vertices added and removed after the edges were stored,
+ * including added vertices with edges.
+ */
+public class TestStaticGraphCheckpointing extends BspCase {
+  /** ID of the original job */
+  private static final String TEST_JOB_ID = "static_graph_test_job";
+  /** ID of the restarted job */
+  private static final String RESTARTED_JOB_ID =
+      "restarted_static_graph_test_job";
+  /** Superstep to restart from */
+  private static final long RESTART_SUPERSTEP = 4;
+  /** Id of the vertex added without edges after the edges were stored */
+  private static final long ADDED_VERTEX_ID = 100;
+  /** Id of the vertex added with edges after the edges were stored */
+  private static final long ADDED_VERTEX_WITH_EDGES_ID = 101;
+  /** Id of the vertex removed after the edges were stored */
+  private static final long REMOVED_VERTEX_ID = 4;
+
+  /** First superstep the computation is allowed to run */
+  private static volatile long FIRST_SUPERSTEP;
+  /** Final vertex values, by vertex id */
+  private static final ConcurrentMap<Long, Integer> VALUES =
+      Maps.newConcurrentMap();
+  /** Final number of edges, by vertex id */
+  private static final ConcurrentMap<Long, Integer> NUM_EDGES =
+      Maps.newConcurrentMap();
+
+  /**
+   * Create the test case
+   */
+  public TestStaticGraphCheckpointing() {
+    super(TestStaticGraphCheckpointing.class.getName());
+  }
+
+  @Test
+  public void testRestartFromValuesOnlyCheckpoint()
+      throws IOException, InterruptedException, ClassNotFoundException {
+    Path checkpointsDir = getTempPath("static_graph_checkpointing");
+
+    FIRST_SUPERSTEP = 0;
+    runJob(checkpointsDir, TEST_JOB_ID, null, "static_graph_original");
+    if (runningInDistributedMode()) {
+      return;
+    }
+    Map<Long, Integer> values = Maps.newHashMap(VALUES);
+    Map<Long, Integer> numEdges = Maps.newHashMap(NUM_EDGES);
+    assertEquals(Integer.valueOf(7), values.get(ADDED_VERTEX_ID));
+    assertEquals(Integer.valueOf(0), numEdges.get(ADDED_VERTEX_ID));
+    // Computed in supersteps 3 and 4 with an edge of value 5
+    assertEquals(Integer.valueOf(7 + 2 * 6),
+        values.get(ADDED_VERTEX_WITH_EDGES_ID));
+    assertEquals(Integer.valueOf(1),
+        numEdges.get(ADDED_VERTEX_WITH_EDGES_ID));
+    assertFalse(values.containsKey(REMOVED_VERTEX_ID));
+    for (long id = 0; id < REMOVED_VERTEX_ID; ++id) {
+      assertEquals(Integer.valueOf(1), numEdges.get(id));
+    }
+
+    FIRST_SUPERSTEP = RESTART_SUPERSTEP;
+    runJob(checkpointsDir, RESTARTED_JOB_ID, TEST_JOB_ID,
+        "static_graph_restarted");
+    assertEquals(values, VALUES);
+    assertEquals(numEdges, NUM_EDGES);
+  }
+
+  /**
+   * Run a job with the static graph computation.
+   *
+   * @param checkpointsDir Checkpoint directory shared by the jobs
+   * @param jobId Id of the job
+   * @param restartJobId Id of the job to restart from, null for none
+   * @param outputName Name of the output directory
+   */
+  private void runJob(Path checkpointsDir, String jobId, String restartJobId,
+      String outputName)
+      throws IOException, InterruptedException, ClassNotFoundException {
+    VALUES.clear();
+    NUM_EDGES.clear();
+    GiraphConfiguration conf = new GiraphConfiguration();
+    conf.setComputationClass(StaticGraphComputation.class);
+    conf.setVertexInputFormatClass(
+        SimpleSuperstepComputation.SimpleSuperstepVertexInputFormat.class);
+    conf.setVertexOutputFormatClass(
+        SimpleSuperstepComputation.SimpleSuperstepVertexOutputFormat.class);
+    GiraphConstants.STATIC_GRAPH.set(conf, true);
+    GiraphConstants.CHECKPOINT_STATIC_GRAPH_EDGES_ONCE.set(conf, true);
+    GiraphConstants.CLEANUP_CHECKPOINTS_AFTER_SUCCESS.set(conf, false);
+    conf.setCheckpointFrequency(2);
+    conf.set("mapred.job.id", jobId);
+    if (restartJobId != null) {
+      GiraphConstants.RESTART_JOB_ID.set(conf, restartJobId);
+      conf.set(GiraphConstants.RESTART_SUPERSTEP,
+          Long.toString(RESTART_SUPERSTEP));
+    }
+    GiraphJob job = prepareJob(getCallingMethodName(), conf,
+        getTempPath(outputName));
+    GiraphConstants.CHECKPOINT_DIRECTORY.set(job.getConfiguration(),
+        checkpointsDir.toString());
+    assertTrue(job.run(true));
+  }
+
+  /**
+   * Computation which never changes the edges of the vertices it reads,
+   * but adds and removes a vertex after the first checkpoint.
+   */
+  public static class StaticGraphComputation extends
+      BasicComputation<LongWritable, IntWritable, FloatWritable,
+          IntWritable> {
+    @Override
+    public void compute(
+        Vertex<LongWritable, IntWritable, FloatWritable> vertex,
+        Iterable<IntWritable> messages) throws IOException {
+      assertTrue("Superstep " + getSuperstep() + " should not be executed",
+          getSuperstep() >= FIRST_SUPERSTEP);
+      long id = vertex.getId().get();
+      if (getSuperstep() == 5) {
+        VALUES.put(id, vertex.getValue().get());
+        NUM_EDGES.put(id, vertex.getNumEdges());
+        vertex.voteToHalt();
+        return;
+      }
+
+      int value = vertex.getValue().get();
+      for (Edge<LongWritable, FloatWritable> edge : vertex.getEdges()) {
+        value += (int) edge.getValue().get() + 1;
+      }
+      vertex.setValue(new IntWritable(value));
+
+      if (getSuperstep() == 2) {
+        if (id == REMOVED_VERTEX_ID) {
+          removeVertexRequest(vertex.getId());
+        } else if (id == 0) {
+          addVertexRequest(new LongWritable(ADDED_VERTEX_ID),
+              new IntWritable(7));
+          OutEdges<LongWritable, FloatWritable> edges =
+              getConf().createAndInitializeOutEdges();
+          edges.add(EdgeFactory.create(new LongWritable(0),
+              new FloatWritable(5)));
+          addVertexRequest(new LongWritable(ADDED_VERTEX_WITH_EDGES_ID),
+              new IntWritable(7), edges);
+        }
+      } else if (getSuperstep() == 3 && id == 1) {
+        vertex.voteToHalt();
+      } else if (getSuperstep() == 4 && id == 0) {
+        sendMessage(new LongWritable(1), new IntWritable(1));
+      }
+    }
+  }
+}